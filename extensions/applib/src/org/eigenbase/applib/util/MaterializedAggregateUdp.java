@@ -0,0 +1,603 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package org.eigenbase.applib.util;
+
+import java.sql.*;
+
+import java.util.*;
+import java.util.logging.*;
+
+import net.sf.farrago.catalog.*;
+import net.sf.farrago.cwm.core.*;
+import net.sf.farrago.fem.med.*;
+import net.sf.farrago.jdbc.engine.*;
+import net.sf.farrago.runtime.*;
+import net.sf.farrago.session.*;
+import net.sf.farrago.trace.*;
+
+import org.eigenbase.applib.resource.*;
+import org.eigenbase.sql.*;
+import org.eigenbase.sql.fun.*;
+import org.eigenbase.sql.parser.*;
+import org.eigenbase.util.*;
+
+import org.luciddb.lcs.*;
+
+
+/**
+ * Creates and refreshes materialized aggregates: column-store tables which
+ * hold the result of a GROUP BY query over a single column-store table, and
+ * which the optimizer uses to answer matching aggregate queries against that
+ * table (see {@link LcsMaterializedAggregate}).
+ *
+ * <p>The defining query may only select grouping columns and COUNT, SUM, MIN
+ * and MAX of base table columns, with no WHERE or HAVING clause. Aggregate
+ * columns need aliases, since they become column names of the materialized
+ * table.
+ *
+ * <p>If the base table has only been appended to since the previous
+ * refresh, a refresh aggregates just the rows whose LCS_RID is above the
+ * previous refresh's high-water mark and merges them into the materialized
+ * table. Otherwise it recomputes the whole table.
+ *
+ * @version $Id$
+ */
+public abstract class MaterializedAggregateUdp
+{
+    //~ Static fields/initializers ---------------------------------------------
+
+    private static final Logger tracer =
+        FarragoTrace.getClassTracer(MaterializedAggregateUdp.class);
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Creates and populates a materialized aggregate.
+     *
+     * @param schemaName schema of materialized table, or null for the
+     * session default
+     * @param tableName name of materialized table
+     * @param query defining GROUP BY query
+     *
+     * @throws Exception
+     */
+    public static void create(
+        String schemaName,
+        String tableName,
+        String query)
+        throws Exception
+    {
+        if ((tableName == null) || (tableName.length() == 0)) {
+            throw ApplibResource.instance().InputIsRequired.ex("tableName");
+        }
+        if ((query == null) || (query.trim().length() == 0)) {
+            throw ApplibResource.instance().InputIsRequired.ex("query");
+        }
+        schemaName = getSchemaName(schemaName);
+
+        SqlNode node = new SqlParser(query).parseQuery();
+        if (!(node instanceof SqlSelect)) {
+            throw ApplibResource.instance().UnsupportedMaterializedAggregate
+            .ex(query);
+        }
+        SqlSelect select = (SqlSelect) node;
+        if ((select.getWhere() != null)
+            || (select.getHaving() != null)
+            || select.isDistinct()
+            || !(select.getFrom() instanceof SqlIdentifier))
+        {
+            throw ApplibResource.instance().UnsupportedMaterializedAggregate
+            .ex(query);
+        }
+        SqlIdentifier baseId = (SqlIdentifier) select.getFrom();
+
+        List<LcsMaterializedAggregate.ColumnKind> kinds =
+            new ArrayList<LcsMaterializedAggregate.ColumnKind>();
+        List<Integer> baseOrdinals = new ArrayList<Integer>();
+        FarragoSession session = FarragoUdrRuntime.getSession();
+        FarragoRepos repos = session.getRepos();
+        FarragoSessionStmtValidator stmtValidator = session.newStmtValidator();
+        FarragoReposTxnContext txn = repos.newTxnContext(true);
+        try {
+            txn.beginReadTxn();
+            FemLocalTable baseTable =
+                stmtValidator.findSchemaObject(baseId, FemLocalTable.class);
+            analyze(select, baseTable, kinds, baseOrdinals);
+            txn.commit();
+        } finally {
+            txn.rollback();
+            stmtValidator.closeAllocation();
+        }
+
+        CreateTbFromSelectStmtUdp.execute(schemaName, tableName, query, false);
+
+        stmtValidator = session.newStmtValidator();
+        txn = repos.newTxnContext(true);
+        try {
+            txn.beginWriteTxn();
+            FemLocalTable baseTable =
+                stmtValidator.findSchemaObject(baseId, FemLocalTable.class);
+            FemLocalTable table =
+                findTable(stmtValidator, schemaName, tableName);
+            LcsMaterializedAggregate.define(
+                repos,
+                table,
+                baseTable,
+                kinds,
+                baseOrdinals);
+            txn.commit();
+        } finally {
+            txn.rollback();
+            stmtValidator.closeAllocation();
+        }
+
+        refresh(schemaName, tableName);
+    }
+
+    /**
+     * Brings a materialized aggregate up to date with its base table.
+     *
+     * @param schemaName schema of materialized table, or null for the
+     * session default
+     * @param tableName name of materialized table
+     *
+     * @throws Exception
+     */
+    public static void refresh(String schemaName, String tableName)
+        throws Exception
+    {
+        if ((tableName == null) || (tableName.length() == 0)) {
+            throw ApplibResource.instance().InputIsRequired.ex("tableName");
+        }
+        schemaName = getSchemaName(schemaName);
+
+        FarragoSession session = FarragoUdrRuntime.getSession();
+        FarragoRepos repos = session.getRepos();
+        LcsMaterializedAggregate mv;
+        String baseName;
+        List<String> baseColumns;
+        List<String> columns;
+        long refreshCsn;
+        long rewrittenCsn;
+        String oldWatermark;
+        long csn;
+        FarragoSessionStmtValidator stmtValidator = session.newStmtValidator();
+        FarragoReposTxnContext txn = repos.newTxnContext(true);
+        try {
+            txn.beginReadTxn();
+            FemLocalTable table =
+                findTable(stmtValidator, schemaName, tableName);
+            mv = LcsMaterializedAggregate.lookup(repos, table);
+            Object baseTable = null;
+            if (mv != null) {
+                baseTable =
+                    repos.getMdrRepos().getByMofId(
+                        repos.getTagAnnotationValue(
+                            table,
+                            LcsMaterializedAggregate.BASE_TABLE_TAG));
+            }
+            if (!(baseTable instanceof FemLocalTable)) {
+                throw ApplibResource.instance().NotMaterializedAggregate.ex(
+                    repos.getLocalizedObjectName(schemaName),
+                    repos.getLocalizedObjectName(tableName));
+            }
+            baseName =
+                quoteName(
+                    FarragoCatalogUtil.getQualifiedName(
+                        (FemLocalTable) baseTable));
+            baseColumns = getColumnNames((FemLocalTable) baseTable);
+            columns = getColumnNames(table);
+            refreshCsn =
+                LcsMaterializedAggregate.getCsn(
+                    repos,
+                    table,
+                    LcsMaterializedAggregate.REFRESH_CSN_TAG);
+            rewrittenCsn =
+                LcsMaterializedAggregate.getCsn(
+                    repos,
+                    (FemLocalTable) baseTable,
+                    LcsMaterializedAggregate.REWRITTEN_CSN_TAG);
+            oldWatermark =
+                repos.getTagAnnotationValue(
+                    table,
+                    LcsMaterializedAggregate.RID_WATERMARK_TAG);
+            txn.commit();
+        } finally {
+            txn.rollback();
+            stmtValidator.closeAllocation();
+        }
+
+        SqlDialect dialect = SqlDialect.EIGENBASE;
+        String target =
+            dialect.quoteIdentifier(schemaName) + "."
+            + dialect.quoteIdentifier(tableName);
+        String rid = "LCS_RID(" + dialect.quoteIdentifier(baseColumns.get(0))
+            + ")";
+        boolean hasKeys = false;
+        for (int i = 0; i < mv.getColumnCount(); ++i) {
+            if (mv.getColumnKind(i)
+                == LcsMaterializedAggregate.ColumnKind.KEY)
+            {
+                hasKeys = true;
+            }
+        }
+
+        long newWatermark;
+        Connection conn = null;
+        Statement stmt = null;
+        try {
+            conn = DriverManager.getConnection("jdbc:default:connection");
+            stmt = conn.createStatement();
+
+            // Bound the refresh by the RIDs present now, so that rows
+            // appended while it runs are left for the next one.
+            ResultSet rs =
+                stmt.executeQuery("select max(" + rid + ") from " + baseName);
+            try {
+                rs.next();
+                newWatermark = rs.getLong(1);
+                if (rs.wasNull()) {
+                    newWatermark = -1;
+                }
+
+                // The query's transaction is still open, so this is the CSN
+                // of the snapshot which the watermark was read from; any
+                // modification which the refresh might miss counts as newer.
+                csn =
+                    LcsMaterializedAggregate.getTxnCsn(
+                        FarragoJdbcRoutineDriver.getSessionForConnection(
+                            conn));
+            } finally {
+                rs.close();
+            }
+
+            if ((refreshCsn >= 0)
+                && (rewrittenCsn < refreshCsn)
+                && (oldWatermark != null)
+                && hasKeys)
+            {
+                if (newWatermark > Long.parseLong(oldWatermark)) {
+                    String source =
+                        getAggregateQuery(
+                            mv,
+                            columns,
+                            baseColumns,
+                            baseName,
+                            rid + " > " + oldWatermark + " and " + rid
+                            + " <= " + newWatermark);
+                    execute(
+                        stmt,
+                        getMergeStatement(mv, columns, target, source));
+                }
+            } else {
+                execute(stmt, "truncate table " + target);
+                execute(
+                    stmt,
+                    "insert into " + target + " "
+                    + getAggregateQuery(
+                        mv,
+                        columns,
+                        baseColumns,
+                        baseName,
+                        rid + " <= " + newWatermark));
+            }
+        } finally {
+            if (stmt != null) {
+                stmt.close();
+            }
+            if (conn != null) {
+                conn.close();
+            }
+        }
+
+        stmtValidator = session.newStmtValidator();
+        txn = repos.newTxnContext(true);
+        try {
+            txn.beginWriteTxn();
+            FemLocalTable table =
+                findTable(stmtValidator, schemaName, tableName);
+            repos.setTagAnnotationValue(
+                table,
+                LcsMaterializedAggregate.REFRESH_CSN_TAG,
+                Long.toString(csn));
+            repos.setTagAnnotationValue(
+                table,
+                LcsMaterializedAggregate.RID_WATERMARK_TAG,
+                Long.toString(newWatermark));
+            txn.commit();
+        } finally {
+            txn.rollback();
+            stmtValidator.closeAllocation();
+        }
+    }
+
+    private static String getSchemaName(String schemaName)
+    {
+        if (schemaName == null) {
+            schemaName =
+                FarragoUdrRuntime.getSession().getSessionVariables()
+                .schemaName;
+            if (schemaName == null) {
+                throw ApplibResource.instance().InputIsRequired.ex(
+                    "schemaName");
+            }
+        }
+        return schemaName;
+    }
+
+    private static FemLocalTable findTable(
+        FarragoSessionStmtValidator stmtValidator,
+        String schemaName,
+        String tableName)
+    {
+        return stmtValidator.findSchemaObject(
+            new SqlIdentifier(
+                new String[] { schemaName, tableName },
+                SqlParserPos.ZERO),
+            FemLocalTable.class);
+    }
+
+    private static List<String> getColumnNames(FemLocalTable table)
+    {
+        List<String> names = new ArrayList<String>();
+        for (
+            CwmFeature column
+            : Util.cast(table.getFeature(), CwmFeature.class))
+        {
+            names.add(column.getName());
+        }
+        return names;
+    }
+
+    private static String quoteName(SqlIdentifier id)
+    {
+        StringBuilder buf = new StringBuilder();
+        for (String name : id.names) {
+            if (buf.length() > 0) {
+                buf.append(".");
+            }
+            buf.append(SqlDialect.EIGENBASE.quoteIdentifier(name));
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Works out the meaning of each column of a materialized aggregate from
+     * its defining query.
+     */
+    private static void analyze(
+        SqlSelect select,
+        FemLocalTable baseTable,
+        List<LcsMaterializedAggregate.ColumnKind> kinds,
+        List<Integer> baseOrdinals)
+    {
+        List<String> baseColumns = getColumnNames(baseTable);
+        Set<Integer> groupOrdinals = new HashSet<Integer>();
+        if (select.getGroup() != null) {
+            for (SqlNode groupItem : select.getGroup().getList()) {
+                groupOrdinals.add(getBaseOrdinal(baseColumns, groupItem));
+            }
+        }
+        for (SqlNode selectItem : select.getSelectList().getList()) {
+            SqlNode expr = selectItem;
+            if ((expr instanceof SqlCall)
+                && (((SqlCall) expr).getOperator()
+                    == SqlStdOperatorTable.asOperator))
+            {
+                expr = ((SqlCall) expr).getOperands()[0];
+            }
+            if (expr instanceof SqlIdentifier) {
+                int ordinal = getBaseOrdinal(baseColumns, expr);
+                if (!groupOrdinals.remove(ordinal)) {
+                    throw ApplibResource.instance()
+                    .UnsupportedMaterializedAggregate.ex(expr.toString());
+                }
+                kinds.add(LcsMaterializedAggregate.ColumnKind.KEY);
+                baseOrdinals.add(ordinal);
+                continue;
+            }
+            LcsMaterializedAggregate.ColumnKind kind = null;
+            SqlNode arg = null;
+            if (expr instanceof SqlCall) {
+                SqlCall call = (SqlCall) expr;
+                String name = call.getOperator().getName().toUpperCase();
+                if (name.equals("COUNT")
+                    || name.equals("SUM")
+                    || name.equals("MIN")
+                    || name.equals("MAX"))
+                {
+                    kind = LcsMaterializedAggregate.ColumnKind.valueOf(name);
+                }
+                if ((call.getFunctionQuantifier() != null)
+                    || (call.getOperands().length != 1))
+                {
+                    kind = null;
+                } else {
+                    arg = call.getOperands()[0];
+                }
+            }
+            if (kind == null) {
+                throw ApplibResource.instance()
+                .UnsupportedMaterializedAggregate.ex(expr.toString());
+            }
+            kinds.add(kind);
+            if ((kind == LcsMaterializedAggregate.ColumnKind.COUNT)
+                && (arg instanceof SqlIdentifier)
+                && ((SqlIdentifier) arg).isStar())
+            {
+                baseOrdinals.add(-1);
+            } else {
+                baseOrdinals.add(getBaseOrdinal(baseColumns, arg));
+            }
+        }
+        if (!groupOrdinals.isEmpty()) {
+            // every grouping column must be stored
+            throw ApplibResource.instance().UnsupportedMaterializedAggregate
+            .ex(select.getGroup().toString());
+        }
+    }
+
+    private static int getBaseOrdinal(List<String> baseColumns, SqlNode node)
+    {
+        if (node instanceof SqlIdentifier) {
+            SqlIdentifier id = (SqlIdentifier) node;
+            int ordinal = baseColumns.indexOf(id.names[id.names.length - 1]);
+            if (ordinal >= 0) {
+                return ordinal;
+            }
+        }
+        throw ApplibResource.instance().UnsupportedMaterializedAggregate.ex(
+            node.toString());
+    }
+
+    /**
+     * Builds a query computing the contents of a materialized aggregate from
+     * the base table rows satisfying a predicate.
+     */
+    private static String getAggregateQuery(
+        LcsMaterializedAggregate mv,
+        List<String> columns,
+        List<String> baseColumns,
+        String baseName,
+        String predicate)
+    {
+        SqlDialect dialect = SqlDialect.EIGENBASE;
+        StringBuilder selectList = new StringBuilder();
+        StringBuilder groupList = new StringBuilder();
+        for (int i = 0; i < mv.getColumnCount(); ++i) {
+            int ordinal = mv.getBaseOrdinal(i);
+            String arg =
+                (ordinal < 0) ? "*"
+                : dialect.quoteIdentifier(baseColumns.get(ordinal));
+            if (i > 0) {
+                selectList.append(", ");
+            }
+            if (mv.getColumnKind(i)
+                == LcsMaterializedAggregate.ColumnKind.KEY)
+            {
+                if (groupList.length() > 0) {
+                    groupList.append(", ");
+                }
+                groupList.append(arg);
+                selectList.append(arg);
+            } else {
+                selectList.append(mv.getColumnKind(i).name()).append("(")
+                .append(arg).append(")");
+            }
+            selectList.append(" as ").append(
+                dialect.quoteIdentifier(columns.get(i)));
+        }
+        StringBuilder query = new StringBuilder();
+        query.append("select ").append(selectList).append(" from ").append(
+            baseName).append(" where ").append(predicate);
+        if (groupList.length() > 0) {
+            query.append(" group by ").append(groupList);
+        }
+        return query.toString();
+    }
+
+    /**
+     * Builds a MERGE statement which combines aggregated new base table rows
+     * with the existing contents of a materialized aggregate.
+     */
+    private static String getMergeStatement(
+        LcsMaterializedAggregate mv,
+        List<String> columns,
+        String target,
+        String sourceQuery)
+    {
+        SqlDialect dialect = SqlDialect.EIGENBASE;
+        StringBuilder on = new StringBuilder();
+        StringBuilder set = new StringBuilder();
+        StringBuilder insertList = new StringBuilder();
+        StringBuilder valueList = new StringBuilder();
+        for (int i = 0; i < mv.getColumnCount(); ++i) {
+            String quoted = dialect.quoteIdentifier(columns.get(i));
+            String tgt = "tgt." + quoted;
+            String src = "src." + quoted;
+            switch (mv.getColumnKind(i)) {
+            case KEY:
+                if (on.length() > 0) {
+                    on.append(" and ");
+                }
+                on.append(tgt).append(" is not distinct from ").append(src);
+                break;
+            case COUNT:
+                appendAssignment(set, quoted, tgt + " + " + src);
+                break;
+            case SUM:
+                appendAssignment(
+                    set,
+                    quoted,
+                    "case when " + tgt + " is null then " + src
+                    + " when " + src + " is null then " + tgt
+                    + " else " + tgt + " + " + src + " end");
+                break;
+            case MIN:
+            case MAX:
+                String op =
+                    (mv.getColumnKind(i)
+                        == LcsMaterializedAggregate.ColumnKind.MIN) ? " < "
+                    : " > ";
+                appendAssignment(
+                    set,
+                    quoted,
+                    "case when " + tgt + " is null or " + src + op + tgt
+                    + " then " + src + " else " + tgt + " end");
+                break;
+            }
+            if (insertList.length() > 0) {
+                insertList.append(", ");
+                valueList.append(", ");
+            }
+            insertList.append(quoted);
+            valueList.append(src);
+        }
+
+        StringBuilder merge = new StringBuilder();
+        merge.append("merge into ").append(target).append(" as tgt using (")
+        .append(sourceQuery).append(") as src on ").append(on);
+        if (set.length() > 0) {
+            merge.append(" when matched then update set ").append(set);
+        }
+        merge.append(" when not matched then insert (").append(insertList)
+        .append(") values (").append(valueList).append(")");
+        return merge.toString();
+    }
+
+    private static void appendAssignment(
+        StringBuilder set,
+        String column,
+        String expr)
+    {
+        if (set.length() > 0) {
+            set.append(", ");
+        }
+        set.append(column).append(" = ").append(expr);
+    }
+
+    private static void execute(Statement stmt, String sql)
+        throws SQLException
+    {
+        tracer.info("materialized aggregate refresh statement: " + sql);
+        stmt.executeUpdate(sql);
+    }
+}
+
+// End MaterializedAggregateUdp.java
@@ -0,0 +1,607 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package org.eigenbase.applib.util;
+
+import java.math.*;
+
+import java.sql.*;
+
+import java.util.*;
+import java.util.logging.*;
+
+import net.sf.farrago.catalog.*;
+import net.sf.farrago.cwm.core.*;
+import net.sf.farrago.fem.med.*;
+import net.sf.farrago.fem.sql2003.*;
+import net.sf.farrago.runtime.*;
+import net.sf.farrago.session.*;
+import net.sf.farrago.trace.*;
+
+import org.eigenbase.applib.resource.*;
+import org.eigenbase.reltype.*;
+import org.eigenbase.sql.*;
+import org.eigenbase.sql.parser.*;
+import org.eigenbase.sql.type.*;
+import org.eigenbase.util.*;
+
+
+/**
+ * Maintains range-partitioned views: UNION ALL views over a set of
+ * column-store tables in one schema, each of which holds the rows whose
+ * partitioning column falls into a range of its own. Since every partition
+ * is a table in its own right, with its own clusters and indexes, loading,
+ * truncating and analyzing a partition only touches that partition, and
+ * attaching or detaching one only redefines the view.
+ *
+ * <p>Each branch of the view restricts its partition to the partition's
+ * range, lower bound inclusive and upper bound exclusive, so rows loaded
+ * into a partition outside its range are not visible through the view. The
+ * bounds are written into the view as literals of the partitioning column's
+ * type, so the optimizer can drop the branches whose range contradicts a
+ * query's predicates on the partitioning column.
+ *
+ * <p>All partitions of a view must be partitioned on the same column, which
+ * must be numeric, character or datetime, and their ranges must not
+ * overlap.
+ *
+ * <p>Partitions are recorded by tagging the partition tables with the name
+ * of the view, the partitioning column and the bounds.
+ *
+ * @version $Id$
+ */
+public abstract class RangePartitionUdp
+{
+    //~ Static fields/initializers ---------------------------------------------
+
+    private static final Logger tracer =
+        FarragoTrace.getClassTracer(RangePartitionUdp.class);
+
+    /**
+     * Tag on a partition table holding the name of its view.
+     */
+    public static final String VIEW_TAG = "luciddb.rangePartition.view";
+
+    /**
+     * Tag on a partition table holding the name of the partitioning column.
+     */
+    public static final String COLUMN_TAG = "luciddb.rangePartition.column";
+
+    /**
+     * Tag on a partition table holding the inclusive lower bound of its
+     * range, as the text of a value of the partitioning column's type;
+     * absent if the range is unbounded below.
+     */
+    public static final String LOWER_BOUND_TAG =
+        "luciddb.rangePartition.lowerBound";
+
+    /**
+     * Tag on a partition table holding the exclusive upper bound of its
+     * range, as the text of a value of the partitioning column's type;
+     * absent if the range is unbounded above.
+     */
+    public static final String UPPER_BOUND_TAG =
+        "luciddb.rangePartition.upperBound";
+
+    private static final String [] TAGS =
+    {
+        VIEW_TAG, COLUMN_TAG, LOWER_BOUND_TAG, UPPER_BOUND_TAG
+    };
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Adds a table to a range-partitioned view, creating the view if this is
+     * its first partition. Attaching a table which is already a partition of
+     * the view changes its range.
+     *
+     * <p>Bounds are given as text, for example <code>100</code>, <code>
+     * ABC</code> or <code>2009-01-01</code>, not as SQL literals; they are
+     * converted to the partitioning column's type.
+     *
+     * @param schemaName schema of view and table, or null for the session
+     * default
+     * @param viewName name of view
+     * @param tableName name of partition table
+     * @param columnName name of partitioning column
+     * @param lowerBound inclusive lower bound of the partition's range, or
+     * null if unbounded
+     * @param upperBound exclusive upper bound of the partition's range, or
+     * null if unbounded
+     *
+     * @throws Exception
+     */
+    public static void attach(
+        String schemaName,
+        String viewName,
+        String tableName,
+        String columnName,
+        String lowerBound,
+        String upperBound)
+        throws Exception
+    {
+        checkRequired(viewName, "viewName");
+        checkRequired(tableName, "tableName");
+        checkRequired(columnName, "columnName");
+        schemaName = getSchemaName(schemaName);
+        lowerBound = trimToNull(lowerBound);
+        upperBound = trimToNull(upperBound);
+
+        FarragoSession session = FarragoUdrRuntime.getSession();
+        FarragoRepos repos = session.getRepos();
+        List<Partition> partitions;
+        FarragoSessionStmtValidator stmtValidator = session.newStmtValidator();
+        FarragoReposTxnContext txn = repos.newTxnContext(true);
+        try {
+            txn.beginReadTxn();
+            FemLocalTable table =
+                findTable(stmtValidator, schemaName, tableName);
+            Partition newPartition =
+                new Partition(
+                    stmtValidator,
+                    table,
+                    columnName,
+                    lowerBound,
+                    upperBound);
+            String oldViewName = repos.getTagAnnotationValue(table, VIEW_TAG);
+            if ((oldViewName != null) && !oldViewName.equals(viewName)) {
+                throw ApplibResource.instance().PartitionOfOtherView.ex(
+                    repos.getLocalizedObjectName(schemaName),
+                    repos.getLocalizedObjectName(tableName),
+                    repos.getLocalizedObjectName(oldViewName));
+            }
+            partitions = getPartitions(stmtValidator, table, viewName);
+            for (Partition partition : partitions) {
+                newPartition.checkCompatible(
+                    repos,
+                    partition,
+                    schemaName,
+                    viewName);
+            }
+            partitions.add(newPartition);
+            txn.commit();
+        } finally {
+            txn.rollback();
+            stmtValidator.closeAllocation();
+        }
+
+        defineView(schemaName, viewName, partitions);
+
+        stmtValidator = session.newStmtValidator();
+        txn = repos.newTxnContext(true);
+        try {
+            txn.beginWriteTxn();
+            FemLocalTable table =
+                findTable(stmtValidator, schemaName, tableName);
+            removeTags(repos, table);
+            repos.setTagAnnotationValue(table, VIEW_TAG, viewName);
+            repos.setTagAnnotationValue(table, COLUMN_TAG, columnName);
+            if (lowerBound != null) {
+                repos.setTagAnnotationValue(
+                    table,
+                    LOWER_BOUND_TAG,
+                    lowerBound);
+            }
+            if (upperBound != null) {
+                repos.setTagAnnotationValue(
+                    table,
+                    UPPER_BOUND_TAG,
+                    upperBound);
+            }
+            txn.commit();
+        } finally {
+            txn.rollback();
+            stmtValidator.closeAllocation();
+        }
+    }
+
+    /**
+     * Removes a table from a range-partitioned view, dropping the view if it
+     * was its last partition. The table itself is kept, so it can be
+     * archived, dropped, or attached to another view.
+     *
+     * @param schemaName schema of view and table, or null for the session
+     * default
+     * @param viewName name of view
+     * @param tableName name of partition table
+     *
+     * @throws Exception
+     */
+    public static void detach(
+        String schemaName,
+        String viewName,
+        String tableName)
+        throws Exception
+    {
+        checkRequired(viewName, "viewName");
+        checkRequired(tableName, "tableName");
+        schemaName = getSchemaName(schemaName);
+
+        FarragoSession session = FarragoUdrRuntime.getSession();
+        FarragoRepos repos = session.getRepos();
+        List<Partition> partitions;
+        FarragoSessionStmtValidator stmtValidator = session.newStmtValidator();
+        FarragoReposTxnContext txn = repos.newTxnContext(true);
+        try {
+            txn.beginReadTxn();
+            FemLocalTable table =
+                findTable(stmtValidator, schemaName, tableName);
+            if (!viewName.equals(
+                    repos.getTagAnnotationValue(table, VIEW_TAG)))
+            {
+                throw ApplibResource.instance().NotRangePartition.ex(
+                    repos.getLocalizedObjectName(schemaName),
+                    repos.getLocalizedObjectName(tableName),
+                    repos.getLocalizedObjectName(viewName));
+            }
+            partitions = getPartitions(stmtValidator, table, viewName);
+            txn.commit();
+        } finally {
+            txn.rollback();
+            stmtValidator.closeAllocation();
+        }
+
+        defineView(schemaName, viewName, partitions);
+
+        stmtValidator = session.newStmtValidator();
+        txn = repos.newTxnContext(true);
+        try {
+            txn.beginWriteTxn();
+            FemLocalTable table =
+                findTable(stmtValidator, schemaName, tableName);
+            removeTags(repos, table);
+            txn.commit();
+        } finally {
+            txn.rollback();
+            stmtValidator.closeAllocation();
+        }
+    }
+
+    private static void checkRequired(String value, String name)
+    {
+        if ((value == null) || (value.length() == 0)) {
+            throw ApplibResource.instance().InputIsRequired.ex(name);
+        }
+    }
+
+    private static String trimToNull(String s)
+    {
+        if ((s == null) || (s.trim().length() == 0)) {
+            return null;
+        }
+        return s.trim();
+    }
+
+    private static String getSchemaName(String schemaName)
+    {
+        if (schemaName == null) {
+            schemaName =
+                FarragoUdrRuntime.getSession().getSessionVariables()
+                .schemaName;
+            if (schemaName == null) {
+                throw ApplibResource.instance().InputIsRequired.ex(
+                    "schemaName");
+            }
+        }
+        return schemaName;
+    }
+
+    private static FemLocalTable findTable(
+        FarragoSessionStmtValidator stmtValidator,
+        String schemaName,
+        String tableName)
+    {
+        return stmtValidator.findSchemaObject(
+            new SqlIdentifier(
+                new String[] { schemaName, tableName },
+                SqlParserPos.ZERO),
+            FemLocalTable.class);
+    }
+
+    /**
+     * Collects the partitions of a view other than a given table.
+     */
+    private static List<Partition> getPartitions(
+        FarragoSessionStmtValidator stmtValidator,
+        FemLocalTable excludedTable,
+        String viewName)
+    {
+        FarragoRepos repos = stmtValidator.getRepos();
+        List<Partition> partitions = new ArrayList<Partition>();
+        FemLocalSchema schema = (FemLocalSchema) excludedTable.getNamespace();
+        for (
+            CwmModelElement element
+            : Util.cast(schema.getOwnedElement(), CwmModelElement.class))
+        {
+            if (!(element instanceof FemLocalTable)
+                || (element == excludedTable))
+            {
+                continue;
+            }
+            FemLocalTable table = (FemLocalTable) element;
+            if (!viewName.equals(
+                    repos.getTagAnnotationValue(table, VIEW_TAG)))
+            {
+                continue;
+            }
+            partitions.add(
+                new Partition(
+                    stmtValidator,
+                    table,
+                    repos.getTagAnnotationValue(table, COLUMN_TAG),
+                    repos.getTagAnnotationValue(table, LOWER_BOUND_TAG),
+                    repos.getTagAnnotationValue(table, UPPER_BOUND_TAG)));
+        }
+        return partitions;
+    }
+
+    private static void removeTags(FarragoRepos repos, FemLocalTable table)
+    {
+        for (String tagName : TAGS) {
+            FemTagAnnotation tag = repos.getTagAnnotation(table, tagName);
+            if (tag != null) {
+                tag.refDelete();
+            }
+        }
+    }
+
+    /**
+     * Creates or replaces a view as the union of its partitions, or drops it
+     * if there are none left.
+     */
+    private static void defineView(
+        String schemaName,
+        String viewName,
+        List<Partition> partitions)
+        throws SQLException
+    {
+        SqlDialect dialect = SqlDialect.EIGENBASE;
+        String view =
+            dialect.quoteIdentifier(schemaName) + "."
+            + dialect.quoteIdentifier(viewName);
+        String sql;
+        if (partitions.isEmpty()) {
+            sql = "drop view " + view;
+        } else {
+            Collections.sort(partitions);
+            StringBuilder buf = new StringBuilder();
+            buf.append("create or replace view ").append(view).append(" as ");
+            for (int i = 0; i < partitions.size(); ++i) {
+                Partition partition = partitions.get(i);
+                if (i > 0) {
+                    buf.append(" union all ");
+                }
+                buf.append("select * from ").append(
+                    dialect.quoteIdentifier(schemaName)).append(".").append(
+                    dialect.quoteIdentifier(partition.tableName));
+                String column = dialect.quoteIdentifier(partition.columnName);
+                String predicate = null;
+                if (partition.lowerBound != null) {
+                    predicate =
+                        column + " >= " + partition.toLiteral(
+                            partition.lowerBound);
+                }
+                if (partition.upperBound != null) {
+                    predicate =
+                        ((predicate == null) ? "" : (predicate + " and "))
+                        + column + " < " + partition.toLiteral(
+                            partition.upperBound);
+                }
+                if (predicate != null) {
+                    buf.append(" where ").append(predicate);
+                }
+            }
+            sql = buf.toString();
+        }
+
+        tracer.info("range partition view statement: " + sql);
+        Connection conn = null;
+        Statement stmt = null;
+        try {
+            conn = DriverManager.getConnection("jdbc:default:connection");
+            stmt = conn.createStatement();
+            stmt.executeUpdate(sql);
+        } finally {
+            if (stmt != null) {
+                stmt.close();
+            }
+            if (conn != null) {
+                conn.close();
+            }
+        }
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * Partition of a range-partitioned view. The bounds are validated against
+     * the type of the partitioning column when the partition is created.
+     */
+    private static class Partition
+        implements Comparable<Partition>
+    {
+        final String tableName;
+        final String columnName;
+        final RelDataType type;
+        final String lowerBound;
+        final String upperBound;
+        final Comparable lowerValue;
+        final Comparable upperValue;
+
+        Partition(
+            FarragoSessionStmtValidator stmtValidator,
+            FemLocalTable table,
+            String columnName,
+            String lowerBound,
+            String upperBound)
+        {
+            FarragoRepos repos = stmtValidator.getRepos();
+            String schemaName = table.getNamespace().getName();
+            FemAbstractColumn column =
+                FarragoCatalogUtil.getModelElementByName(
+                    Util.cast(table.getFeature(), FemAbstractColumn.class),
+                    columnName);
+            if (column == null) {
+                throw ApplibResource.instance().UnknownPartitionColumn.ex(
+                    repos.getLocalizedObjectName(columnName),
+                    repos.getLocalizedObjectName(schemaName),
+                    repos.getLocalizedObjectName(table.getName()));
+            }
+            this.tableName = table.getName();
+            this.columnName = columnName;
+            this.type =
+                stmtValidator.getTypeFactory().createCwmElementType(column);
+            if (!SqlTypeUtil.isNumeric(type)
+                && !SqlTypeUtil.inCharFamily(type)
+                && !SqlTypeUtil.isDatetime(type))
+            {
+                throw ApplibResource.instance().UnsupportedPartitionColumn.ex(
+                    repos.getLocalizedObjectName(columnName),
+                    repos.getLocalizedObjectName(schemaName),
+                    repos.getLocalizedObjectName(tableName),
+                    type.toString());
+            }
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.lowerValue = toValue(repos, lowerBound);
+            this.upperValue = toValue(repos, upperBound);
+            if ((lowerValue != null)
+                && (upperValue != null)
+                && (compare(lowerValue, upperValue) >= 0))
+            {
+                throw ApplibResource.instance().EmptyPartitionRange.ex(
+                    lowerBound,
+                    repos.getLocalizedObjectName(schemaName),
+                    repos.getLocalizedObjectName(tableName),
+                    upperBound);
+            }
+        }
+
+        /**
+         * Converts a bound to a value of the partitioning column's type.
+         *
+         * @param repos repository
+         * @param bound text of bound, or null if unbounded
+         *
+         * @return value, or null if unbounded
+         */
+        private Comparable toValue(FarragoRepos repos, String bound)
+        {
+            if (bound == null) {
+                return null;
+            }
+            try {
+                if (SqlTypeUtil.isNumeric(type)) {
+                    return new BigDecimal(bound);
+                }
+                switch (type.getSqlTypeName()) {
+                case DATE:
+                    return java.sql.Date.valueOf(bound);
+                case TIME:
+                    return Time.valueOf(bound);
+                case TIMESTAMP:
+                    return Timestamp.valueOf(bound);
+                default:
+                    return bound;
+                }
+            } catch (IllegalArgumentException ex) {
+                // NumberFormatException is an IllegalArgumentException too
+                throw ApplibResource.instance().InvalidPartitionBound.ex(
+                    bound,
+                    repos.getLocalizedObjectName(columnName),
+                    type.toString());
+            }
+        }
+
+        /**
+         * Returns a bound as a SQL literal of the partitioning column's type:
+         * an exact numeric literal, a character string literal, or a
+         * <code>DATE</code>, <code>TIME</code> or <code>TIMESTAMP</code>
+         * literal.
+         *
+         * @param bound text of bound, already validated by {@link #toValue}
+         *
+         * @return SQL literal
+         */
+        String toLiteral(String bound)
+        {
+            if (SqlTypeUtil.isNumeric(type)) {
+                return new BigDecimal(bound).toPlainString();
+            }
+            String quoted = "'" + bound.replace("'", "''") + "'";
+            if (SqlTypeUtil.isDatetime(type)) {
+                return type.getSqlTypeName().name() + " " + quoted;
+            }
+            return quoted;
+        }
+
+        /**
+         * Checks that this partition can be added to a view alongside another
+         * partition: it must have the same partitioning column, and the
+         * ranges must not overlap.
+         */
+        void checkCompatible(
+            FarragoRepos repos,
+            Partition other,
+            String schemaName,
+            String viewName)
+        {
+            if (!columnName.equals(other.columnName)
+                || !SqlTypeUtil.inSameFamily(type, other.type))
+            {
+                throw ApplibResource.instance().PartitionColumnMismatch.ex(
+                    repos.getLocalizedObjectName(columnName),
+                    repos.getLocalizedObjectName(schemaName),
+                    repos.getLocalizedObjectName(tableName),
+                    repos.getLocalizedObjectName(other.columnName),
+                    repos.getLocalizedObjectName(viewName));
+            }
+
+            // [lower, upper) ranges overlap unless one ends at or before the
+            // start of the other; a null bound is unbounded
+            boolean disjoint =
+                ((upperValue != null)
+                    && (other.lowerValue != null)
+                    && (compare(upperValue, other.lowerValue) <= 0))
+                || ((other.upperValue != null)
+                    && (lowerValue != null)
+                    && (compare(other.upperValue, lowerValue) <= 0));
+            if (!disjoint) {
+                throw ApplibResource.instance().OverlappingPartitions.ex(
+                    repos.getLocalizedObjectName(schemaName),
+                    repos.getLocalizedObjectName(tableName),
+                    repos.getLocalizedObjectName(other.tableName),
+                    repos.getLocalizedObjectName(viewName));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static int compare(Comparable v1, Comparable v2)
+        {
+            return v1.compareTo(v2);
+        }
+
+        // implement Comparable
+        public int compareTo(Partition other)
+        {
+            return tableName.compareTo(other.tableName);
+        }
+    }
+}
+
+// End RangePartitionUdp.java
@@ -0,0 +1,476 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package org.eigenbase.applib.util;
+
+import java.sql.*;
+
+import java.util.*;
+import java.util.logging.*;
+
+import net.sf.farrago.runtime.*;
+import net.sf.farrago.trace.*;
+
+import org.eigenbase.applib.resource.*;
+import org.eigenbase.applib.variable.*;
+import org.eigenbase.sql.*;
+import org.eigenbase.sql.parser.*;
+
+
+/**
+ * Refreshes a local snapshot of a (typically foreign) table, so that
+ * repeated queries against slowly-changing sources can read a local
+ * column-store copy instead of going back to the source every time.
+ *
+ * <p>The snapshot table is created from the source definition on first use.
+ * With no watermark column, each refresh replaces the snapshot contents;
+ * the source is first read into a staging table, so that a failure while
+ * reading it (typically a problem with the foreign server) leaves the
+ * previous snapshot contents in place.
+ * With a watermark column (a timestamp or monotonically increasing key),
+ * only source rows at or above the snapshot's current maximum are fetched;
+ * the predicate is a literal so that it can be pushed down to the source.
+ * Rows at the maximum itself are fetched again, since the source may have
+ * gained more of them after the previous refresh. If key columns are also
+ * given, fetched rows are merged on those keys so that updated source rows
+ * replace their old versions; otherwise fetched rows are merged on all
+ * columns, so that only those not already in the snapshot are appended.
+ * Either way the incremental refresh is a single MERGE statement, so there is
+ * no intermediate state in which rows could be lost. Note that without key
+ * columns, a fetched row identical to one already in the snapshot is not
+ * added again, even if the source contains it twice.
+ *
+ * <p>Column names follow SQL identifier rules: they are converted to upper
+ * case unless enclosed in double quotes.
+ *
+ * <p>The time of each refresh is recorded in the application variable
+ * context {@link #SNAPSHOT_CONTEXT}, and a refresh is skipped when the
+ * previous one is more recent than the given staleness bound. Dashboards can
+ * therefore call the procedure before every query and only pay for a real
+ * refresh once the snapshot is too old.
+ *
+ * @version $Id$
+ */
+public abstract class RefreshSnapshotUdp
+{
+    //~ Static fields/initializers ---------------------------------------------
+
+    private static final Logger tracer =
+        FarragoTrace.getClassTracer(RefreshSnapshotUdp.class);
+
+    /**
+     * Application variable context holding the last refresh time (in
+     * milliseconds since the epoch) of each snapshot, keyed by quoted schema
+     * and table name.
+     */
+    public static final String SNAPSHOT_CONTEXT = "APPLIB.SNAPSHOTS";
+
+    /**
+     * Suffix of the staging table used by a full refresh.
+     */
+    private static final String STAGING_SUFFIX = "$STAGING";
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * @param sourceTbName source table name, optionally qualified
+     * @param targetSchemaName schema of snapshot table, or null for the
+     * session default
+     * @param targetTableName name of snapshot table
+     * @param watermarkColumn column whose maximum marks how far the snapshot
+     * has been refreshed, or null for full refresh
+     * @param keyColumns comma-separated key columns to merge fetched rows on,
+     * or null to append those not already in the snapshot
+     * @param maxStalenessSeconds skip the refresh if the previous one is at
+     * most this many seconds old; null or non-positive to always refresh
+     *
+     * @throws Exception
+     */
+    public static void execute(
+        String sourceTbName,
+        String targetSchemaName,
+        String targetTableName,
+        String watermarkColumn,
+        String keyColumns,
+        Integer maxStalenessSeconds)
+        throws Exception
+    {
+        if ((sourceTbName == null) || (sourceTbName.length() == 0)) {
+            throw ApplibResource.instance().InputIsRequired.ex("sourceTbName");
+        }
+        if ((targetTableName == null) || (targetTableName.length() == 0)) {
+            throw ApplibResource.instance().InputIsRequired.ex(
+                "targetTableName");
+        }
+        if (targetSchemaName == null) {
+            targetSchemaName =
+                FarragoUdrRuntime.getSession().getSessionVariables()
+                .schemaName;
+        }
+
+        SqlDialect dialect = SqlDialect.EIGENBASE;
+        String target =
+            dialect.quoteIdentifier(targetSchemaName) + "."
+            + dialect.quoteIdentifier(targetTableName);
+        String source = quoteTableName(sourceTbName);
+
+        long now = System.currentTimeMillis();
+        if ((maxStalenessSeconds != null) && (maxStalenessSeconds > 0)) {
+            Long lastRefresh = readRefreshTime(target);
+            if ((lastRefresh != null)
+                && ((now - lastRefresh) <= (maxStalenessSeconds * 1000L)))
+            {
+                tracer.fine("snapshot " + target + " is fresh; skipping");
+                return;
+            }
+        }
+
+        Connection conn = null;
+        Statement stmt = null;
+        try {
+            conn = DriverManager.getConnection("jdbc:default:connection");
+            stmt = conn.createStatement();
+
+            boolean created = false;
+            if (!tableExists(conn, targetSchemaName, targetTableName)) {
+                CreateTbFromSrcTbUdp.execute(
+                    sourceTbName,
+                    targetSchemaName,
+                    targetTableName,
+                    null);
+                created = true;
+            }
+
+            String column = null;
+            String watermark = null;
+            if ((watermarkColumn != null) && !created) {
+                column =
+                    SqlDialect.EIGENBASE.quoteIdentifier(
+                        toColumnName(watermarkColumn));
+                watermark = getWatermark(stmt, target, column);
+            }
+
+            if (created) {
+                execute(
+                    stmt,
+                    "insert into " + target + " select * from " + source);
+            } else if (watermark == null) {
+                replaceContents(
+                    conn,
+                    stmt,
+                    sourceTbName,
+                    targetSchemaName,
+                    targetTableName);
+            } else {
+                execute(
+                    stmt,
+                    getMergeStatement(
+                        conn,
+                        targetSchemaName,
+                        targetTableName,
+                        target,
+                        "(select * from " + source + " where " + column
+                        + " >= " + watermark + ")",
+                        keyColumns));
+            }
+        } finally {
+            if (stmt != null) {
+                stmt.close();
+            }
+            if (conn != null) {
+                conn.close();
+            }
+        }
+
+        writeRefreshTime(target, now);
+    }
+
+    /**
+     * Converts a column name given as a procedure argument to the name stored
+     * in the catalog, following the rules for SQL identifiers.
+     */
+    private static String toColumnName(String identifier)
+    {
+        String name = identifier.trim();
+        if ((name.length() > 1) && name.startsWith("\"")
+            && name.endsWith("\""))
+        {
+            return name.substring(1, name.length() - 1).replace("\"\"", "\"");
+        }
+        return name.toUpperCase();
+    }
+
+    private static String quoteTableName(String tableName)
+        throws Exception
+    {
+        SqlParser sqlParser = new SqlParser(tableName);
+        SqlIdentifier tableId = (SqlIdentifier) sqlParser.parseExpression();
+        StringBuilder buf = new StringBuilder();
+        for (String name : tableId.names) {
+            if (buf.length() > 0) {
+                buf.append(".");
+            }
+            buf.append(SqlDialect.EIGENBASE.quoteIdentifier(name));
+        }
+        return buf.toString();
+    }
+
+    private static void execute(Statement stmt, String sql)
+        throws SQLException
+    {
+        tracer.fine("snapshot refresh statement: " + sql);
+        stmt.executeUpdate(sql);
+    }
+
+    /**
+     * Replaces the contents of an existing snapshot with those of its source.
+     * Statements cannot share a transaction, so the source is read into a
+     * staging table before the snapshot is touched; the snapshot is then
+     * reloaded from the local copy.
+     */
+    private static void replaceContents(
+        Connection conn,
+        Statement stmt,
+        String sourceTbName,
+        String targetSchemaName,
+        String targetTableName)
+        throws Exception
+    {
+        SqlDialect dialect = SqlDialect.EIGENBASE;
+        String stagingTableName = targetTableName + STAGING_SUFFIX;
+        String target =
+            dialect.quoteIdentifier(targetSchemaName) + "."
+            + dialect.quoteIdentifier(targetTableName);
+        String staging =
+            dialect.quoteIdentifier(targetSchemaName) + "."
+            + dialect.quoteIdentifier(stagingTableName);
+
+        // left behind by a refresh which failed to drop it
+        if (tableExists(conn, targetSchemaName, stagingTableName)) {
+            execute(stmt, "drop table " + staging);
+        }
+        CreateTbFromSrcTbUdp.execute(
+            sourceTbName,
+            targetSchemaName,
+            stagingTableName,
+            null);
+        try {
+            execute(
+                stmt,
+                "insert into " + staging + " select * from "
+                + quoteTableName(sourceTbName));
+            execute(stmt, "truncate table " + target);
+            execute(
+                stmt,
+                "insert into " + target + " select * from " + staging);
+        } finally {
+            execute(stmt, "drop table " + staging);
+        }
+    }
+
+    private static boolean tableExists(
+        Connection conn,
+        String schemaName,
+        String tableName)
+        throws SQLException
+    {
+        PreparedStatement ps =
+            conn.prepareStatement(
+                "select count(1) from LOCALDB.SYS_ROOT.DBA_TABLES"
+                + " where SCHEMA_NAME=? and TABLE_NAME=?");
+        try {
+            ps.setString(1, schemaName);
+            ps.setString(2, tableName);
+            ResultSet rs = ps.executeQuery();
+            rs.next();
+            return rs.getInt(1) > 0;
+        } finally {
+            ps.close();
+        }
+    }
+
+    /**
+     * Reads the snapshot's current watermark.
+     *
+     * @param column quoted watermark column
+     *
+     * @return watermark as a typed literal, or null if the snapshot is empty
+     */
+    private static String getWatermark(
+        Statement stmt,
+        String target,
+        String column)
+        throws SQLException
+    {
+        SqlDialect dialect = SqlDialect.EIGENBASE;
+        ResultSet rs =
+            stmt.executeQuery("select max(" + column + ") from " + target);
+        try {
+            if (!rs.next()) {
+                return null;
+            }
+            String value = rs.getString(1);
+            if (value == null) {
+                return null;
+            }
+            String literal;
+            switch (rs.getMetaData().getColumnType(1)) {
+            case Types.TIMESTAMP:
+                literal = "TIMESTAMP " + dialect.quoteStringLiteral(value);
+                break;
+            case Types.DATE:
+                literal = "DATE " + dialect.quoteStringLiteral(value);
+                break;
+            case Types.TIME:
+                literal = "TIME " + dialect.quoteStringLiteral(value);
+                break;
+            case Types.CHAR:
+            case Types.VARCHAR:
+                literal = dialect.quoteStringLiteral(value);
+                break;
+            default:
+                literal = value;
+                break;
+            }
+            return literal;
+        } finally {
+            rs.close();
+        }
+    }
+
+    private static String getMergeStatement(
+        Connection conn,
+        String schemaName,
+        String tableName,
+        String target,
+        String sourceQuery,
+        String keyColumns)
+        throws SQLException
+    {
+        SqlDialect dialect = SqlDialect.EIGENBASE;
+        Set<String> keys = new LinkedHashSet<String>();
+        if (keyColumns != null) {
+            for (String key : keyColumns.split(",")) {
+                if (key.trim().length() > 0) {
+                    keys.add(toColumnName(key));
+                }
+            }
+            if (keys.isEmpty()) {
+                throw ApplibResource.instance().InputIsRequired.ex(
+                    "keyColumns");
+            }
+        }
+
+        List<String> columns = new ArrayList<String>();
+        PreparedStatement ps =
+            conn.prepareStatement(
+                "select COLUMN_NAME from LOCALDB.SYS_ROOT.DBA_COLUMNS"
+                + " where SCHEMA_NAME=? and TABLE_NAME=?"
+                + " order by ORDINAL_POSITION");
+        try {
+            ps.setString(1, schemaName);
+            ps.setString(2, tableName);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                columns.add(rs.getString(1));
+            }
+        } finally {
+            ps.close();
+        }
+
+        for (String key : keys) {
+            if (!columns.contains(key)) {
+                throw ApplibResource.instance().UnknownKeyColumn.ex(
+                    key,
+                    schemaName,
+                    tableName);
+            }
+        }
+        if (keyColumns == null) {
+            // match on whole rows; a null must match a null
+            keys.addAll(columns);
+        }
+        String comparison =
+            (keyColumns == null) ? " is not distinct from src." : " = src.";
+
+        StringBuilder on = new StringBuilder();
+        StringBuilder set = new StringBuilder();
+        StringBuilder insertList = new StringBuilder();
+        StringBuilder valueList = new StringBuilder();
+        for (String column : columns) {
+            String quoted = dialect.quoteIdentifier(column);
+            if (keys.contains(column)) {
+                if (on.length() > 0) {
+                    on.append(" and ");
+                }
+                on.append("tgt.").append(quoted).append(comparison).append(
+                    quoted);
+            } else {
+                if (set.length() > 0) {
+                    set.append(", ");
+                }
+                set.append(quoted).append(" = src.").append(quoted);
+            }
+            if (insertList.length() > 0) {
+                insertList.append(", ");
+                valueList.append(", ");
+            }
+            insertList.append(quoted);
+            valueList.append("src.").append(quoted);
+        }
+
+        StringBuilder merge = new StringBuilder();
+        merge.append("merge into ").append(target).append(" as tgt using ")
+        .append(sourceQuery).append(" as src on ").append(on);
+        if (set.length() > 0) {
+            merge.append(" when matched then update set ").append(set);
+        }
+        merge.append(" when not matched then insert (").append(insertList)
+        .append(") values (").append(valueList).append(")");
+        return merge.toString();
+    }
+
+    private static Long readRefreshTime(String target)
+    {
+        try {
+            String value = AppVarApi.executeGet(SNAPSHOT_CONTEXT, target);
+            return (value == null) ? null : Long.valueOf(value);
+        } catch (RuntimeException ex) {
+            // never refreshed (or the context does not exist yet)
+            return null;
+        }
+    }
+
+    private static void writeRefreshTime(String target, long time)
+    {
+        String value = Long.toString(time);
+        try {
+            AppVarApi.executeSet(SNAPSHOT_CONTEXT, target, value);
+            return;
+        } catch (RuntimeException ex) {
+            // context does not exist yet; create it below
+        }
+        AppVarApi.executeCreate(
+            SNAPSHOT_CONTEXT,
+            null,
+            "Last refresh times of snapshot tables");
+        AppVarApi.executeSet(SNAPSHOT_CONTEXT, target, value);
+    }
+}
+
+// End RefreshSnapshotUdp.java
@@ -31,8 +31,11 @@ import java.rmi.RemoteException;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.xml.rpc.ServiceException;
 
@@ -56,6 +59,8 @@ public class Export
     // Used for testing to limit rows returned. If set to -1, means no limit.
     private static int maxRows = -1;
     private static int batchsize = 1000;
+    private static int prefetchDepth = 2;
+    private static int parallelism = 1;
     private static boolean withbcp = false;
     private static boolean quoteall = false;
 
@@ -66,6 +71,8 @@ public class Export
     //~ Instance fields --------------------------------------------------------
 
     private SoapBindingStub binding;
+    private String user;
+    private String pass;
 
     //~ Methods ----------------------------------------------------------------
 
@@ -157,6 +164,18 @@ public class Export
                 System.out.println("batchsize set to " + batchsize);
                 continue;
             }
+            if (option.equals("-prefetch")) {
+                Integer r = new Integer(args[i].substring(valIndex + 1));
+                prefetchDepth = r.intValue();
+                System.out.println("prefetch depth set to " + prefetchDepth);
+                continue;
+            }
+            if (option.equals("-parallel")) {
+                Integer r = new Integer(args[i].substring(valIndex + 1));
+                parallelism = r.intValue();
+                System.out.println("parallelism set to " + parallelism);
+                continue;
+            }
 
             usage();
         }
@@ -175,6 +194,8 @@ public class Export
 
     private void login(String user, String pass)
     {
+        this.user = user;
+        this.pass = pass;
         if (compress) {
             System.out.println("Compression Enabled");
             try {
@@ -230,12 +251,6 @@ public class Export
         // create 1 csv per data object specified
         String [] objNames = obs.split("\\s*,\\s*");
 
-        String literalSep = "\"\\t\"";
-        String lastLitSep = "\"\\r\\n\"";
-        File csvFile = null;
-        File bcpFile = null;
-        FileWriter csvOut = null;
-        FileWriter bcpOut = null;
         java.util.Date now = new java.util.Date();
         String parentDir = "_conf_" + now.toString();
         try {
@@ -252,182 +267,240 @@ public class Export
         File pdir = new File(parentDir);
         pdir.mkdirs();
 
-        boolean [] quotes = null;
 
-        for (int i = 0; i < objNames.length; i++) {
-            String csvName = objNames[i] + ".txt";
-            String bcpName = objNames[i] + ".bcp";
+        if ((parallelism <= 1) || (objNames.length <= 1)) {
+            for (String objName : objNames) {
+                exportObject(parentDir, objName);
+            }
+            return;
+        }
+
+        // objects are independent, so export several at once; each worker
+        // logs in with its own binding, since a binding is not safe for
+        // concurrent calls
+        final String dir = parentDir;
+        final Queue<String> pending =
+            new ConcurrentLinkedQueue<String>(Arrays.asList(objNames));
+        Thread [] workers = new Thread[Math.min(parallelism, objNames.length)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] =
+                new Thread("SfdcExport-" + i) {
+                    public void run()
+                    {
+                        Export worker = new Export();
+                        worker.login(user, pass);
+                        String objName;
+                        while ((objName = pending.poll()) != null) {
+                            worker.exportObject(dir, objName);
+                        }
+                    }
+                };
+            workers[i].start();
+        }
+        for (int i = 0; i < workers.length; i++) {
             try {
-                csvFile = new File(parentDir + File.separator + csvName);
-                csvOut = new FileWriter(csvFile, false);
-                if (withbcp) {
-                    bcpFile = new File(parentDir + File.separator + bcpName);
-                    bcpOut = new FileWriter(bcpFile, false);
-                    bcpOut.write("6.0" + NEWLINE); // version using BroadBase
-                }
+                workers[i].join();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
 
-                DescribeSObjectResult describeSObjectResult =
-                    binding.describeSObject(objNames[i]);
-                com.sforce.soap.partner.Field [] fields =
-                    describeSObjectResult.getFields();
-                String fieldlist = "";
-                if (withbcp) {
-                    bcpOut.write(fields.length + NEWLINE);
-                }
-                quotes = new boolean[fields.length];
+    private void exportObject(String parentDir, String objName)
+    {
+        String literalSep = "\"\\t\"";
+        String lastLitSep = "\"\\r\\n\"";
+        File csvFile = null;
+        File bcpFile = null;
+        FileWriter csvOut = null;
+        FileWriter bcpOut = null;
+        boolean [] quotes = null;
+        SfdcQueryPrefetcher prefetcher = null;
 
-                // add all fields to .txt
-                for (int j = 0; j < fields.length; j++) {
-                    String fieldName = fields[j].getName();
-                    String fieldType = fields[j].getType().toString();
-                    boolean isCustom = fields[j].isCustom();
+        String csvName = objName + ".txt";
+        String bcpName = objName + ".bcp";
+        try {
+            csvFile = new File(parentDir + File.separator + csvName);
+            csvOut = new FileWriter(csvFile, false);
+            if (withbcp) {
+                bcpFile = new File(parentDir + File.separator + bcpName);
+                bcpOut = new FileWriter(bcpFile, false);
+                bcpOut.write("6.0" + NEWLINE); // version using BroadBase
+            }
 
-                    if (isQuoteableField(fieldType)) {
-                        quotes[j] = true;
-                    } else {
-                        quotes[j] = false;
-                    }
+            DescribeSObjectResult describeSObjectResult =
+                binding.describeSObject(objName);
+            com.sforce.soap.partner.Field [] fields =
+                describeSObjectResult.getFields();
+            String fieldlist = "";
+            if (withbcp) {
+                bcpOut.write(fields.length + NEWLINE);
+            }
+            quotes = new boolean[fields.length];
 
-                    // BB: limit fieldname in BCP file to 30 char
-                    String bcpFieldName;
-                    if (fieldName.length() <= 30) {
-                        bcpFieldName = fieldName;
-                    } else {
-                        if (isCustom) {
-                            bcpFieldName = fieldName.substring(0, 27);
-                            bcpFieldName = bcpFieldName.concat("__c");
-                        } else {
-                            bcpFieldName = fieldName.substring(0, 30);
-                        }
-                    }
+            // add all fields to .txt
+            for (int j = 0; j < fields.length; j++) {
+                String fieldName = fields[j].getName();
+                String fieldType = fields[j].getType().toString();
+                boolean isCustom = fields[j].isCustom();
 
-                    // the column names, tab separated, quoted.
-                    if (j == 0) {
-                        csvOut.write(QUOTE);
-                    }
-                    csvOut.write(bcpFieldName);
-                    fieldlist = fieldlist.concat(fieldName);
+                if (isQuoteableField(fieldType)) {
+                    quotes[j] = true;
+                } else {
+                    quotes[j] = false;
+                }
 
-                    if (j != (fields.length - 1)) {
-                        csvOut.write(QUOTE + TAB + QUOTE);
-                        fieldlist = fieldlist.concat(", ");
-                        if (withbcp) {
-                            bcpOut.write(
-                                (j + 1) + TAB
-                                + fieldType.toLowerCase() + TAB + literalSep
-                                + TAB + (j + 1) + TAB + bcpFieldName + NEWLINE);
-                        }
+                // BB: limit fieldname in BCP file to 30 char
+                String bcpFieldName;
+                if (fieldName.length() <= 30) {
+                    bcpFieldName = fieldName;
+                } else {
+                    if (isCustom) {
+                        bcpFieldName = fieldName.substring(0, 27);
+                        bcpFieldName = bcpFieldName.concat("__c");
                     } else {
-                        csvOut.write(QUOTE + NEWLINE);
-                        if (withbcp) {
-                            bcpOut.write(
-                                (j + 1) + TAB
-                                + fieldType.toLowerCase() + TAB + lastLitSep
-                                + TAB + (j + 1) + TAB + bcpFieldName + NEWLINE);
-                        }
+                        bcpFieldName = fieldName.substring(0, 30);
                     }
                 }
 
-                // query, selecting all fields
-                QueryOptions qo = new QueryOptions();
-                qo.setBatchSize(new Integer(batchsize));
-                binding.setHeader(
-                    new SforceServiceLocator().getServiceName()
-                                              .getNamespaceURI(),
-                    "QueryOptions",
-                    qo);
-                QueryResult qr =
-                    binding.query(
-                        "select " + fieldlist + " from "
-                        + objNames[i]);
-                SObject [] records = qr.getRecords();
-                if (records != null) {
-                    boolean bContinue = true;
-                    int rows = 0;
-                    while (bContinue) {
-                        // for each record returned in query,
-                        // get value of each field
-                        for (int j = 0; j < records.length; j++) {
-                            MessageElement [] elements = records[j].get_any();
-                            if (elements != null) {
-                                for (int k = 0; k < elements.length; k++) {
-                                    MessageElement elt = elements[k];
-
-                                    if (elt.getValue() != null) {
-                                        if (quotes[k] == true) {
-                                            csvOut.write(QUOTE);
-                                        }
+                // the column names, tab separated, quoted.
+                if (j == 0) {
+                    csvOut.write(QUOTE);
+                }
+                csvOut.write(bcpFieldName);
+                fieldlist = fieldlist.concat(fieldName);
 
-                                        // quote the quotes
-                                        csvOut.write(quote(elt.getValue()));
+                if (j != (fields.length - 1)) {
+                    csvOut.write(QUOTE + TAB + QUOTE);
+                    fieldlist = fieldlist.concat(", ");
+                    if (withbcp) {
+                        bcpOut.write(
+                            (j + 1) + TAB
+                            + fieldType.toLowerCase() + TAB + literalSep
+                            + TAB + (j + 1) + TAB + bcpFieldName + NEWLINE);
+                    }
+                } else {
+                    csvOut.write(QUOTE + NEWLINE);
+                    if (withbcp) {
+                        bcpOut.write(
+                            (j + 1) + TAB
+                            + fieldType.toLowerCase() + TAB + lastLitSep
+                            + TAB + (j + 1) + TAB + bcpFieldName + NEWLINE);
+                    }
+                }
+            }
 
-                                        if (quotes[k] == true) {
-                                            csvOut.write(QUOTE);
-                                        }
+            // query, selecting all fields
+            QueryOptions qo = new QueryOptions();
+            qo.setBatchSize(new Integer(batchsize));
+            binding.setHeader(
+                new SforceServiceLocator().getServiceName()
+                                          .getNamespaceURI(),
+                "QueryOptions",
+                qo);
+            QueryResult qr =
+                binding.query("select " + fieldlist + " from " + objName);
+            if (!qr.isDone() && (prefetchDepth > 0)) {
+                prefetcher =
+                    new SfdcQueryPrefetcher(
+                        binding,
+                        qr.getQueryLocator(),
+                        prefetchDepth);
+            }
+            SObject [] records = qr.getRecords();
+            if (records != null) {
+                boolean bContinue = true;
+                int rows = 0;
+                while (bContinue) {
+                    // for each record returned in query,
+                    // get value of each field
+                    for (int j = 0; j < records.length; j++) {
+                        MessageElement [] elements = records[j].get_any();
+                        if (elements != null) {
+                            for (int k = 0; k < elements.length; k++) {
+                                MessageElement elt = elements[k];
+
+                                if (elt.getValue() != null) {
+                                    if (quotes[k] == true) {
+                                        csvOut.write(QUOTE);
                                     }
-                                    if (k != (elements.length - 1)) {
-                                        csvOut.write(TAB);
+
+                                    // quote the quotes
+                                    csvOut.write(quote(elt.getValue()));
+
+                                    if (quotes[k] == true) {
+                                        csvOut.write(QUOTE);
                                     }
                                 }
+                                if (k != (elements.length - 1)) {
+                                    csvOut.write(TAB);
+                                }
                             }
-                            csvOut.write(NEWLINE);
-                            rows++;
-                        }
-                        if (qr.isDone()
-                            || ((rows >= maxRows) && (maxRows != -1)))
-                        {
-                            System.out.println("Completed Rows = " + rows);
-                            bContinue = false;
-                        } else {
-                            qr = binding.queryMore(qr.getQueryLocator());
-                            records = qr.getRecords();
                         }
+                        csvOut.write(NEWLINE);
+                        rows++;
+                    }
+                    if (qr.isDone()
+                        || ((rows >= maxRows) && (maxRows != -1)))
+                    {
+                        System.out.println("Completed Rows = " + rows);
+                        bContinue = false;
+                    } else if (prefetcher != null) {
+                        qr = prefetcher.next();
+                        records = qr.getRecords();
+                    } else {
+                        qr = binding.queryMore(qr.getQueryLocator());
+                        records = qr.getRecords();
                     }
-                } else {
-                    // if no records for object, delete the .txt
-                    csvOut.close();
-                    csvFile.delete();
                 }
-            } catch (RemoteException re) {
+            } else {
+                // if no records for object, delete the .txt
+                csvOut.close();
+                csvFile.delete();
+            }
+        } catch (RemoteException re) {
+            System.out.println(
+                SfdcResource.instance().ObjectQueryExceptionMsg.str(
+                    objName,
+                    re.getMessage()));
+            try {
+                csvOut.close();
+            } catch (IOException ie) {
                 System.out.println(
-                    SfdcResource.instance().ObjectQueryExceptionMsg.str(
-                        objNames[i],
-                        re.getMessage()));
+                    SfdcResource.instance().IOExceptionMsg.str(
+                        ie.getMessage()));
+            }
+            csvFile.delete();
+            if (withbcp) {
                 try {
-                    csvOut.close();
+                    bcpOut.close();
                 } catch (IOException ie) {
                     System.out.println(
                         SfdcResource.instance().IOExceptionMsg.str(
                             ie.getMessage()));
                 }
-                csvFile.delete();
+                bcpFile.delete();
+            }
+            return;
+        } catch (IOException ie) {
+            System.out.println(
+                SfdcResource.instance().IOExceptionMsg.str(
+                    ie.getMessage()));
+            return;
+        } finally {
+            if (prefetcher != null) {
+                prefetcher.close();
+            }
+            try {
+                csvOut.close();
                 if (withbcp) {
-                    try {
-                        bcpOut.close();
-                    } catch (IOException ie) {
-                        System.out.println(
-                            SfdcResource.instance().IOExceptionMsg.str(
-                                ie.getMessage()));
-                    }
-                    bcpFile.delete();
+                    bcpOut.close();
                 }
-                continue;
             } catch (IOException ie) {
                 System.out.println(
                     SfdcResource.instance().IOExceptionMsg.str(
                         ie.getMessage()));
-                continue;
-            } finally {
-                try {
-                    csvOut.close();
-                    if (withbcp) {
-                        bcpOut.close();
-                    }
-                } catch (IOException ie) {
-                    System.out.println(
-                        SfdcResource.instance().IOExceptionMsg.str(
-                            ie.getMessage()));
-                }
             }
         }
     }
@@ -729,6 +802,7 @@ public class Export
         System.out.println(
             "Export -user=\"username\" " + "-pass=\"passwd\" "
             + "-objects=\"object,object2\" "
+            + "[-batchsize=n] [-prefetch=n] [-parallel=n] "
             + "[--cdc -start=[timestamp] -end=[timestamp]] "
             + "with [timestamp] in format: yyyy-MM-dd'T'HH:mm\n");
         exit();
@@ -65,8 +65,12 @@ class SfdcDataServer
     public static final String PROP_EXTRA_VARCHAR_PRECISION =
         "VARCHAR_FIELD_EXTRA_PRECISION";
     public static final String PROP_ENDPOINT_URL = "ENDPOINT_URL";
+    public static final String PROP_BATCH_SIZE = "BATCH_SIZE";
+    public static final String PROP_PREFETCH_DEPTH = "PREFETCH_DEPTH";
 
     protected static final int DEFAULT_EXTRA_VARCHAR_PRECISION = 128;
+    protected static final int DEFAULT_BATCH_SIZE = 500;
+    protected static final int DEFAULT_PREFETCH_DEPTH = 2;
     protected static final Log log = LogFactory.getLog(SfdcDataServer.class);
 
     //~ Instance fields --------------------------------------------------------
@@ -77,6 +81,8 @@ class SfdcDataServer
     String password;
     int varcharPrecision = DEFAULT_EXTRA_VARCHAR_PRECISION;
     String endpoint;
+    int batchSize = DEFAULT_BATCH_SIZE;
+    int prefetchDepth = DEFAULT_PREFETCH_DEPTH;
     SoapBindingStub binding;
 
     private Date nextLoginTime;
@@ -111,6 +117,22 @@ class SfdcDataServer
         } catch (NumberFormatException ne) {
             // ignore
         }
+        try {
+            // sfdc accepts batch sizes from 200 to 2000
+            int size = Integer.parseInt(props.getProperty(PROP_BATCH_SIZE));
+            this.batchSize = Math.min(Math.max(size, 200), 2000);
+        } catch (NumberFormatException ne) {
+            // ignore
+        }
+        try {
+            int depth =
+                Integer.parseInt(props.getProperty(PROP_PREFETCH_DEPTH));
+            if (depth >= 0) {
+                this.prefetchDepth = depth;
+            }
+        } catch (NumberFormatException ne) {
+            // ignore
+        }
         nextLoginTime = new Date();
         login(this.username, this.password, null);
     }
@@ -659,6 +681,23 @@ class SfdcDataServer
     {
         return this.varcharPrecision;
     }
+
+    /**
+     * @return number of records requested per query page
+     */
+    public int getBatchSize()
+    {
+        return this.batchSize;
+    }
+
+    /**
+     * @return number of query pages to fetch ahead of the one being read, or
+     * 0 to fetch each page only when it is needed
+     */
+    public int getPrefetchDepth()
+    {
+        return this.prefetchDepth;
+    }
 }
 
 // End SfdcDataServer.java
@@ -0,0 +1,141 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package net.sf.farrago.namespace.sfdc;
+
+import com.sforce.soap.partner.*;
+
+import java.rmi.RemoteException;
+
+import java.util.concurrent.*;
+
+
+/**
+ * SfdcQueryPrefetcher fetches the pages of a query result with
+ * <code>queryMore</code> on a background thread, so that the network round
+ * trip for the next page overlaps with decoding of the current one.
+ *
+ * <p>Since each page carries the locator for the page after it, the worker
+ * simply follows the chain, staying at most a fixed number of pages ahead of
+ * the consumer. A failed call is handed to the consumer in place of the page
+ * it was fetching, and ends prefetching; the consumer can then recover (e.g.
+ * log in again) and start a new prefetcher at the locator it last consumed.
+ *
+ * @version $Id$
+ */
+public class SfdcQueryPrefetcher
+{
+    //~ Instance fields --------------------------------------------------------
+
+    private final SoapBindingStub binding;
+    private final BlockingQueue<Object> pages;
+    private final Thread worker;
+    private volatile boolean closed;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a prefetcher and starts fetching.
+     *
+     * @param binding binding to fetch with; the caller must not use it
+     * concurrently while the prefetcher is open
+     * @param queryLocator locator of the first page to fetch
+     * @param depth maximum number of pages to fetch ahead of the consumer
+     */
+    public SfdcQueryPrefetcher(
+        SoapBindingStub binding,
+        final String queryLocator,
+        int depth)
+    {
+        assert (depth > 0);
+        this.binding = binding;
+        pages = new ArrayBlockingQueue<Object>(depth);
+        worker =
+            new Thread("SfdcQueryPrefetcher") {
+                public void run()
+                {
+                    fetchAll(queryLocator);
+                }
+            };
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    private void fetchAll(String queryLocator)
+    {
+        try {
+            while (!closed) {
+                Object page;
+                try {
+                    page = binding.queryMore(queryLocator);
+                } catch (Throwable ex) {
+                    pages.put(ex);
+                    return;
+                }
+                pages.put(page);
+                QueryResult qr = (QueryResult) page;
+                if (qr.isDone()) {
+                    return;
+                }
+                queryLocator = qr.getQueryLocator();
+            }
+        } catch (InterruptedException ex) {
+            // closed by consumer
+        }
+    }
+
+    /**
+     * Returns the next page, waiting for it if it has not arrived yet.
+     *
+     * @return next page
+     *
+     * @throws RemoteException if the call fetching the page failed
+     */
+    public QueryResult next()
+        throws RemoteException
+    {
+        Object page;
+        try {
+            page = pages.take();
+        } catch (InterruptedException ex) {
+            throw new RemoteException("interrupted while fetching page", ex);
+        }
+        if (page instanceof RemoteException) {
+            throw (RemoteException) page;
+        } else if (page instanceof RuntimeException) {
+            throw (RuntimeException) page;
+        } else if (page instanceof Error) {
+            throw (Error) page;
+        }
+        return (QueryResult) page;
+    }
+
+    /**
+     * Stops prefetching. A call already in progress is allowed to complete,
+     * but its result is discarded.
+     */
+    public void close()
+    {
+        closed = true;
+        worker.interrupt();
+    }
+}
+
+// End SfdcQueryPrefetcher.java
@@ -63,10 +63,15 @@ public abstract class SfdcUdx
         SoapBindingStub binding =
             (SoapBindingStub) FarragoUdrRuntime.getDataServerRuntimeSupport(
                 null);
+        SfdcDataServer server =
+            (SfdcDataServer) FarragoUdrRuntime.getDataServerRuntimeSupport(
+                new Object());
+        int prefetchDepth = server.getPrefetchDepth();
+        SfdcQueryPrefetcher prefetcher = null;
 
         try {
             QueryOptions qo = new QueryOptions();
-            int batchsize = 500;
+            int batchsize = server.getBatchSize();
             qo.setBatchSize(new Integer(batchsize));
             binding.setHeader(
                 new SforceServiceLocator().getServiceName().getNamespaceURI(),
@@ -84,6 +89,15 @@ public abstract class SfdcUdx
             log.info("SFDC Query: " + query);
 
             QueryResult qr = binding.query(query);
+
+            // start fetching the next pages while this one is decoded
+            if (!qr.isDone() && (prefetchDepth > 0)) {
+                prefetcher =
+                    new SfdcQueryPrefetcher(
+                        binding,
+                        qr.getQueryLocator(),
+                        prefetchDepth);
+            }
             if (qr.isDone()) {
                 if (qr.getRecords() != null) {
                     log.info(
@@ -236,9 +250,14 @@ public abstract class SfdcUdx
                     } else {
                         boolean relogin = true;
                         int retryCnt = 0;
+                        String queryLocator = qr.getQueryLocator();
                         while (relogin) {
                             try {
-                                qr = binding.queryMore(qr.getQueryLocator());
+                                if (prefetcher == null) {
+                                    qr = binding.queryMore(queryLocator);
+                                } else {
+                                    qr = prefetcher.next();
+                                }
                                 relogin = false;
                             } catch (AxisFault a) {
                                 if (a.getFaultString().contains(
@@ -247,9 +266,21 @@ public abstract class SfdcUdx
                                 {
                                     relogin = true;
                                     retryCnt++;
+
+                                    // log in again on this thread, since the
+                                    // runtime support is only reachable here;
+                                    // then resume prefetching where it failed
                                     binding =
                                         (SoapBindingStub) FarragoUdrRuntime
                                         .getDataServerRuntimeSupport(binding);
+                                    if (prefetcher != null) {
+                                        prefetcher.close();
+                                        prefetcher =
+                                            new SfdcQueryPrefetcher(
+                                                binding,
+                                                queryLocator,
+                                                prefetchDepth);
+                                    }
                                 } else {
                                     throw a;
                                 }
@@ -300,6 +331,10 @@ public abstract class SfdcUdx
             throw SfdcResource.instance().BindingCallException.ex(
                 re.getMessage(),
                 chainedEx);
+        } finally {
+            if (prefetcher != null) {
+                prefetcher.close();
+            }
         }
     }
 
@@ -0,0 +1,159 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package net.sf.farrago.namespace.sfdc.test;
+
+import com.sforce.soap.partner.*;
+
+import java.rmi.RemoteException;
+
+import java.util.*;
+
+import junit.framework.TestCase;
+
+import net.sf.farrago.namespace.sfdc.*;
+
+import org.apache.axis.AxisFault;
+
+
+/**
+ * Tests {@link SfdcQueryPrefetcher} against a stub binding which serves pages
+ * locally, so no sfdc account is needed.
+ *
+ * @version $Id$
+ */
+public class SfdcQueryPrefetcherTest
+    extends TestCase
+{
+    //~ Constructors -----------------------------------------------------------
+
+    public SfdcQueryPrefetcherTest(String method)
+    {
+        super(method);
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    public void testFollowsLocatorChain()
+        throws Exception
+    {
+        StubBinding binding = new StubBinding(5, -1);
+        SfdcQueryPrefetcher prefetcher =
+            new SfdcQueryPrefetcher(binding, "1", 2);
+        try {
+            for (int i = 1; i < 5; i++) {
+                QueryResult qr = prefetcher.next();
+                assertEquals(Integer.toString(i + 1), qr.getQueryLocator());
+                assertEquals(i == 4, qr.isDone());
+            }
+        } finally {
+            prefetcher.close();
+        }
+        assertEquals(
+            Arrays.asList("1", "2", "3", "4"),
+            binding.getRequestedLocators());
+    }
+
+    public void testStaysWithinDepth()
+        throws Exception
+    {
+        StubBinding binding = new StubBinding(100, -1);
+        SfdcQueryPrefetcher prefetcher =
+            new SfdcQueryPrefetcher(binding, "1", 3);
+        try {
+            // give the worker time to run ahead as far as it may
+            Thread.sleep(500);
+
+            // three queued, plus one blocked trying to queue
+            assertTrue(binding.getRequestedLocators().size() <= 4);
+            prefetcher.next();
+        } finally {
+            prefetcher.close();
+        }
+    }
+
+    public void testFailureEndsPrefetch()
+        throws Exception
+    {
+        StubBinding binding = new StubBinding(10, 3);
+        SfdcQueryPrefetcher prefetcher =
+            new SfdcQueryPrefetcher(binding, "1", 2);
+        try {
+            prefetcher.next();
+            prefetcher.next();
+            try {
+                prefetcher.next();
+                fail("expected fault");
+            } catch (AxisFault ex) {
+                assertEquals("Invalid Session ID", ex.getFaultString());
+            }
+        } finally {
+            prefetcher.close();
+        }
+
+        // nothing was fetched past the failure
+        assertEquals(
+            Arrays.asList("1", "2", "3"),
+            binding.getRequestedLocators());
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * Binding which answers queryMore locally. Locator <i>n</i> returns a page
+     * whose locator is <i>n</i>+1; the last page is done.
+     */
+    private static class StubBinding
+        extends SoapBindingStub
+    {
+        private final int pageCount;
+        private final int failingLocator;
+        private final List<String> requested =
+            Collections.synchronizedList(new ArrayList<String>());
+
+        StubBinding(int pageCount, int failingLocator)
+            throws AxisFault
+        {
+            this.pageCount = pageCount;
+            this.failingLocator = failingLocator;
+        }
+
+        public QueryResult queryMore(String queryLocator)
+            throws RemoteException
+        {
+            requested.add(queryLocator);
+            int n = Integer.parseInt(queryLocator);
+            if (n == failingLocator) {
+                throw new AxisFault("Invalid Session ID");
+            }
+            QueryResult qr = new QueryResult();
+            qr.setQueryLocator(Integer.toString(n + 1));
+            qr.setDone((n + 1) == pageCount);
+            return qr;
+        }
+
+        List<String> getRequestedLocators()
+        {
+            synchronized (requested) {
+                return new ArrayList<String>(requested);
+            }
+        }
+    }
+}
+
+// End SfdcQueryPrefetcherTest.java
@@ -26,7 +26,7 @@ no sql
 external name 'class net.sf.farrago.syslib.FarragoManagementUDR.repositoryIntegrityViolations';
 
 create or replace function statements()
-returns table(id bigint, session_id bigint, sql_stmt varchar(1024), create_time timestamp, parameters varchar(1024))
+returns table(id bigint, session_id bigint, sql_stmt varchar(1024), create_time timestamp, parameters varchar(1024), planning_stats varchar(1024))
 language java
 parameter style system defined java
 no sql
@@ -145,6 +145,15 @@ public class FarragoColumnHistogram
         }
 
         barCount = histogram.getBarCount();
+        if (barCount == 0) {
+            // Nothing was sampled. Either the column is empty, or the distinct
+            // value count came from elsewhere (such as a foreign server's
+            // index statistics) and says nothing about how values are
+            // distributed. Either way the selectivity is unknown.
+            selectivity = null;
+            cardinality = (valueCount == 0) ? 0.0 : null;
+            return;
+        }
         bars = histogram.getBar();
         assert (bars.size() == barCount) : "invalid histogram bar count";
 
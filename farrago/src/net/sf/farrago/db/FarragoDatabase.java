@@ -1070,6 +1070,16 @@ public class FarragoDatabase
         if (labelCsn != null) {
             key += labelCsn;
         }
+
+        // statements prepared under different plan-affecting settings must
+        // not be shared
+        FarragoSessionVariables sessionVariables =
+            session.getSessionVariables();
+        for (String name
+            : session.getPersonality().getPlanAffectingSessionVariables())
+        {
+            key += ";" + name + "=" + sessionVariables.get(name);
+        }
         final String stmtKey = key;
 
         FarragoObjectCache.Entry cacheEntry;
@@ -1118,7 +1128,17 @@ public class FarragoDatabase
         return executableStmt;
     }
 
-    private boolean isExecutableStmtStale(
+    /**
+     * Determines whether an executable statement refers to catalog objects
+     * which have been dropped or modified since it was prepared. Must be
+     * called from within a repository transaction.
+     *
+     * @param repos repository
+     * @param stmt executable statement
+     *
+     * @return whether the statement needs to be prepared again
+     */
+    public boolean isExecutableStmtStale(
         FarragoRepos repos,
         FarragoSessionExecutableStmt stmt)
     {
@@ -42,6 +42,7 @@ public class FarragoDbSessionExecutingStmtInfo
     private long startTime;
     private List<Object> parameters;
     private List<String> objectsInUse;
+    private String planningStatistics;
 
     //~ Constructors -----------------------------------------------------------
 
@@ -50,7 +51,8 @@ public class FarragoDbSessionExecutingStmtInfo
         FarragoDatabase database,
         String sql,
         List<Object> parameters,
-        List<String> objectsInUse)
+        List<String> objectsInUse,
+        String planningStatistics)
     {
         this.stmt = stmt;
         this.database = database;
@@ -59,6 +61,7 @@ public class FarragoDbSessionExecutingStmtInfo
         this.startTime = System.currentTimeMillis();
         this.parameters = Collections.unmodifiableList(parameters);
         this.objectsInUse = Collections.unmodifiableList(objectsInUse);
+        this.planningStatistics = planningStatistics;
     }
 
     //~ Methods ----------------------------------------------------------------
@@ -103,6 +106,12 @@ public class FarragoDbSessionExecutingStmtInfo
     {
         return objectsInUse;
     }
+
+    // implement FarragoSessionExecutingStmtInfo
+    public String getPlanningStatistics()
+    {
+        return planningStatistics;
+    }
 }
 
 // End FarragoDbSessionExecutingStmtInfo.java
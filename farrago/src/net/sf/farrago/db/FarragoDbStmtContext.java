@@ -23,6 +23,7 @@ import java.sql.*;
 import java.util.*;
 import java.util.logging.*;
 
+import net.sf.farrago.catalog.*;
 import net.sf.farrago.resource.*;
 import net.sf.farrago.session.*;
 import net.sf.farrago.util.*;
@@ -236,6 +237,12 @@ public class FarragoDbStmtContext
     private void executeImpl()
     {
         assert (isPrepared());
+        if (!isExecDirect
+            && executableStmt.isRevalidationRequired()
+            && isPreparedStmtStale())
+        {
+            reprepare();
+        }
         if (!isExecDirect) {
             warningQueue.clearWarnings();
         }
@@ -440,6 +447,61 @@ public class FarragoDbStmtContext
         closeAllocation();
     }
 
+    /**
+     * Determines whether objects which the prepared statement depends on have
+     * changed since it was prepared, for example a materialization which its
+     * plan reads in place of a base table. This needs a repository
+     * transaction, so it is only done for statements whose plans require it;
+     * see {@link FarragoSessionExecutableStmt#isRevalidationRequired}.
+     *
+     * @return whether the statement needs to be prepared again
+     */
+    private boolean isPreparedStmtStale()
+    {
+        if ((sql == null) || (sql.length() == 0)) {
+            // prepared from a plan, so it cannot be prepared again
+            return false;
+        }
+        FarragoRepos repos = session.getRepos();
+        FarragoReposTxnContext txn = new FarragoReposTxnContext(repos, true);
+        txn.beginReadTxn();
+        try {
+            return session.getDatabase().isExecutableStmtStale(
+                repos,
+                executableStmt);
+        } finally {
+            txn.commit();
+        }
+    }
+
+    /**
+     * Prepares the statement again from its SQL text, keeping any dynamic
+     * parameter values which have already been set.
+     */
+    private void reprepare()
+    {
+        Object [] savedValues = dynamicParamValues;
+        boolean [] savedValuesSet = dynamicParamValuesSet;
+        prepare(sql, isExecDirect);
+        if ((savedValues != null)
+            && (dynamicParamValues != null)
+            && (savedValues.length == dynamicParamValues.length))
+        {
+            System.arraycopy(
+                savedValues,
+                0,
+                dynamicParamValues,
+                0,
+                savedValues.length);
+            System.arraycopy(
+                savedValuesSet,
+                0,
+                dynamicParamValuesSet,
+                0,
+                savedValuesSet.length);
+        }
+    }
+
     // implement FarragoSessionStmtContext
     public void closeResultSet()
     {
@@ -478,7 +478,8 @@ public abstract class FarragoDbStmtContextBase
                 sql,
                 Arrays.asList(dynamicParamValues),
                 Arrays.asList(
-                    objectsInUse.toArray(new String[objectsInUse.size()])));
+                    objectsInUse.toArray(new String[objectsInUse.size()])),
+                executableStmt.getPlanningStatistics());
         FarragoDbSessionInfo sessionInfo =
             (FarragoDbSessionInfo) session.getSessionInfo();
         sessionInfo.addExecutingStmtInfo(info);
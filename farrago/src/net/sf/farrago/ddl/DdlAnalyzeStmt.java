@@ -60,7 +60,11 @@ import org.eigenbase.util14.*;
  * <li>The number of distinct values for the column.
  * </ul>
  *
- * This implementation issues recursive SQL.
+ * This implementation issues recursive SQL. When estimating statistics for
+ * a foreign table whose server implements {@link
+ * FarragoMedForeignStatsServer}, the row count and any distinct value counts
+ * reported by the foreign server are used instead, and only the remaining
+ * columns are sampled.
  *
  * @author John Pham, Stephan Zuercher
  * @version $Id$
@@ -105,6 +109,9 @@ public class DdlAnalyzeStmt
     private FarragoRepos repos;
     private long statsRowCount;
     private LinkedHashMap<ColumnDetail, Histogram> histograms;
+    private FarragoMedForeignStatsServer foreignStatsServer;
+    private Properties foreignTableProps;
+    private FarragoMedForeignStats foreignStats;
 
     /**
      * BitSet of column ordinal values that are part of a unique or primary key
@@ -244,6 +251,20 @@ public class DdlAnalyzeStmt
             timingTracer.traceTime("analyze: end examine constraints");
         }
 
+        if (estimate && (table instanceof FemForeignTable)) {
+            FemForeignTable foreignTable = (FemForeignTable) table;
+            FarragoMedDataServer server =
+                ddlValidator.getDataWrapperCache().loadServerFromCatalog(
+                    foreignTable.getServer());
+            if (server instanceof FarragoMedForeignStatsServer) {
+                foreignStatsServer = (FarragoMedForeignStatsServer) server;
+                foreignTableProps =
+                    FarragoCatalogUtil.getStorageOptionsAsProperties(
+                        repos,
+                        foreignTable);
+            }
+        }
+
         prepareIndexDetails();
     }
 
@@ -253,6 +274,23 @@ public class DdlAnalyzeStmt
         FarragoSession session)
     {
         try {
+            if (foreignStatsServer != null) {
+                // the server maps columns to foreign ones by position, so it
+                // needs all of them, not just the ones being analyzed
+                List<String> columnNames = new ArrayList<String>();
+                for (
+                    FemAbstractColumn column
+                    : Util.cast(table.getFeature(), FemAbstractColumn.class))
+                {
+                    columnNames.add(column.getName());
+                }
+                foreignStats =
+                    foreignStatsServer.getForeignStats(
+                        foreignTableProps,
+                        columnNames);
+                timingTracer.traceTime("analyze: end foreign stats");
+            }
+
             // Obtain or compute row counts
             long rowCount = getRowCount();
 
@@ -390,8 +428,9 @@ public class DdlAnalyzeStmt
     }
 
     /**
-     * Retrieve the table's row count. Queries the table if {@link
-     * #computeRowCount} is true, otherwise uses the value stored in {@link
+     * Retrieve the table's row count. Uses the count reported by the foreign
+     * server if there is one; otherwise queries the table if {@link
+     * #computeRowCount} is true, or uses the value stored in {@link
      * #femTable}.
      *
      * @return table's row count
@@ -402,7 +441,9 @@ public class DdlAnalyzeStmt
         throws SQLException
     {
         long rowCount;
-        if (computeRowCount) {
+        if ((foreignStats != null) && (foreignStats.getRowCount() != null)) {
+            rowCount = foreignStats.getRowCount();
+        } else if (computeRowCount) {
             rowCount = computeRowCount();
         } else {
             rowCount = femTableRowCount;
@@ -529,6 +570,30 @@ public class DdlAnalyzeStmt
             boolean isUnique = singleUniqueCols.get(ordinal);
             boolean isUniqueNullable = singleUniqueColsNullable.get(ordinal);
 
+            Long foreignDistinct = null;
+            if (foreignStats != null) {
+                foreignDistinct =
+                    foreignStats.getDistinctValueCount(
+                        column.getColumn().getName());
+            }
+            if (foreignDistinct != null) {
+                // The foreign server knows the cardinality but not the
+                // distribution, so record a histogram without bars.
+                List<ColumnHistogramBar> bars = Collections.emptyList();
+                histograms.put(
+                    column,
+                    new Histogram(
+                        column,
+                        Math.min(foreignDistinct, rowCount),
+                        true,
+                        bars.size(),
+                        1,
+                        1,
+                        0L,
+                        bars));
+                continue;
+            }
+
             estimateColumnStats(
                 histograms,
                 column,
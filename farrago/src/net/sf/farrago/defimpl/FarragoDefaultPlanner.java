@@ -28,6 +28,7 @@ import org.eigenbase.rel.*;
 import org.eigenbase.rel.rules.*;
 import org.eigenbase.relopt.*;
 import org.eigenbase.relopt.volcano.*;
+import org.eigenbase.trace.*;
 
 // TODO jvs 3-May-2006:  Rename this to FarragoDefaultVolcanoPlanner
 
@@ -72,6 +73,14 @@ public class FarragoDefaultPlanner
         RelOptUtil.registerAbstractRels(this);
 
         addRule(AbstractConverter.ExpandConversionRule.instance);
+
+        FarragoSessionVariables variables =
+            stmt.getSession().getSessionVariables();
+        setBudget(
+            variables.getInteger(
+                FarragoDefaultSessionPersonality.PLANNER_MAX_RULE_FIRINGS),
+            variables.getLong(
+                FarragoDefaultSessionPersonality.PLANNER_MAX_MILLIS));
     }
 
     //~ Methods ----------------------------------------------------------------
@@ -142,6 +151,18 @@ public class FarragoDefaultPlanner
         // don't care
     }
 
+    // override VolcanoPlanner
+    public RelNode findBestExp()
+    {
+        RelNode rel = super.findBestExp();
+        EigenbaseTimingTracer timingTracer =
+            stmt.getStmtValidator().getTimingTracer();
+        if (timingTracer != null) {
+            timingTracer.traceTime("volcano planning: " + getStatistics());
+        }
+        return rel;
+    }
+
     // override VolcanoPlanner
     public JavaRelImplementor getJavaRelImplementor(RelNode rel)
     {
@@ -111,6 +111,32 @@ public class FarragoDefaultSessionPersonality
     public static final String DEGREE_OF_PARALLELISM = "degreeOfParallelism";
     public static final String DEGREE_OF_PARALLELISM_DEFAULT = "1";
 
+    /**
+     * Number of rows processed per batch by Java calculators; a value of 0
+     * (the default) causes calculators to be generated in row-at-a-time mode.
+     * Calculators whose output contains character, binary or object values are
+     * always generated row-at-a-time.
+     */
+    public static final String JAVA_CALC_BATCH_SIZE = "javaCalcBatchSize";
+    public static final String JAVA_CALC_BATCH_SIZE_DEFAULT = "0";
+
+    /**
+     * Maximum number of rule firings the Volcano planner spends on a
+     * statement once it has found an implementable plan; a value of 0 (the
+     * default) means no limit.
+     */
+    public static final String PLANNER_MAX_RULE_FIRINGS =
+        "plannerMaxRuleFirings";
+    public static final String PLANNER_MAX_RULE_FIRINGS_DEFAULT = "0";
+
+    /**
+     * Maximum time in milliseconds the Volcano planner spends on a statement
+     * once it has found an implementable plan; a value of 0 (the default)
+     * means no limit.
+     */
+    public static final String PLANNER_MAX_MILLIS = "plannerMaxMillis";
+    public static final String PLANNER_MAX_MILLIS_DEFAULT = "0";
+
     /**
      * The label for the current session
      */
@@ -158,6 +184,21 @@ public class FarragoDefaultSessionPersonality
             false,
             1,
             Integer.MAX_VALUE);
+        paramValidator.registerIntParam(
+            JAVA_CALC_BATCH_SIZE,
+            false,
+            0,
+            Integer.MAX_VALUE);
+        paramValidator.registerIntParam(
+            PLANNER_MAX_RULE_FIRINGS,
+            false,
+            0,
+            Integer.MAX_VALUE);
+        paramValidator.registerLongParam(
+            PLANNER_MAX_MILLIS,
+            false,
+            0,
+            Long.MAX_VALUE);
         paramValidator.registerBoolParam(
             USE_ENKI_MASS_DELETION,
             false);
@@ -496,6 +537,15 @@ public class FarragoDefaultSessionPersonality
         variables.setDefault(
             DEGREE_OF_PARALLELISM,
             DEGREE_OF_PARALLELISM_DEFAULT);
+        variables.setDefault(
+            JAVA_CALC_BATCH_SIZE,
+            JAVA_CALC_BATCH_SIZE_DEFAULT);
+        variables.setDefault(
+            PLANNER_MAX_RULE_FIRINGS,
+            PLANNER_MAX_RULE_FIRINGS_DEFAULT);
+        variables.setDefault(
+            PLANNER_MAX_MILLIS,
+            PLANNER_MAX_MILLIS_DEFAULT);
         variables.setDefault(
             USE_ENKI_MASS_DELETION,
             USE_ENKI_MASS_DELETION_DEFAULT);
@@ -521,6 +571,16 @@ public class FarragoDefaultSessionPersonality
         variables.set(name, validatedValue);
     }
 
+    // implement FarragoSessionPersonality
+    public List<String> getPlanAffectingSessionVariables()
+    {
+        List<String> names = new ArrayList<String>();
+        names.add(JAVA_CALC_BATCH_SIZE);
+        names.add(PLANNER_MAX_RULE_FIRINGS);
+        names.add(PLANNER_MAX_MILLIS);
+        return names;
+    }
+
     // implement FarragoSessionPersonality
     public JmiQueryProcessor newJmiQueryProcessor(String language)
     {
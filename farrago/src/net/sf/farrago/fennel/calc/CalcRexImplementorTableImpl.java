@@ -457,6 +457,20 @@ public class CalcRexImplementorTableImpl
             SqlStdOperatorTable.caseOperator,
             new CaseImplementor());
 
+        register(
+            SqlStdOperatorTable.inListOperator,
+            new AbstractCalcRexImplementor() {
+                public CalcReg implement(
+                    RexCall call,
+                    RexToCalcTranslator translator)
+                {
+                    // the expansion searches ordered values with nested
+                    // CASEs, which only evaluate the branch taken
+                    return translator.implementNode(
+                        RexUtil.expandInList(translator.rexBuilder, call));
+                }
+            });
+
         register(
             SqlStdOperatorTable.castFunc,
             CastImplementor.instance);
@@ -538,6 +552,10 @@ public class CalcRexImplementorTableImpl
             new BinaryNumericMakeSametypeImplementor(
                 CalcProgramBuilder.boolNativeLessOrEqualThan));
 
+        registerInstr(
+            SqlStdOperatorTable.hllEstimateFunction,
+            ExtInstructionDefTable.hllEstimate);
+
         registerInstr(
             SqlStdOperatorTable.likeOperator,
             ExtInstructionDefTable.like);
@@ -56,6 +56,8 @@ public class ExtInstructionDefTable
         new CalcProgramBuilder.ExtInstrSizeDef("strCatA");
     public static final CalcProgramBuilder.ExtInstrDef dynamicVariable =
         new CalcProgramBuilder.ExtInstrDef("dynamicVariable", 2);
+    public static final CalcProgramBuilder.ExtInstrDef hllEstimate =
+        new CalcProgramBuilder.ExtInstrDef("hllEstimate", 2);
     public static final CalcProgramBuilder.ExtInstrDef like =
         new CalcProgramBuilder.ExtInstrSizeDef("strLikeA");
     public static final CalcProgramBuilder.ExtInstrDef localTime =
@@ -1030,8 +1030,13 @@ public abstract class FennelRelUtil
     public static AggFunction lookupAggFunction(
         AggregateCall call)
     {
-        return AggFunctionEnum.forName(
-            "AGG_FUNC_" + call.getAggregation().getName());
+        // Internal aggregates such as $HLL_SKETCH are named without the '$'
+        // in Fennel.
+        String name = call.getAggregation().getName();
+        if (name.startsWith("$")) {
+            name = name.substring(1);
+        }
+        return AggFunctionEnum.forName("AGG_FUNC_" + name);
     }
 }
 
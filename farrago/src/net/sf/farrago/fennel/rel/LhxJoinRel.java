@@ -357,6 +357,16 @@ public class LhxJoinRel
     {
         return rightKeys;
     }
+
+    public List<Integer> getFilterNulls()
+    {
+        return filterNulls;
+    }
+
+    public boolean isSetop()
+    {
+        return isSetop;
+    }
 }
 
 // End LhxJoinRel.java
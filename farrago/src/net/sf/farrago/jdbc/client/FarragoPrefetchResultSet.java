@@ -0,0 +1,337 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package net.sf.farrago.jdbc.client;
+
+import java.sql.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.eigenbase.util14.*;
+
+
+/**
+ * FarragoPrefetchResultSet wraps a result set obtained from a remote server
+ * and reads ahead of the client cursor. A background thread fetches rows from
+ * the remote result set in batches and hands them over through a bounded
+ * queue, so that network round trips overlap with client-side processing
+ * instead of stalling each call to {@link #next}.
+ *
+ * <p>The batch size is taken from {@link #setFetchSize} if the application
+ * set one; otherwise it is derived from the estimated width of a row so that
+ * each batch holds roughly a fixed number of bytes. See {@link
+ * FarragoRemotePrefetch} for the connection properties which enable and tune
+ * prefetch.
+ *
+ * @version $Id$
+ */
+class FarragoPrefetchResultSet
+    extends AbstractResultSet
+{
+    //~ Static fields/initializers ---------------------------------------------
+
+    /**
+     * Marker placed on the queue after the last batch.
+     */
+    private static final Object END_OF_DATA = new Object();
+
+    /**
+     * Width assumed for a column whose display size is unknown.
+     */
+    private static final int DEFAULT_COLUMN_WIDTH = 16;
+
+    /**
+     * Upper bound on the width assumed for a single column, so that a LOB or
+     * wide VARCHAR column does not shrink batches to a single row.
+     */
+    private static final int MAX_COLUMN_WIDTH = 4096;
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final ResultSet remoteResultSet;
+    private final Statement statement;
+    private final ResultSetMetaData metaData;
+    private final int columnCount;
+    private final int batchBytes;
+    private final BlockingQueue<Object> queue;
+    private final Thread prefetchThread;
+
+    private volatile int batchSize;
+    private volatile boolean closed;
+
+    private List<Object []> currentBatch;
+    private int currentBatchIndex;
+    private Object [] currentRow;
+    private int row;
+    private boolean done;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a FarragoPrefetchResultSet and starts its prefetch thread.
+     *
+     * @param remoteResultSet result set to read ahead of
+     * @param statement statement to return from {@link #getStatement}
+     * @param fetchSize fetch size requested by the application, or 0 to size
+     * batches from the row width
+     * @param batchBytes target size in bytes of a batch when sizing from the
+     * row width
+     * @param depth maximum number of batches fetched ahead of the client
+     */
+    FarragoPrefetchResultSet(
+        ResultSet remoteResultSet,
+        Statement statement,
+        int fetchSize,
+        int batchBytes,
+        int depth)
+        throws SQLException
+    {
+        this.remoteResultSet = remoteResultSet;
+        this.statement = statement;
+        this.batchBytes = batchBytes;
+
+        // Fetch metadata before the prefetch thread starts using the remote
+        // result set.
+        metaData = remoteResultSet.getMetaData();
+        columnCount = metaData.getColumnCount();
+        this.fetchSize = fetchSize;
+        batchSize = computeBatchSize(fetchSize);
+        queue = new ArrayBlockingQueue<Object>(Math.max(depth, 1) + 1);
+
+        prefetchThread =
+            new Thread("FarragoPrefetchResultSet") {
+                public void run()
+                {
+                    prefetch();
+                }
+            };
+        prefetchThread.setDaemon(true);
+        prefetchThread.start();
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Computes the number of rows per batch.
+     *
+     * @param fetchSize fetch size requested by the application, or 0
+     *
+     * @return rows per batch, at least 1
+     */
+    private int computeBatchSize(int fetchSize)
+        throws SQLException
+    {
+        if (fetchSize > 0) {
+            return fetchSize;
+        }
+        long rowWidth = 0;
+        for (int i = 1; i <= columnCount; i++) {
+            int width = metaData.getColumnDisplaySize(i);
+            if (width <= 0) {
+                width = DEFAULT_COLUMN_WIDTH;
+            }
+            rowWidth += Math.min(width, MAX_COLUMN_WIDTH);
+        }
+        return (int) Math.max(1, batchBytes / Math.max(rowWidth, 1));
+    }
+
+    /**
+     * Body of the prefetch thread: reads batches from the remote result set
+     * and queues them until the data is exhausted, an error occurs, or the
+     * result set is closed.
+     */
+    private void prefetch()
+    {
+        try {
+            while (!closed) {
+                int n = batchSize;
+                List<Object []> batch = new ArrayList<Object []>(n);
+                while ((batch.size() < n) && remoteResultSet.next()) {
+                    Object [] values = new Object[columnCount];
+                    for (int i = 0; i < columnCount; i++) {
+                        values[i] = remoteResultSet.getObject(i + 1);
+                    }
+                    batch.add(values);
+                }
+                if (!batch.isEmpty()) {
+                    queue.put(batch);
+                }
+                if (batch.size() < n) {
+                    queue.put(END_OF_DATA);
+                    return;
+                }
+            }
+        } catch (InterruptedException ex) {
+            // close() interrupts us; nobody is waiting for more data
+        } catch (Throwable ex) {
+            try {
+                queue.put(ex);
+            } catch (InterruptedException ex2) {
+                // closed while reporting the error; drop it
+            }
+        }
+    }
+
+    // implement ResultSet
+    public boolean next()
+        throws SQLException
+    {
+        if (closed) {
+            throw new SQLException("ResultSet is closed");
+        }
+        if ((currentBatch != null)
+            && (currentBatchIndex < currentBatch.size()))
+        {
+            currentRow = currentBatch.get(currentBatchIndex++);
+            ++row;
+            return true;
+        }
+        currentBatch = null;
+        currentRow = null;
+        if (done) {
+            return false;
+        }
+
+        Object item;
+        try {
+            item = queue.take();
+        } catch (InterruptedException ex) {
+            throw newFetchError(ex);
+        }
+        if (item == END_OF_DATA) {
+            done = true;
+            return false;
+        }
+        if (item instanceof Throwable) {
+            done = true;
+            Throwable ex = (Throwable) item;
+            if (ex instanceof SQLException) {
+                throw (SQLException) ex;
+            }
+            throw newFetchError(ex);
+        }
+        currentBatch = (List<Object []>) item;
+        currentBatchIndex = 0;
+        return next();
+    }
+
+    // implement AbstractResultSet
+    protected Object getRaw(int columnIndex)
+        throws SQLException
+    {
+        if (currentRow == null) {
+            throw new SQLException("ResultSet is not positioned on a row");
+        }
+        if ((columnIndex < 1) || (columnIndex > columnCount)) {
+            throw new SQLException(
+                "column index " + columnIndex + " out of range");
+        }
+        return currentRow[columnIndex - 1];
+    }
+
+    // implement ResultSet
+    public ResultSetMetaData getMetaData()
+        throws SQLException
+    {
+        return metaData;
+    }
+
+    // implement ResultSet
+    public Statement getStatement()
+        throws SQLException
+    {
+        return statement;
+    }
+
+    // implement ResultSet
+    public int getRow()
+        throws SQLException
+    {
+        return row;
+    }
+
+    // implement ResultSet
+    public boolean isBeforeFirst()
+        throws SQLException
+    {
+        return (row == 0) && !done;
+    }
+
+    // implement ResultSet
+    public boolean isAfterLast()
+        throws SQLException
+    {
+        return done && (currentRow == null);
+    }
+
+    // implement ResultSet
+    public boolean isFirst()
+        throws SQLException
+    {
+        return row == 1;
+    }
+
+    // implement ResultSet
+    public boolean isClosed()
+        throws SQLException
+    {
+        return closed;
+    }
+
+    /**
+     * Sets the fetch size. Batches which the prefetch thread has already
+     * started are not affected.
+     */
+    public void setFetchSize(int rows)
+        throws SQLException
+    {
+        if (rows < 0) {
+            throw new SQLException("fetch size must not be negative");
+        }
+        super.setFetchSize(rows);
+        batchSize = computeBatchSize(rows);
+    }
+
+    // implement ResultSet
+    public void close()
+        throws SQLException
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        currentBatch = null;
+        currentRow = null;
+
+        // Wake the prefetch thread if it is blocked on a full queue, and wait
+        // for it to stop touching the remote result set before closing it.
+        prefetchThread.interrupt();
+        queue.clear();
+        try {
+            prefetchThread.join();
+        } catch (InterruptedException ex) {
+            // REVIEW: if we get interrupted here, the prefetch thread may
+            // still be inside a remote call when we close the result set
+            Thread.currentThread().interrupt();
+        }
+        remoteResultSet.close();
+    }
+}
+
+// End FarragoPrefetchResultSet.java
@@ -0,0 +1,236 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package net.sf.farrago.jdbc.client;
+
+import java.lang.reflect.*;
+
+import java.sql.*;
+
+import java.util.*;
+
+
+/**
+ * FarragoRemotePrefetch layers client-side result set prefetch over a
+ * connection obtained from VJDBC. Prefetch is enabled via connection
+ * properties, so it works the same way over the RMI and HTTP transports:
+ *
+ * <ul>
+ * <li>{@link #PROP_PREFETCH} ("remotePrefetch"): "true" to read ahead of
+ * the client cursor; default false
+ * <li>{@link #PROP_PREFETCH_BYTES} ("remotePrefetchBytes"): approximate size
+ * of a batch in bytes, used to size batches when the application has not
+ * called setFetchSize; default {@link #DEFAULT_PREFETCH_BYTES}
+ * <li>{@link #PROP_PREFETCH_DEPTH} ("remotePrefetchDepth"): number of batches
+ * fetched ahead of the client; default {@link #DEFAULT_PREFETCH_DEPTH}
+ * </ul>
+ *
+ * <p>Only result sets returned from statements are prefetched; result sets
+ * from {@link DatabaseMetaData} are small and are passed through unchanged.
+ * Compression of the rows on the wire is configured on the server side (see
+ * {@link net.sf.farrago.util.FarragoProperties#serverCompressionMode}).
+ *
+ * @version $Id$
+ */
+public abstract class FarragoRemotePrefetch
+{
+    //~ Static fields/initializers ---------------------------------------------
+
+    public static final String PROP_PREFETCH = "remotePrefetch";
+
+    public static final String PROP_PREFETCH_BYTES = "remotePrefetchBytes";
+
+    public static final String PROP_PREFETCH_DEPTH = "remotePrefetchDepth";
+
+    public static final int DEFAULT_PREFETCH_BYTES = 1 << 20;
+
+    public static final int DEFAULT_PREFETCH_DEPTH = 2;
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Wraps a remote connection so that its statements return prefetching
+     * result sets, if prefetch is enabled in the connection properties.
+     *
+     * @param connection connection returned by VJDBC
+     * @param info connection properties
+     *
+     * @return wrapped connection, or the original connection if prefetch is
+     * not enabled
+     */
+    public static Connection wrap(Connection connection, Properties info)
+        throws SQLException
+    {
+        if ((connection == null)
+            || !Boolean.valueOf(info.getProperty(PROP_PREFETCH)).booleanValue())
+        {
+            return connection;
+        }
+        int batchBytes =
+            getIntProperty(info, PROP_PREFETCH_BYTES, DEFAULT_PREFETCH_BYTES);
+        int depth =
+            getIntProperty(info, PROP_PREFETCH_DEPTH, DEFAULT_PREFETCH_DEPTH);
+        ConnectionHandler handler =
+            new ConnectionHandler(connection, batchBytes, depth);
+        handler.proxy =
+            (Connection) Proxy.newProxyInstance(
+                FarragoRemotePrefetch.class.getClassLoader(),
+                new Class[] { Connection.class },
+                handler);
+        return handler.proxy;
+    }
+
+    private static int getIntProperty(
+        Properties info,
+        String name,
+        int defaultValue)
+        throws SQLException
+    {
+        String s = info.getProperty(name);
+        if (s == null) {
+            return defaultValue;
+        }
+        try {
+            int value = Integer.parseInt(s.trim());
+            if (value > 0) {
+                return value;
+            }
+        } catch (NumberFormatException ex) {
+            // fall through
+        }
+        throw new SQLException(
+            "Invalid value '" + s + "' for connection property " + name);
+    }
+
+    private static Object invoke(Object target, Method method, Object [] args)
+        throws Throwable
+    {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * Intercepts calls on a remote connection which create statements.
+     */
+    private static class ConnectionHandler
+        implements InvocationHandler
+    {
+        private final Connection connection;
+        private final int batchBytes;
+        private final int depth;
+        private Connection proxy;
+
+        ConnectionHandler(Connection connection, int batchBytes, int depth)
+        {
+            this.connection = connection;
+            this.batchBytes = batchBytes;
+            this.depth = depth;
+        }
+
+        // implement InvocationHandler
+        public Object invoke(Object p, Method method, Object [] args)
+            throws Throwable
+        {
+            Object result = FarragoRemotePrefetch.invoke(
+                connection,
+                method,
+                args);
+            if (result instanceof Statement) {
+                // Proxy the interface the caller asked for, so that
+                // prepareStatement still returns a PreparedStatement, etc.
+                Class<?> iface = method.getReturnType();
+                return Proxy.newProxyInstance(
+                    FarragoRemotePrefetch.class.getClassLoader(),
+                    new Class[] { iface },
+                    new StatementHandler(this, (Statement) result));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Intercepts calls on a remote statement which return result sets.
+     */
+    private static class StatementHandler
+        implements InvocationHandler
+    {
+        private final ConnectionHandler connectionHandler;
+        private final Statement statement;
+        private ResultSet remoteResultSet;
+        private FarragoPrefetchResultSet prefetchResultSet;
+
+        StatementHandler(
+            ConnectionHandler connectionHandler,
+            Statement statement)
+        {
+            this.connectionHandler = connectionHandler;
+            this.statement = statement;
+        }
+
+        // implement InvocationHandler
+        public Object invoke(Object p, Method method, Object [] args)
+            throws Throwable
+        {
+            String name = method.getName();
+            if (name.equals("getConnection")) {
+                return connectionHandler.proxy;
+            }
+            if ((prefetchResultSet != null)
+                && (name.equals("close")
+                    || name.startsWith("execute")
+                    || name.equals("getMoreResults")))
+            {
+                // Stop the prefetch thread before the statement goes away or
+                // produces a new result, which implicitly closes the current
+                // one.  Otherwise the thread would keep fetching from the
+                // remote statement, or stay blocked on a full queue forever.
+                prefetchResultSet.close();
+                prefetchResultSet = null;
+                remoteResultSet = null;
+            }
+            Object result = FarragoRemotePrefetch.invoke(
+                statement,
+                method,
+                args);
+            if ((result instanceof ResultSet)
+                && (name.equals("executeQuery")
+                    || name.equals("getResultSet")))
+            {
+                if (result != remoteResultSet) {
+                    remoteResultSet = (ResultSet) result;
+                    prefetchResultSet =
+                        new FarragoPrefetchResultSet(
+                            remoteResultSet,
+                            (Statement) p,
+                            statement.getFetchSize(),
+                            connectionHandler.batchBytes,
+                            connectionHandler.depth);
+                }
+                return prefetchResultSet;
+            }
+            return result;
+        }
+    }
+}
+
+// End FarragoRemotePrefetch.java
@@ -91,7 +91,9 @@ public abstract class FarragoUnregisteredVjdbcClientDriver
         // NOTE:  can't call DriverManager.connect here, because that
         // would deadlock in the case where client and server are
         // running in the same VM
-        return rmiDriver.connect(urlRmi, driverProps);
+        return FarragoRemotePrefetch.wrap(
+            rmiDriver.connect(urlRmi, driverProps),
+            driverProps);
     }
 }
 
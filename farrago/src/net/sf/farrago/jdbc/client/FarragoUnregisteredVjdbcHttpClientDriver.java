@@ -93,7 +93,9 @@ public class FarragoUnregisteredVjdbcHttpClientDriver
         // NOTE:  can't call DriverManager.connect here, because that
         // would deadlock in the case where client and server are
         // running in the same VM
-        return httpDriver.connect(urlHttp, driverProps);
+        return FarragoRemotePrefetch.wrap(
+            httpDriver.connect(urlHttp, driverProps),
+            driverProps);
     }
 }
 
@@ -0,0 +1,68 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package net.sf.farrago.namespace;
+
+import java.util.*;
+
+
+/**
+ * FarragoMedForeignStats represents statistics reported by a foreign server
+ * via {@link FarragoMedForeignStatsServer#getForeignStats}. Any of them may be
+ * missing.
+ *
+ * @version $Id$
+ */
+public class FarragoMedForeignStats
+{
+    //~ Instance fields --------------------------------------------------------
+
+    private final Long rowCount;
+    private final Map<String, Long> distinctValueCounts;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a FarragoMedForeignStats.
+     *
+     * @param rowCount number of rows in the table, or null if unknown
+     * @param distinctValueCounts number of distinct values, by column name;
+     * columns whose count is unknown are omitted
+     */
+    public FarragoMedForeignStats(
+        Long rowCount,
+        Map<String, Long> distinctValueCounts)
+    {
+        this.rowCount = rowCount;
+        this.distinctValueCounts = distinctValueCounts;
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    public Long getRowCount()
+    {
+        return rowCount;
+    }
+
+    public Long getDistinctValueCount(String columnName)
+    {
+        return distinctValueCounts.get(columnName);
+    }
+}
+
+// End FarragoMedForeignStats.java
@@ -0,0 +1,56 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package net.sf.farrago.namespace;
+
+import java.sql.*;
+
+import java.util.*;
+
+
+/**
+ * FarragoMedForeignStatsServer is implemented by a {@link
+ * FarragoMedDataServer} which can report statistics about its tables that
+ * the foreign DBMS already maintains. ANALYZE TABLE ... ESTIMATE STATISTICS
+ * uses these in preference to scanning a foreign table.
+ *
+ * @version $Id$
+ */
+public interface FarragoMedForeignStatsServer
+    extends FarragoMedDataServer
+{
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Retrieves statistics for a foreign table.
+     *
+     * @param tableProps properties of the foreign table, as for {@link
+     * #newColumnSet}
+     * @param columnNames names of all of the foreign table's columns, in
+     * ordinal order; distinct value counts are reported under these names
+     *
+     * @return statistics, or null if the foreign server keeps none for this
+     * table
+     */
+    public FarragoMedForeignStats getForeignStats(
+        Properties tableProps,
+        List<String> columnNames)
+        throws SQLException;
+}
+
+// End FarragoMedForeignStatsServer.java
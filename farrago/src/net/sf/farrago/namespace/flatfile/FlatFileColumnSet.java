@@ -23,6 +23,7 @@ import java.io.*;
 import java.text.*;
 
 import java.util.*;
+import java.util.regex.*;
 
 import net.sf.farrago.fem.config.*;
 import net.sf.farrago.namespace.*;
@@ -55,11 +56,16 @@ class FlatFileColumnSet
     private static final String TIMESTAMP_PREFIX = "_";
     private static final String TIMESTAMP_FORMAT = "yyyy-MM-dd_HH_mm_ss";
 
+    private static final String FILE_PATTERN_CHARS = "*?";
+
     //~ Instance fields --------------------------------------------------------
 
     FlatFileParams params;
     String filePath;
     String logFilePath;
+    List<String> dataFilePaths;
+    List<String> logFilePaths;
+    boolean fileSet;
     FlatFileParams.SchemaType schemaType;
     long numRows;
 
@@ -77,13 +83,23 @@ class FlatFileColumnSet
 
         this.params = params;
         this.numRows = numRows;
-        filePath =
-            makeFilePath(
-                localName,
-                tableProps.getProperty(PROP_FILENAME, null));
-        logFilePath =
-            makeLogFilePath(
-                tableProps.getProperty(PROP_LOG_FILENAME, null));
+        String filename = tableProps.getProperty(PROP_FILENAME, null);
+        String logFilename = tableProps.getProperty(PROP_LOG_FILENAME, null);
+        dataFilePaths = makeFilePaths(localName, filename);
+        fileSet =
+            isFileSet(
+                params,
+                (filename == null) ? localName[localName.length - 1]
+                : filename);
+        logFilePaths = new ArrayList<String>();
+        for (int i = 0; i < dataFilePaths.size(); i++) {
+            logFilePaths.add(
+                makeLogFilePath(
+                    dataFilePaths.get(i),
+                    (dataFilePaths.size() > 1) ? null : logFilename));
+        }
+        filePath = dataFilePaths.get(0);
+        logFilePath = logFilePaths.get(0);
         this.schemaType = schemaType;
     }
 
@@ -104,6 +120,26 @@ class FlatFileColumnSet
         return logFilePath;
     }
 
+    /**
+     * Returns the paths of all data files read by a scan of this table, in
+     * name order. There is more than one if the table's filename is a
+     * pattern or names a directory; see {@link #expandFilePath}.
+     */
+    public List<String> getDataFilePaths()
+    {
+        return dataFilePaths;
+    }
+
+    /**
+     * Returns the paths of the log files which correspond to {@link
+     * #getDataFilePaths}. When a table reads more than one file, each gets
+     * its own log, named after the data file.
+     */
+    public List<String> getLogFilePaths()
+    {
+        return logFilePaths;
+    }
+
     // implement RelOptTable
     public double getRowCount()
     {
@@ -118,6 +154,13 @@ class FlatFileColumnSet
         RelOptCluster cluster,
         RelOptConnection connection)
     {
+        if (fileSet) {
+            // The files were listed when this column set was created. A plan
+            // reused from the statement cache would keep reading that list,
+            // and miss files which arrive later.
+            getPreparingStmt().disableStatementCaching();
+        }
+
         // Implement the flat file scan as physical relations. The scan
         // relies on a calculator to convert text into typed data. This
         // calculator may either be integrated into the flat file scan
@@ -186,24 +229,139 @@ class FlatFileColumnSet
     }
 
     /**
-     * Constructs the full path to the file for a table, based upon the server
-     * directory, filename option (if specified), and the server data file
-     * extension. If the filename is not specified, the local table name is used
-     * instead.
+     * Constructs the full paths to the files for a table, based upon the
+     * server directory, filename option (if specified), and the server data
+     * file extension. If the filename is not specified, the local table name
+     * is used instead.
      *
      * @param localName name of the table within the catalog
      * @param filename name of the file, specified in parameters
      *
-     * @return full path to the data file for the table
+     * @return full paths to the data files for the table; never empty
      */
-    private String makeFilePath(String [] localName, String filename)
+    private List<String> makeFilePaths(String [] localName, String filename)
     {
         String name = filename;
         if (name == null) {
             name = localName[localName.length - 1];
         }
+        List<String> paths = expandFilePath(params, name);
+        if (paths.isEmpty()) {
+            // nothing matched; keep the name as given, so that the scan
+            // reports the missing file
+            paths.add(
+                params.getDirectory() + name + params.getFileExtenstion());
+        }
+        return paths;
+    }
+
+    /**
+     * Expands the name of a data file into the list of files it denotes.
+     *
+     * <p>A name containing the wildcards <code>*</code> or <code>?</code> is
+     * a pattern, and denotes every file with the data file extension whose
+     * name matches it. A name which refers to a subdirectory of the server
+     * directory denotes every file in that subdirectory with the data file
+     * extension. Any other name denotes the single file formed by appending
+     * the extension, whether or not it exists.
+     *
+     * <p>Since the list is expanded when a statement is prepared, statements
+     * which read a pattern or directory are not cached; see {@link
+     * #isFileSet}.
+     *
+     * @param params server parameters
+     * @param name file name, relative to the server directory and without
+     * the data file extension
+     *
+     * @return full paths to the data files, sorted by name; empty if a
+     * pattern or directory matched no files
+     */
+    static List<String> expandFilePath(FlatFileParams params, String name)
+    {
+        List<String> paths = new ArrayList<String>();
         String extension = params.getFileExtenstion();
-        return (params.getDirectory() + name + extension);
+        File dir;
+        String pattern;
+        if (isFilePattern(name)) {
+            File patternFile = new File(params.getDirectory() + name);
+            dir = patternFile.getParentFile();
+            pattern = patternFile.getName();
+        } else {
+            dir = new File(params.getDirectory() + name);
+            if (!dir.isDirectory()) {
+                paths.add(params.getDirectory() + name + extension);
+                return paths;
+            }
+            pattern = "*";
+        }
+
+        String prefix = "";
+        if (dir == null) {
+            dir = new File(".");
+        } else {
+            prefix = dir.getPath() + File.separator;
+        }
+        Pattern regex = Pattern.compile(makeFileRegex(pattern + extension));
+        String [] names = dir.list();
+        if (names == null) {
+            return paths;
+        }
+        Arrays.sort(names);
+        for (String fileName : names) {
+            if (regex.matcher(fileName).matches()
+                && new File(dir, fileName).isFile())
+            {
+                paths.add(prefix + fileName);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Returns whether the name of a data file is a pattern or names a
+     * directory, so that the files it denotes can change between executions
+     * of a statement.
+     */
+    static boolean isFileSet(FlatFileParams params, String name)
+    {
+        return isFilePattern(name)
+            || new File(params.getDirectory() + name).isDirectory();
+    }
+
+    private static boolean isFilePattern(String name)
+    {
+        for (int i = 0; i < FILE_PATTERN_CHARS.length(); i++) {
+            if (name.indexOf(FILE_PATTERN_CHARS.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Translates a file name pattern into a Java regular expression, where
+     * <code>*</code> matches any sequence of characters and <code>?</code>
+     * matches any single character.
+     */
+    private static String makeFileRegex(String pattern)
+    {
+        StringBuilder sb = new StringBuilder();
+        int start = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (FILE_PATTERN_CHARS.indexOf(c) < 0) {
+                continue;
+            }
+            if (i > start) {
+                sb.append(Pattern.quote(pattern.substring(start, i)));
+            }
+            sb.append((c == '*') ? ".*" : ".");
+            start = i + 1;
+        }
+        if (start < pattern.length()) {
+            sb.append(Pattern.quote(pattern.substring(start)));
+        }
+        return sb.toString();
     }
 
     /**
@@ -215,14 +373,16 @@ class FlatFileColumnSet
      *
      * <p>Log files names are appended with a timestamp and have a .ERR
      * extension rather than the data file extension.
+     *
+     * @param dataFilePath path of the data file being logged
+     * @param logFilename log filename option, or null
      */
-    private String makeLogFilePath(String logFilename)
+    private String makeLogFilePath(String dataFilePath, String logFilename)
     {
         String name = logFilename;
         if (name == null) {
-            // NOTE: file path must be set before calling this function
-            Util.pre(filePath != null, "filePath != null");
-            File file = new File(filePath); // DIR/FILE.EXT
+            Util.pre(dataFilePath != null, "dataFilePath != null");
+            File file = new File(dataFilePath); // DIR/FILE.EXT
             String root = file.getName(); // FILE.EXT
             int dot = root.lastIndexOf(FlatFileParams.FILE_EXTENSION_PREFIX);
             if (dot > 0) {
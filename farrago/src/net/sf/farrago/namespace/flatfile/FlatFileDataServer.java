@@ -59,6 +59,10 @@ class FlatFileDataServer
     private static String QUALIFIED_NAME_SEPARATOR = ".";
     private static String SQL_QUOTE_CHARACTER = "\"";
 
+    // leading bytes of a gzip file, and the size of its header and trailer
+    private static final int [] GZIP_MAGIC = { 0x1f, 0x8b };
+    private static final int GZIP_MIN_LENGTH = 18;
+
     //~ Instance fields --------------------------------------------------------
 
     private MedAbstractDataWrapper wrapper;
@@ -141,10 +145,14 @@ class FlatFileDataServer
             filename = getTableName(localName);
         }
 
-        String dataFilePath =
-            params.getDirectory() + filename
-            + params.getFileExtenstion();
-        File dataFile = new File(dataFilePath);
+        // a pattern or directory may cover many files; their combined size
+        // is used for estimates, and the first one for metadata
+        List<String> dataFilePaths =
+            FlatFileColumnSet.expandFilePath(params, filename);
+        long dataLength = 0;
+        for (String dataFilePath : dataFilePaths) {
+            dataLength += getDataLength(new File(dataFilePath));
+        }
 
         // Estimate number of rows in a file
         long numRows = -1;
@@ -161,7 +169,7 @@ class FlatFileDataServer
 
                     // Estimated number of rows == file length / avg row length
                     if (avgRowSize > 0) {
-                        numRows = dataFile.length() / avgRowSize;
+                        numRows = dataLength / avgRowSize;
                     }
                 }
             }
@@ -173,12 +181,13 @@ class FlatFileDataServer
         if (rowType == null) {
             // scan control file/data file for metadata (Phase II)
             // check data file exists
-            if (!dataFile.exists()) {
+            if (dataFilePaths.isEmpty()
+                || !new File(dataFilePaths.get(0)).exists())
+            {
                 return null;
             }
             String ctrlFilePath =
-                params.getDirectory() + filename
-                + params.getControlFileExtenstion();
+                getControlFilePath(filename, dataFilePaths);
             FlatFileBcpFile bcpFile =
                 new FlatFileBcpFile(ctrlFilePath, typeFactory);
             rowType =
@@ -220,6 +229,71 @@ class FlatFileDataServer
         super.closeAllocation();
     }
 
+    /**
+     * Returns the number of bytes of text in a data file. For a file
+     * compressed with gzip, which the flat file reader decompresses as it
+     * goes, this is the uncompressed size recorded at the end of the file
+     * (modulo 4GB). Other files are assumed to be uncompressed, and may be
+     * underestimated.
+     */
+    private long getDataLength(File dataFile)
+    {
+        long length = dataFile.length();
+        if (length < GZIP_MIN_LENGTH) {
+            return length;
+        }
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(dataFile, "r");
+            if ((raf.read() != GZIP_MAGIC[0]) || (raf.read() != GZIP_MAGIC[1]))
+            {
+                return length;
+            }
+
+            // the trailer ends with the uncompressed size, little-endian
+            raf.seek(length - 4);
+            long size = 0;
+            for (int i = 0; i < 4; i++) {
+                size |= ((long) raf.read()) << (8 * i);
+            }
+            return Math.max(size, length);
+        } catch (IOException ex) {
+            return length;
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException ex) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the path of the control file for a table. When the table's
+     * filename covers several files, the control file is named after the
+     * first of them.
+     */
+    private String getControlFilePath(
+        String filename,
+        List<String> dataFilePaths)
+    {
+        if (dataFilePaths.size() == 1) {
+            return params.getDirectory() + filename
+                + params.getControlFileExtenstion();
+        }
+        String dataFilePath = dataFilePaths.get(0);
+        String extension = params.getFileExtenstion();
+        if (dataFilePath.endsWith(extension)) {
+            dataFilePath =
+                dataFilePath.substring(
+                    0,
+                    dataFilePath.length() - extension.length());
+        }
+        return dataFilePath + params.getControlFileExtenstion();
+    }
+
     MedAbstractDataWrapper getWrapper()
     {
         return wrapper;
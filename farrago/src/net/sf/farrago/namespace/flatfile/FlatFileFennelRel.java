@@ -100,15 +100,61 @@ public class FlatFileFennelRel
 
     // implement FennelRel
     public FemExecutionStreamDef toStreamDef(FennelRelImplementor implementor)
+    {
+        java.util.List<String> dataFilePaths = columnSet.getDataFilePaths();
+        if ((schemaType != FlatFileParams.SchemaType.QUERY_TEXT)
+            || (dataFilePaths.size() == 1))
+        {
+            // describe and sample queries only look at the first file
+            return newFlatFileStreamDef(
+                implementor,
+                columnSet.getFilePath(),
+                columnSet.getLogFilePath());
+        }
+
+        // Read each file with its own stream, and merge the rows in whatever
+        // order they arrive. Under the parallel scheduler, the files are
+        // parsed concurrently.
+        final FarragoRepos repos = FennelRelUtil.getRepos(this);
+        FemMergeStreamDef mergeStream = repos.newFemMergeStreamDef();
+        mergeStream.setSequential(false);
+        mergeStream.setPrePullInputs(false);
+        java.util.List<String> logFilePaths = columnSet.getLogFilePaths();
+        for (int i = 0; i < dataFilePaths.size(); i++) {
+            FemExecutionStreamDef fileStream =
+                newFlatFileStreamDef(
+                    implementor,
+                    dataFilePaths.get(i),
+                    logFilePaths.get(i));
+            implementor.addDataFlowFromProducerToConsumer(
+                fileStream,
+                mergeStream);
+        }
+        return mergeStream;
+    }
+
+    /**
+     * Creates a stream which reads a single data file.
+     *
+     * @param implementor implementor
+     * @param dataFilePath path of the file to read
+     * @param logFilePath path of the log for rows which can't be read
+     *
+     * @return new stream definition
+     */
+    private FemFlatFileTupleStreamDef newFlatFileStreamDef(
+        FennelRelImplementor implementor,
+        String dataFilePath,
+        String logFilePath)
     {
         final FarragoRepos repos = FennelRelUtil.getRepos(this);
         FlatFileParams params = columnSet.getParams();
 
         FemFlatFileTupleStreamDef streamDef =
             repos.newFemFlatFileTupleStreamDef();
-        streamDef.setDataFilePath(columnSet.getFilePath());
+        streamDef.setDataFilePath(dataFilePath);
         if (params.getWithLogging()) {
-            streamDef.setErrorFilePath(columnSet.getLogFilePath());
+            streamDef.setErrorFilePath(logFilePath);
         }
         streamDef.setFieldDelimiter(encodeChar(params.getFieldDelimiter()));
         streamDef.setRowDelimiter(encodeChar(params.getLineDelimiter()));
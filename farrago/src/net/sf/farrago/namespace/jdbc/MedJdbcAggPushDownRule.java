@@ -86,13 +86,25 @@ public class MedJdbcAggPushDownRule
             // rather than field name
             selectList.add(funcCall);
         }
+        // an aggregation with no calls is just duplicate elimination;
+        // say so with DISTINCT, which remote optimizers tend to handle
+        // better than a GROUP BY with nothing to compute
+        SqlNodeList keywords = null;
+        if (aggRel.getAggCallList().isEmpty() && (groupBy.size() > 0)) {
+            keywords = new SqlNodeList(SqlParserPos.ZERO);
+            keywords.add(
+                SqlLiteral.createSymbol(
+                    SqlSelectKeyword.Distinct,
+                    SqlParserPos.ZERO));
+            groupBy = null;
+        }
         SqlSelect selectWithAgg =
             SqlStdOperatorTable.selectOperator.createCall(
-                null,
+                keywords,
                 selectList,
                 queryRel.getSql(),
                 null,
-                (groupBy.size() == 0) ? null : groupBy,
+                ((groupBy == null) || (groupBy.size() == 0)) ? null : groupBy,
                 null,
                 null,
                 null,
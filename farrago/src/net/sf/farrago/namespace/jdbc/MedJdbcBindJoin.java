@@ -0,0 +1,460 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package net.sf.farrago.namespace.jdbc;
+
+import java.math.*;
+
+import java.nio.*;
+
+import java.sql.*;
+
+import java.util.*;
+
+import net.sf.farrago.util.*;
+
+import org.eigenbase.runtime.*;
+import org.eigenbase.util14.*;
+
+
+/**
+ * MedJdbcBindJoin is the runtime implementation of {@link
+ * MedJdbcBindJoinRel}. It reads the local input a batch at a time, looks up
+ * the batch's distinct join keys in the foreign table with a single
+ * parameterized query, and joins the local rows of the batch to the rows
+ * returned.
+ *
+ * <p>The lookup query has a fixed number of parameters; when a batch has
+ * fewer distinct keys, the remaining parameters repeat its first key.
+ *
+ * <p>Generated code creates a MedJdbcBindJoin and hands it to {@link
+ * MedJdbcDataServer#getRuntimeSupport}, which prepares the lookup query on a
+ * connection of its own; the runtime context then closes the statement, and
+ * returns the connection, when execution ends.
+ *
+ * @version $Id$
+ */
+public class MedJdbcBindJoin
+    implements FarragoAllocation,
+        ResultSetProvider
+{
+    //~ Static fields/initializers ---------------------------------------------
+
+    /**
+     * Limit on the number of local rows buffered per batch, in multiples of
+     * the batch size, in case many local rows share the same keys.
+     */
+    private static final int MAX_ROWS_PER_KEY = 16;
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final ResultSet localResultSet;
+    private final String lookupSql;
+    private final int [] leftKeys;
+    private final int [] rightKeys;
+    private final int batchSize;
+    private final boolean outer;
+    private PreparedStatement lookupStmt;
+    private Connection conn;
+    private ResultSet resultSet;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a MedJdbcBindJoin.
+     *
+     * @param localResultSet rows of the local input
+     * @param lookupSql parameterized lookup query
+     * @param leftKeys 0-based ordinals of the join keys in the local input
+     * @param rightKeys 0-based ordinals of the corresponding keys in the
+     * foreign rows
+     * @param batchSize number of keys per lookup
+     * @param outer whether to return local rows which have no match, padded
+     * with nulls
+     */
+    public MedJdbcBindJoin(
+        ResultSet localResultSet,
+        String lookupSql,
+        int [] leftKeys,
+        int [] rightKeys,
+        int batchSize,
+        boolean outer)
+    {
+        this.localResultSet = localResultSet;
+        this.lookupSql = lookupSql;
+        this.leftKeys = leftKeys;
+        this.rightKeys = rightKeys;
+        this.batchSize = batchSize;
+        this.outer = outer;
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * @return parameterized lookup query
+     */
+    String getLookupSql()
+    {
+        return lookupSql;
+    }
+
+    /**
+     * Supplies the prepared lookup query.
+     *
+     * @param lookupStmt statement prepared from {@link #getLookupSql}
+     * @param conn connection to close along with the statement, or null if
+     * the connection belongs to the server
+     */
+    void setLookupStatement(PreparedStatement lookupStmt, Connection conn)
+    {
+        this.lookupStmt = lookupStmt;
+        this.conn = conn;
+    }
+
+    // implement ResultSetProvider
+    public ResultSet getResultSet()
+        throws SQLException
+    {
+        assert (lookupStmt != null);
+        if (resultSet == null) {
+            resultSet = new BindJoinResultSet();
+        }
+        return resultSet;
+    }
+
+    // implement FarragoAllocation
+    public void closeAllocation()
+    {
+        try {
+            if (resultSet != null) {
+                resultSet.close();
+            } else {
+                try {
+                    if (lookupStmt != null) {
+                        lookupStmt.close();
+                    }
+                } finally {
+                    localResultSet.close();
+                }
+            }
+        } catch (SQLException ex) {
+            // REVIEW:  is it OK to suppress?  Should at least trace.
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException ex) {
+                    // REVIEW:  is it OK to suppress?  Should at least trace.
+                }
+                conn = null;
+            }
+        }
+    }
+
+    /**
+     * Converts a key value to a form in which local and remote values which
+     * are equal in SQL are also equal in Java, regardless of the classes the
+     * two drivers chose to represent them. Strings are compared exactly;
+     * {@link MedJdbcBindJoinRule} does not use fixed-length character keys,
+     * whose padding could make equal values differ.
+     *
+     * <p>Datetime values are compared by their SQL literal rather than by
+     * {@link java.util.Date#getTime}, since the two drivers may have
+     * materialized the same value relative to different time zones.
+     *
+     * @param value key value from either side
+     * @param sqlType {@link Types} code of the local key column; both sides
+     * are normalized according to it
+     *
+     * @return normalized key value
+     */
+    private static Object normalizeKey(Object value, int sqlType)
+    {
+        if ((value instanceof Double) || (value instanceof Float)) {
+            double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                // no BigDecimal form; only ever equal to the same double
+                return Double.valueOf(d);
+            }
+        }
+        if (value instanceof Number) {
+            BigDecimal bd = new BigDecimal(value.toString());
+            if (bd.signum() == 0) {
+                return BigDecimal.ZERO;
+            }
+            return bd.stripTrailingZeros();
+        }
+        if (value instanceof java.util.Date) {
+            long millis = ((java.util.Date) value).getTime();
+            switch (sqlType) {
+            case Types.DATE:
+                return new java.sql.Date(millis).toString();
+            case Types.TIME:
+                return new Time(millis).toString();
+            default:
+                if (value instanceof Timestamp) {
+                    return value.toString();
+                }
+                return new Timestamp(millis).toString();
+            }
+        }
+        if (value instanceof byte []) {
+            return ByteBuffer.wrap((byte []) value);
+        }
+        return value;
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * Result set which returns the joined rows.
+     */
+    private class BindJoinResultSet
+        extends AbstractResultSet
+    {
+        private final int localColumnCount;
+        private int remoteColumnCount;
+
+        private final int [] keyTypes;
+        private final List<Object []> localRows;
+        private final List<List<Object>> localKeys;
+        private final Map<List<Object>, List<Object []>> remoteRows;
+        private int localIndex;
+        private List<Object []> currentMatches;
+        private int matchIndex;
+        private Object [] currentLocal;
+        private Object [] currentRemote;
+        private boolean localDone;
+        private boolean closed;
+        private int row;
+
+        BindJoinResultSet()
+            throws SQLException
+        {
+            ResultSetMetaData localMetaData = localResultSet.getMetaData();
+            localColumnCount = localMetaData.getColumnCount();
+            keyTypes = new int[leftKeys.length];
+            for (int i = 0; i < leftKeys.length; ++i) {
+                keyTypes[i] = localMetaData.getColumnType(leftKeys[i] + 1);
+            }
+            remoteColumnCount = -1;
+            localRows = new ArrayList<Object []>();
+            localKeys = new ArrayList<List<Object>>();
+            remoteRows = new HashMap<List<Object>, List<Object []>>();
+        }
+
+        /**
+         * Reads the next batch of local rows and looks up their keys.
+         *
+         * @return false if the local input is exhausted
+         */
+        private boolean nextBatch()
+            throws SQLException
+        {
+            localRows.clear();
+            localKeys.clear();
+            remoteRows.clear();
+            localIndex = 0;
+            if (localDone) {
+                return false;
+            }
+
+            // Collect local rows until we have a full batch of distinct keys.
+            Set<List<Object>> distinctKeys = new LinkedHashSet<List<Object>>();
+            Map<List<Object>, Object []> bindValues =
+                new HashMap<List<Object>, Object []>();
+            while ((distinctKeys.size() < batchSize)
+                && (localRows.size() < (batchSize * MAX_ROWS_PER_KEY)))
+            {
+                if (!localResultSet.next()) {
+                    localDone = true;
+                    break;
+                }
+                Object [] values = new Object[localColumnCount];
+                for (int i = 0; i < localColumnCount; ++i) {
+                    values[i] = localResultSet.getObject(i + 1);
+                }
+                List<Object> key = new ArrayList<Object>(leftKeys.length);
+                Object [] bind = new Object[leftKeys.length];
+                for (int i = 0; i < leftKeys.length; ++i) {
+                    bind[i] = values[leftKeys[i]];
+                    if (bind[i] == null) {
+                        // null keys never match
+                        key = null;
+                        break;
+                    }
+                    key.add(normalizeKey(bind[i], keyTypes[i]));
+                }
+                localRows.add(values);
+                localKeys.add(key);
+                if ((key != null) && distinctKeys.add(key)) {
+                    bindValues.put(key, bind);
+                }
+            }
+            if (localRows.isEmpty()) {
+                return false;
+            }
+            if (distinctKeys.isEmpty()) {
+                return true;
+            }
+
+            Object [] firstBind = null;
+            int iParam = 1;
+            for (List<Object> key : distinctKeys) {
+                Object [] bind = bindValues.get(key);
+                if (firstBind == null) {
+                    firstBind = bind;
+                }
+                for (Object value : bind) {
+                    lookupStmt.setObject(iParam++, value);
+                }
+            }
+            for (int i = distinctKeys.size(); i < batchSize; ++i) {
+                for (Object value : firstBind) {
+                    lookupStmt.setObject(iParam++, value);
+                }
+            }
+
+            ResultSet rs = lookupStmt.executeQuery();
+            try {
+                if (remoteColumnCount < 0) {
+                    remoteColumnCount = rs.getMetaData().getColumnCount();
+                }
+                while (rs.next()) {
+                    Object [] values = new Object[remoteColumnCount];
+                    for (int i = 0; i < remoteColumnCount; ++i) {
+                        values[i] = rs.getObject(i + 1);
+                    }
+                    List<Object> key = new ArrayList<Object>(leftKeys.length);
+                    for (int i = 0; i < leftKeys.length; ++i) {
+                        key.add(
+                            normalizeKey(values[rightKeys[i]], keyTypes[i]));
+                    }
+                    List<Object []> matches = remoteRows.get(key);
+                    if (matches == null) {
+                        matches = new ArrayList<Object []>(1);
+                        remoteRows.put(key, matches);
+                    }
+                    matches.add(values);
+                }
+            } finally {
+                rs.close();
+            }
+            return true;
+        }
+
+        // implement ResultSet
+        public boolean next()
+            throws SQLException
+        {
+            if (closed) {
+                throw new SQLException("ResultSet is closed");
+            }
+            while (true) {
+                if ((currentMatches != null)
+                    && (matchIndex < currentMatches.size()))
+                {
+                    currentRemote = currentMatches.get(matchIndex++);
+                    ++row;
+                    return true;
+                }
+                currentMatches = null;
+                currentLocal = null;
+                currentRemote = null;
+                if (localIndex >= localRows.size()) {
+                    if (!nextBatch()) {
+                        return false;
+                    }
+                    continue;
+                }
+                currentLocal = localRows.get(localIndex);
+                List<Object> key = localKeys.get(localIndex);
+                ++localIndex;
+                List<Object []> matches = null;
+                if (key != null) {
+                    matches = remoteRows.get(key);
+                }
+                if (matches != null) {
+                    currentMatches = matches;
+                    matchIndex = 0;
+                } else if (outer) {
+                    ++row;
+                    return true;
+                }
+            }
+        }
+
+        // implement AbstractResultSet
+        protected Object getRaw(int columnIndex)
+            throws SQLException
+        {
+            if (currentLocal == null) {
+                throw new SQLException(
+                    "ResultSet is not positioned on a row");
+            }
+            if (columnIndex < 1) {
+                throw new SQLException(
+                    "column index " + columnIndex + " out of range");
+            }
+            if (columnIndex <= localColumnCount) {
+                return currentLocal[columnIndex - 1];
+            }
+            if (currentRemote == null) {
+                // outer join row with no match
+                return null;
+            }
+            int i = columnIndex - localColumnCount - 1;
+            if (i >= currentRemote.length) {
+                throw new SQLException(
+                    "column index " + columnIndex + " out of range");
+            }
+            return currentRemote[i];
+        }
+
+        // implement ResultSet
+        public int getRow()
+            throws SQLException
+        {
+            return row;
+        }
+
+        // implement ResultSet
+        public boolean isClosed()
+            throws SQLException
+        {
+            return closed;
+        }
+
+        // implement ResultSet
+        public void close()
+            throws SQLException
+        {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                lookupStmt.close();
+            } finally {
+                localResultSet.close();
+            }
+        }
+    }
+}
+
+// End MedJdbcBindJoin.java
@@ -0,0 +1,265 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package net.sf.farrago.namespace.jdbc;
+
+import java.util.*;
+
+import net.sf.farrago.query.*;
+import net.sf.farrago.runtime.*;
+
+import openjava.mop.*;
+
+import openjava.ptree.*;
+
+import org.eigenbase.oj.rel.*;
+import org.eigenbase.oj.stmt.*;
+import org.eigenbase.oj.util.*;
+import org.eigenbase.rel.*;
+import org.eigenbase.rel.metadata.*;
+import org.eigenbase.relopt.*;
+import org.eigenbase.reltype.*;
+import org.eigenbase.sql.*;
+import org.eigenbase.sql.util.*;
+
+
+/**
+ * MedJdbcBindJoinRel joins a local input to a JDBC foreign table by looking up
+ * the local join keys in the foreign table a batch at a time, using a
+ * parameterized query of the form <code>... WHERE key IN (?, ?, ...)</code>.
+ * It produces its result in RESULT_SET convention; see {@link
+ * MedJdbcBindJoin} for the runtime side.
+ *
+ * @version $Id$
+ */
+public class MedJdbcBindJoinRel
+    extends SingleRel
+    implements ResultSetRel
+{
+    //~ Instance fields --------------------------------------------------------
+
+    private final MedJdbcQueryRel remoteRel;
+    private final JoinRelType joinType;
+    private final int [] leftKeys;
+    private final int [] rightKeys;
+    private final SqlSelect lookupSelect;
+    private final int batchSize;
+    private SqlString lookupSql;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a MedJdbcBindJoinRel.
+     *
+     * @param cluster cluster
+     * @param child local input, in ITERATOR convention
+     * @param remoteRel foreign query being joined to
+     * @param rowType row type of the join
+     * @param joinType INNER or LEFT
+     * @param leftKeys ordinals of join keys in the local input
+     * @param rightKeys ordinals of the corresponding keys in the foreign query
+     * @param lookupSelect foreign query restricted by bind parameters for one
+     * batch of keys
+     * @param batchSize number of keys per batch
+     */
+    public MedJdbcBindJoinRel(
+        RelOptCluster cluster,
+        RelNode child,
+        MedJdbcQueryRel remoteRel,
+        RelDataType rowType,
+        JoinRelType joinType,
+        int [] leftKeys,
+        int [] rightKeys,
+        SqlSelect lookupSelect,
+        int batchSize)
+    {
+        super(
+            cluster,
+            new RelTraitSet(CallingConvention.RESULT_SET),
+            child);
+        assert (joinType == JoinRelType.INNER)
+            || (joinType == JoinRelType.LEFT);
+        this.remoteRel = remoteRel;
+        this.rowType = rowType;
+        this.joinType = joinType;
+        this.leftKeys = leftKeys;
+        this.rightKeys = rightKeys;
+        this.lookupSelect = lookupSelect;
+        this.batchSize = batchSize;
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    // implement RelNode
+    public MedJdbcBindJoinRel clone()
+    {
+        MedJdbcBindJoinRel clone =
+            new MedJdbcBindJoinRel(
+                getCluster(),
+                getChild(),
+                remoteRel,
+                rowType,
+                joinType,
+                leftKeys,
+                rightKeys,
+                lookupSelect,
+                batchSize);
+        clone.inheritTraitsFrom(this);
+        return clone;
+    }
+
+    /**
+     * @return SQL of the parameterized lookup query
+     */
+    public SqlString getLookupSql()
+    {
+        if (lookupSql == null) {
+            lookupSql =
+                MedJdbcNameDirectory.normalizeQueryString(
+                    lookupSelect.toSqlString(remoteRel.getDialect()));
+        }
+        return lookupSql;
+    }
+
+    // implement RelNode
+    public double getRows()
+    {
+        double localRows = RelMetadataQuery.getRowCount(getChild());
+        double remoteRows = RelMetadataQuery.getRowCount(remoteRel);
+
+        // Assume each local key matches about one remote row, unless the
+        // foreign table is smaller than that.
+        double rows = Math.min(localRows, remoteRows);
+        if (joinType == JoinRelType.LEFT) {
+            rows = localRows;
+        }
+        return rows;
+    }
+
+    // implement RelNode
+    public RelOptCost computeSelfCost(RelOptPlanner planner)
+    {
+        // Charge each remote query as if it shipped a full batch of rows, so
+        // that round trip latency is accounted for; compare with JdbcQuery,
+        // which charges half the rows of the extract.
+        double localRows = RelMetadataQuery.getRowCount(getChild());
+        double nBatches = Math.ceil(localRows / batchSize);
+        double rows = (RelMetadataQuery.getRowCount(this) / 2)
+            + (nBatches * batchSize);
+        return planner.makeCost(rows, localRows, 0);
+    }
+
+    // implement RelNode
+    public void explain(RelOptPlanWriter pw)
+    {
+        String [] terms = { "child", "foreignSql", "joinType", "leftKeys" };
+        Object [] values =
+            {
+                getLookupSql(),
+                joinType,
+                Arrays.toString(leftKeys)
+            };
+        switch (pw.getDetailLevel()) {
+        case NO_ATTRIBUTES:
+        case EXPPLAN_ATTRIBUTES:
+            pw.explain(this, terms, values);
+            return;
+        }
+
+        // As for MedJdbcQueryRel, plan digests need the server MOFID.
+        pw.explain(
+            this,
+            new String[] {
+                "child", "foreignSql", "joinType", "leftKeys", "serverMofId"
+            },
+            new Object[] {
+                values[0], values[1], values[2],
+                remoteRel.getServer().getServerMofId()
+            });
+    }
+
+    // implement JavaRel
+    public ParseTree implement(JavaRelImplementor implementor)
+    {
+        FarragoPreparingStmt preparingStmt =
+            ((FarragoRelImplementor) implementor).getPreparingStmt();
+        Variable connectionVariable =
+            new Variable(OJPreparingStmt.connectionVariable);
+
+        Expression childExp =
+            implementor.visitJavaChild(this, 0, (JavaRel) getChild());
+
+        // Present the local input as a ResultSet, as FarragoJavaUdxRel does.
+        OJClass rowClass =
+            OJUtil.typeToOJClass(
+                getChild().getRowType(),
+                implementor.getTypeFactory());
+        String resultSetName = "ResultSet:" + getChild().getId();
+        preparingStmt.mapResultSetType(
+            resultSetName,
+            getChild().getRowType());
+        Expression localResultSet =
+            new AllocationExpression(
+                OJUtil.typeNameForClass(FarragoTupleIterResultSet.class),
+                new ExpressionList(
+                    childExp,
+                    new ClassLiteral(rowClass),
+                    new MethodCall(
+                        connectionVariable,
+                        "getRowTypeForResultSet",
+                        new ExpressionList(
+                            Literal.makeLiteral(resultSetName))),
+                    Literal.constantNull()));
+
+        // The server prepares the lookup query on its own connection and
+        // hands the bind join back.
+        Expression bindJoin =
+            new AllocationExpression(
+                OJUtil.typeNameForClass(MedJdbcBindJoin.class),
+                new ExpressionList(
+                    localResultSet,
+                    Literal.makeLiteral(getLookupSql().getSql()),
+                    makeIntArray(leftKeys),
+                    makeIntArray(rightKeys),
+                    Literal.makeLiteral(batchSize),
+                    Literal.makeLiteral(joinType == JoinRelType.LEFT)));
+        return new CastExpression(
+            OJClass.forClass(MedJdbcBindJoin.class),
+            new MethodCall(
+                connectionVariable,
+                "getDataServerRuntimeSupport",
+                new ExpressionList(
+                    Literal.makeLiteral(
+                        remoteRel.getServer().getServerMofId()),
+                    bindJoin)));
+    }
+
+    private static Expression makeIntArray(int [] values)
+    {
+        ExpressionList list = new ExpressionList();
+        for (int value : values) {
+            list.add(Literal.makeLiteral(value));
+        }
+        return new ArrayAllocationExpression(
+            TypeName.forOJClass(OJSystem.INT),
+            new ExpressionList(null),
+            new ArrayInitializer(list));
+    }
+}
+
+// End MedJdbcBindJoinRel.java
@@ -0,0 +1,264 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package net.sf.farrago.namespace.jdbc;
+
+import java.util.*;
+
+import org.eigenbase.rel.*;
+import org.eigenbase.relopt.*;
+import org.eigenbase.reltype.*;
+import org.eigenbase.rex.*;
+import org.eigenbase.sql.*;
+import org.eigenbase.sql.fun.*;
+import org.eigenbase.sql.parser.*;
+import org.eigenbase.sql.type.*;
+
+
+/**
+ * MedJdbcBindJoinRule implements an equi-join between a local input and a
+ * JDBC foreign table as a {@link MedJdbcBindJoinRel}, which looks up batches
+ * of join keys from the local side in the foreign table rather than
+ * extracting the entire table.
+ *
+ * <p>The rule only applies to INNER and LEFT joins whose condition consists
+ * entirely of equalities, with the foreign table on the right, and only when
+ * the foreign query reads a single table (see {@link
+ * MedJdbcDataServer#isSingleTableQuery}). Keys of fixed-length character
+ * type are not supported, since the local and remote sides may pad them
+ * differently and keys are matched exactly. Whether the bind join is chosen
+ * over extracting the foreign table is left to the optimizer's cost
+ * comparison.
+ *
+ * @version $Id$
+ */
+public class MedJdbcBindJoinRule
+    extends RelOptRule
+{
+    public static final MedJdbcBindJoinRule instance =
+        new MedJdbcBindJoinRule();
+
+    //~ Constructors -----------------------------------------------------------
+
+    public MedJdbcBindJoinRule()
+    {
+        super(
+            new RelOptRuleOperand(
+                JoinRel.class,
+                new RelOptRuleOperand(RelNode.class, ANY),
+                new RelOptRuleOperand(MedJdbcQueryRel.class, ANY)));
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    // implement RelOptRule
+    public CallingConvention getOutConvention()
+    {
+        return CallingConvention.RESULT_SET;
+    }
+
+    // implement RelOptRule
+    public void onMatch(RelOptRuleCall call)
+    {
+        JoinRel joinRel = (JoinRel) call.rels[0];
+        RelNode leftRel = call.rels[1];
+        MedJdbcQueryRel rightRel = (MedJdbcQueryRel) call.rels[2];
+
+        if (!joinRel.getVariablesStopped().isEmpty()) {
+            return;
+        }
+        switch (joinRel.getJoinType()) {
+        case INNER:
+        case LEFT:
+            break;
+        default:
+            return;
+        }
+        int batchSize = rightRel.getServer().getBindJoinBatchSize();
+        if ((batchSize <= 0)
+            || (rightRel.getColumnSet() == null)
+            || !MedJdbcDataServer.isSingleTableQuery(rightRel.getSql()))
+        {
+            return;
+        }
+
+        List<Integer> leftKeys = new ArrayList<Integer>();
+        List<Integer> rightKeys = new ArrayList<Integer>();
+        RexNode remaining =
+            RelOptUtil.splitJoinCondition(
+                leftRel,
+                rightRel,
+                joinRel.getCondition(),
+                leftKeys,
+                rightKeys);
+        if (!remaining.isAlwaysTrue() || leftKeys.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < leftKeys.size(); ++i) {
+            if (isFixedChar(leftRel, leftKeys.get(i))
+                || isFixedChar(rightRel, rightKeys.get(i)))
+            {
+                return;
+            }
+        }
+
+        SqlNode [] keyExprs = new SqlNode[rightKeys.size()];
+        for (int i = 0; i < keyExprs.length; ++i) {
+            keyExprs[i] = getColumnExpression(rightRel, rightKeys.get(i));
+            if (keyExprs[i] == null) {
+                return;
+            }
+        }
+
+        // Bind parameters are numbered key by key within each batch entry.
+        SqlNode lookupPredicate;
+        int nParams = 0;
+        if (keyExprs.length == 1) {
+            List<SqlNode> params = new ArrayList<SqlNode>();
+            for (int i = 0; i < batchSize; ++i) {
+                params.add(new SqlDynamicParam(nParams++, SqlParserPos.ZERO));
+            }
+            lookupPredicate =
+                SqlStdOperatorTable.inOperator.createCall(
+                    SqlParserPos.ZERO,
+                    keyExprs[0],
+                    new SqlNodeList(params, SqlParserPos.ZERO));
+        } else {
+            lookupPredicate = null;
+            for (int i = 0; i < batchSize; ++i) {
+                SqlNode entry = null;
+                for (SqlNode keyExpr : keyExprs) {
+                    entry =
+                        MedJdbcDataServer.andPredicates(
+                            entry,
+                            SqlStdOperatorTable.equalsOperator.createCall(
+                                SqlParserPos.ZERO,
+                                keyExpr,
+                                new SqlDynamicParam(
+                                    nParams++,
+                                    SqlParserPos.ZERO)));
+                }
+                if (lookupPredicate == null) {
+                    lookupPredicate = entry;
+                } else {
+                    lookupPredicate =
+                        SqlStdOperatorTable.orOperator.createCall(
+                            SqlParserPos.ZERO,
+                            lookupPredicate,
+                            entry);
+                }
+            }
+        }
+
+        SqlSelect select = rightRel.getSql();
+        SqlSelect lookupSelect =
+            SqlStdOperatorTable.selectOperator.createCall(
+                null,
+                select.getSelectList(),
+                select.getFrom(),
+                MedJdbcDataServer.andPredicates(
+                    select.getWhere(),
+                    lookupPredicate),
+                null,
+                null,
+                null,
+                null,
+                SqlParserPos.ZERO);
+        if (!rightRel.getServer().isRemoteSqlValid(lookupSelect)) {
+            return;
+        }
+
+        RelNode iterLeft =
+            mergeTraitsAndConvert(
+                joinRel.getTraits(),
+                CallingConvention.ITERATOR,
+                leftRel);
+        if (iterLeft == null) {
+            return;
+        }
+
+        int [] leftKeyArray = new int[leftKeys.size()];
+        int [] rightKeyArray = new int[rightKeys.size()];
+        for (int i = 0; i < leftKeyArray.length; ++i) {
+            leftKeyArray[i] = leftKeys.get(i);
+            rightKeyArray[i] = rightKeys.get(i);
+        }
+
+        call.transformTo(
+            new MedJdbcBindJoinRel(
+                joinRel.getCluster(),
+                iterLeft,
+                rightRel,
+                joinRel.getRowType(),
+                joinRel.getJoinType(),
+                leftKeyArray,
+                rightKeyArray,
+                lookupSelect,
+                batchSize));
+    }
+
+    private static boolean isFixedChar(RelNode rel, int ordinal)
+    {
+        RelDataType type =
+            rel.getRowType().getFieldList().get(ordinal).getType();
+        return type.getSqlTypeName() == SqlTypeName.CHAR;
+    }
+
+    /**
+     * Returns an expression in terms of the foreign table's columns which
+     * computes a given output column of a single-table foreign query.
+     *
+     * @param queryRel foreign query
+     * @param ordinal 0-based output column ordinal
+     *
+     * @return column expression, or null if it cannot be determined
+     */
+    private static SqlNode getColumnExpression(
+        MedJdbcQueryRel queryRel,
+        int ordinal)
+    {
+        SqlNodeList selectList = queryRel.getSql().getSelectList();
+        if ((selectList.size() == 1)
+            && (selectList.get(0) instanceof SqlIdentifier)
+            && ((SqlIdentifier) selectList.get(0)).isStar())
+        {
+            // SELECT * returns the foreign table's own columns in order
+            List<RelDataTypeField> srcFields =
+                queryRel.getColumnSet().srcRowType.getFieldList();
+            if (srcFields.size() != queryRel.getRowType().getFieldCount()) {
+                return null;
+            }
+            return new SqlIdentifier(
+                srcFields.get(ordinal).getName(),
+                SqlParserPos.ZERO);
+        }
+        if (ordinal >= selectList.size()) {
+            return null;
+        }
+        SqlNode item = selectList.get(ordinal);
+        if ((item instanceof SqlCall)
+            && (((SqlCall) item).getOperator()
+                == SqlStdOperatorTable.asOperator))
+        {
+            item = ((SqlCall) item).getOperands()[0];
+        }
+        return item;
+    }
+}
+
+// End MedJdbcBindJoinRule.java
@@ -50,6 +50,8 @@ public class MedJdbcColumnSet
     RelDataType origRowType;
     RelDataType srcRowType;
     RelDataType currRowType;
+    String partitionColumn;
+    int partitionCount;
 
     //~ Constructors -----------------------------------------------------------
 
@@ -70,6 +72,7 @@ public class MedJdbcColumnSet
         this.srcRowType = srcRowType;
         this.origRowType = origRowType;
         this.currRowType = rowType;
+        this.partitionCount = MedJdbcDataServer.DEFAULT_PARTITION_COUNT;
     }
 
     //~ Methods ----------------------------------------------------------------
@@ -89,6 +92,35 @@ public class MedJdbcColumnSet
         return directory;
     }
 
+    /**
+     * Sets how scans of this column set are split into concurrent partitions.
+     *
+     * @param partitionColumn remote column on which to range-partition, or
+     * null to disable partitioning
+     * @param partitionCount number of partitions
+     */
+    public void setPartitioning(String partitionColumn, int partitionCount)
+    {
+        this.partitionColumn = partitionColumn;
+        this.partitionCount = partitionCount;
+    }
+
+    /**
+     * @return remote column on which scans are range-partitioned, or null
+     */
+    public String getPartitionColumn()
+    {
+        return partitionColumn;
+    }
+
+    /**
+     * @return number of partitions into which scans are split
+     */
+    public int getPartitionCount()
+    {
+        return partitionCount;
+    }
+
     /**
      * @return the dialect of SQL used to access the remote DBMS
      */
@@ -101,6 +101,7 @@ import org.eigenbase.util.*;
  */
 public class MedJdbcDataServer
     extends MedAbstractDataServer
+    implements FarragoMedForeignStatsServer
 {
     //~ Static fields/initializers ---------------------------------------------
 
@@ -145,6 +146,10 @@ public class MedJdbcDataServer
         "DISABLE_CONNECTION_POOL";
     public static final String PROP_ASSUME_PUSHDOWN_VALID =
         "ASSUME_PUSHDOWN_VALID";
+    public static final String PROP_PARTITION_COUNT = "PARTITION_COUNT";
+    public static final String PROP_PARTITION_COLUMN = "PARTITION_COLUMN";
+    public static final String PROP_BIND_JOIN_BATCH_SIZE =
+        "BIND_JOIN_BATCH_SIZE";
 
     // REVIEW jvs 19-June-2006:  What are these doing here?
     public static final String PROP_VERSION = "VERSION";
@@ -165,6 +170,8 @@ public class MedJdbcDataServer
         PROP_VALIDATION_TIMING_ON_BORROW;
     public static final boolean DEFAULT_DISABLE_CONNECTION_POOL = false;
     public static final boolean DEFAULT_ASSUME_PUSHDOWN_VALID = false;
+    public static final int DEFAULT_PARTITION_COUNT = 1;
+    public static final int DEFAULT_BIND_JOIN_BATCH_SIZE = 0;
 
     private static final Logger logger =
         FarragoTrace.getClassTracer(MedJdbcDataServer.class);
@@ -221,6 +228,8 @@ public class MedJdbcDataServer
     protected Pattern disabledPushdownPattern;
     private int fetchSize;
     private boolean autocommit;
+    private int partitionCount;
+    private int bindJoinBatchSize;
     protected HashMap<String, Map<String, String>> schemaMaps;
     protected HashMap<String, Map<String, Source>> tableMaps;
     protected Map<String, List<WildcardMapping>> tablePrefixMaps;
@@ -387,6 +396,16 @@ public class MedJdbcDataServer
         fetchSize = getIntProperty(props, PROP_FETCH_SIZE, DEFAULT_FETCH_SIZE);
         autocommit =
             getBooleanProperty(props, PROP_AUTOCOMMIT, DEFAULT_AUTOCOMMIT);
+        partitionCount =
+            getIntProperty(
+                props,
+                PROP_PARTITION_COUNT,
+                DEFAULT_PARTITION_COUNT);
+        bindJoinBatchSize =
+            getIntProperty(
+                props,
+                PROP_BIND_JOIN_BATCH_SIZE,
+                DEFAULT_BIND_JOIN_BATCH_SIZE);
 
         if (!disableConnectionPool) {
             maxIdleConnections =
@@ -874,6 +893,107 @@ public class MedJdbcDataServer
             true);
     }
 
+    // implement FarragoMedForeignStatsServer
+    public FarragoMedForeignStats getForeignStats(
+        Properties tableProps,
+        List<String> columnNames)
+        throws SQLException
+    {
+        // Resolve the table and its columns the same way newColumnSet does,
+        // so that statistics attach to the columns a scan would read.
+        String tableSchemaName = tableProps.getProperty(PROP_SCHEMA_NAME);
+        if (tableSchemaName == null) {
+            tableSchemaName = schemaName;
+        }
+        String tableName = tableProps.getProperty(PROP_OBJECT);
+        if (tableName == null) {
+            tableName = tableProps.getProperty(PROP_TABLE_NAME);
+        }
+        DatabaseMetaData metaData = getDatabaseMetaData();
+        if (!supportsMetaData || (tableName == null)) {
+            return null;
+        }
+        MedJdbcNameDirectory directory = newNameDirectory(tableSchemaName);
+        String [] foreignName =
+            directory.getForeignQualifiedName(tableName, true);
+        if (foreignName == null) {
+            return null;
+        }
+        String foreignCatalogName =
+            (foreignName.length > 2) ? foreignName[0] : catalogName;
+        String foreignSchemaName =
+            (foreignName.length > 1) ? foreignName[foreignName.length - 2]
+            : null;
+        String foreignTableName = foreignName[foreignName.length - 1];
+        Map<String, String> columnMap =
+            directory.mapForeignColumnNames(foreignName, columnNames);
+
+        // Statistics come from the table's index information: the table
+        // statistic row gives the row count, and the cardinality of a
+        // single-column index gives the distinct value count of its column.
+        Long rowCount = null;
+        Map<String, Integer> indexColumnCounts =
+            new HashMap<String, Integer>();
+        Map<String, String> indexColumns = new HashMap<String, String>();
+        Map<String, Long> indexCardinalities = new HashMap<String, Long>();
+        ResultSet rs;
+        try {
+            rs = metaData.getIndexInfo(
+                foreignCatalogName,
+                foreignSchemaName,
+                foreignTableName,
+                false,
+                true);
+        } catch (SQLException ex) {
+            // Some drivers don't support index metadata.
+            Util.swallow(ex, logger);
+            return null;
+        }
+        try {
+            while (rs.next()) {
+                long cardinality = rs.getLong("CARDINALITY");
+                boolean known = !rs.wasNull() && (cardinality >= 0);
+                if (rs.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic)
+                {
+                    if (known) {
+                        rowCount = cardinality;
+                    }
+                    continue;
+                }
+                String indexName = rs.getString("INDEX_NAME");
+                if (indexName == null) {
+                    continue;
+                }
+                Integer n = indexColumnCounts.get(indexName);
+                indexColumnCounts.put(indexName, (n == null) ? 1 : (n + 1));
+                if (rs.getShort("ORDINAL_POSITION") == 1) {
+                    indexColumns.put(indexName, rs.getString("COLUMN_NAME"));
+                    if (known) {
+                        indexCardinalities.put(indexName, cardinality);
+                    }
+                }
+            }
+        } finally {
+            rs.close();
+        }
+
+        Map<String, Long> distinctValueCounts = new HashMap<String, Long>();
+        for (Map.Entry<String, Long> entry : indexCardinalities.entrySet()) {
+            String indexName = entry.getKey();
+            if (indexColumnCounts.get(indexName) != 1) {
+                continue;
+            }
+            String columnName = columnMap.get(indexColumns.get(indexName));
+            if (columnName != null) {
+                distinctValueCounts.put(columnName, entry.getValue());
+            }
+        }
+        if ((rowCount == null) && distinctValueCounts.isEmpty()) {
+            return null;
+        }
+        return new FarragoMedForeignStats(rowCount, distinctValueCounts);
+    }
+
     protected MedJdbcNameDirectory newNameDirectory(String tableSchemaName)
     {
         MedJdbcNameDirectory directory =
@@ -881,10 +1001,250 @@ public class MedJdbcDataServer
         return directory;
     }
 
+    /**
+     * Returns the number of partitions into which a scan of a foreign table
+     * with a {@link #PROP_PARTITION_COLUMN partition column} is split.
+     *
+     * @param tableProps options of the foreign table, whose {@link
+     * #PROP_PARTITION_COUNT} (if any) overrides the server's; may be null
+     *
+     * @return number of partitions; always 1 when connection pooling is
+     * disabled, since partitions must run on separate connections
+     */
+    int getPartitionCount(Properties tableProps)
+    {
+        if (disableConnectionPool) {
+            return 1;
+        }
+        if (tableProps == null) {
+            return partitionCount;
+        }
+        return getIntProperty(
+            tableProps,
+            PROP_PARTITION_COUNT,
+            partitionCount);
+    }
+
+    /**
+     * @return maximum number of join keys looked up per remote query by a
+     * bind join, or 0 if bind joins are disabled for this server
+     */
+    int getBindJoinBatchSize()
+    {
+        return bindJoinBatchSize;
+    }
+
+    /**
+     * Splits a query against a single foreign table into key-range
+     * partitions which can be executed concurrently. The range of the
+     * partition column is discovered by querying its MIN and MAX under the
+     * query's own filter; the first partition also picks up values below the
+     * minimum and nulls, and the last picks up values above the maximum, so
+     * the partitions together always return exactly the rows of the original
+     * query.
+     *
+     * <p>Only queries which select (and optionally filter) directly from a
+     * table are split; aggregation, DISTINCT, ORDER BY and joins would not
+     * produce the same result when evaluated per partition. Partitioning is
+     * also skipped if the partition column is not of an exact numeric type.
+     *
+     * @param columnSet column set being scanned
+     * @param select query to split
+     * @param dialect dialect of the remote DBMS
+     *
+     * @return SQL for each partition, or null if the query should be executed
+     * as a single stream
+     */
+    String [] createPartitionedSql(
+        MedJdbcColumnSet columnSet,
+        SqlSelect select,
+        SqlDialect dialect)
+        throws SQLException
+    {
+        String column = columnSet.getPartitionColumn();
+        int nPartitions = columnSet.getPartitionCount();
+        if ((column == null) || (nPartitions <= 1)) {
+            return null;
+        }
+        if (!isSingleTableQuery(select)) {
+            return null;
+        }
+
+        SqlIdentifier columnId =
+            new SqlIdentifier(column, SqlParserPos.ZERO);
+        SqlSelect boundsSelect =
+            SqlStdOperatorTable.selectOperator.createCall(
+                null,
+                new SqlNodeList(
+                    Arrays.<SqlNode>asList(
+                        SqlStdOperatorTable.minOperator.createCall(
+                            SqlParserPos.ZERO,
+                            columnId),
+                        SqlStdOperatorTable.maxOperator.createCall(
+                            SqlParserPos.ZERO,
+                            columnId)),
+                    SqlParserPos.ZERO),
+                select.getFrom(),
+                select.getWhere(),
+                null,
+                null,
+                null,
+                null,
+                SqlParserPos.ZERO);
+        String boundsSql =
+            MedJdbcNameDirectory.normalizeQueryString(
+                boundsSelect.toSqlString(dialect)).getSql();
+
+        long min;
+        long max;
+        Statement stmt = getConnection().createStatement();
+        try {
+            ResultSet rs = stmt.executeQuery(boundsSql);
+            if (!rs.next()) {
+                return null;
+            }
+            Object minObj = rs.getObject(1);
+            Object maxObj = rs.getObject(2);
+            if (!isExactNumeric(minObj) || !isExactNumeric(maxObj)) {
+                // empty table, all nulls, or a column we can't range-split
+                return null;
+            }
+            min = ((Number) minObj).longValue();
+            max = ((Number) maxObj).longValue();
+        } finally {
+            stmt.close();
+        }
+
+        // Avoid partitions narrower than a single key.
+        long span = max - min + 1;
+        if ((span > 0) && (span < nPartitions)) {
+            nPartitions = (int) span;
+        }
+        if (nPartitions <= 1) {
+            return null;
+        }
+        long width = span / nPartitions;
+        if (span <= 0) {
+            // range overflows a long
+            width = (max / nPartitions) - (min / nPartitions);
+        }
+
+        String [] sqls = new String[nPartitions];
+        for (int i = 0; i < nPartitions; ++i) {
+            SqlNode predicate = null;
+            if (i > 0) {
+                predicate =
+                    SqlStdOperatorTable.greaterThanOrEqualOperator.createCall(
+                        SqlParserPos.ZERO,
+                        columnId,
+                        SqlLiteral.createExactNumeric(
+                            Long.toString(min + (i * width)),
+                            SqlParserPos.ZERO));
+            }
+            if (i < (nPartitions - 1)) {
+                SqlNode upper =
+                    SqlStdOperatorTable.lessThanOperator.createCall(
+                        SqlParserPos.ZERO,
+                        columnId,
+                        SqlLiteral.createExactNumeric(
+                            Long.toString(min + ((i + 1) * width)),
+                            SqlParserPos.ZERO));
+                predicate = andPredicates(predicate, upper);
+            }
+            if (i == 0) {
+                predicate =
+                    SqlStdOperatorTable.orOperator.createCall(
+                        SqlParserPos.ZERO,
+                        predicate,
+                        SqlStdOperatorTable.isNullOperator.createCall(
+                            SqlParserPos.ZERO,
+                            columnId));
+            }
+            SqlSelect partitionSelect =
+                SqlStdOperatorTable.selectOperator.createCall(
+                    null,
+                    select.getSelectList(),
+                    select.getFrom(),
+                    andPredicates(select.getWhere(), predicate),
+                    null,
+                    null,
+                    null,
+                    null,
+                    SqlParserPos.ZERO);
+            sqls[i] =
+                MedJdbcNameDirectory.normalizeQueryString(
+                    partitionSelect.toSqlString(dialect)).getSql();
+        }
+        return sqls;
+    }
+
+    /**
+     * Tests whether a query only projects and filters rows of a single table,
+     * so that further predicates can be ANDed into its WHERE clause without
+     * changing the meaning of anything else in the query.
+     *
+     * @param select query to test
+     *
+     * @return whether query reads a single table with no aggregation,
+     * DISTINCT or ORDER BY
+     */
+    static boolean isSingleTableQuery(SqlSelect select)
+    {
+        if (!(select.getFrom() instanceof SqlIdentifier)
+            || select.isDistinct()
+            || (select.getGroup() != null)
+            || (select.getHaving() != null)
+            || select.hasOrderBy())
+        {
+            return false;
+        }
+        for (SqlNode item : select.getSelectList()) {
+            if (item instanceof SqlCall) {
+                SqlCall call = (SqlCall) item;
+                if (call.getOperator() == SqlStdOperatorTable.asOperator) {
+                    item = call.getOperands()[0];
+                }
+            }
+            if ((item instanceof SqlCall)
+                && (((SqlCall) item).getOperator() instanceof SqlAggFunction))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isExactNumeric(Object obj)
+    {
+        return (obj instanceof Long)
+            || (obj instanceof Integer)
+            || (obj instanceof Short)
+            || (obj instanceof Byte)
+            || ((obj instanceof java.math.BigDecimal)
+                && (((java.math.BigDecimal) obj).scale() <= 0));
+    }
+
+    static SqlNode andPredicates(SqlNode node1, SqlNode node2)
+    {
+        if (node1 == null) {
+            return node2;
+        }
+        return SqlStdOperatorTable.andOperator.createCall(
+            SqlParserPos.ZERO,
+            node1,
+            node2);
+    }
+
     // implement FarragoMedDataServer
     public Object getRuntimeSupport(Object param)
         throws SQLException
     {
+        if (param instanceof String []) {
+            return new MedJdbcPartitionedAllocation(this, (String []) param);
+        }
+        if (param instanceof MedJdbcBindJoin) {
+            return prepareBindJoin((MedJdbcBindJoin) param);
+        }
         String sql = (String) param;
 
         FarragoStatementAllocation stmtAlloc;
@@ -922,6 +1282,47 @@ public class MedJdbcDataServer
         }
     }
 
+    /**
+     * Prepares the lookup query of a bind join, on a connection of its own
+     * unless pooling is disabled (as for {@link #getRuntimeSupport}).
+     *
+     * @param bindJoin bind join created by generated code
+     *
+     * @return bindJoin, ready to execute
+     */
+    private MedJdbcBindJoin prepareBindJoin(MedJdbcBindJoin bindJoin)
+        throws SQLException
+    {
+        Connection conn;
+        Connection ownedConn;
+        if (disableConnectionPool) {
+            conn = getConnection();
+            ownedConn = null;
+        } else {
+            conn = newConnection();
+            ownedConn = conn;
+        }
+        PreparedStatement stmt;
+        try {
+            stmt = conn.prepareStatement(bindJoin.getLookupSql());
+        } catch (SQLException ex) {
+            if (ownedConn != null) {
+                ownedConn.close();
+            }
+            throw ex;
+        }
+        bindJoin.setLookupStatement(stmt, ownedConn);
+        try {
+            if (fetchSize != DEFAULT_FETCH_SIZE) {
+                stmt.setFetchSize(fetchSize);
+            }
+        } catch (SQLException ex) {
+            bindJoin.closeAllocation();
+            throw ex;
+        }
+        return bindJoin;
+    }
+
     // implement FarragoMedDataServer
     public void registerRelMetadataProviders(ChainedRelMetadataProvider chain)
     {
@@ -1037,6 +1438,10 @@ public class MedJdbcDataServer
         pushdownRuleList.add(r4);
         pushdownRuleList.add(MedJdbcAggPushDownRule.instance);
         pushdownRuleList.add(MedJdbcJoinPushDownRule.instance);
+        pushdownRuleList.add(MedJdbcSortPushDownRule.instance);
+        if (bindJoinBatchSize > 0) {
+            pushdownRuleList.add(MedJdbcBindJoinRule.instance);
+        }
 
         // add the non-disabled pushdown rules
         for (RelOptRule rule : pushdownRuleList) {
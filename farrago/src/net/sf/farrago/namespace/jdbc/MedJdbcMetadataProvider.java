@@ -20,8 +20,13 @@ package net.sf.farrago.namespace.jdbc;
 
 import org.eigenbase.rel.metadata.*;
 import org.eigenbase.relopt.*;
+import org.eigenbase.stat.*;
 
+import net.sf.farrago.catalog.*;
+import net.sf.farrago.cwm.relational.*;
+import net.sf.farrago.fem.sql2003.*;
 import net.sf.farrago.namespace.impl.*;
+import net.sf.farrago.query.*;
 
 import java.util.*;
 
@@ -35,6 +40,16 @@ import java.util.*;
 public class MedJdbcMetadataProvider
     extends ReflectiveRelMetadataProvider
 {
+    //~ Static fields/initializers ---------------------------------------------
+
+    /**
+     * Selectivity assumed for a filter pushed down to the remote server. By
+     * then the filter is only available as SQL text, so it cannot be given to
+     * {@link RelMdUtil#guessSelectivity}; instead, use the guess that method
+     * makes for a single comparison, the most common pushed-down filter.
+     */
+    static final double PUSHED_FILTER_SELECTIVITY = 0.5;
+
     //~ Methods ----------------------------------------------------------------
 
     public MedJdbcMetadataProvider()
@@ -55,6 +70,70 @@ public class MedJdbcMetadataProvider
         return false;
     }
 
+    public Boolean canRestart(MedJdbcBindJoinRel rel)
+    {
+        return false;
+    }
+
+    /**
+     * Retrieves catalog statistics (for example, collected by ANALYZE) for a
+     * query which scans a foreign table without any pushed-down operations.
+     */
+    public RelStatSource getStatistics(MedJdbcQueryRel rel)
+    {
+        FemAbstractColumnSet table = getCatalogTable(rel);
+        if ((table == null) || (rel.getSql() != rel.columnSet.select)) {
+            return null;
+        }
+        FarragoPreparingStmt stmt = rel.columnSet.getPreparingStmt();
+        return new FarragoTableStatistics(
+            stmt.getRepos(),
+            table,
+            stmt.getSession().getSessionLabelCreationTimestamp());
+    }
+
+    /**
+     * Estimates the row count of a query against a single foreign table from
+     * the table's catalog row count, discounting for any pushed-down filter.
+     */
+    public Double getRowCount(MedJdbcQueryRel rel)
+    {
+        FemAbstractColumnSet table = getCatalogTable(rel);
+        if ((table == null)
+            || !MedJdbcDataServer.isSingleTableQuery(rel.getSql()))
+        {
+            return null;
+        }
+        Long [] rowCounts = new Long[2];
+        FarragoCatalogUtil.getRowCounts(
+            table,
+            rel.columnSet.getPreparingStmt().getSession()
+                .getSessionLabelCreationTimestamp(),
+            rowCounts);
+        if (rowCounts[0] == null) {
+            return null;
+        }
+        double rowCount = rowCounts[0];
+        if (rel.getSql().getWhere() != null) {
+            rowCount *= PUSHED_FILTER_SELECTIVITY;
+        }
+        return rowCount;
+    }
+
+    private static FemAbstractColumnSet getCatalogTable(MedJdbcQueryRel rel)
+    {
+        if ((rel.columnSet == null)
+            || (rel.columnSet.getPreparingStmt() == null))
+        {
+            return null;
+        }
+        CwmNamedColumnSet cwmColumnSet = rel.columnSet.getCwmColumnSet();
+        if (!(cwmColumnSet instanceof FemAbstractColumnSet)) {
+            return null;
+        }
+        return (FemAbstractColumnSet) cwmColumnSet;
+    }
+
     public Set<BitSet> getUniqueKeys(MedJdbcQueryRel rel)
     {
         return rel.uniqueKeys;
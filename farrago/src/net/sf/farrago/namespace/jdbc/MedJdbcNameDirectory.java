@@ -138,94 +138,11 @@ public class MedJdbcNameDirectory
         boolean tableAlreadyMapped)
         throws SQLException
     {
-        if (schemaName == null) {
+        String [] foreignQualifiedName =
+            getForeignQualifiedName(foreignName, tableAlreadyMapped);
+        if (foreignQualifiedName == null) {
             return null;
         }
-
-        String [] foreignQualifiedName;
-        if ((server.schemaName != null)
-            && !server.useSchemaNameAsForeignQualifier)
-        {
-            if (!tableAlreadyMapped) {
-                List<MedJdbcDataServer.WildcardMapping> tablePrefixMappings =
-                    server.tablePrefixMaps.get(schemaName);
-                if (tablePrefixMappings != null) {
-                    for (
-                        MedJdbcDataServer.WildcardMapping m
-                        : tablePrefixMappings)
-                    {
-                        String targetTablePrefix = m.getTargetTablePrefix();
-                        if (foreignName.startsWith(targetTablePrefix)) {
-                            foreignName =
-                                m.getSourceTablePrefix()
-                                + foreignName.substring(
-                                    targetTablePrefix.length());
-                            break;
-                        }
-                    }
-                }
-            }
-
-            foreignQualifiedName = new String[] { foreignName };
-        } else {
-            if (!tableAlreadyMapped) {
-                // Expect only one of schema mapping, table mapping and table
-                // prefix to be non-empty/null.
-
-                // schema mapping
-                Map<String, String> schemaMap =
-                    server.schemaMaps.get(schemaName);
-                if (schemaMap != null) {
-                    schemaName = schemaMap.get(foreignName);
-                }
-
-                // table mapping
-                Map<String, MedJdbcDataServer.Source> tableMap =
-                    server.tableMaps.get(schemaName);
-                if (tableMap != null) {
-                    MedJdbcDataServer.Source sources =
-                        tableMap.get(foreignName);
-                    if (sources != null) {
-                        schemaName = sources.getSchema();
-                        foreignName = sources.getTable();
-                    }
-                }
-
-                // table name prefix
-                List<MedJdbcDataServer.WildcardMapping> tablePrefixMappings =
-                    server.tablePrefixMaps.get(schemaName);
-                if (tablePrefixMappings != null) {
-                    for (
-                        MedJdbcDataServer.WildcardMapping m
-                        : tablePrefixMappings)
-                    {
-                        String targetTablePrefix = m.getTargetTablePrefix();
-                        if (foreignName.startsWith(targetTablePrefix)) {
-                            schemaName = m.getSourceSchema();
-                            foreignName =
-                                m.getSourceTablePrefix()
-                                + foreignName.substring(
-                                    targetTablePrefix.length());
-                            break;
-                        }
-                    }
-                }
-            }
-
-            if ((schemaName == null) || (foreignName == null)) {
-                return null;
-            }
-            if (server.catalogName != null) {
-                foreignQualifiedName =
-                    new String[] {
-                        server.catalogName, schemaName, foreignName
-                    };
-            } else {
-                foreignQualifiedName = new String[] {
-                    schemaName, foreignName
-                };
-            }
-        }
         RelDataType origRowType = null;
         RelDataType mdRowType = null;
 
@@ -353,6 +270,177 @@ public class MedJdbcNameDirectory
             foreignTableProps);
     }
 
+    /**
+     * Maps the name of a table to its fully qualified name on the foreign
+     * server, applying the server's schema, table and table prefix mappings.
+     *
+     * @param foreignName foreign table name
+     * @param tableAlreadyMapped if true, foreignName has already been mapped to
+     * the foreign database name; if false the mapping has not yet been applied
+     *
+     * @return qualified name on the foreign server, or null if the table
+     * cannot be resolved
+     */
+    String [] getForeignQualifiedName(
+        String foreignName,
+        boolean tableAlreadyMapped)
+    {
+        if (schemaName == null) {
+            return null;
+        }
+
+        String [] foreignQualifiedName;
+        if ((server.schemaName != null)
+            && !server.useSchemaNameAsForeignQualifier)
+        {
+            if (!tableAlreadyMapped) {
+                List<MedJdbcDataServer.WildcardMapping> tablePrefixMappings =
+                    server.tablePrefixMaps.get(schemaName);
+                if (tablePrefixMappings != null) {
+                    for (
+                        MedJdbcDataServer.WildcardMapping m
+                        : tablePrefixMappings)
+                    {
+                        String targetTablePrefix = m.getTargetTablePrefix();
+                        if (foreignName.startsWith(targetTablePrefix)) {
+                            foreignName =
+                                m.getSourceTablePrefix()
+                                + foreignName.substring(
+                                    targetTablePrefix.length());
+                            break;
+                        }
+                    }
+                }
+            }
+
+            foreignQualifiedName = new String[] { foreignName };
+        } else {
+            if (!tableAlreadyMapped) {
+                // Expect only one of schema mapping, table mapping and table
+                // prefix to be non-empty/null.
+
+                // schema mapping
+                Map<String, String> schemaMap =
+                    server.schemaMaps.get(schemaName);
+                if (schemaMap != null) {
+                    schemaName = schemaMap.get(foreignName);
+                }
+
+                // table mapping
+                Map<String, MedJdbcDataServer.Source> tableMap =
+                    server.tableMaps.get(schemaName);
+                if (tableMap != null) {
+                    MedJdbcDataServer.Source sources =
+                        tableMap.get(foreignName);
+                    if (sources != null) {
+                        schemaName = sources.getSchema();
+                        foreignName = sources.getTable();
+                    }
+                }
+
+                // table name prefix
+                List<MedJdbcDataServer.WildcardMapping> tablePrefixMappings =
+                    server.tablePrefixMaps.get(schemaName);
+                if (tablePrefixMappings != null) {
+                    for (
+                        MedJdbcDataServer.WildcardMapping m
+                        : tablePrefixMappings)
+                    {
+                        String targetTablePrefix = m.getTargetTablePrefix();
+                        if (foreignName.startsWith(targetTablePrefix)) {
+                            schemaName = m.getSourceSchema();
+                            foreignName =
+                                m.getSourceTablePrefix()
+                                + foreignName.substring(
+                                    targetTablePrefix.length());
+                            break;
+                        }
+                    }
+                }
+            }
+
+            if ((schemaName == null) || (foreignName == null)) {
+                return null;
+            }
+            if (server.catalogName != null) {
+                foreignQualifiedName =
+                    new String[] {
+                        server.catalogName, schemaName, foreignName
+                    };
+            } else {
+                foreignQualifiedName = new String[] {
+                    schemaName, foreignName
+                };
+            }
+        }
+        return foreignQualifiedName;
+    }
+
+    /**
+     * Maps the columns of a foreign table, as known locally, to the names of
+     * the corresponding columns on the foreign server. Columns are matched
+     * the same way {@link #lookupColumnSetAndImposeType} matches an imposed
+     * row type against the one reported by the foreign server: by exact name
+     * for a lenient server, and by position otherwise.
+     *
+     * @param foreignQualifiedName qualified name of the table on the foreign
+     * server
+     * @param localColumnNames names of all of the local table's columns, in
+     * ordinal order
+     *
+     * @return map from foreign column name to local column name
+     *
+     * @throws SQLException if there is an error querying metadata in the
+     * underlying database
+     */
+    Map<String, String> mapForeignColumnNames(
+        String [] foreignQualifiedName,
+        List<String> localColumnNames)
+        throws SQLException
+    {
+        Map<String, String> columnMap = new HashMap<String, String>();
+        if (server.skipTypeCheck) {
+            // the local row type is used as is
+            for (String columnName : localColumnNames) {
+                columnMap.put(columnName, columnName);
+            }
+            return columnMap;
+        }
+
+        SqlDialect dialect = SqlDialect.create(server.getDatabaseMetaData());
+        SqlSelect select = createSelectStarQuery(foreignQualifiedName, null);
+        SqlString sql = normalizeQueryString(select.toSqlString(dialect));
+        PreparedStatement ps =
+            server.getConnection().prepareStatement(sql.getSql());
+        try {
+            ResultSetMetaData md = ps.getMetaData();
+            if (md == null) {
+                // driver can't describe the query without executing it
+                return columnMap;
+            }
+            int nColumns = md.getColumnCount();
+            if (server.lenient) {
+                Set<String> localNames = new HashSet<String>(localColumnNames);
+                for (int i = 1; i <= nColumns; ++i) {
+                    String columnName = md.getColumnName(i);
+                    if (localNames.contains(columnName)) {
+                        columnMap.put(columnName, columnName);
+                    }
+                }
+            } else {
+                int n = Math.min(nColumns, localColumnNames.size());
+                for (int i = 0; i < n; ++i) {
+                    columnMap.put(
+                        md.getColumnName(i + 1),
+                        localColumnNames.get(i));
+                }
+            }
+        } finally {
+            ps.close();
+        }
+        return columnMap;
+    }
+
     /**
      * Creates a column set for a foreign table.
      *
@@ -378,15 +466,23 @@ public class MedJdbcNameDirectory
         RelDataType srcRowType,
         Properties foreignTableProps)
     {
-        return new MedJdbcColumnSet(
-            this,
-            foreignName,
-            localName,
-            select,
-            dialect,
-            rowType,
-            origRowType,
-            srcRowType);
+        MedJdbcColumnSet columnSet =
+            new MedJdbcColumnSet(
+                this,
+                foreignName,
+                localName,
+                select,
+                dialect,
+                rowType,
+                origRowType,
+                srcRowType);
+        if (foreignTableProps != null) {
+            columnSet.setPartitioning(
+                foreignTableProps.getProperty(
+                    MedJdbcDataServer.PROP_PARTITION_COLUMN),
+                server.getPartitionCount(foreignTableProps));
+        }
+        return columnSet;
     }
 
     /**
@@ -0,0 +1,334 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package net.sf.farrago.namespace.jdbc;
+
+import java.sql.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import net.sf.farrago.util.*;
+
+import org.eigenbase.runtime.*;
+import org.eigenbase.util14.*;
+
+
+/**
+ * MedJdbcPartitionedAllocation executes the partitions of a foreign table
+ * scan produced by {@link MedJdbcDataServer#createPartitionedSql}
+ * concurrently, each on its own pooled connection, and merges their rows into
+ * a single result set. Rows from different partitions are interleaved in
+ * whatever order they arrive.
+ *
+ * @version $Id$
+ */
+class MedJdbcPartitionedAllocation
+    implements FarragoAllocation,
+        ResultSetProvider
+{
+    //~ Static fields/initializers ---------------------------------------------
+
+    /**
+     * Number of rows handed over from a partition thread at a time.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * Maximum number of batches queued ahead of the consumer per partition.
+     */
+    private static final int QUEUE_DEPTH_PER_PARTITION = 4;
+
+    /**
+     * Marker placed on the queue by a partition thread after its last batch.
+     */
+    private static final Object END_OF_PARTITION = new Object();
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final List<FarragoStatementAllocation> partitionAllocs;
+    private final BlockingQueue<Object> queue;
+    private final CountDownLatch metaDataLatch;
+    private final List<Thread> threads;
+    private volatile ResultSetMetaData metaData;
+    private volatile boolean closed;
+    private MergedResultSet resultSet;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a MedJdbcPartitionedAllocation. Statements for all partitions
+     * are allocated immediately, but the queries are not executed until
+     * {@link #getResultSet} is called.
+     *
+     * @param server server to execute the partitions against
+     * @param sqls SQL for each partition
+     */
+    MedJdbcPartitionedAllocation(MedJdbcDataServer server, String [] sqls)
+        throws SQLException
+    {
+        partitionAllocs = new ArrayList<FarragoStatementAllocation>();
+        threads = new ArrayList<Thread>();
+        queue =
+            new ArrayBlockingQueue<Object>(
+                sqls.length * QUEUE_DEPTH_PER_PARTITION + 1);
+        metaDataLatch = new CountDownLatch(1);
+        try {
+            for (String sql : sqls) {
+                partitionAllocs.add(
+                    (FarragoStatementAllocation) server.getRuntimeSupport(
+                        sql));
+            }
+        } catch (SQLException ex) {
+            closeAllocation();
+            throw ex;
+        }
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    // implement ResultSetProvider
+    public ResultSet getResultSet()
+        throws SQLException
+    {
+        if (resultSet == null) {
+            for (int i = 0; i < partitionAllocs.size(); ++i) {
+                final FarragoStatementAllocation alloc =
+                    partitionAllocs.get(i);
+                Thread thread =
+                    new Thread("MedJdbcPartition-" + i) {
+                        public void run()
+                        {
+                            fetch(alloc);
+                        }
+                    };
+                thread.setDaemon(true);
+                threads.add(thread);
+            }
+            resultSet = new MergedResultSet(partitionAllocs.size());
+            for (Thread thread : threads) {
+                thread.start();
+            }
+        }
+        return resultSet;
+    }
+
+    /**
+     * Body of a partition thread: executes one partition and queues its rows
+     * until they are exhausted, an error occurs, or the allocation is closed.
+     */
+    private void fetch(FarragoStatementAllocation alloc)
+    {
+        try {
+            ResultSet rs = alloc.getResultSet();
+            if (metaData == null) {
+                metaData = rs.getMetaData();
+            }
+            metaDataLatch.countDown();
+            int columnCount = metaData.getColumnCount();
+            List<Object []> batch = new ArrayList<Object []>(BATCH_SIZE);
+            while (!closed && rs.next()) {
+                Object [] values = new Object[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    values[i] = rs.getObject(i + 1);
+                }
+                batch.add(values);
+                if (batch.size() == BATCH_SIZE) {
+                    queue.put(batch);
+                    batch = new ArrayList<Object []>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                queue.put(batch);
+            }
+            queue.put(END_OF_PARTITION);
+        } catch (InterruptedException ex) {
+            // closeAllocation() interrupts us; nobody is waiting for more data
+        } catch (Throwable ex) {
+            metaDataLatch.countDown();
+            try {
+                queue.put(ex);
+            } catch (InterruptedException ex2) {
+                // closed while reporting the error; drop it
+            }
+        }
+    }
+
+    // implement FarragoAllocation
+    public void closeAllocation()
+    {
+        closed = true;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        queue.clear();
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException ex) {
+                // REVIEW: a partition thread may still be inside a driver
+                // call when we close its statement below
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (FarragoStatementAllocation alloc : partitionAllocs) {
+            alloc.closeAllocation();
+        }
+        partitionAllocs.clear();
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * Result set which returns the rows queued by all partition threads.
+     */
+    private class MergedResultSet
+        extends AbstractResultSet
+    {
+        private int activePartitions;
+        private List<Object []> currentBatch;
+        private int currentBatchIndex;
+        private Object [] currentRow;
+        private int row;
+        private boolean done;
+
+        MergedResultSet(int partitionCount)
+        {
+            this.activePartitions = partitionCount;
+        }
+
+        // implement ResultSet
+        public boolean next()
+            throws SQLException
+        {
+            while (true) {
+                if ((currentBatch != null)
+                    && (currentBatchIndex < currentBatch.size()))
+                {
+                    currentRow = currentBatch.get(currentBatchIndex++);
+                    ++row;
+                    return true;
+                }
+                currentBatch = null;
+                currentRow = null;
+                if (done || closed) {
+                    return false;
+                }
+                Object item;
+                try {
+                    item = queue.take();
+                } catch (InterruptedException ex) {
+                    throw newFetchError(ex);
+                }
+                if (item == END_OF_PARTITION) {
+                    if (--activePartitions == 0) {
+                        done = true;
+                    }
+                    continue;
+                }
+                if (item instanceof Throwable) {
+                    done = true;
+                    Throwable ex = (Throwable) item;
+                    if (ex instanceof SQLException) {
+                        throw (SQLException) ex;
+                    }
+                    throw newFetchError(ex);
+                }
+                currentBatch = (List<Object []>) item;
+                currentBatchIndex = 0;
+            }
+        }
+
+        // implement AbstractResultSet
+        protected Object getRaw(int columnIndex)
+            throws SQLException
+        {
+            if (currentRow == null) {
+                throw new SQLException(
+                    "ResultSet is not positioned on a row");
+            }
+            if ((columnIndex < 1) || (columnIndex > currentRow.length)) {
+                throw new SQLException(
+                    "column index " + columnIndex + " out of range");
+            }
+            return currentRow[columnIndex - 1];
+        }
+
+        // implement ResultSet
+        public ResultSetMetaData getMetaData()
+            throws SQLException
+        {
+            try {
+                metaDataLatch.await();
+            } catch (InterruptedException ex) {
+                throw newFetchError(ex);
+            }
+            if (metaData == null) {
+                // the first partition to finish executing failed; the error
+                // is reported by next()
+                throw new SQLException("partition metadata not available");
+            }
+            return metaData;
+        }
+
+        // implement ResultSet
+        public int getRow()
+            throws SQLException
+        {
+            return row;
+        }
+
+        // implement ResultSet
+        public boolean isBeforeFirst()
+            throws SQLException
+        {
+            return (row == 0) && !done;
+        }
+
+        // implement ResultSet
+        public boolean isAfterLast()
+            throws SQLException
+        {
+            return done && (currentRow == null);
+        }
+
+        // implement ResultSet
+        public boolean isFirst()
+            throws SQLException
+        {
+            return row == 1;
+        }
+
+        // implement ResultSet
+        public boolean isClosed()
+            throws SQLException
+        {
+            return closed;
+        }
+
+        // implement ResultSet
+        public void close()
+            throws SQLException
+        {
+            closeAllocation();
+        }
+    }
+}
+
+// End MedJdbcPartitionedAllocation.java
@@ -29,10 +29,12 @@ import org.eigenbase.oj.stmt.*;
 import org.eigenbase.rel.jdbc.*;
 import org.eigenbase.relopt.*;
 import org.eigenbase.reltype.*;
+import org.eigenbase.runtime.*;
 import org.eigenbase.sql.*;
 import org.eigenbase.sql.util.SqlString;
 import org.eigenbase.util.*;
 
+import java.sql.*;
 import java.util.*;
 
 /**
@@ -98,6 +100,39 @@ public class MedJdbcQueryRel
 
         SqlString sql = MedJdbcNameDirectory.normalizeQueryString(queryString);
 
+        String [] partitionSqls = null;
+        if (columnSet != null) {
+            try {
+                partitionSqls =
+                    server.createPartitionedSql(
+                        columnSet,
+                        getSql(),
+                        getDialect());
+            } catch (SQLException ex) {
+                throw Util.newInternal(
+                    ex,
+                    "failed to compute partition bounds for " + sql.getSql());
+            }
+        }
+        if (partitionSqls != null) {
+            ExpressionList sqlList = new ExpressionList();
+            for (String partitionSql : partitionSqls) {
+                sqlList.add(Literal.makeLiteral(partitionSql));
+            }
+            return new CastExpression(
+                OJClass.forClass(ResultSetProvider.class),
+                new MethodCall(
+                    connectionVariable,
+                    "getDataServerRuntimeSupport",
+                    new ExpressionList(
+                        Literal.makeLiteral(
+                            server.getServerMofId()),
+                        new ArrayAllocationExpression(
+                            TypeName.forOJClass(OJSystem.STRING),
+                            new ExpressionList(null),
+                            new ArrayInitializer(sqlList)))));
+        }
+
         Expression allocExpression =
             new CastExpression(
                 OJClass.forClass(FarragoStatementAllocation.class),
@@ -0,0 +1,165 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package net.sf.farrago.namespace.jdbc;
+
+import java.sql.*;
+
+import org.eigenbase.rel.*;
+import org.eigenbase.relopt.*;
+import org.eigenbase.reltype.*;
+import org.eigenbase.sql.*;
+import org.eigenbase.sql.fun.*;
+import org.eigenbase.sql.parser.*;
+import org.eigenbase.sql.type.*;
+
+
+/**
+ * MedJdbcSortPushDownRule is a rule to push ORDER BY down into JDBC sources,
+ * so that the remote database (which can often satisfy the ordering from an
+ * index) does the sort rather than Fennel.
+ *
+ * <p>The ordering is only pushed when the remote server is guaranteed to
+ * produce the same order Farrago would: character keys are never pushed,
+ * since the remote collation may differ, and nullable keys are only pushed
+ * when the remote server sorts nulls low.
+ *
+ * @version $Id$
+ */
+public class MedJdbcSortPushDownRule
+    extends RelOptRule
+{
+    public static final MedJdbcSortPushDownRule instance =
+        new MedJdbcSortPushDownRule();
+
+    //~ Constructors -----------------------------------------------------------
+
+    public MedJdbcSortPushDownRule()
+    {
+        super(
+            new RelOptRuleOperand(
+                SortRel.class,
+                new RelOptRuleOperand(MedJdbcQueryRel.class, ANY)));
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    // implement RelOptRule
+    public void onMatch(RelOptRuleCall call)
+    {
+        SortRel sortRel = (SortRel) call.rels[0];
+        MedJdbcQueryRel queryRel = (MedJdbcQueryRel) call.rels[1];
+        RelFieldCollation [] collations = sortRel.getCollations();
+        if (collations.length == 0) {
+            return;
+        }
+
+        RelDataTypeField [] fields = queryRel.getRowType().getFields();
+        boolean anyNullable = false;
+        SqlNodeList orderBy = new SqlNodeList(SqlParserPos.ZERO);
+        for (RelFieldCollation collation : collations) {
+            RelDataType type = fields[collation.getFieldIndex()].getType();
+            if (SqlTypeUtil.inCharFamily(type)) {
+                return;
+            }
+            anyNullable |= type.isNullable();
+
+            // reference by ordinal so that we don't depend on remote
+            // column names or aliases
+            SqlNode item =
+                SqlLiteral.createExactNumeric(
+                    Integer.toString(collation.getFieldIndex() + 1),
+                    SqlParserPos.ZERO);
+            switch (collation.getDirection()) {
+            case Ascending:
+                break;
+            case Descending:
+                item =
+                    SqlStdOperatorTable.descendingOperator.createCall(
+                        SqlParserPos.ZERO,
+                        item);
+                break;
+            default:
+                return;
+            }
+            orderBy.add(item);
+        }
+        if (anyNullable && !sortsNullsLow(queryRel.getServer())) {
+            return;
+        }
+
+        SqlSelect select = queryRel.getSql();
+        SqlSelect selectWithOrderBy;
+        if (MedJdbcDataServer.isSingleTableQuery(select)) {
+            // add the ORDER BY directly; avoiding a nested query keeps
+            // the remote optimizer's choice of index scans open
+            selectWithOrderBy =
+                SqlStdOperatorTable.selectOperator.createCall(
+                    null,
+                    select.getSelectList(),
+                    select.getFrom(),
+                    select.getWhere(),
+                    null,
+                    null,
+                    null,
+                    orderBy,
+                    SqlParserPos.ZERO);
+        } else {
+            SqlNodeList selectList = new SqlNodeList(SqlParserPos.ZERO);
+            selectList.add(new SqlIdentifier("*", SqlParserPos.ZERO));
+            selectWithOrderBy =
+                SqlStdOperatorTable.selectOperator.createCall(
+                    null,
+                    selectList,
+                    select,
+                    null,
+                    null,
+                    null,
+                    null,
+                    orderBy,
+                    SqlParserPos.ZERO);
+        }
+        if (!queryRel.getServer().isRemoteSqlValid(selectWithOrderBy)) {
+            return;
+        }
+
+        RelNode rel =
+            new MedJdbcQueryRel(
+                queryRel.getServer(),
+                queryRel.getColumnSet(),
+                queryRel.getCluster(),
+                queryRel.getRowType(),
+                queryRel.getConnection(),
+                queryRel.getDialect(),
+                selectWithOrderBy,
+                queryRel.uniqueKeys);
+        call.transformTo(rel);
+    }
+
+    private static boolean sortsNullsLow(MedJdbcDataServer server)
+    {
+        try {
+            return server.getDatabaseMetaData().nullsAreSortedLow();
+        } catch (SQLException ex) {
+            // can't tell, so leave the sort local
+            return false;
+        }
+    }
+}
+
+// End MedJdbcSortPushDownRule.java
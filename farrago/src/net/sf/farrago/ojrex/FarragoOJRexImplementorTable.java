@@ -174,6 +174,10 @@ public class FarragoOJRexImplementorTable
             SqlStdOperatorTable.caseOperator,
             new FarragoOJRexCaseImplementor());
 
+        registerOperator(
+            SqlStdOperatorTable.inListOperator,
+            new FarragoOJRexInListImplementor());
+
         registerOperator(
             SqlStdOperatorTable.castFunc,
             new FarragoOJRexCastImplementor());
@@ -228,6 +232,12 @@ public class FarragoOJRexImplementorTable
             SqlStdOperatorTable.columnListConstructor,
             new FarragoOJRexColumnListImplementor());
 
+        registerOperator(
+            SqlStdOperatorTable.hllEstimateFunction,
+            new FarragoOJRexStaticMethodImplementor(
+                HllSketch.class,
+                "estimate"));
+
         registerContextOp(SqlStdOperatorTable.userFunc);
         registerContextOp(SqlStdOperatorTable.systemUserFunc);
         registerContextOp(SqlStdOperatorTable.sessionUserFunc);
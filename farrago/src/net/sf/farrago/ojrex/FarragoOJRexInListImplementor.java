@@ -0,0 +1,52 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package net.sf.farrago.ojrex;
+
+import openjava.ptree.*;
+
+import org.eigenbase.rex.*;
+
+
+/**
+ * FarragoOJRexInListImplementor implements {@link
+ * org.eigenbase.sql.fun.SqlStdOperatorTable#inListOperator} by translating
+ * its expansion into standard comparisons; see {@link
+ * RexUtil#expandInList}.
+ *
+ * @version $Id$
+ */
+class FarragoOJRexInListImplementor
+    extends FarragoOJRexImplementor
+{
+    //~ Methods ----------------------------------------------------------------
+
+    // implement FarragoOJRexImplementor
+    public Expression implementFarrago(
+        FarragoRexToOJTranslator translator,
+        RexCall call,
+        Expression [] operands)
+    {
+        RexBuilder rexBuilder =
+            translator.getContextRel().getCluster().getRexBuilder();
+        return translator.translateRexNode(
+            RexUtil.expandInList(rexBuilder, call));
+    }
+}
+
+// End FarragoOJRexInListImplementor.java
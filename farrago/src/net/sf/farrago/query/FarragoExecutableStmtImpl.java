@@ -52,6 +52,8 @@ abstract class FarragoExecutableStmtImpl
     private final TableModificationRel.Operation tableModOp;
     private final RelDataType dynamicParamRowType;
     private final TableAccessMap tableAccessMap;
+    private String planningStatistics;
+    private boolean revalidationRequired;
 
     //~ Constructors -----------------------------------------------------------
 
@@ -116,6 +118,28 @@ abstract class FarragoExecutableStmtImpl
     {
         return Collections.EMPTY_MAP;
     }
+
+    // implement FarragoSessionExecutableStmt
+    public String getPlanningStatistics()
+    {
+        return planningStatistics;
+    }
+
+    void setPlanningStatistics(String planningStatistics)
+    {
+        this.planningStatistics = planningStatistics;
+    }
+
+    // implement FarragoSessionExecutableStmt
+    public boolean isRevalidationRequired()
+    {
+        return revalidationRequired;
+    }
+
+    void setRevalidationRequired(boolean revalidationRequired)
+    {
+        this.revalidationRequired = revalidationRequired;
+    }
 }
 
 // End FarragoExecutableStmtImpl.java
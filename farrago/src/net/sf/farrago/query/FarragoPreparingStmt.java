@@ -57,6 +57,7 @@ import org.eigenbase.rel.*;
 import org.eigenbase.rel.convert.*;
 import org.eigenbase.rel.metadata.*;
 import org.eigenbase.relopt.*;
+import org.eigenbase.relopt.volcano.*;
 import org.eigenbase.reltype.*;
 import org.eigenbase.rex.*;
 import org.eigenbase.sql.*;
@@ -120,6 +121,7 @@ public class FarragoPreparingStmt
     private final Map<String, RelDataType> resultSetTypeMap;
     private final Map<String, RelDataType> iterCalcTypeMap;
     private boolean cachingDisabled;
+    private boolean revalidationRequired;
     private FarragoPreparingStmt parentStmt;
     private final FarragoSessionStmtContext rootStmtContext;
 
@@ -223,6 +225,20 @@ public class FarragoPreparingStmt
         cachingDisabled = true;
     }
 
+    /**
+     * Requires the statement to be checked for staleness each time it is
+     * executed, not just when it is found in the code cache. This is for
+     * plans which read data derived from a dependency, such as a
+     * materialized aggregate, which can go stale while the statement stays
+     * prepared.
+     *
+     * @see FarragoSessionExecutableStmt#isRevalidationRequired
+     */
+    public void requireRevalidation()
+    {
+        revalidationRequired = true;
+    }
+
     // implement FarragoSessionPreparingStmt
     public FarragoSessionStmtContext getRootStmtContext()
     {
@@ -671,6 +687,22 @@ public class FarragoPreparingStmt
                     preparedResult.getCode());
         }
 
+        // keep the planner's statistics so that they can be reported
+        // alongside the statement while it executes
+        if (planner instanceof VolcanoPlanner) {
+            VolcanoPlannerStatistics statistics =
+                ((VolcanoPlanner) planner).getStatistics();
+            if (statistics != null) {
+                ((FarragoExecutableStmtImpl) executableStmt)
+                    .setPlanningStatistics(statistics.toString());
+            }
+        }
+
+        if (revalidationRequired) {
+            ((FarragoExecutableStmtImpl) executableStmt)
+                .setRevalidationRequired(true);
+        }
+
         // generated code is now the responsibility of executableStmt
         if (javaCodeDir != null) {
             executableStmt.addAllocation(javaCodeDir);
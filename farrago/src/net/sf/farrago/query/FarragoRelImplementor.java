@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.logging.*;
 
 import net.sf.farrago.catalog.*;
+import net.sf.farrago.defimpl.*;
 import net.sf.farrago.fem.fennel.*;
 import net.sf.farrago.fennel.*;
 import net.sf.farrago.fennel.rel.*;
@@ -548,6 +549,17 @@ public class FarragoRelImplementor
         return preparingStmt.getConnectionVariable();
     }
 
+    // override JavaRelImplementor
+    public int getCalcBatchSize()
+    {
+        // the setting is part of the statement cache key (see
+        // FarragoSessionPersonality.getPlanAffectingSessionVariables)
+        Integer batchSize =
+            preparingStmt.getSession().getSessionVariables().getInteger(
+                FarragoDefaultSessionPersonality.JAVA_CALC_BATCH_SIZE);
+        return (batchSize == null) ? 0 : batchSize;
+    }
+
     // override JavaRelImplementor
     protected RexToOJTranslator newTranslator(RelNode rel)
     {
@@ -211,16 +211,19 @@ public class FennelToIteratorConverter
 
         // Generate code like this:
         //   connection.newFennelTupleIter(
-        //       new FennelTupleReader(){...},
+        //       new FennelAbsoluteTupleReader(){...},
         //       << childrens' code >>);
         // The first ... requires some explanation.  Using the information
         // returned by tupleStreamDescribe, we're going to generate code to
         // unmarshal tuples, writing values into the fields of the synthetic
-        // object.  This code lives in the unmarshalTuple method of an
-        // anonymous subclass of FennelTupleReader.  More details on the
-        // Fennel tuple format are available in the comments on the Fennel C++
-        // class TupleAccessor.  (TODO:  link).  Also see Java class
-        // ReflectTupleReader, which accomplishes the desired affect
+        // object.  This code lives in the unmarshalTupleAbsolute method of an
+        // anonymous subclass of FennelAbsoluteTupleReader.  All values are
+        // read from byteBuffer at absolute offsets from the tuple start, so
+        // nothing is allocated per tuple: the synthetic object is reused, and
+        // character and binary fields point directly into byteArray.  More
+        // details on the Fennel tuple format are available in the comments on
+        // the Fennel C++ class TupleAccessor.  (TODO:  link).  Also see Java
+        // class ReflectTupleReader, which accomplishes the desired affect
         // generically, though more slowly.
         // variable for synthetic object instance
         Variable varTuple = implementor.newVariable();
@@ -249,8 +252,9 @@ public class FennelToIteratorConverter
                         new FieldAccess(varTuple.toString()),
                         "unmarshalBitFields",
                         new ExpressionList(
-                            new FieldAccess("sliceBuffer"),
-                            Literal.makeLiteral(
+                            new FieldAccess("byteBuffer"),
+                            makeAbsoluteOffset(
+                                varTupleStartOffset,
                                 tupleAccessor.getBitFieldOffset())))));
         }
 
@@ -278,7 +282,7 @@ public class FennelToIteratorConverter
                 String byteBufferAccessorName = method.getName();
 
                 // this field is unmarshalled from a fixed offset relative
-                // to the sliceBuffer start
+                // to the tuple start
                 Expression lhs =
                     new FieldAccess(
                         varTuple,
@@ -292,19 +296,19 @@ public class FennelToIteratorConverter
                             lhs,
                             AssignmentExpression.EQUALS,
                             new MethodCall(
-                                new FieldAccess("sliceBuffer"),
+                                new FieldAccess("byteBuffer"),
                                 byteBufferAccessorName,
                                 new ExpressionList(
-                                    Literal.makeLiteral(
+                                    makeAbsoluteOffset(
+                                        varTupleStartOffset,
                                         attrAccessor.getFixedOffset()))))));
             } else if (SqlTypeUtil.isBoundedVariableWidth(type)) {
                 // Variable-length fields are trickier.  The first one starts at
                 // a fixed offset.  To determine the end, dereference the
                 // indirect offset located at a fixed offset relative to the
-                // sliceBuffer start.  Note that all offsets are calculated
-                // relative to the start of byteBuffer, not sliceBuffer, because
-                // the data is extracted from byteArray, whose positions
-                // correspond with byteBuffer, not sliceBuffer.
+                // tuple start.  Note that all offsets are calculated relative
+                // to the start of byteBuffer, because the data is extracted
+                // from byteArray, whose positions correspond with byteBuffer.
                 Variable varEndOffset = implementor.newVariable();
                 methodBody.add(
                     new VariableDeclaration(
@@ -314,10 +318,11 @@ public class FennelToIteratorConverter
                             varTupleStartOffset,
                             BinaryExpression.PLUS,
                             new MethodCall(
-                                new FieldAccess("sliceBuffer"),
+                                new FieldAccess("byteBuffer"),
                                 "getShort",
                                 new ExpressionList(
-                                    Literal.makeLiteral(
+                                    makeAbsoluteOffset(
+                                        varTupleStartOffset,
                                         attrAccessor
                                             .getEndIndirectOffset()))))));
                 Expression expStartOffset;
@@ -382,24 +387,22 @@ public class FennelToIteratorConverter
         // calculate the end of the tuple
         Expression expTupleEndOffset;
         if (varPrevEndOffset == null) {
-            // fixed-width tuple:  end is always the same
+            // fixed-width tuple:  length is always the same
             expTupleEndOffset =
-                Literal.makeLiteral(tupleAccessor.getMinByteLength());
+                makeAbsoluteOffset(
+                    varTupleStartOffset,
+                    tupleAccessor.getMinByteLength());
         } else {
             // variable-width tuple:  end is same as end of last variable-width
             // field
-            expTupleEndOffset =
-                new BinaryExpression(
-                    varPrevEndOffset,
-                    BinaryExpression.MINUS,
-                    varTupleStartOffset);
+            expTupleEndOffset = varPrevEndOffset;
         }
 
-        // advance sliceBuffer to tuple end
+        // advance byteBuffer to tuple end
         methodBody.add(
             new ExpressionStatement(
                 new MethodCall(
-                    new FieldAccess("sliceBuffer"),
+                    new FieldAccess("byteBuffer"),
                     "position",
                     new ExpressionList(expTupleEndOffset))));
 
@@ -407,7 +410,8 @@ public class FennelToIteratorConverter
         methodBody.add(
             new ReturnStatement(new FieldAccess(varTuple.toString())));
 
-        // method parameter list matches FennelTupleReader.unmarshalTuple
+        // method parameter list matches
+        // FennelAbsoluteTupleReader.unmarshalTupleAbsolute
         ParameterList paramList = new ParameterList();
         paramList.add(
             new Parameter(
@@ -419,18 +423,13 @@ public class FennelToIteratorConverter
                 new ModifierList(0),
                 new TypeName("byte", 1),
                 "byteArray"));
-        paramList.add(
-            new Parameter(
-                new ModifierList(0),
-                OJUtil.typeNameForClass(ByteBuffer.class),
-                "sliceBuffer"));
 
         // put it all together
         MemberDeclaration methodDecl =
             new MethodDeclaration(
                 new ModifierList(ModifierList.PUBLIC),
                 OJUtil.typeNameForClass(Object.class),
-                "unmarshalTuple",
+                "unmarshalTupleAbsolute",
                 paramList,
                 null,
                 methodBody);
@@ -451,7 +450,7 @@ public class FennelToIteratorConverter
         memberDeclList.add(methodDecl);
         Expression newTupleReaderExp =
             new AllocationExpression(
-                OJUtil.typeNameForClass(FennelTupleReader.class),
+                OJUtil.typeNameForClass(FennelAbsoluteTupleReader.class),
                 new ExpressionList(),
                 memberDeclList);
 
@@ -580,6 +579,26 @@ public class FennelToIteratorConverter
         assert (implicit) : "Ancestor IteratorToFennelConverter not found";
     }
 
+    /**
+     * Generates an expression for an offset within a marshalled tuple,
+     * relative to the start of the buffer containing it. Used by generated
+     * tuple readers and writers, which access the buffer in place.
+     *
+     * @param varTupleStart variable holding the tuple start offset
+     * @param offset offset relative to the tuple start
+     *
+     * @return expression for absolute offset
+     */
+    static Expression makeAbsoluteOffset(
+        Variable varTupleStart,
+        int offset)
+    {
+        return new BinaryExpression(
+            varTupleStart,
+            BinaryExpression.PLUS,
+            Literal.makeLiteral(offset));
+    }
+
     /**
      * Registers this relational expression and rule(s) with the planner, as per
      * {@link AbstractRelNode#register}.
@@ -172,6 +172,19 @@ public class IteratorToFennelConverter
                     TypeName.forOJClass(ojClass),
                     new FieldAccess("object"))));
 
+        // All values are written into byteBuffer at absolute offsets from the
+        // tuple start, which is its position on entry; this avoids slicing
+        // the buffer for each tuple.
+        Variable varTupleStartOffset = implementor.newVariable();
+        methodBody.add(
+            new VariableDeclaration(
+                TypeName.forOJClass(OJSystem.INT),
+                varTupleStartOffset.toString(),
+                new MethodCall(
+                    new FieldAccess("byteBuffer"),
+                    "position",
+                    new ExpressionList())));
+
         if (tupleAccessor.getBitFieldOffset() != -1) {
             // generate code to marshal all bits fields at once
             methodBody.add(
@@ -180,8 +193,9 @@ public class IteratorToFennelConverter
                         new FieldAccess(varTuple.toString()),
                         "marshalBitFields",
                         new ExpressionList(
-                            new FieldAccess("sliceBuffer"),
-                            Literal.makeLiteral(
+                            new FieldAccess("byteBuffer"),
+                            FennelToIteratorConverter.makeAbsoluteOffset(
+                                varTupleStartOffset,
                                 tupleAccessor.getBitFieldOffset())))));
         }
 
@@ -214,17 +228,18 @@ public class IteratorToFennelConverter
                 String byteBufferAccessorName = method.getName();
 
                 // this field is marshalled to a fixed offset relative
-                // to the sliceBuffer start
+                // to the tuple start
                 fieldExp = factory.getValueAccessExpression(type, fieldExp);
 
                 // REVIEW:  skip write if field is null?
                 methodBody.add(
                     new ExpressionStatement(
                         new MethodCall(
-                            new FieldAccess("sliceBuffer"),
+                            new FieldAccess("byteBuffer"),
                             byteBufferAccessorName,
                             new ExpressionList(
-                                Literal.makeLiteral(
+                                FennelToIteratorConverter.makeAbsoluteOffset(
+                                    varTupleStartOffset,
                                     attrAccessor.getFixedOffset()),
                                 fieldExp))));
             } else if (SqlTypeUtil.isBoundedVariableWidth(type)) {
@@ -235,11 +250,13 @@ public class IteratorToFennelConverter
                     methodBody.add(
                         new ExpressionStatement(
                             new MethodCall(
-                                new FieldAccess("sliceBuffer"),
+                                new FieldAccess("byteBuffer"),
                                 "position",
                                 new ExpressionList(
-                                    Literal.makeLiteral(
-                                        attrAccessor.getFixedOffset())))));
+                                    FennelToIteratorConverter
+                                        .makeAbsoluteOffset(
+                                            varTupleStartOffset,
+                                            attrAccessor.getFixedOffset())))));
                 } else {
                     // use position set by previous variable-width field
                 }
@@ -251,26 +268,30 @@ public class IteratorToFennelConverter
                             fieldExp,
                             "writeToBuffer",
                             new ExpressionList(
-                                new FieldAccess("sliceBuffer")))));
+                                new FieldAccess("byteBuffer")))));
 
-                // position after data has been written is the end
-                // offset for this field
+                // position after data has been written, relative to the
+                // tuple start, is the end offset for this field
                 Expression currPosExp =
                     new CastExpression(
                         OJSystem.SHORT,
-                        new MethodCall(
-                            new FieldAccess("sliceBuffer"),
-                            "position",
-                            new ExpressionList()));
+                        new BinaryExpression(
+                            new MethodCall(
+                                new FieldAccess("byteBuffer"),
+                                "position",
+                                new ExpressionList()),
+                            BinaryExpression.MINUS,
+                            varTupleStartOffset));
 
                 // write the end indirect offset
                 methodBody.add(
                     new ExpressionStatement(
                         new MethodCall(
-                            new FieldAccess("sliceBuffer"),
+                            new FieldAccess("byteBuffer"),
                             "putShort",
                             new ExpressionList(
-                                Literal.makeLiteral(
+                                FennelToIteratorConverter.makeAbsoluteOffset(
+                                    varTupleStartOffset,
                                     attrAccessor.getEndIndirectOffset()),
                                 currPosExp))));
             } else {
@@ -282,8 +303,9 @@ public class IteratorToFennelConverter
                             fieldExp,
                             "writeToBufferAbsolute",
                             new ExpressionList(
-                                new FieldAccess("sliceBuffer"),
-                                Literal.makeLiteral(
+                                new FieldAccess("byteBuffer"),
+                                FennelToIteratorConverter.makeAbsoluteOffset(
+                                    varTupleStartOffset,
                                     attrAccessor.getFixedOffset())))));
             }
         }
@@ -293,20 +315,22 @@ public class IteratorToFennelConverter
             methodBody.add(
                 new ExpressionStatement(
                     new MethodCall(
-                        new FieldAccess("sliceBuffer"),
+                        new FieldAccess("byteBuffer"),
                         "position",
                         new ExpressionList(
-                            Literal.makeLiteral(
+                            FennelToIteratorConverter.makeAbsoluteOffset(
+                                varTupleStartOffset,
                                 tupleAccessor.getMinByteLength())))));
         }
 
-        // method parameter list matches FennelTupleWriter.marshalTupleOrThrow
+        // method parameter list matches
+        // FennelAbsoluteTupleWriter.marshalTupleAbsoluteOrThrow
         ParameterList paramList = new ParameterList();
         paramList.add(
             new Parameter(
                 new ModifierList(0),
                 OJUtil.typeNameForClass(ByteBuffer.class),
-                "sliceBuffer"));
+                "byteBuffer"));
         paramList.add(
             new Parameter(
                 new ModifierList(0),
@@ -318,14 +342,14 @@ public class IteratorToFennelConverter
             new MethodDeclaration(
                 new ModifierList(ModifierList.PROTECTED),
                 TypeName.forOJClass(OJSystem.VOID),
-                "marshalTupleOrThrow",
+                "marshalTupleAbsoluteOrThrow",
                 paramList,
                 null,
                 methodBody);
 
         // generate code to allocate instance of anonymous class defined above
         return new AllocationExpression(
-            OJUtil.typeNameForClass(FennelTupleWriter.class),
+            OJUtil.typeNameForClass(FennelAbsoluteTupleWriter.class),
             new ExpressionList(),
             new MemberDeclarationList(methodDecl));
     }
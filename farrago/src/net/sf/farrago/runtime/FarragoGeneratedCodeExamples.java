@@ -89,9 +89,9 @@ public class FarragoGeneratedCodeExamples
                 farragoTransformStreamName,
 
                 // tuple writer generated by IteratorToFennelConverter
-                new FennelTupleWriter() {
-                    protected void marshalTupleOrThrow(
-                        ByteBuffer sliceBuffer,
+                new FennelAbsoluteTupleWriter() {
+                    protected void marshalTupleAbsoluteOrThrow(
+                        ByteBuffer byteBuffer,
                         Object object)
                     {
                         // ...
@@ -105,11 +105,10 @@ public class FarragoGeneratedCodeExamples
                 // iterator-based join here.
                 connection.newFennelTransformTupleIter(
                     // tuple reader generated by FennelToIteratorConverter
-                    new FennelTupleReader() {
-                        public Object unmarshalTuple(
+                    new FennelAbsoluteTupleReader() {
+                        public Object unmarshalTupleAbsolute(
                             ByteBuffer byteBuffer,
-                            byte [] byteArray,
-                            ByteBuffer sliceBuffer)
+                            byte [] byteArray)
                         {
                             return null;
                         }
@@ -0,0 +1,68 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package net.sf.farrago.runtime;
+
+import java.nio.*;
+
+
+/**
+ * FennelAbsoluteTupleReader is a {@link FennelTupleReader} which unmarshals
+ * tuples directly from the buffer exchanged with Fennel, using absolute
+ * offsets from the tuple start rather than a per-tuple slice of the buffer.
+ * This avoids allocating a {@link ByteBuffer} for every tuple read. Readers
+ * generated by {@link net.sf.farrago.query.FennelToIteratorConverter} extend
+ * this class, and {@link FennelAbstractTupleIter} calls {@link
+ * #unmarshalTupleAbsolute} on them directly.
+ *
+ * @version $Id$
+ */
+public abstract class FennelAbsoluteTupleReader
+    implements FennelTupleReader
+{
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Unmarshals one tuple in place.
+     *
+     * @param byteBuffer read-only buffer containing marshalled tuple data; on
+     * entry, the buffer position is at beginning of tuple; on return, the
+     * buffer position should be at the unaligned end of tuple
+     * @param byteArray byte array underlying byteBuffer
+     *
+     * @return subclass-specific object containing unmarshalled tuple data
+     */
+    public abstract Object unmarshalTupleAbsolute(
+        ByteBuffer byteBuffer,
+        byte [] byteArray);
+
+    // implement FennelTupleReader
+    public Object unmarshalTuple(
+        ByteBuffer byteBuffer,
+        byte [] byteArray,
+        ByteBuffer sliceBuffer)
+    {
+        int tupleStart = byteBuffer.position();
+        Object obj = unmarshalTupleAbsolute(byteBuffer, byteArray);
+        sliceBuffer.position(byteBuffer.position() - tupleStart);
+        byteBuffer.position(tupleStart);
+        return obj;
+    }
+}
+
+// End FennelAbsoluteTupleReader.java
@@ -0,0 +1,71 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package net.sf.farrago.runtime;
+
+import java.nio.*;
+
+
+/**
+ * FennelAbsoluteTupleWriter is a {@link FennelTupleWriter} which marshals
+ * tuples directly into the buffer exchanged with Fennel, using absolute
+ * offsets from the tuple start rather than a per-tuple slice of the buffer.
+ * This avoids allocating a {@link ByteBuffer} for every tuple written. Writers
+ * generated by {@link net.sf.farrago.query.IteratorToFennelConverter} extend
+ * this class.
+ *
+ * @version $Id$
+ */
+public abstract class FennelAbsoluteTupleWriter
+    extends FennelTupleWriter
+{
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Marshals one tuple in place if it can fit; otherwise, throws either
+     * {@link BufferOverflowException} or {@link IndexOutOfBoundsException}.
+     *
+     * @param byteBuffer buffer to be filled with marshalled tuple data; on
+     * entry, the buffer position is at the beginning of the tuple; on return,
+     * the buffer position should be the unaligned end of the tuple
+     * @param object subclass-specific object to be marshalled
+     */
+    protected abstract void marshalTupleAbsoluteOrThrow(
+        ByteBuffer byteBuffer,
+        Object object);
+
+    // override FennelTupleWriter
+    protected void marshalTupleInPlace(
+        ByteBuffer byteBuffer,
+        Object object)
+    {
+        storeMagicNumber(byteBuffer, byteBuffer.position());
+        marshalTupleAbsoluteOrThrow(byteBuffer, object);
+    }
+
+    // implement FennelTupleWriter
+    protected void marshalTupleOrThrow(
+        ByteBuffer sliceBuffer,
+        Object object)
+    {
+        // a slice starts at position 0, so absolute offsets work unchanged
+        marshalTupleAbsoluteOrThrow(sliceBuffer, object);
+    }
+}
+
+// End FennelAbsoluteTupleWriter.java
@@ -55,6 +55,11 @@ public abstract class FennelAbstractTupleIter
     //~ Instance fields --------------------------------------------------------
 
     protected final FennelTupleReader tupleReader;
+
+    /**
+     * Same as tupleReader if it can unmarshal in place, else null.
+     */
+    private final FennelAbsoluteTupleReader absoluteTupleReader;
     protected ByteBuffer byteBuffer;
     protected byte [] bufferAsArray;
     private boolean endOfData;
@@ -69,6 +74,11 @@ public abstract class FennelAbstractTupleIter
     public FennelAbstractTupleIter(FennelTupleReader tupleReader)
     {
         this.tupleReader = tupleReader;
+        if (tupleReader instanceof FennelAbsoluteTupleReader) {
+            absoluteTupleReader = (FennelAbsoluteTupleReader) tupleReader;
+        } else {
+            absoluteTupleReader = null;
+        }
         this.endOfData = false;
     }
 
@@ -130,12 +140,25 @@ public abstract class FennelAbstractTupleIter
 
     private Object unmarshal()
     {
-        // REVIEW:  is slice allocation worth it?
-        ByteBuffer sliceBuffer = byteBuffer.slice();
-        sliceBuffer.order(byteBuffer.order());
-        Object obj =
-            tupleReader.unmarshalTuple(byteBuffer, bufferAsArray, sliceBuffer);
-        int newPosition = byteBuffer.position() + sliceBuffer.position();
+        Object obj;
+        int newPosition;
+        if (absoluteTupleReader != null) {
+            // no per-tuple allocation
+            obj =
+                absoluteTupleReader.unmarshalTupleAbsolute(
+                    byteBuffer,
+                    bufferAsArray);
+            newPosition = byteBuffer.position();
+        } else {
+            ByteBuffer sliceBuffer = byteBuffer.slice();
+            sliceBuffer.order(byteBuffer.order());
+            obj =
+                tupleReader.unmarshalTuple(
+                    byteBuffer,
+                    bufferAsArray,
+                    sliceBuffer);
+            newPosition = byteBuffer.position() + sliceBuffer.position();
+        }
 
         // eat final alignment padding
         newPosition = tupleAligner.alignRoundUp(newPosition);
@@ -64,6 +64,44 @@ public abstract class FennelTupleWriter
         ByteBuffer sliceBuffer,
         Object object);
 
+    /**
+     * Marshals one tuple starting at the current position of a buffer. The
+     * default implementation slices the buffer so that {@link
+     * #marshalTupleOrThrow(ByteBuffer, Object)} can use offsets relative to
+     * the tuple start; {@link FennelAbsoluteTupleWriter} overrides it to
+     * avoid the allocation.
+     *
+     * @param byteBuffer buffer to be filled with marshalled tuple data; on
+     * entry, the buffer position is at the beginning of the tuple; on return,
+     * the buffer position should be the unaligned end of the tuple
+     * @param object subclass-specific object to be marshalled
+     */
+    protected void marshalTupleInPlace(
+        ByteBuffer byteBuffer,
+        Object object)
+    {
+        ByteBuffer sliceBuffer = byteBuffer.slice();
+        sliceBuffer.order(byteBuffer.order());
+        storeMagicNumber(sliceBuffer, 0);
+        marshalTupleOrThrow(sliceBuffer, object);
+        byteBuffer.position(byteBuffer.position() + sliceBuffer.position());
+    }
+
+    /**
+     * In case TupleAccessor's DEBUG_TUPLE_ACCESS is enabled, stores the
+     * correct magic number at the beginning of a marshalled tuple. TODO:
+     * don't do this unless needed.
+     *
+     * @param byteBuffer target buffer
+     * @param tupleStart absolute offset of the tuple in byteBuffer
+     */
+    protected static void storeMagicNumber(
+        ByteBuffer byteBuffer,
+        int tupleStart)
+    {
+        byteBuffer.putLong(tupleStart, MAGIC_NUMBER);
+    }
+
     /**
      * Marshals one tuple if it can fit.
      *
@@ -78,33 +116,31 @@ public abstract class FennelTupleWriter
         ByteBuffer byteBuffer,
         Object object)
     {
+        // An in-place writer may have moved the position before running out
+        // of room, so remember where the tuple started.
+        int tupleStart = byteBuffer.position();
         try {
-            // REVIEW:  is slice allocation worth it?
-            ByteBuffer sliceBuffer = byteBuffer.slice();
-            sliceBuffer.order(byteBuffer.order());
-
-            // In case TupleAccessor's DEBUG_TUPLE_ACCESS is enabled,
-            // store the correct magic number at the beginning of the
-            // marshalled tuple.  TODO:  don't do this unless needed.
-            sliceBuffer.putLong(0, MAGIC_NUMBER);
-            marshalTupleOrThrow(sliceBuffer, object);
-            int newPosition = byteBuffer.position() + sliceBuffer.position();
+            marshalTupleInPlace(byteBuffer, object);
 
             // add final alignment padding
-            newPosition = tupleAligner.alignRoundUp(newPosition);
+            int newPosition = tupleAligner.alignRoundUp(byteBuffer.position());
 
             byteBuffer.position(newPosition);
         } catch (BufferOverflowException ex) {
+            byteBuffer.position(tupleStart);
             return false;
         } catch (BufferUnderflowException ex) {
             // NOTE jvs 19-May-2006:  We shouldn't need this case,
             // but JRockit mistakenly throws underflow instead of overflow.
+            byteBuffer.position(tupleStart);
             return false;
         } catch (IndexOutOfBoundsException ex) {
+            byteBuffer.position(tupleStart);
             return false;
         } catch (IllegalArgumentException ex) {
             // NOTE jvs 31-Aug-2004:  The position() call throws this instead
             // of BufferOverflowException.
+            byteBuffer.position(tupleStart);
             return false;
         }
         return true;
@@ -32,6 +32,7 @@ import java.util.*;
 
 import net.sf.farrago.catalog.*;
 import net.sf.farrago.jdbc.engine.*;
+import net.sf.farrago.util.*;
 
 
 /**
@@ -92,6 +93,7 @@ public class FarragoVjdbcServer
         configFarrago.setUrl(jdbcDriver.getBaseUrl());
         configFarrago.setConnectionPooling(false);
         configFarrago.setPrefetchResultSetMetaData(true);
+        configureRowTransport(configFarrago);
         vjdbcConfig.addConnection(configFarrago);
 
         if (protocol == ListeningProtocol.HTTP) {
@@ -125,6 +127,32 @@ public class FarragoVjdbcServer
         return rmiRegistryPort;
     }
 
+    /**
+     * Applies row packet sizing and compression settings from {@link
+     * FarragoProperties} to the VJDBC connection configuration. VJDBC ships
+     * result rows column-by-column within each packet, so compressing whole
+     * packets gets most of the benefit of a column-oriented encoding. These
+     * settings apply to both the RMI and HTTP transports.
+     *
+     * @param config VJDBC connection configuration to modify
+     */
+    private void configureRowTransport(ConnectionConfiguration config)
+    {
+        FarragoProperties props = FarragoProperties.instance();
+        int rowPacketSize = props.serverRowPacketSize.get();
+        if (rowPacketSize > 0) {
+            config.setRowPacketSize(rowPacketSize);
+        }
+        String compressionMode = props.serverCompressionMode.get();
+        if (compressionMode != null) {
+            config.setCompressionMode(compressionMode);
+            int compressionThreshold = props.serverCompressionThreshold.get();
+            if (compressionThreshold > 0) {
+                config.setCompressionThreshold(compressionThreshold);
+            }
+        }
+    }
+
     private void configureConnectionTimeout(VJdbcConfiguration vjdbcConfig)
     {
         if (connectionTimeoutMillis == -1) {
@@ -124,6 +124,20 @@ public interface FarragoSessionExecutableStmt
      * Map from IterCalcRel tag to row type.
      */
     public Map<String, RelDataType> getIterCalcTypeMap();
+
+    /**
+     * @return summary of the work done by the optimizer while preparing this
+     * statement, or null if the planner does not gather statistics
+     */
+    public String getPlanningStatistics();
+
+    /**
+     * @return whether this statement must be checked for staleness each time
+     * it is executed, because it reads data derived from an object it depends
+     * on (such as a materialized aggregate) which may have changed since it
+     * was prepared
+     */
+    public boolean isRevalidationRequired();
 }
 
 // End FarragoSessionExecutableStmt.java
@@ -68,6 +68,14 @@ public interface FarragoSessionExecutingStmtInfo
      * @return List of catalog object mofIds
      */
     List<String> getObjectsInUse();
+
+    /**
+     * Returns a summary of the work done by the optimizer while preparing
+     * this statement.
+     *
+     * @return planning statistics, or null if not available
+     */
+    String getPlanningStatistics();
 }
 
 // End FarragoSessionExecutingStmtInfo.java
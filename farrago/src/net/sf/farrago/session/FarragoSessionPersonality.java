@@ -290,6 +290,17 @@ public interface FarragoSessionPersonality
         String name,
         String value);
 
+    /**
+     * Returns the names of session variables whose values are built into the
+     * implementations of prepared statements. The values of these variables
+     * become part of the key under which prepared statements are cached, so
+     * that a statement prepared under one setting is never reused under
+     * another.
+     *
+     * @return names of session variables which affect statement preparation
+     */
+    public List<String> getPlanAffectingSessionVariables();
+
     /**
      * Creates a new processor for JMI queries.
      *
@@ -103,6 +103,12 @@ public abstract class FarragoManagementUDR
         perf_counter_info.put(
             "DatabaseCheckpointsSinceInit",
             new String[]{"Execution", null, null});
+        perf_counter_info.put(
+            "CachePageGrantWaitsSinceInit",
+            new String[]{"Execution", null, null});
+        perf_counter_info.put(
+            "CachePagesReturnedEarlySinceInit",
+            new String[]{"Execution", null, "pages"});
         perf_counter_info.put(
             "DatabasePagesAllocated",
             new String[]{"Storage", null, "pages"});
@@ -237,6 +243,9 @@ public abstract class FarragoManagementUDR
                     resultInserter.setString(
                         ++i,
                         Arrays.asList(stmtInfo.getParameters()).toString());
+                    resultInserter.setString(
+                        ++i,
+                        stmtInfo.getPlanningStatistics());
                     resultInserter.executeUpdate();
                 }
             }
@@ -33,8 +33,11 @@ import net.sf.farrago.jdbc.client.*;
 import net.sf.farrago.jdbc.engine.*;
 import net.sf.farrago.resource.*;
 import net.sf.farrago.server.*;
+import net.sf.farrago.trace.*;
+import net.sf.farrago.util.*;
 
 import org.eigenbase.util.*;
+import org.eigenbase.util.property.*;
 import org.eigenbase.util14.*;
 
 
@@ -292,6 +295,255 @@ public abstract class FarragoServerTest
         assertTrue(stopped);
     }
 
+    /**
+     * Tests that a result set read through client-side prefetch returns the
+     * same rows as one read without it, and traces the throughput of both.
+     * The query size can be raised for benchmarking via the system property
+     * "net.sf.farrago.test.remotePrefetchCopies"; it controls how many times
+     * the column catalog is repeated in the extract.
+     */
+    public void testRemotePrefetch()
+        throws Exception
+    {
+        if (isJRockit()) {
+            return;
+        }
+
+        server = newServer();
+        FarragoJdbcEngineDriver serverDriver = new FarragoJdbcEngineDriver();
+        server.start(serverDriver);
+
+        FarragoAbstractJdbcDriver clientDriver = newClientDriver();
+        String uri = clientDriver.getUrlPrefix() + "localhost;user=sa";
+        int copies =
+            Integer.getInteger("net.sf.farrago.test.remotePrefetchCopies", 1)
+            .intValue();
+        StringBuilder query =
+            new StringBuilder(
+                "select c.* from sys_boot.jdbc_metadata.columns_view c, "
+                + "(values ");
+        for (int i = 0; i < copies; i++) {
+            query.append((i == 0) ? "(" : ", (").append(i).append(")");
+        }
+        query.append(") as r(x) order by 1, 2, 3, 4, 5");
+
+        Properties props = new Properties();
+        List<String> expected =
+            readRemote(clientDriver, uri, props, query.toString(), 0);
+
+        props.setProperty(FarragoRemotePrefetch.PROP_PREFETCH, "true");
+        props.setProperty(FarragoRemotePrefetch.PROP_PREFETCH_BYTES, "4096");
+        assertEquals(
+            expected,
+            readRemote(clientDriver, uri, props, query.toString(), 0));
+
+        // explicit fetch size overrides width-based batch sizing
+        assertEquals(
+            expected,
+            readRemote(clientDriver, uri, props, query.toString(), 7));
+
+        boolean stopped = server.stopSoft();
+        server = null;
+        assertTrue(stopped);
+    }
+
+    /**
+     * Tests that re-executing a statement while a prefetching result set from
+     * the previous execution is still open stops the old prefetch thread and
+     * returns complete results from the new execution.
+     */
+    public void testRemotePrefetchReexecute()
+        throws Exception
+    {
+        if (isJRockit()) {
+            return;
+        }
+
+        server = newServer();
+        FarragoJdbcEngineDriver serverDriver = new FarragoJdbcEngineDriver();
+        server.start(serverDriver);
+
+        FarragoAbstractJdbcDriver clientDriver = newClientDriver();
+        String uri = clientDriver.getUrlPrefix() + "localhost;user=sa";
+        String query =
+            "select * from sys_boot.jdbc_metadata.columns_view "
+            + "order by 1, 2, 3, 4, 5";
+
+        Properties props = new Properties();
+        List<String> expected = readRemote(clientDriver, uri, props, query, 0);
+        assertTrue(expected.size() > 10);
+
+        // Tiny batches and a shallow queue, so that the first prefetch thread
+        // is certainly blocked on a full queue when the statement is
+        // re-executed.
+        props.setProperty(FarragoRemotePrefetch.PROP_PREFETCH, "true");
+        props.setProperty(FarragoRemotePrefetch.PROP_PREFETCH_DEPTH, "1");
+        Connection connection = clientDriver.connect(uri, props);
+        try {
+            PreparedStatement stmt = connection.prepareStatement(query);
+            stmt.setFetchSize(2);
+            for (int i = 0; i < 3; i++) {
+                ResultSet resultSet = stmt.executeQuery();
+                if (i < 2) {
+                    // abandon the result set after the first row
+                    assertTrue(resultSet.next());
+                    continue;
+                }
+                assertEquals(expected, readRows(resultSet));
+            }
+            stmt.close();
+
+            Statement plainStmt = connection.createStatement();
+            plainStmt.setFetchSize(2);
+            ResultSet firstResultSet = plainStmt.executeQuery(query);
+            assertTrue(firstResultSet.next());
+            ResultSet secondResultSet = plainStmt.executeQuery(query);
+            assertTrue(firstResultSet.isClosed());
+            assertEquals(expected, readRows(secondResultSet));
+            plainStmt.close();
+        } finally {
+            connection.close();
+        }
+
+        boolean stopped = server.stopSoft();
+        server = null;
+        assertTrue(stopped);
+    }
+
+    /**
+     * Tests that rows shipped in compressed packets, with and without
+     * client-side prefetch, match rows shipped uncompressed.
+     */
+    public void testRemoteCompression()
+        throws Exception
+    {
+        if (isJRockit()) {
+            return;
+        }
+
+        FarragoAbstractJdbcDriver clientDriver = newClientDriver();
+        String uri = clientDriver.getUrlPrefix() + "localhost;user=sa";
+        String query =
+            "select * from sys_boot.jdbc_metadata.columns_view "
+            + "order by 1, 2, 3, 4, 5";
+        Properties props = new Properties();
+
+        server = newServer();
+        server.start(new FarragoJdbcEngineDriver());
+        List<String> expected = readRemote(clientDriver, uri, props, query, 0);
+        boolean stopped = server.stopSoft();
+        server = null;
+        assertTrue(stopped);
+
+        // Small packets and a threshold of one byte, so that every packet is
+        // compressed and a result spans many packets.
+        FarragoProperties farragoProps = FarragoProperties.instance();
+        Property [] transportProps = {
+            farragoProps.serverCompressionMode,
+            farragoProps.serverCompressionThreshold,
+            farragoProps.serverRowPacketSize
+        };
+        String [] savedValues = new String[transportProps.length];
+        for (int i = 0; i < transportProps.length; i++) {
+            if (transportProps[i].isSet()) {
+                savedValues[i] = transportProps[i].getString();
+            }
+        }
+        try {
+            farragoProps.serverCompressionMode.set("BEST_SPEED");
+            farragoProps.serverCompressionThreshold.set(1);
+            farragoProps.serverRowPacketSize.set(7);
+
+            server = newServer();
+            server.start(new FarragoJdbcEngineDriver());
+            assertEquals(
+                expected,
+                readRemote(clientDriver, uri, props, query, 0));
+            props.setProperty(FarragoRemotePrefetch.PROP_PREFETCH, "true");
+            assertEquals(
+                expected,
+                readRemote(clientDriver, uri, props, query, 0));
+            stopped = server.stopSoft();
+            server = null;
+            assertTrue(stopped);
+        } finally {
+            for (int i = 0; i < transportProps.length; i++) {
+                if (savedValues[i] == null) {
+                    farragoProps.remove(transportProps[i].getPath());
+                } else {
+                    transportProps[i].setString(savedValues[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads all rows of a result set and closes it.
+     *
+     * @param resultSet result set, positioned before its first row
+     *
+     * @return rows, each rendered as its column values separated by '|'
+     */
+    private List<String> readRows(ResultSet resultSet)
+        throws SQLException
+    {
+        List<String> rows = new ArrayList<String>();
+        int nColumns = resultSet.getMetaData().getColumnCount();
+        StringBuilder sb = new StringBuilder();
+        while (resultSet.next()) {
+            sb.setLength(0);
+            for (int i = 1; i <= nColumns; i++) {
+                sb.append(resultSet.getString(i)).append('|');
+            }
+            rows.add(sb.toString());
+        }
+        resultSet.close();
+        return rows;
+    }
+
+    private List<String> readRemote(
+        FarragoAbstractJdbcDriver clientDriver,
+        String uri,
+        Properties props,
+        String query,
+        int fetchSize)
+        throws SQLException
+    {
+        List<String> rows = new ArrayList<String>();
+        long nBytes = 0;
+        long startTime = System.currentTimeMillis();
+        Connection connection = clientDriver.connect(uri, props);
+        try {
+            Statement stmt = connection.createStatement();
+            stmt.setFetchSize(fetchSize);
+            ResultSet resultSet = stmt.executeQuery(query);
+            assertSame(stmt, resultSet.getStatement());
+            int nColumns = resultSet.getMetaData().getColumnCount();
+            StringBuilder sb = new StringBuilder();
+            while (resultSet.next()) {
+                sb.setLength(0);
+                for (int i = 1; i <= nColumns; i++) {
+                    sb.append(resultSet.getString(i)).append('|');
+                }
+                nBytes += sb.length();
+                rows.add(sb.toString());
+            }
+            resultSet.close();
+            stmt.close();
+        } finally {
+            connection.close();
+        }
+        long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+        FarragoTrace.getTestTracer().info(
+            getName() + " prefetch="
+            + props.getProperty(FarragoRemotePrefetch.PROP_PREFETCH)
+            + " fetchSize=" + fetchSize
+            + " rows=" + rows.size()
+            + " ms=" + elapsed
+            + " MB/s=" + ((nBytes / 1048576.0) / (elapsed / 1000.0)));
+        return rows;
+    }
+
     /**
      * Tests error message when a 2nd server is started.
      */
@@ -243,6 +243,43 @@ public abstract class FarragoTestUDR
         }
     }
 
+    /**
+     * Copies a file to a path under the testgen directory, creating its
+     * parent directories, or deletes the file there if the source is null.
+     *
+     * @param sourcePath file to copy, relative to the Farrago home directory
+     * @param targetPath file to create or delete, relative to the testgen
+     * directory
+     */
+    public static void copyTestFile(String sourcePath, String targetPath)
+        throws Exception
+    {
+        File dir =
+            new File(
+                FarragoProperties.instance().homeDir.get());
+        File target = new File(new File(dir, "testgen"), targetPath);
+        if (sourcePath == null) {
+            target.delete();
+            return;
+        }
+        target.getParentFile().mkdirs();
+        InputStream in = new FileInputStream(new File(dir, sourcePath));
+        try {
+            OutputStream out = new FileOutputStream(target);
+            try {
+                byte [] buf = new byte[4096];
+                int n;
+                while ((n = in.read(buf)) != -1) {
+                    out.write(buf, 0, n);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
     public static String decryptPublicKey(byte [] keyBytes)
     {
         if (keyBytes == null) {
@@ -0,0 +1,289 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package net.sf.farrago.test.regression;
+
+import java.io.*;
+
+import java.sql.*;
+
+import junit.extensions.*;
+
+import junit.framework.*;
+
+import net.sf.farrago.test.*;
+
+import org.eigenbase.runtime.*;
+import org.eigenbase.trace.*;
+import org.eigenbase.util.*;
+
+
+/**
+ * FarragoJavaCalcBatchTest compares row-at-a-time and batch-at-a-time Java
+ * calculators (see {@link org.eigenbase.runtime.BatchCalcTupleIter}) on a set
+ * of representative programs. Each query is run in both modes; the results
+ * must agree, the generated code must use the expected mode, and the elapsed
+ * times are traced so that the test doubles as a benchmark.
+ *
+ * @version $Id$
+ */
+public class FarragoJavaCalcBatchTest
+    extends FarragoTestCase
+{
+    //~ Static fields/initializers ---------------------------------------------
+
+    /**
+     * Number of input rows per query.
+     */
+    private static final int ROW_COUNT = 200000;
+
+    /**
+     * Batch size used for batch mode.
+     */
+    private static final int BATCH_SIZE = 1024;
+
+    /**
+     * Number of timed runs per mode; the first run of each mode also pays
+     * for code generation.
+     */
+    private static final int RUN_COUNT = 3;
+
+    private static final String RAMP =
+        "table(calcbatchtest.ramp(" + ROW_COUNT + "))";
+
+    /**
+     * Name of the base class of batch-mode calculators, as it appears in
+     * generated code.
+     */
+    private static final String BATCH_CLASS_NAME =
+        BatchCalcTupleIter.class.getName();
+
+    //~ Constructors -----------------------------------------------------------
+
+    public FarragoJavaCalcBatchTest(String testName)
+        throws Exception
+    {
+        super(testName);
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    // implement TestCase
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(FarragoJavaCalcBatchTest.class);
+        TestSetup wrapper =
+            new TestSetup(suite) {
+                protected void setUp()
+                    throws Exception
+                {
+                    staticSetUp();
+                }
+
+                protected void tearDown()
+                    throws Exception
+                {
+                    FarragoTestCase.staticTearDown();
+                }
+            };
+        return wrapper;
+    }
+
+    public static void staticSetUp()
+        throws Exception
+    {
+        FarragoTestCase.staticSetUp();
+        Statement setupStmt = connection.createStatement();
+        try {
+            setupStmt.execute("create schema calcbatchtest");
+            setupStmt.execute(
+                "create function calcbatchtest.ramp(n int) "
+                + "returns table(i int) "
+                + "language java "
+                + "parameter style system defined java "
+                + "no sql "
+                + "external name "
+                + "'class net.sf.farrago.test.FarragoTestUDR.ramp'");
+        } finally {
+            setupStmt.close();
+        }
+    }
+
+    // implement TestCase
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        saveParameters();
+        stmt.execute(
+            "alter system set \"calcVirtualMachine\" = 'CALCVM_JAVA'");
+    }
+
+    // implement TestCase
+    protected void tearDown()
+        throws Exception
+    {
+        EigenbaseTrace.getDynamicHandler().remove();
+        stmt.execute("alter session set \"javaCalcBatchSize\" = 0");
+        restoreParameters();
+        super.tearDown();
+    }
+
+    /**
+     * Arithmetic projection with a selective filter.
+     */
+    public void testArithmeticFilter()
+        throws Exception
+    {
+        compareModes(
+            "select i * 3 + 1, i - 7 from " + RAMP + " where mod(i, 7) = 0",
+            true);
+    }
+
+    /**
+     * Projection only; every input row qualifies, so batches are always full.
+     */
+    public void testProjectOnly()
+        throws Exception
+    {
+        compareModes("select i, i * i, i / 3 from " + RAMP, true);
+    }
+
+    /**
+     * Nullable results and floating-point conversion.
+     */
+    public void testNullableDouble()
+        throws Exception
+    {
+        compareModes(
+            "select case when mod(i, 5) = 0 then null "
+            + "else cast(i as double) / 7 end from " + RAMP,
+            true);
+    }
+
+    /**
+     * Filter which rejects every row, so each batch ends with no output.
+     */
+    public void testEmptyResult()
+        throws Exception
+    {
+        compareModes("select i + 1 from " + RAMP + " where i < 0", true);
+    }
+
+    /**
+     * Character output, which is not batchable; the batch size setting must
+     * be ignored.
+     */
+    public void testUnbatchable()
+        throws Exception
+    {
+        compareModes(
+            "select cast(i as varchar(10)) from " + RAMP
+            + " where mod(i, 11) = 0",
+            false);
+    }
+
+    /**
+     * Runs a query in row mode and then in batch mode, and checks that both
+     * produce the same results.
+     *
+     * @param sql query
+     * @param batchable whether the calculator is expected to be generated in
+     * batch mode when a batch size is set
+     */
+    private void compareModes(String sql, boolean batchable)
+        throws Exception
+    {
+        double [] rowResult = new double[2];
+        double [] batchResult = new double[2];
+        StringBuilder rowSource = new StringBuilder();
+        StringBuilder batchSource = new StringBuilder();
+        long rowMillis = run(sql, 0, rowResult, rowSource);
+        long batchMillis = run(sql, BATCH_SIZE, batchResult, batchSource);
+
+        // The batch size is part of the statement cache key, so each mode
+        // must have generated its own code.
+        assertTrue(rowSource.length() > 0);
+        assertTrue(batchSource.length() > 0);
+        assertFalse(rowSource.toString().contains(BATCH_CLASS_NAME));
+        assertEquals(
+            batchable,
+            batchSource.toString().contains(BATCH_CLASS_NAME));
+
+        assertEquals(rowResult[0], batchResult[0]);
+        assertEquals(rowResult[1], batchResult[1], 0.001);
+        tracer.info(
+            getName() + ": row mode " + rowMillis + " ms, batch mode "
+            + batchMillis + " ms for " + ROW_COUNT + " input rows");
+    }
+
+    /**
+     * Runs a query repeatedly with a given calculator batch size.
+     *
+     * @param sql query
+     * @param batchSize value for javaCalcBatchSize
+     * @param result receives row count and checksum of all numeric columns
+     * @param source receives the Java source generated for the query, if it
+     * was not already in the statement cache
+     *
+     * @return best elapsed time over all runs, in milliseconds
+     */
+    private long run(
+        String sql,
+        int batchSize,
+        double [] result,
+        final StringBuilder source)
+        throws Exception
+    {
+        stmt.execute(
+            "alter session set \"javaCalcBatchSize\" = " + batchSize);
+        EigenbaseTrace.getDynamicHandler().set(
+            new Util.Function2<Void, File, String>() {
+                public Void apply(File file, String javaSource)
+                {
+                    source.append(javaSource);
+                    return null;
+                }
+            });
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUN_COUNT; ++run) {
+            long start = System.currentTimeMillis();
+            double rowCount = 0;
+            double checksum = 0;
+            resultSet = stmt.executeQuery(sql);
+            int columnCount = resultSet.getMetaData().getColumnCount();
+            while (resultSet.next()) {
+                ++rowCount;
+                for (int i = 1; i <= columnCount; ++i) {
+                    String s = resultSet.getString(i);
+                    if (s != null) {
+                        checksum += s.hashCode() % 1000;
+                    }
+                }
+            }
+            resultSet.close();
+            resultSet = null;
+            best = Math.min(best, System.currentTimeMillis() - start);
+            result[0] = rowCount;
+            result[1] = checksum;
+        }
+        return best;
+    }
+}
+
+// End FarragoJavaCalcBatchTest.java
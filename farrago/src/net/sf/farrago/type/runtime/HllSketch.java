@@ -0,0 +1,82 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package net.sf.farrago.type.runtime;
+
+/**
+ * Runtime support for HyperLogLog sketches, as accumulated by the
+ * <code>$HLL_SKETCH</code> and <code>$HLL_MERGE</code> aggregate functions.
+ *
+ * <p>A sketch is an array of registers, one per byte, the number of registers
+ * being a power of two. Each register holds the greatest rank (the number of
+ * leading zeros plus one) seen among the hashes of the values which were
+ * assigned to it.
+ *
+ * @version $Id$
+ */
+public abstract class HllSketch
+{
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Estimates the number of distinct values summarized by a sketch. This is
+     * the implementation of <code>$HLL_ESTIMATE</code>.
+     *
+     * @param sketch sketch
+     *
+     * @return estimated number of distinct values
+     */
+    public static long estimate(BytePointer sketch)
+    {
+        return estimate((byte []) sketch.getNullableData());
+    }
+
+    /**
+     * Estimates the number of distinct values summarized by an array of
+     * registers.
+     *
+     * @param registers registers
+     *
+     * @return estimated number of distinct values
+     */
+    public static long estimate(byte [] registers)
+    {
+        final int m = registers.length;
+        assert (m >= 16) && ((m & (m - 1)) == 0) : m;
+        double sum = 0;
+        int zeroCount = 0;
+        for (int i = 0; i < m; i++) {
+            final int rank = registers[i] & 0xFF;
+            if (rank == 0) {
+                ++zeroCount;
+            }
+            sum += 1.0 / (1L << rank);
+        }
+        final double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if ((estimate <= 2.5 * m) && (zeroCount > 0)) {
+            // Small cardinalities are estimated more accurately by linear
+            // counting of the registers which are still empty. Hashes are 64
+            // bits, so no correction is needed at the high end.
+            estimate = m * Math.log((double) m / zeroCount);
+        }
+        return Math.round(estimate);
+    }
+}
+
+// End HllSketch.java
@@ -142,6 +142,39 @@ public class FarragoProperties
             "net.sf.farrago.ddl.DdlReloadTableStmt.crash",
             false);
 
+    /**
+     * The integer property "net.sf.farrago.server.rowPacketSize" specifies the
+     * number of rows the VJDBC server ships to a remote client per round trip.
+     * If not set (or zero), VJDBC's own default is used. Clients which read
+     * large extracts should combine a larger packet size with client-side
+     * prefetch (see {@link
+     * net.sf.farrago.jdbc.client.FarragoRemotePrefetch}).
+     */
+    public final IntegerProperty serverRowPacketSize =
+        new IntegerProperty(this, "net.sf.farrago.server.rowPacketSize", 0);
+
+    /**
+     * The string property "net.sf.farrago.server.compressionMode" specifies
+     * the compression VJDBC applies to row packets before shipping them to a
+     * remote client. The value is passed through to VJDBC's
+     * ConnectionConfiguration as-is (e.g. "BEST_SPEED" or "NONE"); if not
+     * specified, row packets are sent uncompressed.
+     */
+    public final StringProperty serverCompressionMode =
+        new StringProperty(this, "net.sf.farrago.server.compressionMode", null);
+
+    /**
+     * The integer property "net.sf.farrago.server.compressionThreshold"
+     * specifies the minimum size in bytes of a serialized row packet before
+     * VJDBC bothers compressing it. Only meaningful together with {@link
+     * #serverCompressionMode}; if not set (or zero), VJDBC's default is used.
+     */
+    public final IntegerProperty serverCompressionThreshold =
+        new IntegerProperty(
+            this,
+            "net.sf.farrago.server.compressionThreshold",
+            0);
+
     //~ Constructors -----------------------------------------------------------
 
     private FarragoProperties()
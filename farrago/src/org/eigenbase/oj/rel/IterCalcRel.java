@@ -35,6 +35,7 @@ import org.eigenbase.reltype.*;
 import org.eigenbase.rex.*;
 import org.eigenbase.runtime.*;
 import org.eigenbase.sql.fun.*;
+import org.eigenbase.sql.type.*;
 import org.eigenbase.trace.*;
 import org.eigenbase.util.*;
 
@@ -230,6 +231,78 @@ public class IterCalcRel
             tag);
     }
 
+    /**
+     * Determines whether a calculator producing rows of a given type can be
+     * implemented in batch mode (see {@link BatchCalcTupleIter}). Output rows
+     * are buffered while the input advances, so every output field must hold
+     * its value by copy. Character and binary values are represented by
+     * pointers which may alias the input row's buffers, and object-valued
+     * types are held by reference, so rows containing them are not
+     * batchable.
+     *
+     * @param outputRowType row type produced by the calculator
+     *
+     * @return whether batch mode is safe
+     */
+    public static boolean isBatchable(RelDataType outputRowType)
+    {
+        for (RelDataTypeField field : outputRowType.getFieldList()) {
+            SqlTypeName typeName = field.getType().getSqlTypeName();
+            if (typeName == null) {
+                return false;
+            }
+            switch (typeName) {
+            case BOOLEAN:
+            case TINYINT:
+            case SMALLINT:
+            case INTEGER:
+            case BIGINT:
+            case DECIMAL:
+            case REAL:
+            case FLOAT:
+            case DOUBLE:
+            case DATE:
+            case TIME:
+            case TIMESTAMP:
+            case INTERVAL_DAY_TIME:
+            case INTERVAL_YEAR_MONTH:
+                break;
+            default:
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Generates code for a row-at-a-time Java expression satisfying the {@link
+     * org.eigenbase.runtime.TupleIter} interface.
+     *
+     * @see #implementAbstractTupleIter(JavaRelImplementor, JavaRel,
+     * Expression, Variable, RelDataType, RelDataType, RexProgram, String, int)
+     */
+    public static Expression implementAbstractTupleIter(
+        JavaRelImplementor implementor,
+        JavaRel rel,
+        Expression childExp,
+        Variable varInputRow,
+        final RelDataType inputRowType,
+        final RelDataType outputRowType,
+        RexProgram program,
+        String tag)
+    {
+        return implementAbstractTupleIter(
+            implementor,
+            rel,
+            childExp,
+            varInputRow,
+            inputRowType,
+            outputRowType,
+            program,
+            tag,
+            0);
+    }
+
     /**
      * Generates code for a Java expression satisfying the {@link
      * org.eigenbase.runtime.TupleIter} interface. The generated code allocates
@@ -238,6 +311,13 @@ public class IterCalcRel
      * error" flag is false, or an error handling tag is specified, then
      * fetchNext is written to handle row errors.
      *
+     * <p>If <code>batchSize</code> is positive, the generated code instead
+     * allocates a {@link org.eigenbase.runtime.BatchCalcTupleIter} with a
+     * dynamic {@link org.eigenbase.runtime.BatchCalcTupleIter#fillBatch()}
+     * method which loops over input rows until it has produced a batch of
+     * output rows. The caller is responsible for checking {@link
+     * #isBatchable} first.
+     *
      * <p>Row errors are handled by wrapping expressions that can fail with a
      * try/catch block. A caught RuntimeException is then published to an
      * "connection variable." In the event that errors can overflow, an "error
@@ -252,6 +332,8 @@ public class IterCalcRel
      * @param outputRowType the rel data type of the output row
      * @param program the rex program to implemented by the relation
      * @param tag an error handling tag
+     * @param batchSize number of output rows per batch, or 0 for
+     * row-at-a-time
      *
      * @return a Java expression satisfying the TupleIter interface
      */
@@ -263,8 +345,12 @@ public class IterCalcRel
         final RelDataType inputRowType,
         final RelDataType outputRowType,
         RexProgram program,
-        String tag)
+        String tag,
+        int batchSize)
     {
+        final boolean batchMode = (batchSize > 0);
+        assert !batchMode || isBatchable(outputRowType);
+
         MemberDeclarationList memberList = new MemberDeclarationList();
 
         // Perform error recovery if continuing on errors or if
@@ -307,15 +393,21 @@ public class IterCalcRel
                 varInputRow.toString(),
                 null);
 
+        // In batch mode, the output row is rebound to a batch slot for each
+        // input row, so it starts out null.
         FieldDeclaration outputRowVarDecl =
             new FieldDeclaration(
                 new ModifierList(ModifierList.PRIVATE),
                 TypeName.forOJClass(outputRowClass),
                 varOutputRow.toString(),
-                new AllocationExpression(
+                batchMode ? null
+                : new AllocationExpression(
                     outputRowClass,
                     new ExpressionList()));
 
+        // Number of output rows produced so far in the current batch
+        Variable varBatchCount = null;
+
         // The method body for fetchNext, a main target of code generation
         StatementList nextMethodBody = new StatementList();
 
@@ -334,6 +426,27 @@ public class IterCalcRel
         // Most of fetchNext falls within a while() block. The while block
         // allows us to try multiple input rows against a filter condition
         // before returning a single row.
+        //
+        // In batch mode, fillBatch is generated instead, and the loop runs
+        // until a full batch has been produced:
+        //     int n = 0;
+        //     while (n < batchSize) {
+        //         Object varInputObj = inputIterator.fetchNext();
+        //         if (varInputObj instanceof TupleIter.NoDataReason) {
+        //             return endBatch(n, varInputObj);
+        //         }
+        //         varOutputRow = (OutputRowClass) getBatchRow(n);
+        //         [calculation statements, ending with ++n]
+        //     }
+        //     return n;
+        if (batchMode) {
+            varBatchCount = implementor.newVariable();
+            nextMethodBody.add(
+                new VariableDeclaration(
+                    OJUtil.typeNameForClass(int.class),
+                    varBatchCount.toString(),
+                    Literal.makeLiteral(0)));
+        }
         //     while (true) {
         //         Object varInputObj = inputIterator.fetchNext();
         //         if (varInputObj instanceof TupleIter.NoDataReason) {
@@ -365,7 +478,25 @@ public class IterCalcRel
                     OJUtil.typeNameForClass(TupleIter.NoDataReason.class)),
                 ifNoDataReasonBody));
 
-        ifNoDataReasonBody.add(new ReturnStatement(varInputObj));
+        if (batchMode) {
+            ifNoDataReasonBody.add(
+                new ReturnStatement(
+                    new MethodCall(
+                        "endBatch",
+                        new ExpressionList(varBatchCount, varInputObj))));
+            whileBody.add(
+                new ExpressionStatement(
+                    new AssignmentExpression(
+                        varOutputRow,
+                        AssignmentExpression.EQUALS,
+                        new CastExpression(
+                            TypeName.forOJClass(outputRowClass),
+                            new MethodCall(
+                                "getBatchRow",
+                                new ExpressionList(varBatchCount))))));
+        } else {
+            ifNoDataReasonBody.add(new ReturnStatement(varInputObj));
+        }
 
         // Push up the row declaration for new error handling so that the
         // input row is available to the error handler
@@ -571,23 +702,64 @@ public class IterCalcRel
             translator.popProgram(program);
         }
 
-        condBody.add(new ReturnStatement(varOutputRow));
+        if (batchMode) {
+            condBody.add(
+                new ExpressionStatement(
+                    new UnaryExpression(
+                        varBatchCount,
+                        UnaryExpression.PRE_INCREMENT)));
+        } else {
+            condBody.add(new ReturnStatement(varOutputRow));
+        }
 
         WhileStatement whileStmt =
             new WhileStatement(
-                Literal.makeLiteral(true),
+                batchMode
+                ? new BinaryExpression(
+                    varBatchCount,
+                    BinaryExpression.LESS,
+                    Literal.makeLiteral(batchSize))
+                : Literal.makeLiteral(true),
                 whileBody);
 
         nextMethodBody.add(whileStmt);
 
-        MemberDeclaration fetchNextMethodDecl =
-            new MethodDeclaration(
-                new ModifierList(ModifierList.PUBLIC),
-                OJUtil.typeNameForClass(Object.class),
-                "fetchNext",
-                new ParameterList(),
-                null,
-                nextMethodBody);
+        MemberDeclaration fetchNextMethodDecl;
+        if (batchMode) {
+            nextMethodBody.add(new ReturnStatement(varBatchCount));
+            fetchNextMethodDecl =
+                new MethodDeclaration(
+                    new ModifierList(ModifierList.PROTECTED),
+                    OJUtil.typeNameForClass(int.class),
+                    "fillBatch",
+                    new ParameterList(),
+                    null,
+                    nextMethodBody);
+
+            StatementList newOutputRowBody = new StatementList();
+            newOutputRowBody.add(
+                new ReturnStatement(
+                    new AllocationExpression(
+                        outputRowClass,
+                        new ExpressionList())));
+            memberList.add(
+                new MethodDeclaration(
+                    new ModifierList(ModifierList.PROTECTED),
+                    OJUtil.typeNameForClass(Object.class),
+                    "newOutputRow",
+                    new ParameterList(),
+                    null,
+                    newOutputRowBody));
+        } else {
+            fetchNextMethodDecl =
+                new MethodDeclaration(
+                    new ModifierList(ModifierList.PUBLIC),
+                    OJUtil.typeNameForClass(Object.class),
+                    "fetchNext",
+                    new ParameterList(),
+                    null,
+                    nextMethodBody);
+        }
 
         // The restart() method should reset variables used to buffer errors
         //     pendingError = false
@@ -598,11 +770,22 @@ public class IterCalcRel
         memberList.add(inputRowVarDecl);
         memberList.add(outputRowVarDecl);
         memberList.add(fetchNextMethodDecl);
-        Expression newTupleIterExp =
-            new AllocationExpression(
-                OJUtil.typeNameForClass(CalcTupleIter.class),
-                new ExpressionList(childExp),
-                memberList);
+        Expression newTupleIterExp;
+        if (batchMode) {
+            newTupleIterExp =
+                new AllocationExpression(
+                    OJUtil.typeNameForClass(BatchCalcTupleIter.class),
+                    new ExpressionList(
+                        childExp,
+                        Literal.makeLiteral(batchSize)),
+                    memberList);
+        } else {
+            newTupleIterExp =
+                new AllocationExpression(
+                    OJUtil.typeNameForClass(CalcTupleIter.class),
+                    new ExpressionList(childExp),
+                    memberList);
+        }
 
         return newTupleIterExp;
     }
@@ -619,7 +802,12 @@ public class IterCalcRel
             getChild(),
             varInputRow);
 
-        return implementAbstract(
+        int batchSize = implementor.getCalcBatchSize();
+        if ((batchSize > 0) && !isBatchable(outputRowType)) {
+            batchSize = 0;
+        }
+
+        return implementAbstractTupleIter(
             implementor,
             this,
             childExp,
@@ -627,7 +815,8 @@ public class IterCalcRel
             inputRowType,
             outputRowType,
             program,
-            tag);
+            tag,
+            batchSize);
     }
 
     public RexProgram getProgram()
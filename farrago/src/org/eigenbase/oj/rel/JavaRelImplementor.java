@@ -469,6 +469,20 @@ public class JavaRelImplementor
         throw Util.needToImplement("getConnectionVariable");
     }
 
+    /**
+     * Returns the number of rows which Java calculators should process per
+     * batch. A value of 0 (the default) means calculators are generated in
+     * row-at-a-time mode.
+     *
+     * @return calculator batch size, or 0 for row-at-a-time
+     *
+     * @see org.eigenbase.runtime.BatchCalcTupleIter
+     */
+    public int getCalcBatchSize()
+    {
+        return 0;
+    }
+
     public void popStatementList(StatementList stmtList)
     {
         assert (stmtList == getStatementList());
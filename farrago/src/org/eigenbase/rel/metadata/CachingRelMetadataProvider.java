@@ -37,12 +37,19 @@ public class CachingRelMetadataProvider
 {
     //~ Instance fields --------------------------------------------------------
 
-    private final Map<List, CacheEntry> cache;
+    private final Map<CacheKey, CacheEntry> cache;
 
     private final RelMetadataProvider underlyingProvider;
 
     private final RelOptPlanner planner;
 
+    /**
+     * Key used to probe the cache. It is reused for every lookup, so a cache
+     * hit allocates nothing; a fresh key is only created when an entry is
+     * added.
+     */
+    private final CacheKey probeKey;
+
     //~ Constructors -----------------------------------------------------------
 
     public CachingRelMetadataProvider(
@@ -52,7 +59,8 @@ public class CachingRelMetadataProvider
         this.underlyingProvider = underlyingProvider;
         this.planner = planner;
 
-        cache = new HashMap<List, CacheEntry>();
+        cache = new HashMap<CacheKey, CacheEntry>();
+        probeKey = new CacheKey();
     }
 
     //~ Methods ----------------------------------------------------------------
@@ -66,21 +74,11 @@ public class CachingRelMetadataProvider
         // TODO jvs 30-Mar-2006: Use meta-metadata to decide which metadata
         // query results can stay fresh until the next Ice Age.
 
-        // Compute hash key.
-        List<Object> hashKey;
-        if (args != null) {
-            hashKey = new ArrayList<Object>(args.length + 2);
-            hashKey.add(rel);
-            hashKey.add(metadataQueryName);
-            hashKey.addAll(Arrays.asList(args));
-        } else {
-            hashKey = Arrays.asList(rel, metadataQueryName);
-        }
-
         long timestamp = planner.getRelMetadataTimestamp(rel);
 
         // Perform cache lookup.
-        CacheEntry entry = cache.get(hashKey);
+        probeKey.set(rel, metadataQueryName, args);
+        CacheEntry entry = cache.get(probeKey);
         if (entry != null) {
             if (timestamp == entry.timestamp) {
                 return entry.result;
@@ -96,10 +94,21 @@ public class CachingRelMetadataProvider
                 metadataQueryName,
                 args);
         if (result != null) {
-            entry = new CacheEntry();
+            if (entry == null) {
+                // The underlying provider may have re-entered this method
+                // and overwritten probeKey, so build the new key from our
+                // arguments. The caller owns args and may reuse the array,
+                // so the stored key gets its own copy.
+                CacheKey key = new CacheKey();
+                key.set(
+                    rel,
+                    metadataQueryName,
+                    (args == null) ? null : args.clone());
+                entry = new CacheEntry();
+                cache.put(key, entry);
+            }
             entry.timestamp = timestamp;
             entry.result = result;
-            cache.put(hashKey, entry);
         }
         return result;
     }
@@ -112,6 +121,48 @@ public class CachingRelMetadataProvider
 
         Object result;
     }
+
+    /**
+     * Key identifying a metadata query: the relational expression, the query
+     * name, and the query arguments. Equivalent to the list (rel, name,
+     * args...) but with the hash code computed once.
+     */
+    private static class CacheKey
+    {
+        private RelNode rel;
+        private String metadataQueryName;
+        private Object [] args;
+        private int hash;
+
+        void set(RelNode rel, String metadataQueryName, Object [] args)
+        {
+            this.rel = rel;
+            this.metadataQueryName = metadataQueryName;
+            this.args = args;
+            int h = (31 * rel.hashCode()) + metadataQueryName.hashCode();
+            if (args != null) {
+                h = (31 * h) + Arrays.hashCode(args);
+            }
+            hash = h;
+        }
+
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey that = (CacheKey) obj;
+            return (this.hash == that.hash)
+                && this.rel.equals(that.rel)
+                && this.metadataQueryName.equals(that.metadataQueryName)
+                && Arrays.equals(this.args, that.args);
+        }
+    }
 }
 
 // End CachingRelMetadataProvider.java
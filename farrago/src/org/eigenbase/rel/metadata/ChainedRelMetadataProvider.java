@@ -69,9 +69,11 @@ public class ChainedRelMetadataProvider
         String metadataQueryName,
         Object [] args)
     {
-        for (RelMetadataProvider provider : providers) {
+        // indexed loop rather than an iterator, since this is called for
+        // every metadata query made during planning
+        for (int i = 0, n = providers.size(); i < n; i++) {
             Object result =
-                provider.getRelMetadata(
+                providers.get(i).getRelMetadata(
                     rel,
                     metadataQueryName,
                     args);
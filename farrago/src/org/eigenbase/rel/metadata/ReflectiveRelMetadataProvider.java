@@ -48,6 +48,18 @@ public abstract class ReflectiveRelMetadataProvider
     private final ReflectiveVisitDispatcher<ReflectiveRelMetadataProvider,
         RelNode> visitDispatcher;
 
+    /**
+     * Dispatch table for this provider, built up as queries are made: maps
+     * each metadata query name to the methods which implement that query.
+     * Once a (query, class) pair has been seen, dispatching it again takes
+     * two hash lookups and allocates nothing, instead of going through {@link
+     * #visitDispatcher} with a freshly built key. The table belongs to this
+     * instance rather than being shared by class, so that it does not keep
+     * plugin classes (and their class loaders) reachable after the provider
+     * is discarded.
+     */
+    private final Map<String, QueryDispatch> dispatchTable;
+
     //~ Constructors -----------------------------------------------------------
 
     /**
@@ -56,6 +68,7 @@ public abstract class ReflectiveRelMetadataProvider
     protected ReflectiveRelMetadataProvider()
     {
         parameterTypeMap = new HashMap<String, List<Class>>();
+        dispatchTable = new HashMap<String, QueryDispatch>();
         visitDispatcher =
             ReflectUtil.createDispatcher(
                 ReflectiveRelMetadataProvider.class,
@@ -84,17 +97,7 @@ public abstract class ReflectiveRelMetadataProvider
         String metadataQueryName,
         Object [] args)
     {
-        List<Class> parameterTypes = parameterTypeMap.get(metadataQueryName);
-        if (parameterTypes == null) {
-            parameterTypes = Collections.emptyList();
-        }
-        Method method =
-            visitDispatcher.lookupVisitMethod(
-                getClass(),
-                rel.getClass(),
-                metadataQueryName,
-                parameterTypes);
-
+        Method method = lookupMethod(rel.getClass(), metadataQueryName);
         if (method == null) {
             return null;
         }
@@ -121,6 +124,94 @@ public abstract class ReflectiveRelMetadataProvider
             }
         }
     }
+
+    /**
+     * Finds the method implementing a metadata query for a class of
+     * relational expression, consulting the dispatch table first.
+     *
+     * @param relClass class of relational expression
+     * @param metadataQueryName name of metadata query
+     *
+     * @return implementing method, or null if this provider does not handle
+     * the query for relClass
+     */
+    protected Method lookupMethod(
+        Class<? extends RelNode> relClass,
+        String metadataQueryName)
+    {
+        List<Class> parameterTypes = parameterTypeMap.get(metadataQueryName);
+        if (parameterTypes == null) {
+            parameterTypes = Collections.emptyList();
+        }
+
+        QueryDispatch queryDispatch = dispatchTable.get(metadataQueryName);
+        if ((queryDispatch == null)
+            || !queryDispatch.parameterTypes.equals(parameterTypes))
+        {
+            // first query of this name, or the signature was remapped since
+            // the table was built
+            queryDispatch = new QueryDispatch(parameterTypes);
+            dispatchTable.put(metadataQueryName, queryDispatch);
+        } else {
+            Method method = queryDispatch.methods.get(relClass);
+            if ((method != null)
+                || queryDispatch.methods.containsKey(relClass))
+            {
+                return method;
+            }
+        }
+
+        Method method =
+            lookupMethodUncached(
+                relClass,
+                metadataQueryName,
+                parameterTypes);
+        queryDispatch.methods.put(relClass, method);
+        return method;
+    }
+
+    /**
+     * Finds the method implementing a metadata query for a class of
+     * relational expression by reflection, without consulting the dispatch
+     * table.
+     *
+     * @param relClass class of relational expression
+     * @param metadataQueryName name of metadata query
+     * @param parameterTypes argument types (beyond the overloaded rel type)
+     *
+     * @return implementing method, or null if this provider does not handle
+     * the query for relClass
+     */
+    protected Method lookupMethodUncached(
+        Class<? extends RelNode> relClass,
+        String metadataQueryName,
+        List<Class> parameterTypes)
+    {
+        return visitDispatcher.lookupVisitMethod(
+            getClass(),
+            relClass,
+            metadataQueryName,
+            parameterTypes);
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * Methods implementing one metadata query, indexed by RelNode class; a
+     * null value means the provider does not handle the query for that class.
+     */
+    private static class QueryDispatch
+    {
+        final List<Class> parameterTypes;
+
+        final Map<Class, Method> methods;
+
+        QueryDispatch(List<Class> parameterTypes)
+        {
+            this.parameterTypes = parameterTypes;
+            this.methods = new HashMap<Class, Method>();
+        }
+    }
 }
 
 // End ReflectiveRelMetadataProvider.java
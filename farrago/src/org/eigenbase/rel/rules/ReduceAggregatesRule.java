@@ -31,8 +31,9 @@ import org.eigenbase.util.*;
 
 
 /**
- * Rule to reduce aggregates to simpler forms. Currently only AVG(x) to
- * SUM(x)/COUNT(x), but eventually will handle others such as STDDEV.
+ * Rule to reduce aggregates to simpler forms. Currently AVG(x) to
+ * SUM(x)/COUNT(x), similarly STDDEV and VAR, and APPROX_COUNT_DISTINCT(x) to an
+ * estimate computed from the sketch $HLL_SKETCH(x).
  *
  * @author John V. Sichi
  * @version $Id$
@@ -61,20 +62,24 @@ public class ReduceAggregatesRule
     public void onMatch(RelOptRuleCall ruleCall)
     {
         AggregateRelBase oldAggRel = (AggregateRelBase) ruleCall.rels[0];
-        if (containsAvgStddevVarCall(oldAggRel.getAggCallList())) {
+        if (containsReducibleCall(oldAggRel.getAggCallList())) {
             reduceAggs(ruleCall, oldAggRel);
         }
     }
 
     /**
-     * Returns whether any of the aggregates are calls to AVG, STDDEV_*, VAR_*.
+     * Returns whether any of the aggregates are calls to AVG, STDDEV_*, VAR_*
+     * or APPROX_COUNT_DISTINCT.
      *
      * @param aggCallList List of aggregate calls
      */
-    private boolean containsAvgStddevVarCall(List<AggregateCall> aggCallList)
+    private boolean containsReducibleCall(List<AggregateCall> aggCallList)
     {
         for (AggregateCall call : aggCallList) {
-            if (call.getAggregation() instanceof SqlAvgAggFunction) {
+            if ((call.getAggregation() instanceof SqlAvgAggFunction)
+                || (call.getAggregation()
+                    instanceof SqlApproxCountDistinctAggFunction))
+            {
                 return true;
             }
         }
@@ -203,6 +208,14 @@ public class ReduceAggregatesRule
             default:
                 throw Util.unexpected(subtype);
             }
+        } else if (
+            oldCall.getAggregation()
+            instanceof SqlApproxCountDistinctAggFunction)
+        {
+            // replace original APPROX_COUNT_DISTINCT(x) with
+            //   $HLL_ESTIMATE($HLL_SKETCH(x))
+            return reduceApproxCountDistinct(
+                oldAggRel, oldCall, newCalls, aggCallMapping);
         } else {
             // anything else:  preserve original call
             RexBuilder rexBuilder = oldAggRel.getCluster().getRexBuilder();
@@ -215,6 +228,37 @@ public class ReduceAggregatesRule
         }
     }
 
+    private RexNode reduceApproxCountDistinct(
+        AggregateRelBase oldAggRel,
+        AggregateCall oldCall,
+        List<AggregateCall> newCalls,
+        Map<AggregateCall, RexNode> aggCallMapping)
+    {
+        final int nGroups = oldAggRel.getGroupCount();
+        RelDataTypeFactory typeFactory =
+            oldAggRel.getCluster().getTypeFactory();
+        RexBuilder rexBuilder = oldAggRel.getCluster().getRexBuilder();
+
+        // DISTINCT is implicit, so the sketch is accumulated over all rows
+        SqlAggFunction sketchAgg = SqlStdOperatorTable.hllSketchOperator;
+        AggregateCall sketchCall =
+            new AggregateCall(
+                sketchAgg,
+                false,
+                oldCall.getArgList(),
+                sketchAgg.getReturnType(typeFactory),
+                null);
+        RexNode sketchRef =
+            rexBuilder.addAggCall(
+                sketchCall,
+                nGroups,
+                newCalls,
+                aggCallMapping);
+        return rexBuilder.makeCall(
+            SqlStdOperatorTable.hllEstimateFunction,
+            sketchRef);
+    }
+
     private RexNode reduceAvg(
         AggregateRelBase oldAggRel,
         AggregateCall oldCall,
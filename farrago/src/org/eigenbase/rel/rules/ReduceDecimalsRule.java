@@ -266,6 +266,9 @@ public class ReduceDecimalsRule
             RexExpander caseExpander = new CaseExpander(rexBuilder);
             map.put(SqlStdOperatorTable.caseOperator, caseExpander);
 
+            RexExpander inListExpander = new InListExpander(rexBuilder);
+            map.put(SqlStdOperatorTable.inListOperator, inListExpander);
+
             defaultExpander = new CastArgAsDoubleExpander(rexBuilder);
         }
 
@@ -1149,6 +1152,25 @@ public class ReduceDecimalsRule
         }
     }
 
+    /**
+     * Expander that rewrites a decimal IN-list membership test into the
+     * comparisons it stands for. The comparisons are then expanded in turn,
+     * so that the test never deals with decimal arguments.
+     */
+    private class InListExpander
+        extends RexExpander
+    {
+        private InListExpander(RexBuilder rexBuilder)
+        {
+            super(rexBuilder);
+        }
+
+        public RexNode expand(RexCall call)
+        {
+            return RexUtil.expandInList(builder, call);
+        }
+    }
+
     /**
      * Expander that rewrites case expressions, in place. Starting from:
      *
@@ -22,6 +22,8 @@ import java.util.*;
 
 import org.eigenbase.rel.*;
 import org.eigenbase.relopt.*;
+import org.eigenbase.rex.*;
+import org.eigenbase.sarg.*;
 
 
 /**
@@ -72,31 +74,53 @@ public abstract class RemoveEmptyRule
                 }
                 assert newChildRels.size() < childRels.size()
                     : "planner promised us at least one EmptyRel child";
-                RelNode newRel;
-                switch (newChildRels.size()) {
-                case 0:
-                    newRel =
-                        new EmptyRel(
-                            union.getCluster(),
-                            union.getRowType());
-                    break;
-                case 1:
-                    newRel =
-                        RelOptUtil.createCastRel(
-                            newChildRels.get(0),
-                            union.getRowType(),
-                            true);
-                    break;
-                default:
-                    newRel =
-                        new UnionRel(
-                            union.getCluster(),
-                            newChildRels.toArray(
-                                new RelNode[newChildRels.size()]),
-                            !union.isDistinct());
-                    break;
+                call.transformTo(createUnion(union, newChildRels));
+            }
+        };
+
+    /**
+     * Singleton instance of rule which removes children of a {@link UnionRel}
+     * which are {@link FilterRel}s whose sargable predicates on some column
+     * can never be satisfied together.
+     *
+     * <p>Examples:
+     *
+     * <ul>
+     * <li>Union(Filter(Rel, x &gt;= 10 AND x &lt; 20 AND x = 30), Rel2)
+     * becomes Rel2
+     * </ul>
+     *
+     * <p>This prunes the branches of a UNION ALL view whose branches restrict
+     * their inputs to disjoint ranges of a column, once a query's predicate
+     * on that column has been pushed into each branch.
+     */
+    public static final RemoveEmptyRule unionFilterSargInstance =
+        new RemoveEmptyRule(
+            new RelOptRuleOperand(
+                UnionRel.class,
+                null,
+                true,
+                new RelOptRuleOperand(
+                    FilterRel.class,
+                    ANY)),
+            "UnionFilterSarg")
+        {
+            public void onMatch(RelOptRuleCall call)
+            {
+                UnionRel union = (UnionRel) call.rels[0];
+                final List<RelNode> childRels = call.getChildRels(union);
+                final List<RelNode> newChildRels = new ArrayList<RelNode>();
+                for (RelNode childRel : childRels) {
+                    if (!(childRel instanceof FilterRel)
+                        || !isEmptySarg((FilterRel) childRel))
+                    {
+                        newChildRels.add(childRel);
+                    }
+                }
+                if (newChildRels.size() == childRels.size()) {
+                    return;
                 }
-                call.transformTo(newRel);
+                call.transformTo(createUnion(union, newChildRels));
             }
         };
 
@@ -170,6 +194,73 @@ public abstract class RemoveEmptyRule
     {
         super(operand, "RemoveEmptyRule:" + desc);
     }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Creates the replacement for a union which has lost some of its inputs.
+     *
+     * @param union original union
+     * @param newChildRels remaining inputs
+     *
+     * @return replacement expression
+     */
+    private static RelNode createUnion(
+        UnionRel union,
+        List<RelNode> newChildRels)
+    {
+        switch (newChildRels.size()) {
+        case 0:
+            return new EmptyRel(
+                union.getCluster(),
+                union.getRowType());
+        case 1:
+            return RelOptUtil.createCastRel(
+                newChildRels.get(0),
+                union.getRowType(),
+                true);
+        default:
+            return new UnionRel(
+                union.getCluster(),
+                newChildRels.toArray(new RelNode[newChildRels.size()]),
+                !union.isDistinct());
+        }
+    }
+
+    /**
+     * Determines whether the sargable predicates which a filter's condition
+     * places on one of its input columns contradict each other, so that the
+     * filter can never return any rows.
+     *
+     * @param filter filter
+     *
+     * @return true if the filter is known to be empty
+     */
+    private static boolean isEmptySarg(FilterRel filter)
+    {
+        SargFactory sargFactory =
+            new SargFactory(filter.getCluster().getRexBuilder());
+        SargRexAnalyzer rexAnalyzer = sargFactory.newRexAnalyzer();
+        List<SargBinding> sargBindingList =
+            rexAnalyzer.analyzeAll(filter.getCondition());
+        for (SargBinding sargBinding : sargBindingList) {
+            SargExpr sargExpr = sargBinding.getExpr();
+
+            // Expressions over dynamic parameters can only be evaluated
+            // once the parameter values are known.
+            Set<RexDynamicParam> dynamicParams =
+                new HashSet<RexDynamicParam>();
+            sargExpr.collectDynamicParams(dynamicParams);
+            if (!dynamicParams.isEmpty()) {
+                continue;
+            }
+            SargIntervalSequence sargSeq = sargExpr.evaluate();
+            if (sargSeq.getList().isEmpty() || sargSeq.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
 
 // End RemoveEmptyRule.java
@@ -45,6 +45,13 @@ public class VolcanoPlanner
 
     protected static final double CostImprovement = .5;
 
+    /**
+     * Default importance below which rule matches are discarded once the
+     * planner is running short of budget. See {@link
+     * #setPruneImportance(double)}.
+     */
+    public static final double DEFAULT_PRUNE_IMPORTANCE = 0.1;
+
     //~ Instance fields --------------------------------------------------------
 
     protected RelSubset root;
@@ -74,6 +81,32 @@ public class VolcanoPlanner
      */
     protected boolean impatient = false;
 
+    /**
+     * Maximum number of rule matches to fire per call to {@link
+     * #findBestExp}, or 0 for no limit. The limit is only enforced once a
+     * finite-cost plan has been found.
+     */
+    private int maxRuleFirings;
+
+    /**
+     * Maximum elapsed milliseconds per call to {@link #findBestExp}, or 0 for
+     * no limit. As with {@link #maxRuleFirings}, the limit is only enforced
+     * once a finite-cost plan has been found.
+     */
+    private long maxPlanningMillis;
+
+    /**
+     * Importance below which rule matches are discarded without firing, once
+     * half of the planning budget has been used and a finite-cost plan is in
+     * hand.
+     */
+    private double pruneImportance = DEFAULT_PRUNE_IMPORTANCE;
+
+    /**
+     * Statistics from the most recent call to {@link #findBestExp}, or null.
+     */
+    private VolcanoPlannerStatistics statistics;
+
     /**
      * List of all operands of all rules. Any operand can be an 'entry point' to
      * a rule call, when a relexp is registered which matches the.
@@ -406,6 +439,74 @@ public class VolcanoPlanner
         return this;
     }
 
+    /**
+     * Limits the amount of work done by {@link #findBestExp}. Once a plan of
+     * finite cost has been found and either limit is reached, the planner
+     * stops firing rules and returns the best plan found so far. Once half of
+     * either limit is reached, rule matches of low importance are discarded
+     * rather than fired (see {@link #setPruneImportance}).
+     *
+     * @param maxRuleFirings maximum number of rule matches to fire, or 0 for
+     * no limit
+     * @param maxPlanningMillis maximum elapsed time in milliseconds, or 0 for
+     * no limit
+     */
+    public void setBudget(int maxRuleFirings, long maxPlanningMillis)
+    {
+        assert maxRuleFirings >= 0;
+        assert maxPlanningMillis >= 0;
+        this.maxRuleFirings = maxRuleFirings;
+        this.maxPlanningMillis = maxPlanningMillis;
+    }
+
+    /**
+     * Sets the importance below which rule matches are discarded when the
+     * planner is running short of budget. Has no effect unless a budget has
+     * been set via {@link #setBudget}.
+     *
+     * @param pruneImportance importance threshold, between 0 and 1
+     */
+    public void setPruneImportance(double pruneImportance)
+    {
+        this.pruneImportance = pruneImportance;
+    }
+
+    /**
+     * Returns statistics gathered by the most recent call to {@link
+     * #findBestExp}.
+     *
+     * @return planning statistics, or null if findBestExp has not been called
+     */
+    public VolcanoPlannerStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * Returns how far through the planning budget we are.
+     *
+     * @param ruleFirings rule matches fired so far
+     * @param startTime time at which planning started
+     *
+     * @return 0 if no budget is set; otherwise the larger of the fractions of
+     * the rule-firing and elapsed-time limits used up so far
+     */
+    private double getBudgetFractionUsed(int ruleFirings, long startTime)
+    {
+        double fraction = 0;
+        if (maxRuleFirings > 0) {
+            fraction = (double) ruleFirings / maxRuleFirings;
+        }
+        if (maxPlanningMillis > 0) {
+            fraction =
+                Math.max(
+                    fraction,
+                    (double) (System.currentTimeMillis() - startTime)
+                    / maxPlanningMillis);
+        }
+        return fraction;
+    }
+
     /**
      * Finds the most efficient expression to implement the query given via
      * {@link #setRoot(RelNode)}.
@@ -439,7 +540,17 @@ public class VolcanoPlanner
     public RelNode findBestExp()
     {
         int cumulativeTicks = 0;
+        int ruleFirings = 0;
+        int initialSetId = nextSetId;
+        long startTime = System.currentTimeMillis();
+        boolean budgetExhausted = false;
+        statistics = new VolcanoPlannerStatistics();
         for (VolcanoPlannerPhase phase : VolcanoPlannerPhase.values()) {
+            if (budgetExhausted) {
+                break;
+            }
+            long phaseStartTime = System.currentTimeMillis();
+            int phaseRuleFirings = 0;
             setInitialImportance();
 
             RelOptCost targetCost = makeHugeCost();
@@ -490,6 +601,17 @@ public class VolcanoPlanner
                     break;
                 }
 
+                double budgetUsed =
+                    getBudgetFractionUsed(ruleFirings, startTime);
+                if ((budgetUsed >= 1) && !root.bestCost.isInfinite()) {
+                    budgetExhausted = true;
+                    statistics.setBudgetExhausted();
+                    tracer.fine(
+                        "Planning budget exhausted after " + ruleFirings
+                        + " rule firings; using best plan so far");
+                    break;
+                }
+
                 if (tracer.isLoggable(Level.FINE)) {
                     tracer.fine(
                         "PLANNER = " + this
@@ -500,7 +622,19 @@ public class VolcanoPlanner
 
                 VolcanoRuleMatch match = ruleQueue.popMatch(phase);
                 assert match.getRule().matches(match);
+
+                // when short of budget, don't spend it exploring
+                // unimportant subsets
+                if ((budgetUsed >= 0.5)
+                    && !root.bestCost.isInfinite()
+                    && (match.computeImportance() < pruneImportance))
+                {
+                    statistics.matchPruned();
+                    continue;
+                }
                 match.onMatch();
+                ++ruleFirings;
+                ++phaseRuleFirings;
 
                 // The root may have been merged with another
                 // subset. Find the new root subset.
@@ -508,6 +642,14 @@ public class VolcanoPlanner
             }
 
             ruleQueue.phaseCompleted(phase);
+            statistics.phaseCompleted(
+                phase,
+                phaseRuleFirings,
+                System.currentTimeMillis() - phaseStartTime);
+        }
+        statistics.setSetsCreated(nextSetId - initialSetId);
+        if (tracer.isLoggable(Level.FINE)) {
+            tracer.fine("Planner statistics: " + statistics);
         }
         if (tracer.isLoggable(Level.FINER)) {
             StringWriter sw = new StringWriter();
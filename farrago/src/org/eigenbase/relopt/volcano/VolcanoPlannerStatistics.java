@@ -0,0 +1,144 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package org.eigenbase.relopt.volcano;
+
+import java.util.*;
+
+
+/**
+ * VolcanoPlannerStatistics records how much work a {@link VolcanoPlanner} did
+ * during a call to {@link VolcanoPlanner#findBestExp}: rule matches fired and
+ * pruned, equivalence sets created, and time spent in each {@link
+ * VolcanoPlannerPhase}.
+ *
+ * @version $Id$
+ */
+public class VolcanoPlannerStatistics
+{
+    //~ Instance fields --------------------------------------------------------
+
+    private final Map<VolcanoPlannerPhase, Integer> phaseRuleFirings =
+        new EnumMap<VolcanoPlannerPhase, Integer>(VolcanoPlannerPhase.class);
+    private final Map<VolcanoPlannerPhase, Long> phaseMillis =
+        new EnumMap<VolcanoPlannerPhase, Long>(VolcanoPlannerPhase.class);
+    private int ruleFirings;
+    private int prunedMatches;
+    private int setsCreated;
+    private boolean budgetExhausted;
+
+    //~ Methods ----------------------------------------------------------------
+
+    void phaseCompleted(
+        VolcanoPlannerPhase phase,
+        int firings,
+        long millis)
+    {
+        phaseRuleFirings.put(phase, firings);
+        phaseMillis.put(phase, millis);
+        ruleFirings += firings;
+    }
+
+    void matchPruned()
+    {
+        ++prunedMatches;
+    }
+
+    void setSetsCreated(int setsCreated)
+    {
+        this.setsCreated = setsCreated;
+    }
+
+    void setBudgetExhausted()
+    {
+        budgetExhausted = true;
+    }
+
+    /**
+     * @return total number of rule matches fired, over all phases
+     */
+    public int getRuleFirings()
+    {
+        return ruleFirings;
+    }
+
+    /**
+     * @return number of rule matches fired during a phase, or 0 if the phase
+     * was not run
+     */
+    public int getRuleFirings(VolcanoPlannerPhase phase)
+    {
+        Integer firings = phaseRuleFirings.get(phase);
+        return (firings == null) ? 0 : firings;
+    }
+
+    /**
+     * @return elapsed milliseconds spent in a phase, or 0 if the phase was
+     * not run
+     */
+    public long getMillis(VolcanoPlannerPhase phase)
+    {
+        Long millis = phaseMillis.get(phase);
+        return (millis == null) ? 0 : millis;
+    }
+
+    /**
+     * @return number of rule matches discarded without firing because their
+     * importance was too low
+     */
+    public int getPrunedMatches()
+    {
+        return prunedMatches;
+    }
+
+    /**
+     * @return number of equivalence sets ({@link RelSet}s) created
+     */
+    public int getSetsCreated()
+    {
+        return setsCreated;
+    }
+
+    /**
+     * @return whether planning stopped early because the planning budget was
+     * used up
+     */
+    public boolean isBudgetExhausted()
+    {
+        return budgetExhausted;
+    }
+
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("rules fired=").append(ruleFirings);
+        sb.append(", pruned=").append(prunedMatches);
+        sb.append(", sets=").append(setsCreated);
+        if (budgetExhausted) {
+            sb.append(", budget exhausted");
+        }
+        for (VolcanoPlannerPhase phase : phaseRuleFirings.keySet()) {
+            sb.append(", ").append(phase).append("=");
+            sb.append(getRuleFirings(phase)).append(" fired/");
+            sb.append(getMillis(phase)).append(" ms");
+        }
+        return sb.toString();
+    }
+}
+
+// End VolcanoPlannerStatistics.java
@@ -127,6 +127,65 @@ public class VolcanoPlannerTest
         assertTrue(result instanceof PhysSingleRel);
     }
 
+    /**
+     * Tests that a planning budget stops an ambitious planner as soon as it
+     * has an implementable plan, and that planning statistics record it.
+     */
+    public void testBudget()
+    {
+        VolcanoPlanner unlimitedPlanner = new VolcanoPlanner();
+        RelNode unlimitedResult = planSingleOverLeaf(unlimitedPlanner);
+        VolcanoPlannerStatistics unlimitedStatistics =
+            unlimitedPlanner.getStatistics();
+        assertNotNull(unlimitedStatistics);
+        assertFalse(unlimitedStatistics.isBudgetExhausted());
+
+        // without a budget, the planner goes on to remove the single (as in
+        // testRemoveSingleGood)
+        assertTrue(unlimitedResult instanceof PhysLeafRel);
+
+        VolcanoPlanner planner = new VolcanoPlanner();
+        planner.setBudget(1, 0);
+        RelNode result = planSingleOverLeaf(planner);
+        VolcanoPlannerStatistics statistics = planner.getStatistics();
+        assertNotNull(statistics);
+        assertTrue(statistics.isBudgetExhausted());
+
+        // the budget is not enforced until a finite plan exists, so the
+        // leaf and single rules fire; the match which would remove the single
+        // is left unfired
+        assertTrue(result instanceof PhysSingleRel);
+        assertEquals(2, statistics.getRuleFirings());
+        assertTrue(
+            statistics.getRuleFirings()
+            < unlimitedStatistics.getRuleFirings());
+    }
+
+    private RelNode planSingleOverLeaf(VolcanoPlanner planner)
+    {
+        planner.ambitious = true;
+        planner.addRelTraitDef(CallingConventionTraitDef.instance);
+
+        planner.addRule(new PhysLeafRule());
+        planner.addRule(new GoodSingleRule());
+        planner.addRule(new GoodRemoveSingleRule());
+
+        NoneLeafRel leafRel =
+            new NoneLeafRel(
+                newCluster(planner),
+                "a");
+        NoneSingleRel singleRel =
+            new NoneSingleRel(
+                leafRel.getCluster(),
+                leafRel);
+        RelNode convertedRel =
+            planner.changeTraits(
+                singleRel,
+                new RelTraitSet(PHYS_CALLING_CONVENTION));
+        planner.setRoot(convertedRel);
+        return planner.chooseDelegate().findBestExp();
+    }
+
     /**
      * Tests transformation of a single+leaf from NONE to PHYS. In the past,
      * this one didn't work due to the definition of ReformedSingleRule.
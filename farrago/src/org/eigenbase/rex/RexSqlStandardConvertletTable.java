@@ -78,6 +78,7 @@ public class RexSqlStandardConvertletTable
         registerEquivOp(SqlStdOperatorTable.prefixPlusOperator);
 
         registerCaseOp(SqlStdOperatorTable.caseOperator);
+        registerInListOp(SqlStdOperatorTable.inListOperator);
         registerEquivOp(SqlStdOperatorTable.concatOperator);
 
         registerEquivOp(SqlStdOperatorTable.betweenOperator);
@@ -231,6 +232,38 @@ public class RexSqlStandardConvertletTable
             });
     }
 
+    /**
+     * Creates and registers a convertlet for the internal IN list operator,
+     * which is written as a standard IN in SQL.
+     *
+     * @param op instance of IN list operator
+     */
+    private void registerInListOp(final SqlOperator op)
+    {
+        registerOp(
+            op,
+            new RexSqlConvertlet() {
+                public SqlNode convertCall(
+                    RexToSqlNodeConverter converter,
+                    RexCall call)
+                {
+                    SqlNode [] operands =
+                        convertExpressionList(converter, call.operands);
+                    if (operands == null) {
+                        return null;
+                    }
+                    SqlNodeList valueList = new SqlNodeList(SqlParserPos.ZERO);
+                    for (int i = 1; i < operands.length; i++) {
+                        valueList.add(operands[i]);
+                    }
+                    return SqlStdOperatorTable.inOperator.createCall(
+                        SqlParserPos.ZERO,
+                        operands[0],
+                        valueList);
+                }
+            });
+    }
+
     /**
      * Creates and registers a convertlet for the CASE operator,
      * which takes different forms for SQL vs Rex.
@@ -850,6 +850,111 @@ public class RexUtil
         return orExpr;
     }
 
+    /**
+     * Expands a call to {@link SqlStdOperatorTable#inListOperator} into
+     * standard comparisons, for translators with no more direct way to
+     * implement it.
+     *
+     * <p>If the values can be ordered (numeric and datetime types), the
+     * result is a balanced tree of CASE expressions which, like a binary
+     * search, compares the operand with only O(log n) of the values before
+     * testing a few for equality. Otherwise it is a chain of ORs.
+     *
+     * @param rexBuilder builder for new expressions
+     * @param call call to expand
+     *
+     * @return equivalent expression
+     */
+    public static RexNode expandInList(
+        RexBuilder rexBuilder,
+        RexCall call)
+    {
+        assert (call.getOperator() == SqlStdOperatorTable.inListOperator);
+        RexNode operand = call.operands[0];
+        List<RexLiteral> values = new ArrayList<RexLiteral>();
+        boolean ordered =
+            SqlTypeUtil.isNumeric(operand.getType())
+            || SqlTypeUtil.isDatetime(operand.getType());
+        for (int i = 1; i < call.operands.length; i++) {
+            RexLiteral value = (RexLiteral) call.operands[i];
+            if (!(value.getValue() instanceof Comparable)) {
+                ordered = false;
+            }
+            values.add(value);
+        }
+        if (ordered) {
+            try {
+                Collections.sort(
+                    values,
+                    new Comparator<RexLiteral>() {
+                        public int compare(RexLiteral v1, RexLiteral v2)
+                        {
+                            return ((Comparable) v1.getValue()).compareTo(
+                                v2.getValue());
+                        }
+                    });
+            } catch (ClassCastException ex) {
+                // values of mixed representations; can't search them
+                ordered = false;
+            }
+        }
+        if (!ordered) {
+            return makeInListDisjunction(
+                rexBuilder,
+                operand,
+                values);
+        }
+        return makeInListSearch(rexBuilder, operand, values);
+    }
+
+    private static RexNode makeInListSearch(
+        RexBuilder rexBuilder,
+        RexNode operand,
+        List<RexLiteral> sortedValues)
+    {
+        // below this size, testing each value is cheaper than dividing
+        // further
+        final int leafSize = 4;
+        int n = sortedValues.size();
+        if (n <= leafSize) {
+            return makeInListDisjunction(rexBuilder, operand, sortedValues);
+        }
+        int mid = n / 2;
+
+        // a null operand fails the comparison, and comes out null at the
+        // leaf it falls through to, just as for the chain of ORs
+        return rexBuilder.makeCall(
+            SqlStdOperatorTable.caseOperator,
+            rexBuilder.makeCall(
+                SqlStdOperatorTable.lessThanOperator,
+                operand,
+                sortedValues.get(mid)),
+            makeInListSearch(
+                rexBuilder,
+                operand,
+                sortedValues.subList(0, mid)),
+            makeInListSearch(
+                rexBuilder,
+                operand,
+                sortedValues.subList(mid, n)));
+    }
+
+    private static RexNode makeInListDisjunction(
+        RexBuilder rexBuilder,
+        RexNode operand,
+        List<RexLiteral> values)
+    {
+        List<RexNode> comparisons = new ArrayList<RexNode>();
+        for (RexLiteral value : values) {
+            comparisons.add(
+                rexBuilder.makeCall(
+                    SqlStdOperatorTable.equalsOperator,
+                    operand,
+                    value));
+        }
+        return orRexNodeList(rexBuilder, comparisons);
+    }
+
     //~ Inner Classes ----------------------------------------------------------
 
     /**
@@ -0,0 +1,171 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package org.eigenbase.runtime;
+
+/**
+ * <code>BatchCalcTupleIter</code> is an abstract base for batch-at-a-time
+ * iterator implementations generated by {@link
+ * org.eigenbase.oj.rel.IterCalcRel}.
+ *
+ * <p>Instead of evaluating the calculator program once per call to {@link
+ * #fetchNext}, the generated {@link #fillBatch} method runs a tight loop
+ * over up to {@link #getBatchSize} input rows, writing each qualifying row
+ * into its own slot of a preallocated array of output rows. Subsequent calls
+ * to <code>fetchNext</code> then simply hand out the buffered rows. This keeps
+ * the per-row work inside a single generated method (which the JIT can
+ * compile as a loop) and avoids a virtual call per row through the calc.
+ *
+ * <p>Because output rows stay buffered while the input iterator advances,
+ * batch mode is only valid for programs whose output fields do not alias
+ * storage owned by the input row (see {@link
+ * org.eigenbase.oj.rel.IterCalcRel#isBatchable}).
+ *
+ * @version $Id$
+ */
+public abstract class BatchCalcTupleIter
+    extends CalcTupleIter
+{
+    //~ Instance fields --------------------------------------------------------
+
+    private final int batchSize;
+
+    private Object [] batch;
+
+    private int batchCount;
+
+    private int batchPos;
+
+    /**
+     * Reason returned by the input iterator which terminated the last batch
+     * early, or null if the last batch was filled completely.
+     */
+    private Object pendingReason;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Constructor.
+     *
+     * @param inputIterator iterator producing results to be transformed
+     * @param batchSize maximum number of output rows buffered per batch
+     */
+    protected BatchCalcTupleIter(TupleIter inputIterator, int batchSize)
+    {
+        super(inputIterator);
+        assert batchSize > 0;
+        this.batchSize = batchSize;
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Allocates a new output row. Called once per batch slot, the first time
+     * a batch is filled.
+     *
+     * @return new output row object
+     */
+    protected abstract Object newOutputRow();
+
+    /**
+     * Evaluates the calculator program over input rows until either {@link
+     * #getBatchSize} output rows have been produced or the input iterator
+     * returns a {@link TupleIter.NoDataReason}, in which case the generated
+     * code calls {@link #endBatch}.
+     *
+     * @return number of output rows written via {@link #getBatchRow}
+     */
+    protected abstract int fillBatch();
+
+    /**
+     * @return maximum number of output rows buffered per batch
+     */
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    /**
+     * Returns the output row object for a given batch slot. Generated code
+     * assigns projected values into the fields of this object.
+     *
+     * @param i slot ordinal, 0 &lt;= i &lt; batch size
+     *
+     * @return output row for slot
+     */
+    protected final Object getBatchRow(int i)
+    {
+        return batch[i];
+    }
+
+    /**
+     * Records that the input was exhausted (or underflowed) while filling a
+     * batch. Called by generated code.
+     *
+     * @param count number of output rows produced so far in this batch
+     * @param reason {@link TupleIter.NoDataReason} returned by the input
+     *
+     * @return count
+     */
+    protected final int endBatch(int count, Object reason)
+    {
+        pendingReason = reason;
+        return count;
+    }
+
+    // implement TupleIter
+    public Object fetchNext()
+    {
+        if (batchPos < batchCount) {
+            return batch[batchPos++];
+        }
+        if (pendingReason != null) {
+            // Report the condition which cut the previous batch short.  After
+            // an UNDERFLOW the caller may come back, so clear it.
+            Object reason = pendingReason;
+            pendingReason = null;
+            return reason;
+        }
+        if (batch == null) {
+            batch = new Object[batchSize];
+            for (int i = 0; i < batchSize; ++i) {
+                batch[i] = newOutputRow();
+            }
+        }
+        batchPos = 0;
+        batchCount = fillBatch();
+        if (batchCount > 0) {
+            return batch[batchPos++];
+        }
+        assert pendingReason != null;
+        Object reason = pendingReason;
+        pendingReason = null;
+        return reason;
+    }
+
+    // implement TupleIter
+    public void restart()
+    {
+        batchCount = 0;
+        batchPos = 0;
+        pendingReason = null;
+        super.restart();
+    }
+}
+
+// End BatchCalcTupleIter.java
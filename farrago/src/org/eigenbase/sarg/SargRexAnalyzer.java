@@ -683,6 +683,13 @@ public class SargRexAnalyzer
 
         public Void visitCall(RexCall call)
         {
+            if (!simpleMode
+                && (call.getOperator() == SqlStdOperatorTable.inListOperator))
+            {
+                visitInList(call);
+                return null;
+            }
+
             CallConvertlet convertlet = convertletMap.get(call.getOperator());
             if (convertlet == null) {
                 failed = true;
@@ -696,6 +703,51 @@ public class SargRexAnalyzer
             return null;
         }
 
+        /**
+         * Converts a membership test into a union of points. The leaf state
+         * only has room for one coordinate, so unlike the other calls this
+         * one is converted without visiting the values as coordinates. Null
+         * values are skipped, since no row can match them; the analysis fails
+         * if only null values remain.
+         */
+        private void visitInList(RexCall call)
+        {
+            if (variableSeen || (coordinate != null)) {
+                failed = true;
+                return;
+            }
+            call.operands[0].accept(this);
+            if (failed || !variableSeen || (coordinate != null)) {
+                failed = true;
+                return;
+            }
+
+            SargSetExpr expr =
+                factory.newSetExpr(
+                    boundInputRef.getType(),
+                    SargSetOperator.UNION);
+            for (int i = 1; i < call.operands.length; i++) {
+                if (!(call.operands[i] instanceof RexLiteral)) {
+                    failed = true;
+                    return;
+                }
+                if (RexLiteral.isNullLiteral(call.operands[i])) {
+                    continue;
+                }
+                SargIntervalExpr point =
+                    factory.newIntervalExpr(boundInputRef.getType());
+                point.setPoint(call.operands[i]);
+                expr.addChild(point);
+            }
+            if (expr.getChildren().isEmpty()) {
+                failed = true;
+                return;
+            }
+            exprStack.add(expr);
+
+            clearLeaf();
+        }
+
         public Void visitDynamicParam(RexDynamicParam dynamicParam)
         {
             if (simpleMode) {
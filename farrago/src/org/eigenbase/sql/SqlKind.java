@@ -334,6 +334,21 @@ public enum SqlKind
      */
     FOLLOWING,
 
+    /**
+     * ROLLUP, which occurs within a GROUP BY clause.
+     */
+    ROLLUP,
+
+    /**
+     * CUBE, which occurs within a GROUP BY clause.
+     */
+    CUBE,
+
+    /**
+     * GROUPING SETS, which occurs within a GROUP BY clause.
+     */
+    GROUPING_SETS,
+
     // functions
 
     /**
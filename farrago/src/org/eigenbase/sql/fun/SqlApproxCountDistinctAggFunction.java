@@ -0,0 +1,69 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package org.eigenbase.sql.fun;
+
+import org.eigenbase.reltype.*;
+import org.eigenbase.sql.*;
+import org.eigenbase.sql.type.*;
+
+
+/**
+ * Definition of the <code>APPROX_COUNT_DISTINCT</code> aggregate function.
+ *
+ * <p><code>APPROX_COUNT_DISTINCT(x)</code> estimates the number of distinct
+ * non-null values of <code>x</code>, as <code>COUNT(DISTINCT x)</code> would
+ * return, using a fixed amount of memory per group. The planner rewrites it
+ * (see {@link org.eigenbase.rel.rules.ReduceAggregatesRule}) to a call to
+ * {@link SqlStdOperatorTable#hllEstimateFunction} applied to the sketch
+ * accumulated by {@link SqlStdOperatorTable#hllSketchOperator}.
+ *
+ * @version $Id$
+ */
+public class SqlApproxCountDistinctAggFunction
+    extends SqlAggFunction
+{
+    //~ Constructors -----------------------------------------------------------
+
+    public SqlApproxCountDistinctAggFunction()
+    {
+        super(
+            "APPROX_COUNT_DISTINCT",
+            SqlKind.OTHER_FUNCTION,
+            SqlTypeStrategies.rtiBigint,
+            null,
+            SqlTypeStrategies.otcAny,
+            SqlFunctionCategory.Numeric);
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    public RelDataType [] getParameterTypes(RelDataTypeFactory typeFactory)
+    {
+        return new RelDataType[] {
+                typeFactory.createSqlType(SqlTypeName.ANY)
+            };
+    }
+
+    public RelDataType getReturnType(RelDataTypeFactory typeFactory)
+    {
+        return typeFactory.createSqlType(SqlTypeName.BIGINT);
+    }
+}
+
+// End SqlApproxCountDistinctAggFunction.java
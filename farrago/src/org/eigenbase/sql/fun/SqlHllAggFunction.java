@@ -0,0 +1,102 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package org.eigenbase.sql.fun;
+
+import org.eigenbase.reltype.*;
+import org.eigenbase.sql.*;
+import org.eigenbase.sql.type.*;
+
+
+/**
+ * Definition of the internal aggregate functions which accumulate a
+ * HyperLogLog sketch, a fixed-size summary of a set of values from which the
+ * number of distinct values can be estimated.
+ *
+ * <p><code>$HLL_SKETCH(x)</code> returns the sketch of the non-null values of
+ * <code>x</code>. <code>$HLL_MERGE(s)</code> returns the sketch of the union
+ * of the sets summarized by sketches <code>s</code>; merging is exact, so
+ * sketches computed over partitions of the input can be combined in any order.
+ * Both return a <code>BINARY({@link #SKETCH_BYTES})</code> value which is
+ * never null; the sketch of an empty set estimates zero.
+ *
+ * <p>The layout of the sketch is shared with Fennel's HllAggComputer, which
+ * accumulates it, and with Farrago's runtime, which computes the estimate.
+ *
+ * @version $Id$
+ */
+public class SqlHllAggFunction
+    extends SqlAggFunction
+{
+    //~ Static fields/initializers ---------------------------------------------
+
+    /**
+     * Number of bytes in a sketch. Each byte is one register, and the standard
+     * error of the estimate is 1.04 / sqrt(SKETCH_BYTES), about 3%.
+     */
+    public static final int SKETCH_BYTES = 1024;
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final boolean merge;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a SqlHllAggFunction.
+     *
+     * @param merge Whether the operand is a sketch to be merged (as for
+     * <code>$HLL_MERGE</code>), as opposed to a value to be counted
+     */
+    public SqlHllAggFunction(boolean merge)
+    {
+        super(
+            merge ? "$HLL_MERGE" : "$HLL_SKETCH",
+            SqlKind.OTHER_FUNCTION,
+            new ExplicitReturnTypeInference(SqlTypeName.BINARY, SKETCH_BYTES),
+            null,
+            merge ? SqlTypeStrategies.otcBinary : SqlTypeStrategies.otcAny,
+            SqlFunctionCategory.System);
+        this.merge = merge;
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * @return whether the operand is a sketch to be merged
+     */
+    public boolean isMerge()
+    {
+        return merge;
+    }
+
+    public RelDataType [] getParameterTypes(RelDataTypeFactory typeFactory)
+    {
+        return new RelDataType[] {
+                merge ? getReturnType(typeFactory)
+                : typeFactory.createSqlType(SqlTypeName.ANY)
+            };
+    }
+
+    public RelDataType getReturnType(RelDataTypeFactory typeFactory)
+    {
+        return typeFactory.createSqlType(SqlTypeName.BINARY, SKETCH_BYTES);
+    }
+}
+
+// End SqlHllAggFunction.java
@@ -0,0 +1,76 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package org.eigenbase.sql.fun;
+
+import org.eigenbase.sql.*;
+import org.eigenbase.sql.type.*;
+
+
+/**
+ * An internal operator which tests whether its first operand is equal to any
+ * of the remaining operands, all of which are literals.
+ *
+ * <p>It is what <code>x IN (v1, v2, ...)</code> turns into for long lists of
+ * literals, in place of a chain of ORs or a join against an inline table.
+ * Keeping the list as one expression lets the calculator translators
+ * implement it as a search over the sorted values, and lets sarg analysis
+ * turn it into a union of points for an index search.
+ *
+ * @version $Id$
+ */
+public class SqlInListOperator
+    extends SqlInternalOperator
+{
+    //~ Constructors -----------------------------------------------------------
+
+    public SqlInListOperator()
+    {
+        super(
+            "$IN",
+            SqlKind.OTHER,
+            30,
+            true,
+            SqlTypeStrategies.rtiNullableBoolean,
+            null,
+            null);
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    public SqlOperandCountRange getOperandCountRange()
+    {
+        return SqlOperandCountRange.Variadic;
+    }
+
+    public void unparse(
+        SqlWriter writer,
+        SqlNode [] operands,
+        int leftPrec,
+        int rightPrec)
+    {
+        final SqlWriter.Frame frame = writer.startFunCall(getName());
+        for (SqlNode operand : operands) {
+            writer.sep(",");
+            operand.unparse(writer, 0, 0);
+        }
+        writer.endFunCall(frame);
+    }
+}
+
+// End SqlInListOperator.java
@@ -0,0 +1,87 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package org.eigenbase.sql.fun;
+
+import org.eigenbase.sql.*;
+
+
+/**
+ * Operator which occurs within a <code>GROUP BY</code> clause to denote
+ * several grouping sets at once: <code>ROLLUP</code>, <code>CUBE</code> or
+ * <code>GROUPING SETS</code>.
+ *
+ * <p>The operands of <code>ROLLUP</code> and <code>CUBE</code> are
+ * expressions. Each operand of <code>GROUPING SETS</code> is an expression, a
+ * call to {@link SqlStdOperatorTable#rowConstructor} representing a
+ * parenthesized list of expressions, an empty {@link SqlNodeList}
+ * representing the empty grouping set <code>()</code>, or a nested call to
+ * one of these operators.
+ *
+ * @version $Id$
+ * @see org.eigenbase.sql.validate.SqlValidatorUtil#analyzeGroupList
+ */
+public class SqlRollupOperator
+    extends SqlInternalOperator
+{
+    //~ Constructors -----------------------------------------------------------
+
+    public SqlRollupOperator(String name, SqlKind kind)
+    {
+        super(name, kind);
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    public void unparse(
+        SqlWriter writer,
+        SqlNode [] operands,
+        int leftPrec,
+        int rightPrec)
+    {
+        writer.keyword(getName());
+        final SqlWriter.Frame frame =
+            writer.startList(SqlWriter.FrameTypeEnum.FunCall, "(", ")");
+        for (SqlNode operand : operands) {
+            writer.sep(",");
+            if (operand instanceof SqlNodeList) {
+                unparseSet(writer, ((SqlNodeList) operand).toArray());
+            } else if (SqlUtil.isCallTo(
+                    operand,
+                    SqlStdOperatorTable.rowConstructor))
+            {
+                unparseSet(writer, ((SqlCall) operand).getOperands());
+            } else {
+                operand.unparse(writer, 0, 0);
+            }
+        }
+        writer.endList(frame);
+    }
+
+    private void unparseSet(SqlWriter writer, SqlNode [] nodes)
+    {
+        final SqlWriter.Frame frame = writer.startList("(", ")");
+        for (SqlNode node : nodes) {
+            writer.sep(",");
+            node.unparse(writer, 0, 0);
+        }
+        writer.endList(frame);
+    }
+}
+
+// End SqlRollupOperator.java
@@ -651,6 +651,39 @@ public class SqlStdOperatorTable
     public static final SqlAggFunction varSampOperator =
         new SqlAvgAggFunction(null, SqlAvgAggFunction.Subtype.VAR_SAMP);
 
+    /**
+     * <code>APPROX_COUNT_DISTINCT</code> aggregate function.
+     */
+    public static final SqlAggFunction approxCountDistinctOperator =
+        new SqlApproxCountDistinctAggFunction();
+
+    /**
+     * <code>$HLL_SKETCH</code> aggregate function, which accumulates the
+     * sketch used to implement <code>APPROX_COUNT_DISTINCT</code>.
+     */
+    public static final SqlAggFunction hllSketchOperator =
+        new SqlHllAggFunction(false);
+
+    /**
+     * <code>$HLL_MERGE</code> aggregate function, which combines sketches
+     * accumulated by <code>$HLL_SKETCH</code>.
+     */
+    public static final SqlAggFunction hllMergeOperator =
+        new SqlHllAggFunction(true);
+
+    /**
+     * <code>$HLL_ESTIMATE</code> function, which estimates the number of
+     * distinct values summarized by a sketch.
+     */
+    public static final SqlFunction hllEstimateFunction =
+        new SqlFunction(
+            "$HLL_ESTIMATE",
+            SqlKind.OTHER_FUNCTION,
+            SqlTypeStrategies.rtiBigint,
+            null,
+            SqlTypeStrategies.otcBinary,
+            SqlFunctionCategory.System);
+
     //-------------------------------------------------------------
     // WINDOW Aggregate Functions
     //-------------------------------------------------------------
@@ -833,6 +866,34 @@ public class SqlStdOperatorTable
     public static final SqlInternalOperator throwOperator =
         new SqlThrowOperator();
 
+    /**
+     * Internal operator testing membership of a value in a long list of
+     * literals; see {@link SqlInListOperator}.
+     */
+    public static final SqlInListOperator inListOperator =
+        new SqlInListOperator();
+
+    /**
+     * <code>ROLLUP</code> operator, which occurs within a <code>GROUP
+     * BY</code> clause.
+     */
+    public static final SqlRollupOperator rollupOperator =
+        new SqlRollupOperator("ROLLUP", SqlKind.ROLLUP);
+
+    /**
+     * <code>CUBE</code> operator, which occurs within a <code>GROUP BY</code>
+     * clause.
+     */
+    public static final SqlRollupOperator cubeOperator =
+        new SqlRollupOperator("CUBE", SqlKind.CUBE);
+
+    /**
+     * <code>GROUPING SETS</code> operator, which occurs within a <code>GROUP
+     * BY</code> clause.
+     */
+    public static final SqlRollupOperator groupingSetsOperator =
+        new SqlRollupOperator("GROUPING SETS", SqlKind.GROUPING_SETS);
+
     public static final SqlBetweenOperator betweenOperator =
         new SqlBetweenOperator(
             SqlBetweenOperator.Flag.ASYMMETRIC,
@@ -762,6 +762,57 @@ public class SqlParserTest
                 }));
     }
 
+    public void testGroupRollupCube()
+    {
+        check(
+            "select deptno, gender, sum(sal) from emp"
+            + " group by rollup(deptno, gender)",
+            TestUtil.fold(
+                new String[] {
+                    "SELECT `DEPTNO`, `GENDER`, SUM(`SAL`)",
+                    "FROM `EMP`",
+                    "GROUP BY ROLLUP(`DEPTNO`, `GENDER`)"
+                }));
+
+        check(
+            "select deptno, gender, count(*) from emp"
+            + " group by empno, cube(deptno, gender)",
+            TestUtil.fold(
+                new String[] {
+                    "SELECT `DEPTNO`, `GENDER`, COUNT(*)",
+                    "FROM `EMP`",
+                    "GROUP BY `EMPNO`, CUBE(`DEPTNO`, `GENDER`)"
+                }));
+    }
+
+    public void testGroupingSets()
+    {
+        check(
+            "select deptno, gender from emp"
+            + " group by grouping sets ((deptno, gender), deptno, ())",
+            TestUtil.fold(
+                new String[] {
+                    "SELECT `DEPTNO`, `GENDER`",
+                    "FROM `EMP`",
+                    "GROUP BY GROUPING SETS((`DEPTNO`, `GENDER`), `DEPTNO`, ())"
+                }));
+
+        check(
+            "select deptno from emp"
+            + " group by grouping sets (rollup(deptno, gender))",
+            TestUtil.fold(
+                new String[] {
+                    "SELECT `DEPTNO`",
+                    "FROM `EMP`",
+                    "GROUP BY GROUPING SETS(ROLLUP(`DEPTNO`, `GENDER`))"
+                }));
+
+        // the empty grouping set is only allowed within GROUPING SETS
+        checkFails(
+            "select 1 from emp group by rollup(deptno, (^)^)",
+            "(?s)Encountered \"\\)\" at .*");
+    }
+
     public void testHavingAfterGroup()
     {
         check(
@@ -4164,6 +4164,38 @@ public abstract class SqlOperatorTests
             (double) 0);
     }
 
+    public void testApproxCountDistinctFunc()
+    {
+        getTester().setFor(
+            SqlStdOperatorTable.approxCountDistinctOperator,
+            VM_EXPAND);
+        getTester().checkType("approx_count_distinct(1)", "BIGINT NOT NULL");
+        getTester().checkType(
+            "approx_count_distinct('name')",
+            "BIGINT NOT NULL");
+        getTester().checkFails(
+            "^APPROX_COUNT_DISTINCT()^",
+            "Invalid number of arguments to function 'APPROX_COUNT_DISTINCT'. Was expecting 1 arguments",
+            false);
+
+        // for so few values, the estimate is exact
+        final String [] values = { "0", "CAST(null AS INTEGER)", "1", "0" };
+        getTester().checkAgg(
+            "APPROX_COUNT_DISTINCT(x)",
+            values,
+            2,
+            (double) 0);
+        final String [] stringValues =
+        {
+            "'a'", "CAST(NULL AS VARCHAR(1))", "''", "'b'", "'a'"
+        };
+        getTester().checkAgg(
+            "APPROX_COUNT_DISTINCT(x)",
+            stringValues,
+            3,
+            (double) 0);
+    }
+
     public void testSumFunc()
     {
         getTester().setFor(SqlStdOperatorTable.sumOperator, VM_EXPAND);
@@ -20,6 +20,7 @@ package org.eigenbase.sql.validate;
 
 import java.util.*;
 
+import org.eigenbase.reltype.*;
 import org.eigenbase.sql.*;
 import org.eigenbase.sql.fun.*;
 
@@ -45,6 +46,12 @@ public class AggregatingSelectScope
     private final boolean distinct;
     private final List<SqlNode> groupExprList;
 
+    /**
+     * Grouping expressions which are absent from at least one grouping set,
+     * and are therefore NULL in some rows.
+     */
+    private final List<SqlNode> nullableGroupExprList;
+
     //~ Constructors -----------------------------------------------------------
 
     /**
@@ -65,16 +72,32 @@ public class AggregatingSelectScope
         super(selectScope);
         this.select = select;
         this.distinct = distinct;
+        this.nullableGroupExprList = new ArrayList<SqlNode>();
         if (distinct) {
             groupExprList = null;
         } else if (select.getGroup() != null) {
             // We deep-copy the group-list in case subsequent validation
             // modifies it and makes it no longer equivalent. While copying,
-            // we fully qualify all identifiers.
-            SqlNodeList sqlNodeList =
-                (SqlNodeList) this.select.getGroup().accept(
-                    new SqlValidatorUtil.DeepCopier(parent));
-            this.groupExprList = sqlNodeList.getList();
+            // we fully qualify all identifiers. ROLLUP, CUBE and GROUPING
+            // SETS are flattened into the expressions they group on.
+            List<SqlNode> groupExprs = new ArrayList<SqlNode>();
+            List<BitSet> groupingSets =
+                SqlValidatorUtil.analyzeGroupList(
+                    this.select.getGroup(),
+                    groupExprs);
+            this.groupExprList = new ArrayList<SqlNode>();
+            for (int i = 0; i < groupExprs.size(); i++) {
+                SqlNode groupExpr =
+                    groupExprs.get(i).accept(
+                        new SqlValidatorUtil.DeepCopier(parent));
+                groupExprList.add(groupExpr);
+                for (BitSet groupingSet : groupingSets) {
+                    if (!groupingSet.get(i)) {
+                        nullableGroupExprList.add(groupExpr);
+                        break;
+                    }
+                }
+            }
         } else {
             groupExprList = null;
         }
@@ -202,6 +225,38 @@ public class AggregatingSelectScope
     {
         groupExprList.add(expr);
     }
+
+    /**
+     * Adjusts the type of an expression for grouping sets. A grouping
+     * expression which is absent from some grouping set is NULL in the rows
+     * for that set, so its type is nullable even if its operands are not.
+     *
+     * @param expr Expression
+     * @param type Type of the expression, ignoring grouping sets
+     *
+     * @return Type of the expression in this scope
+     */
+    RelDataType adjustGroupExprType(SqlNode expr, RelDataType type)
+    {
+        if (nullableGroupExprList.isEmpty() || type.isNullable()) {
+            return type;
+        }
+        if (expr instanceof SqlIdentifier) {
+            SqlIdentifier id = (SqlIdentifier) expr;
+            if (SqlUtil.makeCall(validator.getOperatorTable(), id) != null) {
+                return type;
+            }
+            expr = fullyQualify(id);
+        }
+        for (SqlNode groupExpr : nullableGroupExprList) {
+            if (groupExpr.equalsDeep(expr, false)) {
+                return validator.getTypeFactory().createTypeWithNullability(
+                    type,
+                    true);
+            }
+        }
+        return type;
+    }
 }
 
 // End AggregatingSelectScope.java
@@ -1505,7 +1505,14 @@ public class SqlValidatorImpl
         SqlNode operand)
     {
         DeriveTypeVisitor v = new DeriveTypeVisitor(scope);
-        return operand.accept(v);
+        RelDataType type = operand.accept(v);
+        if (scope instanceof AggregatingSelectScope) {
+            type =
+                ((AggregatingSelectScope) scope).adjustGroupExprType(
+                    operand,
+                    type);
+        }
+        return type;
     }
 
     public RelDataType deriveConstructorType(
@@ -3191,9 +3198,16 @@ public class SqlValidatorImpl
         }
         validateNoAggs(groupList, "GROUP BY");
         final SqlValidatorScope groupScope = getGroupScope(select);
-        inferUnknownTypes(unknownType, groupScope, groupList);
 
-        groupList.validate(this, groupScope);
+        // ROLLUP, CUBE and GROUPING SETS are validated in terms of the
+        // expressions they group on.
+        final List<SqlNode> groupExprs = new ArrayList<SqlNode>();
+        SqlValidatorUtil.analyzeGroupList(groupList, groupExprs);
+        final SqlNodeList groupExprList =
+            new SqlNodeList(groupExprs, groupList.getParserPosition());
+        inferUnknownTypes(unknownType, groupScope, groupExprList);
+
+        groupExprList.validate(this, groupScope);
 
         // Derive the type of each GROUP BY item. We don't need the type, but
         // it resolves functions, and that is necessary for deducing
@@ -3203,7 +3217,7 @@ public class SqlValidatorImpl
         if (selectScope instanceof AggregatingSelectScope) {
             aggregatingScope = (AggregatingSelectScope) selectScope;
         }
-        for (SqlNode groupItem : groupList) {
+        for (SqlNode groupItem : groupExprs) {
             final RelDataType type = deriveType(groupScope, groupItem);
             setValidatedNodeTypeImpl(groupItem, type);
             if (aggregatingScope != null) {
@@ -24,6 +24,7 @@ import java.util.*;
 
 import org.eigenbase.relopt.*;
 import org.eigenbase.reltype.*;
+import org.eigenbase.resource.*;
 import org.eigenbase.sql.*;
 import org.eigenbase.sql.fun.*;
 import org.eigenbase.sql.parser.*;
@@ -40,6 +41,19 @@ import org.eigenbase.util.*;
  */
 public class SqlValidatorUtil
 {
+    //~ Static fields/initializers ---------------------------------------------
+
+    /**
+     * Maximum number of expressions in a <code>CUBE</code>, which denotes a
+     * grouping set for every subset of them.
+     */
+    public static final int MAX_CUBE_SIZE = 12;
+
+    /**
+     * Maximum number of grouping sets denoted by a GROUP BY clause.
+     */
+    public static final int MAX_GROUPING_SETS = 1 << MAX_CUBE_SIZE;
+
     //~ Methods ----------------------------------------------------------------
 
     /**
@@ -357,6 +371,161 @@ public class SqlValidatorUtil
         return naturalColumnNames;
     }
 
+    /**
+     * Analyzes a GROUP BY clause, which may contain <code>ROLLUP</code>,
+     * <code>CUBE</code> and <code>GROUPING SETS</code>, into the distinct
+     * expressions it groups on and the grouping sets it denotes.
+     *
+     * <p>For example, <code>GROUP BY a, ROLLUP(b, c)</code> groups on the
+     * expressions [a, b, c], and denotes the grouping sets {a, b, c}, {a, b}
+     * and {a}. A clause without these constructs denotes a single grouping
+     * set containing all of its expressions.
+     *
+     * @param groupList GROUP BY clause
+     * @param groupExprs List to which the distinct grouping expressions are
+     * added, in order of first occurrence
+     *
+     * @return grouping sets, each a bitmap over the grouping expressions
+     *
+     * @throws EigenbaseException if a CUBE has more than {@link
+     * #MAX_CUBE_SIZE} expressions, or the clause denotes more than {@link
+     * #MAX_GROUPING_SETS} grouping sets
+     *
+     * @see SqlRollupOperator
+     */
+    public static List<BitSet> analyzeGroupList(
+        SqlNodeList groupList,
+        List<SqlNode> groupExprs)
+    {
+        List<BitSet> groupingSets =
+            Collections.singletonList(new BitSet());
+        for (SqlNode groupItem : groupList) {
+            // each item multiplies the grouping sets of the items before it
+            List<BitSet> itemSets = analyzeGroupItem(groupItem, groupExprs);
+            if (((long) groupingSets.size() * itemSets.size())
+                > MAX_GROUPING_SETS)
+            {
+                throw SqlUtil.newContextException(
+                    groupItem.getParserPosition(),
+                    EigenbaseResource.instance().TooManyGroupingSets.ex(
+                        MAX_GROUPING_SETS));
+            }
+            List<BitSet> product = new ArrayList<BitSet>();
+            for (BitSet groupingSet : groupingSets) {
+                for (BitSet itemSet : itemSets) {
+                    BitSet set = (BitSet) groupingSet.clone();
+                    set.or(itemSet);
+                    product.add(set);
+                }
+            }
+            groupingSets = product;
+        }
+        return groupingSets;
+    }
+
+    private static List<BitSet> analyzeGroupItem(
+        SqlNode groupItem,
+        List<SqlNode> groupExprs)
+    {
+        List<BitSet> groupingSets = new ArrayList<BitSet>();
+        if (groupItem instanceof SqlNodeList) {
+            // the empty grouping set, "()"
+            groupingSets.add(
+                analyzeGroupSet(
+                    ((SqlNodeList) groupItem).toArray(),
+                    groupExprs));
+            return groupingSets;
+        }
+        if (!(groupItem instanceof SqlCall)
+            || !(((SqlCall) groupItem).getOperator()
+                instanceof SqlRollupOperator))
+        {
+            groupingSets.add(
+                analyzeGroupSet(new SqlNode[] { groupItem }, groupExprs));
+            return groupingSets;
+        }
+        final SqlNode [] operands = ((SqlCall) groupItem).getOperands();
+        switch (groupItem.getKind()) {
+        case ROLLUP:
+            // (a, b, c), (a, b), (a), ()
+            for (int n = operands.length; n >= 0; n--) {
+                SqlNode [] prefix = new SqlNode[n];
+                System.arraycopy(operands, 0, prefix, 0, n);
+                groupingSets.add(analyzeGroupSet(prefix, groupExprs));
+            }
+            break;
+        case CUBE:
+            // every subset of the operands, largest first
+            BitSet cube = analyzeGroupSet(operands, groupExprs);
+            List<Integer> bits = new ArrayList<Integer>();
+            for (
+                int i = cube.nextSetBit(0);
+                i >= 0;
+                i = cube.nextSetBit(i + 1))
+            {
+                bits.add(i);
+            }
+            if (bits.size() > MAX_CUBE_SIZE) {
+                throw SqlUtil.newContextException(
+                    groupItem.getParserPosition(),
+                    EigenbaseResource.instance().CubeTooLarge.ex(
+                        bits.size(),
+                        MAX_CUBE_SIZE));
+            }
+            for (long mask = (1L << bits.size()) - 1; mask >= 0; mask--) {
+                BitSet groupingSet = new BitSet();
+                for (int i = 0; i < bits.size(); i++) {
+                    if ((mask & (1L << (bits.size() - 1 - i))) != 0) {
+                        groupingSet.set(bits.get(i));
+                    }
+                }
+                groupingSets.add(groupingSet);
+            }
+            break;
+        case GROUPING_SETS:
+            for (SqlNode operand : operands) {
+                if (SqlUtil.isCallTo(
+                        operand,
+                        SqlStdOperatorTable.rowConstructor))
+                {
+                    groupingSets.add(
+                        analyzeGroupSet(
+                            ((SqlCall) operand).getOperands(),
+                            groupExprs));
+                } else {
+                    groupingSets.addAll(
+                        analyzeGroupItem(operand, groupExprs));
+                }
+            }
+            break;
+        default:
+            throw Util.unexpected(groupItem.getKind());
+        }
+        return groupingSets;
+    }
+
+    private static BitSet analyzeGroupSet(
+        SqlNode [] exprs,
+        List<SqlNode> groupExprs)
+    {
+        BitSet groupingSet = new BitSet();
+        for (SqlNode expr : exprs) {
+            int ordinal = -1;
+            for (int i = 0; i < groupExprs.size(); i++) {
+                if (groupExprs.get(i).equalsDeep(expr, false)) {
+                    ordinal = i;
+                    break;
+                }
+            }
+            if (ordinal < 0) {
+                ordinal = groupExprs.size();
+                groupExprs.add(expr);
+            }
+            groupingSet.set(ordinal);
+        }
+        return groupingSet;
+    }
+
     static int countOccurrences(String name, String [] names)
     {
         int count = 0;
@@ -930,11 +930,28 @@ public class SqlToRelConverter
                             isNotIn);
                     bb.mapSubqueryToExpr.put(node, expression);
                     return;
-                } else {
-                    // Otherwise, let convertExists translate
-                    // values list into an inline table for the
-                    // reference to Q below.
                 }
+                if (!seenNull
+                    && (leftJoinKeysForIn.length == 1)
+                    && (getInSubqueryThreshold() > 0))
+                {
+                    // A long list of literals becomes a single membership
+                    // test, rather than a join against an inline table.
+                    RexNode expression =
+                        convertInToInList(
+                            bb,
+                            leftJoinKeysForIn[0],
+                            valueList,
+                            isNotIn);
+                    if (expression != null) {
+                        bb.mapSubqueryToExpr.put(node, expression);
+                        return;
+                    }
+                }
+
+                // Otherwise, let convertExists translate
+                // values list into an inline table for the
+                // reference to Q below.
             }
 
             // Project out the search columns from the left side
@@ -1173,12 +1190,70 @@ public class SqlToRelConverter
         return result;
     }
 
+    /**
+     * Converts "x IN (1, 2, ...)" to a call to {@link
+     * SqlStdOperatorTable#inListOperator}, provided that x is numeric or a
+     * datetime, the list is shorter than {@link #getInListThreshold}, and
+     * every value in the list is a non-null literal.
+     *
+     * <p>Character lists are left to the inline table, whose row type pads
+     * the values to a common length; comparing them one by one would not.
+     * So are null values, which make the result of the IN null rather than
+     * false if no other value matches.
+     *
+     * @param leftKey LHS
+     * @param valuesList RHS
+     * @param isNotIn is this a NOT IN operator
+     *
+     * @return converted expression, or null if the list cannot be converted
+     */
+    private RexNode convertInToInList(
+        Blackboard bb,
+        RexNode leftKey,
+        SqlNodeList valuesList,
+        boolean isNotIn)
+    {
+        if (!SqlTypeUtil.isNumeric(leftKey.getType())
+            && !SqlTypeUtil.isDatetime(leftKey.getType()))
+        {
+            return null;
+        }
+        if (valuesList.size() >= getInListThreshold()) {
+            return null;
+        }
+        RexNode [] operands = new RexNode[valuesList.size() + 1];
+        operands[0] = leftKey;
+        int i = 1;
+        for (SqlNode rightVal : valuesList) {
+            RexNode value = bb.convertExpression(rightVal);
+            if (!(value instanceof RexLiteral)
+                || RexLiteral.isNullLiteral(value))
+            {
+                return null;
+            }
+            operands[i++] = value;
+        }
+        RexNode result =
+            rexBuilder.makeCall(
+                SqlStdOperatorTable.inListOperator,
+                operands);
+        if (isNotIn) {
+            result =
+                rexBuilder.makeCall(
+                    SqlStdOperatorTable.notOperator,
+                    result);
+        }
+        return result;
+    }
+
     /**
      * Gets the list size threshold under which {@link #convertInToOr} is used.
-     * Lists of this size or greater will instead be converted to use a join
-     * against an inline table ({@link ValuesRel}) rather than a predicate. A
-     * threshold of 0 forces usage of an inline table in all cases; a threshold
-     * of Integer.MAX_VALUE forces usage of OR in all cases
+     * Lists of this size or greater which consist of literals compared with a
+     * single numeric or datetime column will instead be converted to {@link
+     * SqlStdOperatorTable#inListOperator}; other lists will be converted to use
+     * a join against an inline table ({@link ValuesRel}) rather than a
+     * predicate. A threshold of 0 forces usage of an inline table in all cases;
+     * a threshold of Integer.MAX_VALUE forces usage of OR in all cases
      *
      * @return threshold, default 20
      */
@@ -1187,6 +1262,21 @@ public class SqlToRelConverter
         return 20;
     }
 
+    /**
+     * Gets the list size threshold under which {@link #convertInToInList} may
+     * be used for a list at or above {@link #getInSubqueryThreshold}. Calls
+     * to {@link SqlStdOperatorTable#inListOperator} are implemented as a tree
+     * of comparisons with one node per value, so longer lists are converted
+     * to use a join against an inline table instead, which also stays within
+     * the limits on the size of a calculator program or generated method.
+     *
+     * @return threshold, default 100
+     */
+    protected int getInListThreshold()
+    {
+        return 100;
+    }
+
     /**
      * Creates the condition for a join implementing an IN clause.
      *
@@ -2192,6 +2282,13 @@ public class SqlToRelConverter
             groupList = SqlNodeList.Empty;
         }
 
+        // Flatten ROLLUP, CUBE and GROUPING SETS into the expressions they
+        // group on; the aggregate groups on all of them, and the grouping sets
+        // are rolled up from it below.
+        final List<SqlNode> groupExprs = new ArrayList<SqlNode>();
+        final List<BitSet> groupingSets =
+            SqlValidatorUtil.analyzeGroupList(groupList, groupExprs);
+
         // register the group exprs
 
         // build a map to remember the projections from the top scope to the
@@ -2204,7 +2301,7 @@ public class SqlToRelConverter
             new HashMap<Integer, Integer>();
 
         int i = -1;
-        for (SqlNode groupExpr : groupList) {
+        for (SqlNode groupExpr : groupExprs) {
             ++i;
             final SqlNode expandedGroupExpr =
                 validator.expand(groupExpr, bb.scope);
@@ -2316,18 +2413,31 @@ public class SqlToRelConverter
 
             // Tell bb which of group columns are sorted.
             bb.columnMonotonicities.clear();
-            for (SqlNode groupItem : groupList) {
+            for (SqlNode groupItem : groupExprs) {
                 bb.columnMonotonicities.add(
                     bb.scope.getMonotonicity(groupItem));
             }
 
             // Add the aggregator
+            final RelNode aggInput = bb.root;
             bb.setRoot(
                 createAggregate(
                     bb,
-                    groupList.size(),
+                    groupExprs.size(),
                     aggConverter.getAggCalls()),
                 false);
+            if ((groupingSets.size() > 1)
+                || (groupingSets.get(0).cardinality() < groupExprs.size()))
+            {
+                bb.setRoot(
+                    createGroupingSets(
+                        aggInput,
+                        bb.root,
+                        groupExprs.size(),
+                        aggConverter.getAggCalls(),
+                        groupingSets),
+                    false);
+            }
 
             bb.mapRootRelToFieldProjection.put(bb.root, groupExprProjection);
 
@@ -2435,6 +2545,277 @@ public class SqlToRelConverter
             aggCalls);
     }
 
+    /**
+     * Creates the union of the aggregates for several grouping sets, given
+     * the aggregate over all of the grouping expressions.
+     *
+     * <p>The aggregate for each grouping set is computed from the rows of the
+     * full aggregate, provided that every aggregate function can be rolled up
+     * (SUM, COUNT, MIN and MAX without DISTINCT). Otherwise, each is computed
+     * from the input rows. Either way, the input to the grouping sets is a
+     * single relational expression, which the planner may evaluate once and
+     * buffer.
+     *
+     * <p>The result has the same fields as the full aggregate. A grouping
+     * expression which is absent from a grouping set is NULL in its rows.
+     *
+     * <p>The empty grouping set is aggregated with no group keys, so it
+     * yields one grand-total row even if the input is empty. In that row an
+     * aggregate function other than COUNT is NULL, so if there is an empty
+     * grouping set, the fields for those functions are nullable.
+     *
+     * @param aggInput Input to the full aggregate
+     * @param agg Full aggregate
+     * @param groupCount Number of grouping expressions
+     * @param aggCalls Calls to aggregate functions
+     * @param groupingSets Grouping sets, each a bitmap over the grouping
+     * expressions
+     *
+     * @return Union of the aggregates for the grouping sets
+     */
+    private RelNode createGroupingSets(
+        RelNode aggInput,
+        RelNode agg,
+        int groupCount,
+        List<AggregateCall> aggCalls,
+        List<BitSet> groupingSets)
+    {
+        boolean rollUp = true;
+        for (AggregateCall aggCall : aggCalls) {
+            if (aggCall.isDistinct()
+                || (getRollUpAggregation(aggCall) == null))
+            {
+                rollUp = false;
+            }
+        }
+
+        // a grouping expression is nullable if any grouping set omits it
+        final RelDataTypeField [] fields = agg.getRowType().getFields();
+        final BitSet groupAll = new BitSet();
+        groupAll.set(0, groupCount);
+        boolean hasEmptySet = false;
+        for (BitSet groupingSet : groupingSets) {
+            groupAll.and(groupingSet);
+            if (groupingSet.isEmpty()) {
+                hasEmptySet = true;
+            }
+        }
+
+        // an aggregate is nullable if the empty grouping set can make it NULL
+        final RelDataType [] aggTypes = new RelDataType[aggCalls.size()];
+        for (int j = 0; j < aggTypes.length; j++) {
+            RelDataType type = fields[groupCount + j].getType();
+            if (hasEmptySet && isNullIfEmpty(aggCalls.get(j))) {
+                type = typeFactory.createTypeWithNullability(type, true);
+            }
+            aggTypes[j] = type;
+        }
+
+        final RelNode [] inputs = new RelNode[groupingSets.size()];
+        for (int i = 0; i < inputs.length; i++) {
+            final BitSet groupingSet = groupingSets.get(i);
+            final int setCount = groupingSet.cardinality();
+            RelNode input;
+            if (setCount == groupCount) {
+                input = agg;
+            } else {
+                // Project the keys in the grouping set, then the fields to be
+                // aggregated, and aggregate.
+                final RelNode child = rollUp ? agg : aggInput;
+                final List<Integer> posList = new ArrayList<Integer>();
+                for (
+                    int key = groupingSet.nextSetBit(0);
+                    key >= 0;
+                    key = groupingSet.nextSetBit(key + 1))
+                {
+                    posList.add(key);
+                }
+                final List<AggregateCall> setAggCalls =
+                    new ArrayList<AggregateCall>();
+                if (rollUp) {
+                    for (int j = 0; j < aggCalls.size(); j++) {
+                        posList.add(groupCount + j);
+                        setAggCalls.add(
+                            makeRollUpCall(
+                                aggCalls.get(j),
+                                setCount + j,
+                                setCount == 0));
+                    }
+                } else {
+                    final int fieldCount =
+                        aggInput.getRowType().getFieldCount();
+                    for (int j = 0; j < fieldCount; j++) {
+                        posList.add(j);
+                    }
+                    for (AggregateCall aggCall : aggCalls) {
+                        final List<Integer> argList = new ArrayList<Integer>();
+                        for (int arg : aggCall.getArgList()) {
+                            argList.add(setCount + arg);
+                        }
+                        RelDataType type = aggCall.getType();
+                        if ((setCount == 0) && isNullIfEmpty(aggCall)) {
+                            type =
+                                typeFactory.createTypeWithNullability(
+                                    type,
+                                    true);
+                        }
+                        setAggCalls.add(
+                            new AggregateCall(
+                                aggCall.getAggregation(),
+                                aggCall.isDistinct(),
+                                argList,
+                                type,
+                                aggCall.getName()));
+                    }
+                }
+                if (setAggCalls.isEmpty() && (setCount == 0)) {
+                    // The grand total must still be one row, and the rest of
+                    // the system doesn't like 0-tuples, so count the rows and
+                    // ignore the count.
+                    if (posList.isEmpty()) {
+                        posList.add(0);
+                    }
+                    final SqlAggFunction countAgg =
+                        SqlStdOperatorTable.countOperator;
+                    setAggCalls.add(
+                        new AggregateCall(
+                            countAgg,
+                            false,
+                            Collections.<Integer>emptyList(),
+                            countAgg.getReturnType(typeFactory),
+                            null));
+                }
+                input =
+                    new AggregateRel(
+                        cluster,
+                        CalcRel.createProject(child, posList),
+                        setCount,
+                        setAggCalls);
+            }
+
+            // Restore the fields of the full aggregate, with NULL for the
+            // keys not in the grouping set.
+            final RexNode [] exprs = new RexNode[fields.length];
+            final String [] names = new String[fields.length];
+            int setKey = 0;
+            for (int key = 0; key < groupCount; key++) {
+                RelDataType type = fields[key].getType();
+                if (!groupAll.get(key)) {
+                    type =
+                        typeFactory.createTypeWithNullability(type, true);
+                }
+                if (groupingSet.get(key)) {
+                    RexNode expr =
+                        rexBuilder.makeInputRef(
+                            input.getRowType().getFields()[setKey].getType(),
+                            setKey);
+                    if (!expr.getType().equals(type)) {
+                        expr = rexBuilder.makeCast(type, expr);
+                    }
+                    exprs[key] = expr;
+                    ++setKey;
+                } else {
+                    exprs[key] =
+                        rexBuilder.makeCast(type, rexBuilder.constantNull());
+                }
+                names[key] = fields[key].getName();
+            }
+            for (int j = 0; j < aggCalls.size(); j++) {
+                final int field = groupCount + j;
+                RexNode expr =
+                    rexBuilder.makeInputRef(
+                        input.getRowType().getFields()[setCount + j].getType(),
+                        setCount + j);
+                if (rollUp
+                    && (setCount < groupCount)
+                    && (getRollUpAggregation(aggCalls.get(j))
+                        != aggCalls.get(j).getAggregation()))
+                {
+                    // COUNT rolled up as SUM, which is NULL rather than zero
+                    // if the grouping set is empty and there are no rows
+                    expr =
+                        rexBuilder.makeNotNullCast(
+                            rexBuilder.makeCall(
+                                SqlStdOperatorTable.caseOperator,
+                                rexBuilder.makeCall(
+                                    SqlStdOperatorTable.isNullOperator,
+                                    expr),
+                                rexBuilder.makeBigintLiteral(BigDecimal.ZERO),
+                                expr));
+                } else if (!expr.getType().equals(aggTypes[j])) {
+                    expr = rexBuilder.makeCast(aggTypes[j], expr);
+                }
+                exprs[field] = expr;
+                names[field] = fields[field].getName();
+            }
+            inputs[i] = CalcRel.createProject(input, exprs, names, false);
+        }
+        return new UnionRel(cluster, inputs, true);
+    }
+
+    /**
+     * Returns the aggregate function which combines partial results of an
+     * aggregate function, or null if partial results cannot be combined.
+     */
+    private static Aggregation getRollUpAggregation(AggregateCall aggCall)
+    {
+        final Aggregation aggregation = aggCall.getAggregation();
+        if (aggregation instanceof SqlCountAggFunction) {
+            return SqlStdOperatorTable.sumOperator;
+        }
+        if ((aggregation instanceof SqlSumAggFunction)
+            || (aggregation instanceof SqlSumEmptyIsZeroAggFunction)
+            || (aggregation instanceof SqlMinMaxAggFunction))
+        {
+            return aggregation;
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether an aggregate function is NULL when applied to no rows.
+     * COUNT and $SUM0 are zero.
+     */
+    private static boolean isNullIfEmpty(AggregateCall aggCall)
+    {
+        final Aggregation aggregation = aggCall.getAggregation();
+        return !(aggregation instanceof SqlCountAggFunction)
+            && !(aggregation instanceof SqlSumEmptyIsZeroAggFunction);
+    }
+
+    /**
+     * Creates a call which rolls up the partial results of an aggregate
+     * function.
+     *
+     * @param aggCall Call to aggregate function
+     * @param arg Ordinal of the field containing partial results
+     * @param emptySet Whether the call is for the empty grouping set, whose
+     * aggregates are NULL if there are no rows
+     *
+     * @return Call to the roll-up aggregate function
+     */
+    private AggregateCall makeRollUpCall(
+        AggregateCall aggCall,
+        int arg,
+        boolean emptySet)
+    {
+        final Aggregation aggregation = getRollUpAggregation(aggCall);
+        RelDataType type = aggCall.getType();
+        if ((aggregation != aggCall.getAggregation())
+            || (emptySet && isNullIfEmpty(aggCall)))
+        {
+            // SUM of counts can be NULL, and so can MIN, MAX and SUM over
+            // no rows
+            type = typeFactory.createTypeWithNullability(type, true);
+        }
+        return new AggregateCall(
+            aggregation,
+            false,
+            Collections.singletonList(arg),
+            type,
+            aggCall.getName());
+    }
+
     public RexDynamicParam convertDynamicParam(
         final SqlDynamicParam dynamicParam)
     {
@@ -18,6 +18,8 @@
 */
 package org.eigenbase.test;
 
+import java.lang.reflect.*;
+
 import java.util.*;
 
 import org.eigenbase.rel.*;
@@ -552,6 +554,118 @@ public class RelMetadataTest
                 null);
         assertTrue(result == null);
     }
+
+    // ----------------------------------------------------------------------
+    // Tests for CachingRelMetadataProvider
+    // ----------------------------------------------------------------------
+
+    public void testCachingProviderCopiesArgs()
+    {
+        RelNode rel = convertSql("select * from emp");
+        final int [] callCount = { 0 };
+        RelMetadataProvider underlyingProvider =
+            new RelMetadataProvider() {
+                public Object getRelMetadata(
+                    RelNode queryRel,
+                    String metadataQueryName,
+                    Object [] args)
+                {
+                    ++callCount[0];
+                    return args[0];
+                }
+            };
+        CachingRelMetadataProvider provider =
+            new CachingRelMetadataProvider(
+                underlyingProvider,
+                rel.getCluster().getPlanner());
+
+        Object [] args = { "a" };
+        assertEquals("a", provider.getRelMetadata(rel, "getFoo", args));
+        assertEquals(1, callCount[0]);
+
+        // The caller is free to reuse its array; the cached entry must
+        // still be found under the original arguments.
+        args[0] = "b";
+        assertEquals(
+            "a",
+            provider.getRelMetadata(rel, "getFoo", new Object[] { "a" }));
+        assertEquals(1, callCount[0]);
+        assertEquals("b", provider.getRelMetadata(rel, "getFoo", args));
+        assertEquals(2, callCount[0]);
+    }
+
+    // ----------------------------------------------------------------------
+    // Tests for ReflectiveRelMetadataProvider
+    // ----------------------------------------------------------------------
+
+    public void testReflectiveProviderDispatchMemo()
+    {
+        RelNode rel = convertSql("select * from emp");
+        CountingMetadataProvider provider = new CountingMetadataProvider();
+
+        // first dispatch of each query has to go through reflection
+        assertEquals("foo", provider.getRelMetadata(rel, "getFoo", null));
+        assertEquals(1, provider.uncachedLookupCount);
+        assertNull(provider.getRelMetadata(rel, "getBar", null));
+        assertEquals(2, provider.uncachedLookupCount);
+
+        // repeats are answered from the memo, including negative results
+        assertEquals("foo", provider.getRelMetadata(rel, "getFoo", null));
+        assertNull(provider.getRelMetadata(rel, "getBar", null));
+        assertEquals(2, provider.uncachedLookupCount);
+
+        // and the memo gives the same answer as the uncached lookup
+        List<Class> noParams = Collections.emptyList();
+        Method method = provider.lookupMethod(rel.getClass(), "getFoo");
+        assertNotNull(method);
+        assertEquals(
+            provider.lookupMethodUncached(rel.getClass(), "getFoo", noParams),
+            method);
+        assertNull(provider.lookupMethod(rel.getClass(), "getBar"));
+        assertNull(
+            provider.lookupMethodUncached(rel.getClass(), "getBar", noParams));
+
+        // the memo belongs to the instance, not the class
+        CountingMetadataProvider provider2 = new CountingMetadataProvider();
+        assertEquals("foo", provider2.getRelMetadata(rel, "getFoo", null));
+        assertEquals(1, provider2.uncachedLookupCount);
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * Metadata provider which handles a single query and counts how often it
+     * has to resolve a query by reflection.
+     */
+    public static class CountingMetadataProvider
+        extends ReflectiveRelMetadataProvider
+    {
+        int uncachedLookupCount;
+
+        public String getFoo(RelNode rel)
+        {
+            return "foo";
+        }
+
+        protected Method lookupMethod(
+            Class<? extends RelNode> relClass,
+            String metadataQueryName)
+        {
+            return super.lookupMethod(relClass, metadataQueryName);
+        }
+
+        protected Method lookupMethodUncached(
+            Class<? extends RelNode> relClass,
+            String metadataQueryName,
+            List<Class> parameterTypes)
+        {
+            ++uncachedLookupCount;
+            return super.lookupMethodUncached(
+                relClass,
+                metadataQueryName,
+                parameterTypes);
+        }
+    }
 }
 
 // End RelMetadataTest.java
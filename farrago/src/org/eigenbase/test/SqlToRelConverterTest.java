@@ -190,6 +190,26 @@ public class SqlToRelConverterTest
             "${plan}");
     }
 
+    public void testGroupByRollup()
+    {
+        // The grand total is rolled up from the aggregate by DEPTNO. COUNT
+        // rolls up as SUM, which is NULL rather than zero if there are no
+        // rows; MIN and SUM stay nullable.
+        check(
+            "select deptno, min(sal), sum(sal), count(*) from emp"
+            + " group by rollup(deptno)",
+            "${plan}");
+    }
+
+    public void testGroupByRollupNoAgg()
+    {
+        // The empty grouping set has no aggregate functions, but must still
+        // yield one row, so it counts rows and ignores the count.
+        check(
+            "select deptno from emp group by rollup(deptno)",
+            "${plan}");
+    }
+
     public void testAggDistinct()
     {
         check(
@@ -524,7 +544,8 @@ public class SqlToRelConverterTest
 
     public void testInValueListLong()
     {
-        // Go over the default threshold of 20 to force a subquery.
+        // Go over the default threshold of 20, so that the list of literals
+        // becomes a single $IN call rather than a subquery.
         check(
             "select empno from emp where deptno in"
             + " (10, 20, 30, 40, 50, 60, 70, 80, 90, 100"
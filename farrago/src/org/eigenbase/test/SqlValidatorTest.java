@@ -5730,6 +5730,52 @@ public class SqlValidatorTest
         check("select deptno as d, count(*) as c from emp group by deptno");
     }
 
+    public void testGroupingSetsType()
+    {
+        // A grouping expression which some grouping set omits is nullable.
+        // MIN, MAX and SUM are NULL for the empty grouping set over no rows;
+        // COUNT is zero.
+        checkResultType(
+            "select deptno, job, min(sal), max(sal), sum(sal), count(*)"
+            + " from emp group by deptno, rollup(job)",
+            "RecordType(INTEGER NOT NULL DEPTNO, VARCHAR(10) JOB,"
+            + " INTEGER EXPR$2, INTEGER EXPR$3, INTEGER EXPR$4,"
+            + " BIGINT NOT NULL EXPR$5) NOT NULL");
+        checkResultType(
+            "select deptno, job, count(*) from emp group by cube(deptno, job)",
+            "RecordType(INTEGER DEPTNO, VARCHAR(10) JOB,"
+            + " BIGINT NOT NULL EXPR$2) NOT NULL");
+        checkResultType(
+            "select min(sal), max(sal), count(*) from emp"
+            + " group by grouping sets (())",
+            "RecordType(INTEGER EXPR$0, INTEGER EXPR$1,"
+            + " BIGINT NOT NULL EXPR$2) NOT NULL");
+        checkResultType(
+            "select deptno, count(*) from emp"
+            + " group by grouping sets ((deptno), (deptno, job))",
+            "RecordType(INTEGER NOT NULL DEPTNO, BIGINT NOT NULL EXPR$1)"
+            + " NOT NULL");
+    }
+
+    public void testGroupingSetsTooMany()
+    {
+        // A CUBE of 12 expressions is allowed, and denotes 4096 grouping sets.
+        check(
+            "select count(*) from emp group by cube(empno, ename, job, mgr,"
+            + " hiredate, sal, comm, deptno, slacker, empno + 1, empno + 2,"
+            + " empno + 3)");
+        checkFails(
+            "select count(*) from emp group by ^cube(empno, ename, job, mgr,"
+            + " hiredate, sal, comm, deptno, slacker, empno + 1, empno + 2,"
+            + " empno + 3, empno + 4)^",
+            "CUBE of 13 expressions exceeds the limit of 12");
+        checkFails(
+            "select count(*) from emp group by cube(empno, ename, job, mgr,"
+            + " hiredate, sal, comm, deptno, slacker, empno + 1, empno + 2,"
+            + " empno + 3), ^rollup(empno + 4)^",
+            "GROUP BY clause denotes more than 4096 grouping sets");
+    }
+
     public void testNestedAggFails()
     {
         String ERR_NESTED_AGG = "Aggregate expressions cannot be nested";
@@ -0,0 +1,251 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package org.luciddb.lcs;
+
+import java.util.*;
+
+import net.sf.farrago.fem.med.*;
+import net.sf.farrago.fennel.rel.*;
+
+import org.eigenbase.rel.*;
+import org.eigenbase.rel.metadata.*;
+import org.eigenbase.relopt.*;
+import org.eigenbase.reltype.*;
+import org.eigenbase.rex.*;
+import org.eigenbase.sql.fun.*;
+
+
+/**
+ * LcsDynamicFilterRule prunes the probe side of a hash join on a column-store
+ * table using the join keys produced by the build side at runtime.
+ *
+ * <p>For each join key on a column of the probe table, the rule adds a
+ * residual filter to the row scan whose bounds are the minimum and maximum of
+ * the corresponding build side key. The row scan reads its residual filter
+ * inputs before it starts scanning, so the bounds are known by then. Because
+ * compressed batches keep their values sorted, batches with no value in range
+ * are skipped without decoding any rows, and the remaining columns are only
+ * read for qualifying rows. A typical use is a fact table joined to a date
+ * dimension filtered on a few months, when the fact table has no index on
+ * the date key that a semijoin could use.
+ *
+ * <p>The filter shows up in EXPLAIN as an additional input of the row scan,
+ * computing MIN and MAX over the build side. The build side is computed
+ * twice, which is why the rule only fires when it is estimated to be smaller
+ * than the probe side.
+ *
+ * @version $Id$
+ */
+public class LcsDynamicFilterRule
+    extends RelOptRule
+{
+    //~ Static fields/initializers ---------------------------------------------
+
+    public static final LcsDynamicFilterRule instance =
+        new LcsDynamicFilterRule();
+
+    //~ Constructors -----------------------------------------------------------
+
+    private LcsDynamicFilterRule()
+    {
+        super(
+            new RelOptRuleOperand(
+                LhxJoinRel.class,
+                new RelOptRuleOperand(LcsRowScanRel.class, ANY),
+                new RelOptRuleOperand(RelNode.class, ANY)));
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    // implement RelOptRule
+    public CallingConvention getOutConvention()
+    {
+        return FennelRel.FENNEL_EXEC_CONVENTION;
+    }
+
+    // implement RelOptRule
+    public void onMatch(RelOptRuleCall call)
+    {
+        LhxJoinRel joinRel = (LhxJoinRel) call.rels[0];
+        LcsRowScanRel rowScan = (LcsRowScanRel) call.rels[1];
+        if (joinRel.isSetop()) {
+            return;
+        }
+
+        // Probe rows without a match must not be needed in the result.
+        switch (joinRel.getJoinType()) {
+        case INNER:
+        case RIGHT:
+        case LEFTSEMI:
+        case RIGHTSEMI:
+        case RIGHTANTI:
+            break;
+        default:
+            return;
+        }
+
+        RelNode buildRel = joinRel.getRight();
+        Double buildRows = RelMetadataQuery.getRowCount(buildRel);
+        Double probeRows = RelMetadataQuery.getRowCount(rowScan);
+        if ((buildRows == null)
+            || (probeRows == null)
+            || (buildRows >= probeRows))
+        {
+            return;
+        }
+
+        List<Integer> residualColumns =
+            new ArrayList<Integer>(Arrays.asList(rowScan.residualColumns));
+        List<RelNode> inputs =
+            new ArrayList<RelNode>(Arrays.asList(rowScan.getInputs()));
+        int nOrigResiduals = residualColumns.size();
+        List<Integer> leftKeys = joinRel.getLeftKeys();
+        for (int i = 0; i < leftKeys.size(); i++) {
+            if (!joinRel.getFilterNulls().contains(i)) {
+                // null keys match, but would be excluded by the range
+                continue;
+            }
+            int field = leftKeys.get(i);
+            if (rowScan.getColumnForFieldAccess(field) == null) {
+                continue;
+            }
+            Integer column = rowScan.getOriginalColumnOrdinal(field);
+            if (residualColumns.contains(column)) {
+                continue;
+            }
+            residualColumns.add(column);
+            inputs.add(
+                createKeyRangeRel(
+                    buildRel,
+                    joinRel.getRightKeys().get(i),
+                    rowScan.getRowType().getFields()[field].getType()));
+        }
+        if (residualColumns.size() == nOrigResiduals) {
+            return;
+        }
+
+        Integer [] newResCols =
+            residualColumns.toArray(new Integer[residualColumns.size()]);
+
+        // Read the clusters containing residual columns first, as
+        // LcsIndexAccessRule does.
+        List<FemLocalIndex> clusterList =
+            rowScan.getIndexGuide().createResidualClusterList(newResCols);
+        for (FemLocalIndex cluster : rowScan.clusteredIndexes) {
+            if (!clusterList.contains(cluster)) {
+                clusterList.add(cluster);
+            }
+        }
+
+        LcsRowScanRel newRowScan =
+            new LcsRowScanRel(
+                rowScan.getCluster(),
+                inputs.toArray(new RelNode[inputs.size()]),
+                rowScan.lcsTable,
+                clusterList,
+                rowScan.getConnection(),
+                rowScan.projectedColumns,
+                rowScan.isFullScan,
+                newResCols,
+                rowScan.getInputSelectivity());
+
+        LhxJoinRel newJoinRel = joinRel.clone();
+        newJoinRel.replaceInput(0, newRowScan);
+        call.transformTo(newJoinRel);
+    }
+
+    /**
+     * Creates an expression producing a single residual filter tuple which
+     * bounds a probe column by the range of a build side key.
+     *
+     * @param buildRel build side of the join
+     * @param buildKey ordinal of the key in the build side
+     * @param probeType type of the probe column
+     *
+     * @return filter input for the row scan
+     */
+    private RelNode createKeyRangeRel(
+        RelNode buildRel,
+        int buildKey,
+        RelDataType probeType)
+    {
+        RelOptCluster cluster = buildRel.getCluster();
+        RelDataTypeFactory typeFactory = cluster.getTypeFactory();
+        RexBuilder rexBuilder = cluster.getRexBuilder();
+
+        RelNode keyRel =
+            CalcRel.createProject(
+                buildRel,
+                Collections.singletonList(buildKey));
+        RelDataType keyType =
+            typeFactory.createTypeWithNullability(
+                keyRel.getRowType().getFields()[0].getType(),
+                true);
+        List<AggregateCall> aggCalls = new ArrayList<AggregateCall>();
+        aggCalls.add(
+            new AggregateCall(
+                SqlStdOperatorTable.minOperator,
+                false,
+                Collections.singletonList(0),
+                keyType,
+                "MIN_KEY"));
+        aggCalls.add(
+            new AggregateCall(
+                SqlStdOperatorTable.maxOperator,
+                false,
+                Collections.singletonList(0),
+                keyType,
+                "MAX_KEY"));
+        RelNode aggRel = new AggregateRel(cluster, keyRel, 0, aggCalls);
+
+        // If the build side is empty, both bounds are null, and the filter
+        // only passes null keys, none of which can match.
+        RelDataType boundType =
+            typeFactory.createTypeWithNullability(probeType, true);
+        RexNode [] exps = new RexNode[4];
+        exps[0] =
+            rexBuilder.makeLiteral(
+                FennelSearchEndpoint.SEARCH_CLOSED_LOWER.getSymbol());
+        exps[1] = makeBound(rexBuilder, keyType, 0, boundType);
+        exps[2] =
+            rexBuilder.makeLiteral(
+                FennelSearchEndpoint.SEARCH_CLOSED_UPPER.getSymbol());
+        exps[3] = makeBound(rexBuilder, keyType, 1, boundType);
+        String [] names = {
+            "lowerBoundDirective", "lowerBoundKey",
+            "upperBoundDirective", "upperBoundKey"
+        };
+        return CalcRel.createProject(aggRel, exps, names, false);
+    }
+
+    private RexNode makeBound(
+        RexBuilder rexBuilder,
+        RelDataType keyType,
+        int ordinal,
+        RelDataType boundType)
+    {
+        RexNode ref = rexBuilder.makeInputRef(keyType, ordinal);
+        if (keyType.equals(boundType)) {
+            return ref;
+        }
+        return rexBuilder.makeCast(boundType, ref);
+    }
+}
+
+// End LcsDynamicFilterRule.java
@@ -21,15 +21,26 @@ package org.luciddb.lcs;
 import java.util.*;
 
 import net.sf.farrago.fem.med.*;
+import net.sf.farrago.fennel.rel.*;
 import net.sf.farrago.query.*;
 
 import org.eigenbase.rel.*;
 import org.eigenbase.relopt.*;
+import org.eigenbase.rex.*;
 
 
 /**
  * A rule for directly aggregating off of an unclustered index scan.
  *
+ * <p>The aggregate must read a single index whose keys supply the group by
+ * columns in order, possibly after a prefix of keys fixed by the search.
+ * Grouping on one index while filtering through another, which would
+ * intersect each group's bitmap with the filter's bitmap, is not handled,
+ * and such queries still scan and hash-aggregate.
+ *
+ * <p>TODO: intersect per group key once Fennel has a keyed bitmap intersect
+ * stream.
+ *
  * @author John Pham
  * @version $Id$
  */
@@ -62,6 +73,25 @@ public class LcsIndexAggRule
                         ANY))),
             "normalizer");
 
+    /**
+     * Matches an index only search whose literal search key fixes a prefix
+     * of the index keys, so the aggregate may group on the keys that follow
+     * it. For example, an index on (a, b) searched with a = 1 returns rows
+     * sorted on b, and bitmap counts can be aggregated directly per b.
+     */
+    public final static LcsIndexAggRule instanceFixedPrefix =
+        new LcsIndexAggRule(
+            new RelOptRuleOperand(
+                AggregateRel.class,
+                new RelOptRuleOperand(
+                    LcsNormalizerRel.class,
+                    new RelOptRuleOperand(
+                        LcsIndexOnlyScanRel.class,
+                        new RelOptRuleOperand(
+                            FennelValuesRel.class,
+                            ANY)))),
+            "normalizer with fixed key prefix");
+
     //~ Constructors -----------------------------------------------------------
 
     /**
@@ -114,10 +144,21 @@ public class LcsIndexAggRule
             assert (call.rels[1] instanceof LcsNormalizerRel);
             assert (call.rels[2] instanceof LcsIndexOnlyScanRel);
             indexOnlyScan = (LcsIndexOnlyScanRel) call.rels[2];
+            boolean [] fixedKeys = null;
+            if (call.rels.length > 3) {
+                fixedKeys =
+                    getFixedSearchKeys(
+                        indexOnlyScan,
+                        (FennelValuesRel) call.rels[3]);
+                if (fixedKeys == null) {
+                    return;
+                }
+            }
             Integer [] proj = indexOnlyScan.getOutputProj();
             if (!projectionSatisfiesGroupBy(
                     proj,
-                    aggRel.getGroupCount()))
+                    aggRel.getGroupCount(),
+                    fixedKeys))
             {
                 return;
             }
@@ -145,7 +186,8 @@ public class LcsIndexAggRule
                 if ((proj != null)
                     && projectionSatisfiesGroupBy(
                         proj,
-                        aggRel.getGroupCount()))
+                        aggRel.getGroupCount(),
+                        null))
                 {
                     bestIndex = index;
                     bestProj = proj;
@@ -180,28 +222,87 @@ public class LcsIndexAggRule
      * and the group by columns are required to be sorted in order, so the index
      * scan projection should be a prefix of the index scan: 0, 1, 2, ... etc.
      *
+     * <p>Index keys fixed to a single value by the search do not affect the
+     * sort order, so the group by columns may skip over them.
+     *
      * @param proj the projection from an index
      * @param groupCount the number of columns to be grouped. the columns are
      * assumed to be the prefix of input to the aggregate
+     * @param fixedKeys for each leading index key, whether the search fixes
+     * it to a single value; null if no keys are fixed
      *
      * @return whether the projection can meet the group by requirements of an
      * aggregate
      */
     private boolean projectionSatisfiesGroupBy(
         Integer [] proj,
-        int groupCount)
+        int groupCount,
+        boolean [] fixedKeys)
     {
         if (proj == null) {
             return false;
         }
         assert (proj.length >= groupCount);
+        int nextKey = 0;
         for (int i = 0; i < groupCount; i++) {
-            if (proj[i] != i) {
+            while ((fixedKeys != null)
+                && (nextKey < fixedKeys.length)
+                && (nextKey < proj[i])
+                && fixedKeys[nextKey])
+            {
+                nextKey++;
+            }
+            if (proj[i] != nextKey) {
                 return false;
             }
+            nextKey++;
         }
         return true;
     }
+
+    /**
+     * Determines which leading index keys are fixed to a single value by a
+     * literal index search. Only the last key of a search interval may be a
+     * range; the keys before it are always points.
+     *
+     * @param indexOnlyScan the index only search
+     * @param keyValues the search directives and keys
+     *
+     * @return for each searched key, whether it is fixed to a single value;
+     * null if the search is not a single interval
+     */
+    private boolean [] getFixedSearchKeys(
+        LcsIndexOnlyScanRel indexOnlyScan,
+        FennelValuesRel keyValues)
+    {
+        Integer [] inputKeyProj = indexOnlyScan.getInputKeyProj();
+        Integer [] inputDirectiveProj = indexOnlyScan.getInputDirectiveProj();
+        List<List<RexLiteral>> tuples = keyValues.getTuples();
+        if ((inputKeyProj == null)
+            || (inputDirectiveProj == null)
+            || (tuples.size() != 1))
+        {
+            return null;
+        }
+        List<RexLiteral> tuple = tuples.get(0);
+        int nKeys = inputKeyProj.length / 2;
+        boolean [] fixedKeys = new boolean[nKeys];
+        Arrays.fill(fixedKeys, true);
+
+        String lowerDirective =
+            RexLiteral.stringValue(tuple.get(inputDirectiveProj[0]));
+        String upperDirective =
+            RexLiteral.stringValue(tuple.get(inputDirectiveProj[1]));
+        RexLiteral lowerKey = tuple.get(inputKeyProj[nKeys - 1]);
+        RexLiteral upperKey = tuple.get(inputKeyProj[(2 * nKeys) - 1]);
+        fixedKeys[nKeys - 1] =
+            FennelSearchEndpoint.SEARCH_CLOSED_LOWER.getSymbol().equals(
+                lowerDirective)
+            && FennelSearchEndpoint.SEARCH_CLOSED_UPPER.getSymbol().equals(
+                upperDirective)
+            && lowerKey.equals(upperKey);
+        return fixedKeys;
+    }
 }
 
 // End LcsIndexAggRule.java
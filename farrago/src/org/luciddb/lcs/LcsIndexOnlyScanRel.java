@@ -260,6 +260,16 @@ public class LcsIndexOnlyScanRel
     {
         return projectedColumns;
     }
+
+    public Integer [] getInputKeyProj()
+    {
+        return inputKeyProj;
+    }
+
+    public Integer [] getInputDirectiveProj()
+    {
+        return inputDirectiveProj;
+    }
 }
 
 // End LcsIndexOnlyScanRel.java
@@ -0,0 +1,350 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package org.luciddb.lcs;
+
+import java.util.*;
+
+import net.sf.farrago.fennel.rel.*;
+
+import org.eigenbase.rel.*;
+import org.eigenbase.rel.metadata.*;
+import org.eigenbase.relopt.*;
+import org.eigenbase.reltype.*;
+import org.eigenbase.rex.*;
+import org.eigenbase.sql.fun.*;
+
+import org.luciddb.session.*;
+
+
+/**
+ * LcsLateMaterializationRule defers reading the columns of a column-store
+ * table that are only needed above a selective join until after the join.
+ *
+ * <p>The rule matches a projection over a left-deep chain of inner joins
+ * whose bottom left input is a row scan. The scan is narrowed to the columns
+ * referenced by the join conditions plus LCS_RID, and the rids are carried
+ * through the joins. The remaining projected columns are then fetched by a
+ * second row scan of the same table, driven by the sorted, distinct rids
+ * which survive the joins, and joined back on the rid:
+ *
+ * <pre>
+ * Project
+ *   Join(rid = rid)
+ *     Join ... Join(Project(keys, LCS_RID)(RowScan), ...)
+ *     Project(payload, LCS_RID)
+ *       RowScan
+ *         Project(rid, null, null)
+ *           FennelSortRel(discardDuplicates)
+ *             Project(rid)
+ *               Join ... (same as above)
+ * </pre>
+ *
+ * <p>The rid input of the second scan is a stream of singleton bitmap
+ * entries, so only the pages holding qualifying rows are read. The join
+ * chain is a common subexpression, which is buffered when that is cheaper
+ * than computing it twice.
+ *
+ * <p>The rule complements bitmap index access: it pays off when the rows of
+ * the table are filtered by a join (or a residual filter on an unindexed
+ * column followed by a join), and is only applied when the joins are
+ * estimated to keep at most {@link #MAX_JOIN_SELECTIVITY} of the rows of the
+ * scan.
+ *
+ * @version $Id$
+ */
+public class LcsLateMaterializationRule
+    extends RelOptRule
+{
+    //~ Static fields/initializers ---------------------------------------------
+
+    /**
+     * Largest fraction of the rows of the row scan which may survive the joins
+     * for late materialization to be worthwhile. Beyond that, the cost of
+     * sorting the rids and joining back on them exceeds the savings from not
+     * reading the deferred columns.
+     */
+    public static final double MAX_JOIN_SELECTIVITY = 0.25;
+
+    public static final LcsLateMaterializationRule instanceOneJoin =
+        new LcsLateMaterializationRule(1, "one join");
+
+    public static final LcsLateMaterializationRule instanceTwoJoins =
+        new LcsLateMaterializationRule(2, "two joins");
+
+    public static final LcsLateMaterializationRule instanceThreeJoins =
+        new LcsLateMaterializationRule(3, "three joins");
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final int nJoins;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates an LcsLateMaterializationRule.
+     *
+     * @param nJoins number of joins between the projection and the row scan
+     * @param id description of rule
+     */
+    private LcsLateMaterializationRule(int nJoins, String id)
+    {
+        super(
+            createOperand(nJoins),
+            "LcsLateMaterializationRule: " + id);
+        this.nJoins = nJoins;
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    private static RelOptRuleOperand createOperand(int nJoins)
+    {
+        RelOptRuleOperand operand =
+            new RelOptRuleOperand(LcsRowScanRel.class, ANY);
+        for (int i = 0; i < nJoins; i++) {
+            operand =
+                new RelOptRuleOperand(
+                    JoinRel.class,
+                    operand,
+                    new RelOptRuleOperand(RelNode.class, ANY));
+        }
+        return new RelOptRuleOperand(ProjectRel.class, operand);
+    }
+
+    // implement RelOptRule
+    public void onMatch(RelOptRuleCall call)
+    {
+        ProjectRel project = (ProjectRel) call.rels[0];
+        JoinRel [] joins = new JoinRel[nJoins];
+        for (int i = 0; i < nJoins; i++) {
+            joins[i] = (JoinRel) call.rels[i + 1];
+            if ((joins[i].getJoinType() != JoinRelType.INNER)
+                || !joins[i].getSystemFieldList().isEmpty())
+            {
+                return;
+            }
+        }
+        JoinRel topJoin = joins[0];
+        LcsRowScanRel rowScan = (LcsRowScanRel) call.rels[nJoins + 1];
+        int nScanFields = rowScan.getRowType().getFieldCount();
+        for (int i = 0; i < nScanFields; i++) {
+            if (rowScan.getColumnForFieldAccess(i) == null) {
+                // already projects special columns like LCS_RID
+                return;
+            }
+        }
+
+        Double joinRows = RelMetadataQuery.getRowCount(topJoin);
+        Double scanRows = RelMetadataQuery.getRowCount(rowScan);
+        if ((joinRows == null)
+            || (scanRows == null)
+            || (joinRows > (scanRows * MAX_JOIN_SELECTIVITY)))
+        {
+            return;
+        }
+
+        // The scan columns are the leading fields of every join in the
+        // chain.  Split the ones the projection needs into those the joins
+        // need as well, which are read up front, and the rest, which are
+        // read after the joins.
+        BitSet joinRefs = new BitSet();
+        for (JoinRel join : joins) {
+            join.getCondition().accept(new RelOptUtil.InputFinder(joinRefs));
+        }
+        BitSet projRefs = new BitSet();
+        for (RexNode expr : project.getProjectExps()) {
+            expr.accept(new RelOptUtil.InputFinder(projRefs));
+        }
+        List<Integer> keyFields = new ArrayList<Integer>();
+        List<Integer> payloadFields = new ArrayList<Integer>();
+        for (int i = 0; i < nScanFields; i++) {
+            if (joinRefs.get(i)) {
+                keyFields.add(i);
+            } else if (projRefs.get(i)) {
+                payloadFields.add(i);
+            }
+        }
+        if (payloadFields.isEmpty()) {
+            return;
+        }
+
+        RelOptCluster cluster = project.getCluster();
+        RexBuilder rexBuilder = cluster.getRexBuilder();
+        RelDataTypeField [] scanFields = rowScan.getRowType().getFields();
+        int nKeys = keyFields.size();
+
+        // Rebuild the join chain on top of the narrowed scan.  The fields of
+        // the right join inputs all move by the same amount.
+        List<RexNode> exprs = new ArrayList<RexNode>();
+        for (int field : keyFields) {
+            exprs.add(
+                rexBuilder.makeInputRef(scanFields[field].getType(), field));
+        }
+        exprs.add(LucidDbSpecialOperators.makeRidExpr(rexBuilder, rowScan));
+        RelNode newJoin = CalcRel.createProject(rowScan, exprs, null);
+        int [] adjustments = new int[topJoin.getRowType().getFieldCount()];
+        for (int i = 0; i < adjustments.length; i++) {
+            if (i >= nScanFields) {
+                adjustments[i] = nKeys + 1 - nScanFields;
+            } else if (keyFields.contains(i)) {
+                adjustments[i] = keyFields.indexOf(i) - i;
+            }
+        }
+        for (int i = nJoins - 1; i >= 0; i--) {
+            RelNode right = joins[i].getRight();
+            RexNode condition =
+                joins[i].getCondition().accept(
+                    new RelOptUtil.RexInputConverter(
+                        rexBuilder,
+                        joins[i].getRowType().getFields(),
+                        newJoin.getRowType().getFields(),
+                        right.getRowType().getFields(),
+                        adjustments));
+            newJoin =
+                new JoinRel(
+                    cluster,
+                    newJoin,
+                    right,
+                    condition,
+                    JoinRelType.INNER,
+                    joins[i].getVariablesStopped());
+        }
+        int ridField = nKeys;
+        int nJoinFields = newJoin.getRowType().getFieldCount();
+
+        // Fetch the deferred columns for the rids which survive the joins.
+        double selectivity =
+            rowScan.getInputSelectivity() * (joinRows / scanRows);
+        RelNode bitmapRel = createRidBitmapRel(rowScan, newJoin, ridField);
+        LcsRowScanRel fetchScan =
+            new LcsRowScanRel(
+                cluster,
+                new RelNode[] { bitmapRel },
+                rowScan.lcsTable,
+                rowScan.clusteredIndexes,
+                rowScan.getConnection(),
+                rowScan.projectedColumns,
+                false,
+                new Integer[0],
+                Math.min(selectivity, 1.0));
+        exprs = new ArrayList<RexNode>();
+        for (int field : payloadFields) {
+            exprs.add(
+                rexBuilder.makeInputRef(scanFields[field].getType(), field));
+        }
+        exprs.add(LucidDbSpecialOperators.makeRidExpr(rexBuilder, fetchScan));
+        RelNode payloadRel = CalcRel.createProject(fetchScan, exprs, null);
+        RelDataTypeField [] joinFields = newJoin.getRowType().getFields();
+        RelDataTypeField [] payloadRelFields =
+            payloadRel.getRowType().getFields();
+        RexNode ridCondition =
+            rexBuilder.makeCall(
+                SqlStdOperatorTable.equalsOperator,
+                rexBuilder.makeInputRef(
+                    joinFields[ridField].getType(),
+                    ridField),
+                rexBuilder.makeInputRef(
+                    payloadRelFields[payloadFields.size()].getType(),
+                    nJoinFields + payloadFields.size()));
+        RelNode ridJoin =
+            new JoinRel(
+                cluster,
+                newJoin,
+                payloadRel,
+                ridCondition,
+                JoinRelType.INNER,
+                Collections.<String>emptySet());
+
+        // Finally, redo the original projection on top.
+        for (int i = 0; i < nScanFields; i++) {
+            if (payloadFields.contains(i)) {
+                adjustments[i] = nJoinFields + payloadFields.indexOf(i) - i;
+            }
+        }
+        RexNode [] projExprs = project.getProjectExps();
+        RelOptUtil.RexInputConverter converter =
+            new RelOptUtil.RexInputConverter(
+                rexBuilder,
+                topJoin.getRowType().getFields(),
+                ridJoin.getRowType().getFields(),
+                adjustments);
+        exprs = new ArrayList<RexNode>();
+        for (RexNode expr : projExprs) {
+            exprs.add(expr.accept(converter));
+        }
+        call.transformTo(
+            CalcRel.createProject(
+                ridJoin,
+                exprs,
+                RelOptUtil.getFieldNameList(project.getRowType())));
+    }
+
+    /**
+     * Creates the input for a row scan which reads the rows whose rids are
+     * produced by another relational expression.
+     *
+     * @param rowScan row scan on the table
+     * @param ridSource relational expression producing the rids
+     * @param ridField field of ridSource holding the rids
+     *
+     * @return stream of singleton bitmap entries, sorted by rid
+     */
+    private RelNode createRidBitmapRel(
+        LcsRowScanRel rowScan,
+        RelNode ridSource,
+        int ridField)
+    {
+        RelOptCluster cluster = rowScan.getCluster();
+        RexBuilder rexBuilder = cluster.getRexBuilder();
+
+        // the row scan needs its rids in ascending order and only once each
+        RelNode ridRel =
+            CalcRel.createProject(
+                ridSource,
+                Collections.singletonList(ridField));
+        RelNode sortRel =
+            new FennelSortRel(
+                cluster,
+                ridRel,
+                new Integer[] { 0 },
+                true);
+
+        RelDataType bitmapRowType =
+            rowScan.getIndexGuide().createUnclusteredBitmapRowType();
+        RelDataTypeField [] bitmapFields = bitmapRowType.getFields();
+        List<RexNode> exprs = new ArrayList<RexNode>();
+        exprs.add(
+            rexBuilder.makeCast(
+                bitmapFields[0].getType(),
+                rexBuilder.makeInputRef(
+                    sortRel.getRowType().getFields()[0].getType(),
+                    0)));
+        for (int i = 1; i < bitmapFields.length; i++) {
+            exprs.add(
+                rexBuilder.makeCast(
+                    bitmapFields[i].getType(),
+                    rexBuilder.constantNull()));
+        }
+        return CalcRel.createProject(
+            sortRel,
+            exprs,
+            RelOptUtil.getFieldNameList(bitmapRowType));
+    }
+}
+
+// End LcsLateMaterializationRule.java
@@ -0,0 +1,430 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package org.luciddb.lcs;
+
+import java.util.*;
+
+import javax.jmi.reflect.*;
+
+import net.sf.farrago.catalog.*;
+import net.sf.farrago.db.*;
+import net.sf.farrago.fem.fennel.*;
+import net.sf.farrago.fem.med.*;
+import net.sf.farrago.fem.sql2003.*;
+import net.sf.farrago.fennel.*;
+import net.sf.farrago.session.*;
+
+import org.eigenbase.util.*;
+
+
+/**
+ * LcsMaterializedAggregate describes a column-store table which holds the
+ * result of a single-table GROUP BY query over another column-store table,
+ * and tracks whether it is still consistent with that base table.
+ *
+ * <p>The definition is recorded as tags on the two tables. The materialized
+ * table carries the MOF ID of its base table and the meaning of each of its
+ * columns (either a grouping key or one of COUNT, SUM, MIN and MAX over a base
+ * column); the base table carries the MOF IDs of its materializations.
+ *
+ * <p>Staleness is tracked with commit sequence numbers. Every DML statement
+ * against a base table records the last committed CSN at the time it ran;
+ * statements other than appends also record it as the last rewrite. A refresh
+ * records the CSN of the snapshot from which it reads the base table, so a
+ * materialization is fresh as long as no base table modification has been
+ * recorded at or after that point.
+ *
+ * <p>A modification of a base table also updates the modification timestamp
+ * of each of its materialized tables. Plans which read a materialization in
+ * place of its base table depend on the materialized table, so they become
+ * stale, both in the code cache and in statements which are already
+ * prepared, and are prepared again without the materialization.
+ *
+ * @version $Id$
+ */
+public class LcsMaterializedAggregate
+{
+    //~ Static fields/initializers ---------------------------------------------
+
+    /**
+     * Tag on a materialized table holding the MOF ID of its base table.
+     */
+    public static final String BASE_TABLE_TAG =
+        "luciddb.materializedAggregate.baseTable";
+
+    /**
+     * Tag on a materialized table holding its column definitions, for example
+     * "KEY:2,COUNT,SUM:4".
+     */
+    public static final String COLUMNS_TAG =
+        "luciddb.materializedAggregate.columns";
+
+    /**
+     * Tag on a materialized table holding the CSN of the snapshot read by its
+     * most recent refresh.
+     */
+    public static final String REFRESH_CSN_TAG =
+        "luciddb.materializedAggregate.refreshCsn";
+
+    /**
+     * Tag on a materialized table holding the highest base table RID
+     * included by its most recent refresh.
+     */
+    public static final String RID_WATERMARK_TAG =
+        "luciddb.materializedAggregate.ridWatermark";
+
+    /**
+     * Tag on a base table holding a comma-separated list of the MOF IDs of
+     * its materialized aggregates.
+     */
+    public static final String DEPENDENTS_TAG =
+        "luciddb.materializedAggregates";
+
+    /**
+     * Tag on a base table holding the last committed CSN at the time of its
+     * most recent modification.
+     */
+    public static final String MODIFIED_CSN_TAG =
+        "luciddb.materializedAggregates.modifiedCsn";
+
+    /**
+     * Tag on a base table holding the last committed CSN at the time of its
+     * most recent modification other than an append.
+     */
+    public static final String REWRITTEN_CSN_TAG =
+        "luciddb.materializedAggregates.rewrittenCsn";
+
+    //~ Enums ------------------------------------------------------------------
+
+    /**
+     * Meaning of a column of a materialized aggregate.
+     */
+    public enum ColumnKind
+    {
+        KEY, COUNT, SUM, MIN, MAX
+    }
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final FemLocalTable table;
+    private final List<ColumnKind> kinds;
+    private final List<Integer> baseOrdinals;
+
+    //~ Constructors -----------------------------------------------------------
+
+    private LcsMaterializedAggregate(FemLocalTable table, String columns)
+    {
+        this.table = table;
+        kinds = new ArrayList<ColumnKind>();
+        baseOrdinals = new ArrayList<Integer>();
+        for (String column : columns.split(",")) {
+            int colon = column.indexOf(':');
+            if (colon < 0) {
+                kinds.add(ColumnKind.valueOf(column));
+                baseOrdinals.add(-1);
+            } else {
+                kinds.add(ColumnKind.valueOf(column.substring(0, colon)));
+                baseOrdinals.add(
+                    Integer.valueOf(column.substring(colon + 1)));
+            }
+        }
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * @return the materialized table
+     */
+    public FemLocalTable getTable()
+    {
+        return table;
+    }
+
+    /**
+     * @return number of columns of the materialized table
+     */
+    public int getColumnCount()
+    {
+        return kinds.size();
+    }
+
+    /**
+     * @param i column ordinal in the materialized table
+     *
+     * @return meaning of the column
+     */
+    public ColumnKind getColumnKind(int i)
+    {
+        return kinds.get(i);
+    }
+
+    /**
+     * @param i column ordinal in the materialized table
+     *
+     * @return ordinal of the base table column which the column groups by or
+     * aggregates, or -1 for COUNT(*)
+     */
+    public int getBaseOrdinal(int i)
+    {
+        return baseOrdinals.get(i);
+    }
+
+    /**
+     * Finds the column of the materialized table with a given definition.
+     *
+     * @param kind meaning of the column
+     * @param baseOrdinal base table column ordinal, or -1 for COUNT(*)
+     *
+     * @return column ordinal, or -1 if there is no such column
+     */
+    public int findColumn(ColumnKind kind, int baseOrdinal)
+    {
+        for (int i = 0; i < kinds.size(); ++i) {
+            if ((kinds.get(i) == kind)
+                && (baseOrdinals.get(i) == baseOrdinal))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the definition of a materialized aggregate.
+     *
+     * @param repos repository
+     * @param table table which may hold a materialized aggregate
+     *
+     * @return definition, or null if the table is not a materialized
+     * aggregate
+     */
+    public static LcsMaterializedAggregate lookup(
+        FarragoRepos repos,
+        FemLocalTable table)
+    {
+        String columns = repos.getTagAnnotationValue(table, COLUMNS_TAG);
+        if (columns == null) {
+            return null;
+        }
+        return new LcsMaterializedAggregate(table, columns);
+    }
+
+    /**
+     * Returns the materialized aggregates of a base table which are
+     * consistent with its current contents, smallest first.
+     *
+     * @param repos repository
+     * @param baseTable base table
+     *
+     * @return fresh materializations; empty if there are none
+     */
+    public static List<LcsMaterializedAggregate> getFreshMaterializations(
+        FarragoRepos repos,
+        FemLocalTable baseTable)
+    {
+        List<LcsMaterializedAggregate> list =
+            new ArrayList<LcsMaterializedAggregate>();
+        String dependents =
+            repos.getTagAnnotationValue(baseTable, DEPENDENTS_TAG);
+        if (dependents == null) {
+            return list;
+        }
+        long modifiedCsn = getCsn(repos, baseTable, MODIFIED_CSN_TAG);
+        final Map<FemLocalTable, Long> rowCounts =
+            new HashMap<FemLocalTable, Long>();
+        for (String mofId : dependents.split(",")) {
+            RefBaseObject obj = repos.getMdrRepos().getByMofId(mofId);
+            if (!(obj instanceof FemLocalTable)) {
+                // dropped since it was defined
+                continue;
+            }
+            FemLocalTable table = (FemLocalTable) obj;
+            if (!baseTable.refMofId().equals(
+                    repos.getTagAnnotationValue(table, BASE_TABLE_TAG)))
+            {
+                continue;
+            }
+            long refreshCsn = getCsn(repos, table, REFRESH_CSN_TAG);
+            if ((refreshCsn < 0) || (modifiedCsn >= refreshCsn)) {
+                continue;
+            }
+            LcsMaterializedAggregate mv = lookup(repos, table);
+            if (mv == null) {
+                continue;
+            }
+            Long [] rowCountStats = new Long[2];
+            FarragoCatalogUtil.getRowCounts(table, null, rowCountStats);
+            rowCounts.put(
+                table,
+                (rowCountStats[0] == null) ? Long.MAX_VALUE
+                : rowCountStats[0]);
+            list.add(mv);
+        }
+        Collections.sort(
+            list,
+            new Comparator<LcsMaterializedAggregate>() {
+                public int compare(
+                    LcsMaterializedAggregate mv1,
+                    LcsMaterializedAggregate mv2)
+                {
+                    return rowCounts.get(mv1.table).compareTo(
+                        rowCounts.get(mv2.table));
+                }
+            });
+        return list;
+    }
+
+    /**
+     * Reads a CSN recorded in a tag.
+     *
+     * @param repos repository
+     * @param element tagged element
+     * @param tagName name of tag
+     *
+     * @return recorded CSN, or -1 if none has been recorded
+     */
+    public static long getCsn(
+        FarragoRepos repos,
+        FemAnnotatedElement element,
+        String tagName)
+    {
+        String value = repos.getTagAnnotationValue(element, tagName);
+        return (value == null) ? -1 : Long.parseLong(value);
+    }
+
+    /**
+     * Retrieves the CSN of the most recently committed transaction.
+     *
+     * @param repos repository
+     * @param fennelDbHandle handle to the Fennel database
+     *
+     * @return last committed CSN
+     */
+    public static long getLastCommittedCsn(
+        FarragoRepos repos,
+        FennelDbHandle fennelDbHandle)
+    {
+        FemCmdGetLastCommittedTxnId cmd =
+            repos.newFemCmdGetLastCommittedTxnId();
+        cmd.setDbHandle(fennelDbHandle.getFemDbHandle(repos));
+        fennelDbHandle.executeCmd(cmd);
+        return cmd.getResultHandle().getLongHandle();
+    }
+
+    /**
+     * Retrieves the CSN of the snapshot read by the current transaction of a
+     * session.
+     *
+     * @param session session with a transaction in progress
+     *
+     * @return CSN of the transaction
+     */
+    public static long getTxnCsn(FarragoSession session)
+    {
+        return ((FarragoDbSession) session).getFennelTxnContext().getTxnCsn();
+    }
+
+    /**
+     * Records a modification of a table, if it is the base table of any
+     * materialized aggregates, and marks its materialized tables as modified
+     * so that plans which read them are prepared again. Must be called from
+     * within a repository write transaction.
+     *
+     * @param repos repository
+     * @param fennelDbHandle handle to the Fennel database
+     * @param table modified table
+     * @param append whether the modification only appended rows
+     */
+    public static void recordModification(
+        FarragoRepos repos,
+        FennelDbHandle fennelDbHandle,
+        FemAbstractColumnSet table,
+        boolean append)
+    {
+        String dependents =
+            repos.getTagAnnotationValue(table, DEPENDENTS_TAG);
+        if (dependents == null) {
+            return;
+        }
+        String csn =
+            Long.toString(getLastCommittedCsn(repos, fennelDbHandle));
+        repos.setTagAnnotationValue(table, MODIFIED_CSN_TAG, csn);
+        if (!append) {
+            repos.setTagAnnotationValue(table, REWRITTEN_CSN_TAG, csn);
+        }
+        String timestamp = FarragoCatalogUtil.createTimestamp();
+        for (String mofId : dependents.split(",")) {
+            RefBaseObject obj = repos.getMdrRepos().getByMofId(mofId);
+            if (obj instanceof FemLocalTable) {
+                FarragoCatalogUtil.updateAnnotatedElement(
+                    (FemLocalTable) obj,
+                    timestamp,
+                    false);
+            }
+        }
+    }
+
+    /**
+     * Defines a materialized aggregate. Must be called from within a
+     * repository write transaction.
+     *
+     * @param repos repository
+     * @param table materialized table
+     * @param baseTable base table
+     * @param kinds meaning of each column of the materialized table
+     * @param baseOrdinals base table column of each column of the
+     * materialized table, or -1 for COUNT(*)
+     */
+    public static void define(
+        FarragoRepos repos,
+        FemLocalTable table,
+        FemLocalTable baseTable,
+        List<ColumnKind> kinds,
+        List<Integer> baseOrdinals)
+    {
+        Util.pre(kinds.size() == baseOrdinals.size(), "sizes match");
+        StringBuilder columns = new StringBuilder();
+        for (int i = 0; i < kinds.size(); ++i) {
+            if (i > 0) {
+                columns.append(',');
+            }
+            columns.append(kinds.get(i).name());
+            if (baseOrdinals.get(i) >= 0) {
+                columns.append(':').append(baseOrdinals.get(i));
+            }
+        }
+        repos.setTagAnnotationValue(
+            table,
+            BASE_TABLE_TAG,
+            baseTable.refMofId());
+        repos.setTagAnnotationValue(table, COLUMNS_TAG, columns.toString());
+        String dependents =
+            repos.getTagAnnotationValue(baseTable, DEPENDENTS_TAG);
+        if (dependents == null) {
+            dependents = table.refMofId();
+        } else if (!Arrays.asList(dependents.split(",")).contains(
+                table.refMofId()))
+        {
+            dependents = dependents + "," + table.refMofId();
+        }
+        repos.setTagAnnotationValue(baseTable, DEPENDENTS_TAG, dependents);
+    }
+}
+
+// End LcsMaterializedAggregate.java
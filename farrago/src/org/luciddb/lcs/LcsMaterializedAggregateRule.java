@@ -0,0 +1,374 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package org.luciddb.lcs;
+
+import java.math.*;
+
+import java.util.*;
+
+import net.sf.farrago.catalog.*;
+import net.sf.farrago.fem.med.*;
+import net.sf.farrago.query.*;
+
+import org.eigenbase.rel.*;
+import org.eigenbase.relopt.*;
+import org.eigenbase.reltype.*;
+import org.eigenbase.rex.*;
+import org.eigenbase.sql.fun.*;
+
+
+/**
+ * LcsMaterializedAggregateRule rewrites an aggregate over a column-store
+ * table to read from the smallest fresh {@link LcsMaterializedAggregate} of
+ * that table which covers it.
+ *
+ * <p>A materialization covers a query if the query's grouping keys are a
+ * subset of its grouping keys and each of the query's aggregates is stored
+ * in it. If the grouping keys are the same, the materialized rows are simply
+ * projected; otherwise they are rolled up by aggregating them again, with
+ * counts being summed.
+ *
+ * <p>Only aggregates whose input is the whole table, optionally through a
+ * projection of its columns, are considered. The rule must fire before
+ * projections and filters are pushed into the row scan.
+ *
+ * <p>A rewritten plan depends on the materialized table, whose modification
+ * timestamp changes whenever the base table is modified, so the plan is
+ * prepared again rather than reading a stale materialization. That applies
+ * both to a plan found in the code cache and to a statement which is executed
+ * again after being prepared once; the latter is checked only for plans
+ * which use a materialization. Materialized
+ * aggregates are not used in sessions with a label set, since they reflect
+ * the current contents of the base table rather than those as of the label.
+ *
+ * @version $Id$
+ */
+public class LcsMaterializedAggregateRule
+    extends RelOptRule
+{
+    //~ Static fields/initializers ---------------------------------------------
+
+    public static final LcsMaterializedAggregateRule instanceWithProject =
+        new LcsMaterializedAggregateRule(
+            new RelOptRuleOperand(
+                AggregateRel.class,
+                new RelOptRuleOperand(
+                    ProjectRel.class,
+                    new RelOptRuleOperand(LcsRowScanRel.class, ANY))),
+            "with project");
+
+    public static final LcsMaterializedAggregateRule instanceWithoutProject =
+        new LcsMaterializedAggregateRule(
+            new RelOptRuleOperand(
+                AggregateRel.class,
+                new RelOptRuleOperand(LcsRowScanRel.class, ANY)),
+            "without project");
+
+    //~ Constructors -----------------------------------------------------------
+
+    public LcsMaterializedAggregateRule(
+        RelOptRuleOperand operand,
+        String id)
+    {
+        super(operand, "LcsMaterializedAggregateRule: " + id);
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    // implement RelOptRule
+    public void onMatch(RelOptRuleCall call)
+    {
+        AggregateRel aggRel = (AggregateRel) call.rels[0];
+        ProjectRel projRel = null;
+        LcsRowScanRel rowScan;
+        if (call.rels.length == 3) {
+            projRel = (ProjectRel) call.rels[1];
+            rowScan = (LcsRowScanRel) call.rels[2];
+        } else {
+            rowScan = (LcsRowScanRel) call.rels[1];
+        }
+        if (!rowScan.isFullScan()
+            || (rowScan.getInputs().length > 0)
+            || (rowScan.getResidualColumns().length > 0)
+            || !(rowScan.getLcsTable().getCwmColumnSet()
+                instanceof FemLocalTable))
+        {
+            return;
+        }
+        if (aggRel.containsDistinctCall()) {
+            return;
+        }
+
+        int [] inputOrdinals = getBaseOrdinals(projRel, rowScan);
+        int groupCount = aggRel.getGroupCount();
+        int [] keys = new int[groupCount];
+        Set<Integer> keySet = new HashSet<Integer>();
+        for (int i = 0; i < groupCount; ++i) {
+            keys[i] = inputOrdinals[i];
+            if ((keys[i] < 0) || !keySet.add(keys[i])) {
+                return;
+            }
+        }
+        List<AggregateCall> aggCalls = aggRel.getAggCallList();
+        LcsMaterializedAggregate.ColumnKind [] kinds =
+            new LcsMaterializedAggregate.ColumnKind[aggCalls.size()];
+        int [] args = new int[aggCalls.size()];
+        for (int i = 0; i < aggCalls.size(); ++i) {
+            AggregateCall aggCall = aggCalls.get(i);
+            kinds[i] = getColumnKind(aggCall);
+            if (kinds[i] == null) {
+                return;
+            }
+            if (aggCall.getArgList().isEmpty()) {
+                if (kinds[i] != LcsMaterializedAggregate.ColumnKind.COUNT) {
+                    return;
+                }
+                args[i] = -1;
+            } else {
+                args[i] = inputOrdinals[aggCall.getArgList().get(0)];
+                if (args[i] < 0) {
+                    return;
+                }
+            }
+        }
+
+        FarragoPreparingStmt stmt = FarragoRelUtil.getPreparingStmt(aggRel);
+        if (stmt.getSession().getSessionLabelCsn() != null) {
+            return;
+        }
+        FemLocalTable baseTable =
+            (FemLocalTable) rowScan.getLcsTable().getCwmColumnSet();
+        for (LcsMaterializedAggregate mv
+            : LcsMaterializedAggregate.getFreshMaterializations(
+                stmt.getRepos(),
+                baseTable))
+        {
+            RelNode rel = rewrite(aggRel, rowScan, mv, keys, kinds, args);
+            if (rel != null) {
+                // The materialization stops being usable when the base table
+                // is next modified, which marks the materialized table as
+                // modified too.
+                stmt.addDependency(mv.getTable(), null);
+                stmt.requireRevalidation();
+                call.transformTo(rel);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Maps the fields of an aggregate's input to ordinals of base table
+     * columns.
+     *
+     * @param projRel projection between the aggregate and the row scan, or
+     * null
+     * @param rowScan row scan
+     *
+     * @return base table column ordinal for each input field, or -1 if the
+     * field is not a plain column
+     */
+    private int [] getBaseOrdinals(ProjectRel projRel, LcsRowScanRel rowScan)
+    {
+        int nColumns = rowScan.getLcsTable().getRowType().getFieldCount();
+        Integer [] projectedColumns = rowScan.getProjectedColumns();
+        int [] scanOrdinals = new int[rowScan.getRowType().getFieldCount()];
+        for (int i = 0; i < scanOrdinals.length; ++i) {
+            if (projectedColumns == null) {
+                scanOrdinals[i] = i;
+            } else if (projectedColumns[i] < nColumns) {
+                scanOrdinals[i] = projectedColumns[i];
+            } else {
+                // special column such as LCS_RID
+                scanOrdinals[i] = -1;
+            }
+        }
+        if (projRel == null) {
+            return scanOrdinals;
+        }
+        RexNode [] exps = projRel.getProjectExps();
+        int [] ordinals = new int[exps.length];
+        for (int i = 0; i < exps.length; ++i) {
+            if (exps[i] instanceof RexInputRef) {
+                int index = ((RexInputRef) exps[i]).getIndex();
+                ordinals[i] = scanOrdinals[index];
+            } else {
+                ordinals[i] = -1;
+            }
+        }
+        return ordinals;
+    }
+
+    private static LcsMaterializedAggregate.ColumnKind getColumnKind(
+        AggregateCall aggCall)
+    {
+        String name = aggCall.getAggregation().getName();
+        if (name.equals("COUNT")) {
+            return LcsMaterializedAggregate.ColumnKind.COUNT;
+        } else if (name.equals("SUM")) {
+            return LcsMaterializedAggregate.ColumnKind.SUM;
+        } else if (name.equals("MIN")) {
+            return LcsMaterializedAggregate.ColumnKind.MIN;
+        } else if (name.equals("MAX")) {
+            return LcsMaterializedAggregate.ColumnKind.MAX;
+        }
+        return null;
+    }
+
+    /**
+     * Finds the column of a materialization which holds the partial results
+     * of an aggregate.
+     *
+     * @return column ordinal, or -1 if the aggregate is not covered
+     */
+    private static int findAggColumn(
+        LcsMaterializedAggregate mv,
+        LcsMaterializedAggregate.ColumnKind kind,
+        int arg)
+    {
+        int column = mv.findColumn(kind, arg);
+        if ((column < 0)
+            && ((kind == LcsMaterializedAggregate.ColumnKind.MIN)
+                || (kind == LcsMaterializedAggregate.ColumnKind.MAX)))
+        {
+            // every group is non-empty, so MIN or MAX of a grouping key can
+            // be computed from the key itself
+            column = mv.findColumn(
+                LcsMaterializedAggregate.ColumnKind.KEY,
+                arg);
+        }
+        return column;
+    }
+
+    /**
+     * Rewrites an aggregate to read from a materialization.
+     *
+     * @return rewritten expression, or null if the materialization does not
+     * cover the aggregate
+     */
+    private RelNode rewrite(
+        AggregateRel aggRel,
+        LcsRowScanRel rowScan,
+        LcsMaterializedAggregate mv,
+        int [] keys,
+        LcsMaterializedAggregate.ColumnKind [] kinds,
+        int [] args)
+    {
+        List<Integer> posList = new ArrayList<Integer>();
+        for (int key : keys) {
+            int column =
+                mv.findColumn(LcsMaterializedAggregate.ColumnKind.KEY, key);
+            if (column < 0) {
+                return null;
+            }
+            posList.add(column);
+        }
+        for (int i = 0; i < kinds.length; ++i) {
+            int column = findAggColumn(mv, kinds[i], args[i]);
+            if (column < 0) {
+                return null;
+            }
+            posList.add(column);
+        }
+        int nMvKeys = 0;
+        for (int i = 0; i < mv.getColumnCount(); ++i) {
+            if (mv.getColumnKind(i)
+                == LcsMaterializedAggregate.ColumnKind.KEY)
+            {
+                ++nMvKeys;
+            }
+        }
+
+        FarragoPreparingStmt stmt = FarragoRelUtil.getPreparingStmt(aggRel);
+        RelOptTable mvTable =
+            stmt.loadColumnSet(
+                FarragoCatalogUtil.getQualifiedName(mv.getTable()));
+        RelOptCluster cluster = aggRel.getCluster();
+        RelNode rel =
+            CalcRel.createProject(
+                mvTable.toRel(cluster, rowScan.getConnection()),
+                posList);
+
+        if (keys.length < nMvKeys) {
+            rel = rollUp(aggRel, rel, kinds);
+        }
+        return RelOptUtil.createCastRel(rel, aggRel.getRowType(), true);
+    }
+
+    /**
+     * Aggregates the projected rows of a materialization down to the
+     * grouping keys of a query.
+     */
+    private RelNode rollUp(
+        AggregateRel aggRel,
+        RelNode child,
+        LcsMaterializedAggregate.ColumnKind [] kinds)
+    {
+        RelOptCluster cluster = aggRel.getCluster();
+        RelDataTypeFactory typeFactory = cluster.getTypeFactory();
+        RexBuilder rexBuilder = cluster.getRexBuilder();
+        int groupCount = aggRel.getGroupCount();
+        List<AggregateCall> rollUpCalls = new ArrayList<AggregateCall>();
+        for (int i = 0; i < kinds.length; ++i) {
+            AggregateCall aggCall = aggRel.getAggCallList().get(i);
+            Aggregation aggregation = aggCall.getAggregation();
+            if (kinds[i] == LcsMaterializedAggregate.ColumnKind.COUNT) {
+                aggregation = SqlStdOperatorTable.sumOperator;
+            }
+            rollUpCalls.add(
+                new AggregateCall(
+                    aggregation,
+                    false,
+                    Collections.singletonList(groupCount + i),
+                    typeFactory.createTypeWithNullability(
+                        aggCall.getType(),
+                        true),
+                    aggCall.getName()));
+        }
+        RelNode rel =
+            new AggregateRel(cluster, child, groupCount, rollUpCalls);
+        if (groupCount > 0) {
+            return rel;
+        }
+
+        // Without grouping keys, an empty materialization produces a null
+        // sum of counts where COUNT would produce zero.
+        RelDataTypeField [] fields = rel.getRowType().getFields();
+        RexNode [] exps = new RexNode[fields.length];
+        String [] names = new String[fields.length];
+        for (int i = 0; i < fields.length; ++i) {
+            names[i] = fields[i].getName();
+            exps[i] = rexBuilder.makeInputRef(fields[i].getType(), i);
+            if (kinds[i] == LcsMaterializedAggregate.ColumnKind.COUNT) {
+                exps[i] =
+                    rexBuilder.makeCall(
+                        SqlStdOperatorTable.caseOperator,
+                        rexBuilder.makeCall(
+                            SqlStdOperatorTable.isNullOperator,
+                            exps[i]),
+                        rexBuilder.makeExactLiteral(
+                            BigDecimal.ZERO,
+                            fields[i].getType()),
+                        exps[i]);
+            }
+        }
+        return CalcRel.createProject(rel, exps, names, false);
+    }
+}
+
+// End LcsMaterializedAggregateRule.java
@@ -27,6 +27,7 @@ import net.sf.farrago.fem.med.*;
 import net.sf.farrago.fem.sql2003.*;
 import net.sf.farrago.fennel.rel.*;
 import net.sf.farrago.query.*;
+import net.sf.farrago.session.*;
 
 import openjava.ptree.Literal;
 
@@ -340,6 +341,7 @@ public abstract class LcsRowScanRelBase
 
         // Sampling is disabled by default.
         scanStream.setSamplingMode(TableSamplingModeEnum.SAMPLING_OFF);
+        scanStream.setSharedScan(isSharedScanAllowed());
 
         for (int i = 0; i < inputs.length; i++) {
             FemExecutionStreamDef inputStream =
@@ -352,6 +354,37 @@ public abstract class LcsRowScanRelBase
         return scanStream;
     }
 
+    /**
+     * Determines whether this scan may start where a concurrent full scan of
+     * the same table is currently reading. A shared scan wraps around at the
+     * end of the table, so its rows are not returned in rid order; it is
+     * only used if the session enables it and no special columns, such as
+     * the rid, are projected.
+     *
+     * @return true if the scan may be shared
+     */
+    private boolean isSharedScanAllowed()
+    {
+        if (!isFullScan) {
+            return false;
+        }
+        if (projectedColumns != null) {
+            for (Integer col : projectedColumns) {
+                if (LucidDbOperatorTable.ldbInstance().isSpecialColumnId(
+                        col))
+                {
+                    return false;
+                }
+            }
+        }
+        FarragoSessionVariables variables =
+            FennelRelUtil.getPreparingStmt(this).getSession()
+            .getSessionVariables();
+        return variables.containsVariable(
+                LucidDbSessionPersonality.SHARED_SCANS)
+            && variables.getBoolean(LucidDbSessionPersonality.SHARED_SCANS);
+    }
+
     public LcsIndexGuide getIndexGuide()
     {
         if (indexGuide == null) {
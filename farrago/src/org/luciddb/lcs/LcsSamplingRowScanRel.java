@@ -144,6 +144,7 @@ public class LcsSamplingRowScanRel
             assert (rowCount != null);
         }
         scanStream.setSamplingRowCount(rowCount);
+        scanStream.setSharedScan(false);
 
         scanStream.setSamplingRate(samplingParams.getSamplingPercentage());
         scanStream.setSamplingRepeatable(samplingParams.isRepeatable());
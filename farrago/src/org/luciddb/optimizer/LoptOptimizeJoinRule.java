@@ -19,6 +19,9 @@
 package org.luciddb.optimizer;
 
 import java.util.*;
+import java.util.logging.*;
+
+import net.sf.farrago.trace.*;
 
 import org.eigenbase.rel.*;
 import org.eigenbase.rel.metadata.*;
@@ -33,23 +36,59 @@ import org.eigenbase.sql.fun.*;
  * LoptOptimizeJoinRule implements the heuristic planner for determining optimal
  * join orderings. It is triggered by the pattern ProjectRel(MultiJoinRel).
  *
+ * <p>In addition to the heuristic orderings, if the number of join factors
+ * does not exceed a configurable limit, the rule also enumerates join orders
+ * exhaustively and proposes the cheapest one found. See {@link
+ * #LoptOptimizeJoinRule(int)}.
+ *
  * @author Zelaine Fong
  * @version $Id$
  */
 public class LoptOptimizeJoinRule
     extends RelOptRule
 {
+    private static final Logger tracer = FarragoTrace.getOptimizerRuleTracer();
+
     public static final LoptOptimizeJoinRule instance =
         new LoptOptimizeJoinRule();
 
+    //~ Instance fields --------------------------------------------------------
+
+    /**
+     * Maximum number of join factors for which join orders are enumerated
+     * exhaustively; 0 means only the heuristic orderings are generated
+     */
+    private final int exhaustiveFactorLimit;
+
     //~ Constructors -----------------------------------------------------------
 
     /**
-     * Creates a LoptOptimizeJoinRule.
+     * Creates a LoptOptimizeJoinRule which only generates heuristic join
+     * orderings.
      */
     private LoptOptimizeJoinRule()
     {
-        super(new RelOptRuleOperand(MultiJoinRel.class, ANY));
+        this(0);
+    }
+
+    /**
+     * Creates a LoptOptimizeJoinRule which, for MultiJoinRels with no more
+     * than a given number of factors, also searches all join orders and
+     * proposes the cheapest. The search is exponential in the number of
+     * factors, so the limit should be kept small (around 10 at most).
+     *
+     * @param exhaustiveFactorLimit maximum number of join factors to
+     * enumerate exhaustively; 0 to disable exhaustive enumeration
+     */
+    public LoptOptimizeJoinRule(int exhaustiveFactorLimit)
+    {
+        super(
+            new RelOptRuleOperand(MultiJoinRel.class, ANY),
+            "LoptOptimizeJoinRule"
+            + ((exhaustiveFactorLimit > 0)
+                ? (": exhaustive up to " + exhaustiveFactorLimit)
+                : ""));
+        this.exhaustiveFactorLimit = exhaustiveFactorLimit;
     }
 
     //~ Methods ----------------------------------------------------------------
@@ -456,6 +495,27 @@ outerForLoop:
             plans.add(newProject);
         }
 
+        // with only two factors, the heuristic orderings are already
+        // exhaustive
+        int nJoinFactors = multiJoin.getNumJoinFactors();
+        if ((nJoinFactors > 2) && (nJoinFactors <= exhaustiveFactorLimit)) {
+            long startTime = System.currentTimeMillis();
+            LoptJoinTree joinTree =
+                createExhaustiveOrdering(multiJoin, semiJoinOpt);
+            if (joinTree != null) {
+                plans.add(createTopProject(multiJoin, joinTree, fieldNames));
+            }
+            if (tracer.isLoggable(Level.FINE)) {
+                tracer.fine(
+                    "exhaustive join enumeration over " + nJoinFactors
+                    + " factors took "
+                    + (System.currentTimeMillis() - startTime) + " ms; cost "
+                    + ((joinTree == null) ? null
+                        : RelMetadataQuery.getCumulativeCost(
+                            joinTree.getJoinTree())));
+            }
+        }
+
         // transform the selected plans; note that we wait till then the end to
         // transform everything so any intermediate RelNodes we create are not
         // converted to RelSubsets The HEP planner will choose the join subtree
@@ -754,6 +814,220 @@ outerForLoop:
         return joinTree;
     }
 
+    /**
+     * Generates the cheapest join tree obtainable by adding factors one at a
+     * time, considering every admissible order of the factors rather than
+     * the single greedy order per starting factor produced by {@link
+     * #createOrdering}. The search proceeds by dynamic programming over
+     * subsets of factors, retaining the cheapest tree for each subset. Each
+     * step goes through {@link #addFactorToTree}, so factors may still be
+     * pushed down into subtrees, and cardinalities and chosen semijoins are
+     * used exactly as in the heuristic search.
+     *
+     * <p>As in the heuristic search, a factor that does not join with the
+     * factors already in the tree is only considered when no factor that does
+     * join with them can be added, so cartesian products are not enumerated
+     * needlessly.
+     *
+     * @param multiJoin join factors being optimized
+     * @param semiJoinOpt optimal semijoins for each factor
+     *
+     * @return cheapest join tree found, or null if no complete tree could be
+     * constructed
+     */
+    private LoptJoinTree createExhaustiveOrdering(
+        LoptMultiJoin multiJoin,
+        LoptSemiJoinOptimizer semiJoinOpt)
+    {
+        int nJoinFactors = multiJoin.getNumJoinFactors();
+        int [][] factorWeights = multiJoin.getFactorWeights();
+
+        // seed the search with each factor that can start an ordering
+        Map<BitSet, PartialOrdering> orderings =
+            new LinkedHashMap<BitSet, PartialOrdering>();
+        for (int factor = 0; factor < nJoinFactors; factor++) {
+            if (multiJoin.isNullGenerating(factor)) {
+                continue;
+            }
+            List<RexNode> filtersToAdd =
+                new ArrayList<RexNode>(multiJoin.getJoinFilters());
+            LoptJoinTree joinTree =
+                addFactorToTree(
+                    multiJoin,
+                    semiJoinOpt,
+                    null,
+                    factor,
+                    new BitSet(nJoinFactors),
+                    filtersToAdd,
+                    false);
+            if (joinTree == null) {
+                continue;
+            }
+            BitSet factorsAdded = new BitSet(nJoinFactors);
+            factorsAdded.set(factor);
+            addPartialOrdering(
+                orderings,
+                new PartialOrdering(
+                    joinTree,
+                    factorsAdded,
+                    filtersToAdd,
+                    factor));
+        }
+
+        // extend every retained ordering by one factor at a time; after
+        // nJoinFactors - 1 rounds, only complete orderings remain
+        for (int round = 1; round < nJoinFactors; round++) {
+            Map<BitSet, PartialOrdering> nextOrderings =
+                new LinkedHashMap<BitSet, PartialOrdering>();
+            for (PartialOrdering ordering : orderings.values()) {
+                BitSet factorsAdded = ordering.factorsAdded;
+
+                // the other half of a removable self-join must be added
+                // immediately after the first half
+                Integer selfJoinFactor =
+                    multiJoin.getOtherSelfJoinFactor(ordering.lastFactor);
+                List<Integer> candidates = new ArrayList<Integer>();
+                boolean selfJoin = false;
+                if ((selfJoinFactor != null)
+                    && !factorsAdded.get(selfJoinFactor))
+                {
+                    candidates.add(selfJoinFactor);
+                    selfJoin = true;
+                } else {
+                    getExhaustiveCandidates(
+                        multiJoin,
+                        factorWeights,
+                        factorsAdded,
+                        candidates);
+                }
+
+                for (int factor : candidates) {
+                    BitSet factorsNeeded =
+                        (BitSet) multiJoin.getFactorsRefByFactor(factor)
+                        .clone();
+                    if (multiJoin.isNullGenerating(factor)) {
+                        factorsNeeded.or(
+                            multiJoin.getOuterJoinFactors(factor));
+                    }
+                    factorsNeeded.and(factorsAdded);
+                    List<RexNode> filtersToAdd =
+                        new ArrayList<RexNode>(ordering.filtersToAdd);
+                    LoptJoinTree joinTree =
+                        addFactorToTree(
+                            multiJoin,
+                            semiJoinOpt,
+                            ordering.joinTree,
+                            factor,
+                            factorsNeeded,
+                            filtersToAdd,
+                            selfJoin);
+                    if (joinTree == null) {
+                        continue;
+                    }
+                    BitSet newFactorsAdded = (BitSet) factorsAdded.clone();
+                    newFactorsAdded.set(factor);
+                    addPartialOrdering(
+                        nextOrderings,
+                        new PartialOrdering(
+                            joinTree,
+                            newFactorsAdded,
+                            filtersToAdd,
+                            factor));
+                }
+            }
+            orderings = nextOrderings;
+        }
+
+        PartialOrdering best = null;
+        for (PartialOrdering ordering : orderings.values()) {
+            if (!ordering.filtersToAdd.isEmpty()) {
+                continue;
+            }
+            if ((best == null) || ordering.cost.isLt(best.cost)) {
+                best = ordering;
+            }
+        }
+        return (best == null) ? null : best.joinTree;
+    }
+
+    /**
+     * Determines the factors that may be added next to a partial ordering
+     * during exhaustive enumeration. Factors that join with the partial
+     * ordering are preferred; if there are none, all factors that can
+     * legally be added are returned.
+     *
+     * @param multiJoin join factors being optimized
+     * @param factorWeights weights between pairs of factors
+     * @param factorsAdded factors already in the partial ordering
+     * @param candidates list to which candidate factors are added
+     */
+    private void getExhaustiveCandidates(
+        LoptMultiJoin multiJoin,
+        int [][] factorWeights,
+        BitSet factorsAdded,
+        List<Integer> candidates)
+    {
+        List<Integer> unconnected = new ArrayList<Integer>();
+        for (int factor = 0; factor < multiJoin.getNumJoinFactors(); factor++) {
+            if (factorsAdded.get(factor)) {
+                continue;
+            }
+
+            // same restrictions as getBestNextFactor
+            Integer factIdx = multiJoin.getJoinRemovalFactor(factor);
+            if ((factIdx != null) && !factorsAdded.get(factIdx)) {
+                continue;
+            }
+            if (multiJoin.isNullGenerating(factor)) {
+                BitSet tmp =
+                    (BitSet) multiJoin.getOuterJoinFactors(factor).clone();
+                tmp.andNot(factorsAdded);
+                if (tmp.cardinality() != 0) {
+                    continue;
+                }
+            }
+
+            boolean connected = false;
+            for (
+                int prevFactor = factorsAdded.nextSetBit(0);
+                prevFactor >= 0;
+                prevFactor = factorsAdded.nextSetBit(prevFactor + 1))
+            {
+                if (factorWeights[prevFactor][factor] > 0) {
+                    connected = true;
+                    break;
+                }
+            }
+            if (connected) {
+                candidates.add(factor);
+            } else {
+                unconnected.add(factor);
+            }
+        }
+        if (candidates.isEmpty()) {
+            candidates.addAll(unconnected);
+        }
+    }
+
+    /**
+     * Records a partial ordering produced during exhaustive enumeration,
+     * unless a cheaper ordering of the same set of factors has already been
+     * recorded.
+     *
+     * @param orderings cheapest partial ordering found so far for each set of
+     * factors
+     * @param ordering new partial ordering
+     */
+    private void addPartialOrdering(
+        Map<BitSet, PartialOrdering> orderings,
+        PartialOrdering ordering)
+    {
+        PartialOrdering existing = orderings.get(ordering.factorsAdded);
+        if ((existing == null) || ordering.cost.isLt(existing.cost)) {
+            orderings.put(ordering.factorsAdded, ordering);
+        }
+    }
+
     /**
      * Determines the best factor to be added next into a join tree.
      *
@@ -2143,6 +2417,35 @@ outerForLoop:
             leftRel,
             RelMdUtil.setBitKeys(leftKeys));
     }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * A join tree over a subset of the join factors, built during exhaustive
+     * join enumeration.
+     */
+    private static class PartialOrdering
+    {
+        final LoptJoinTree joinTree;
+        final BitSet factorsAdded;
+        final List<RexNode> filtersToAdd;
+        final int lastFactor;
+        final RelOptCost cost;
+
+        PartialOrdering(
+            LoptJoinTree joinTree,
+            BitSet factorsAdded,
+            List<RexNode> filtersToAdd,
+            int lastFactor)
+        {
+            this.joinTree = joinTree;
+            this.factorsAdded = factorsAdded;
+            this.filtersToAdd = filtersToAdd;
+            this.lastFactor = lastFactor;
+            this.cost =
+                RelMetadataQuery.getCumulativeCost(joinTree.getJoinTree());
+        }
+    }
 }
 
 // End LoptOptimizeJoinRule.java
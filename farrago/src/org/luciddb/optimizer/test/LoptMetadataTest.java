@@ -344,13 +344,19 @@ public class LoptMetadataTest
     private void checkRowCount(String table, Double rowCount)
         throws Exception
     {
-        transformQuery(
-            "select * from " + table);
+        loadStatistics(table);
         checkDouble(
             rowCount,
             RelMetadataQuery.getRowCount(rootRel),
             EPSILON);
+    }
 
+    // queries table and reads its statistics, without checking the row count
+    private void loadStatistics(String table)
+        throws Exception
+    {
+        transformQuery(
+            "select * from " + table);
         RelNode tableScan = rootRel.getInput(0);
         tableStats = RelMetadataQuery.getStatistics(tableScan);
         rexBuilder = rootRel.getCluster().getRexBuilder();
@@ -679,6 +685,67 @@ public class LoptMetadataTest
         // TODO: tests when table cardinality is missing
     }
 
+    public void testZeroBarHistogram()
+        throws Exception
+    {
+        FarragoJdbcEngineConnection farragoConnection =
+            (FarragoJdbcEngineConnection) connection;
+        FarragoSession session = farragoConnection.getSession();
+
+        // a distinct value count with no sampled values, as harvested from a
+        // foreign server's index statistics
+        stmt.executeUpdate(
+            "create table NO_BARS (i int)");
+        FarragoStatsUtil.setTableRowCount(session, "", "", "NO_BARS", 1000);
+        FarragoStatsUtil.createColumnHistogram(
+            session,
+            "",
+            "",
+            "NO_BARS",
+            "I",
+            40,
+            0,
+            0,
+            0,
+            "0123456789");
+        checkRowCount("NO_BARS", 1000.0);
+
+        // without a predicate, the distinct value count is still useful
+        checkColumn(0, null, 1.0, 40.0);
+
+        // with one, nothing is known about the distribution
+        checkPredicate(
+            0,
+            SqlStdOperatorTable.equalsOperator,
+            BigDecimal.valueOf(5),
+            null,
+            null);
+
+        // an analyzed empty table also has no bars; nothing can match
+        stmt.executeUpdate(
+            "create table EMPTY_BARS (i int)");
+        FarragoStatsUtil.setTableRowCount(session, "", "", "EMPTY_BARS", 0);
+        FarragoStatsUtil.createColumnHistogram(
+            session,
+            "",
+            "",
+            "EMPTY_BARS",
+            "I",
+            0,
+            100,
+            0,
+            0,
+            "0123456789");
+        loadStatistics("EMPTY_BARS");
+        checkColumn(0, null, 1.0, 0.0);
+        checkPredicate(
+            0,
+            SqlStdOperatorTable.lessThanOperator,
+            BigDecimal.valueOf(5),
+            null,
+            0.0);
+    }
+
     public void testFilteredStatistics()
         throws Exception
     {
@@ -83,6 +83,17 @@ public class LucidDbSessionPersonality
     public static final String LAST_ROWS_REJECTED_DEFAULT = null;
     public static final String REDUCE_NON_CORRELATED_SUBQUERIES_LUCIDDB_DFLT =
         "true";
+    public static final String EXHAUSTIVE_JOIN_FACTOR_LIMIT =
+        "exhaustiveJoinFactorLimit";
+    public static final String EXHAUSTIVE_JOIN_FACTOR_LIMIT_DEFAULT = "0";
+    public static final String LOCK_WAIT_TIMEOUT = "lockWaitTimeout";
+    public static final String LOCK_WAIT_TIMEOUT_DEFAULT = "0";
+    public static final String DYNAMIC_JOIN_FILTERS = "dynamicJoinFilters";
+    public static final String DYNAMIC_JOIN_FILTERS_DEFAULT = "false";
+    public static final String LATE_MATERIALIZATION = "lateMaterialization";
+    public static final String LATE_MATERIALIZATION_DEFAULT = "false";
+    public static final String SHARED_SCANS = "sharedScans";
+    public static final String SHARED_SCANS_DEFAULT = "false";
 
     //~ Instance fields --------------------------------------------------------
 
@@ -130,6 +141,19 @@ public class LucidDbSessionPersonality
             true,
             0,
             Integer.MAX_VALUE);
+        paramValidator.registerIntParam(
+            EXHAUSTIVE_JOIN_FACTOR_LIMIT,
+            false,
+            0,
+            Integer.MAX_VALUE);
+        paramValidator.registerLongParam(
+            LOCK_WAIT_TIMEOUT,
+            false,
+            0,
+            Long.MAX_VALUE);
+        paramValidator.registerBoolParam(DYNAMIC_JOIN_FILTERS, false);
+        paramValidator.registerBoolParam(LATE_MATERIALIZATION, false);
+        paramValidator.registerBoolParam(SHARED_SCANS, false);
         if (defaultPersonality == null) {
             defaultLucidDb = true;
         } else if (defaultPersonality instanceof LucidDbSessionPersonality) {
@@ -241,13 +265,25 @@ public class LucidDbSessionPersonality
         Collection<RelOptRule> medPluginRules = new LinkedHashSet<RelOptRule>();
 
         boolean alterTable = stmt.getSession().isReentrantAlterTableAddColumn();
+        int exhaustiveJoinFactorLimit =
+            stmt.getSession().getSessionVariables().getInteger(
+                EXHAUSTIVE_JOIN_FACTOR_LIMIT);
+        boolean dynamicJoinFilters =
+            stmt.getSession().getSessionVariables().getBoolean(
+                DYNAMIC_JOIN_FILTERS);
+        boolean lateMaterialization =
+            stmt.getSession().getSessionVariables().getBoolean(
+                LATE_MATERIALIZATION);
 
         HepProgram program =
             createHepProgram(
                 fennelEnabled,
                 calcVM,
                 medPluginRules,
-                alterTable);
+                alterTable,
+                exhaustiveJoinFactorLimit,
+                dynamicJoinFilters,
+                lateMaterialization);
         FarragoSessionPlanner planner =
             new LucidDbPlanner(
                 program,
@@ -278,7 +314,10 @@ public class LucidDbSessionPersonality
         boolean fennelEnabled,
         CalcVirtualMachine calcVM,
         Collection<RelOptRule> medPluginRules,
-        boolean alterTable)
+        boolean alterTable,
+        int exhaustiveJoinFactorLimit,
+        boolean dynamicJoinFilters,
+        boolean lateMaterialization)
     {
         HepProgramBuilder builder = new HepProgramBuilder();
 
@@ -359,6 +398,13 @@ public class LucidDbSessionPersonality
         builder.addRuleInstance(new MergeProjectRule(true));
         builder.addGroupEnd();
 
+        // Prune the branches of range-partitioned UNION ALL views which the
+        // filters pushed into them rule out.  This has to happen while the
+        // filters still sit directly beneath the union, i.e., after trivial
+        // projects in the view branches are removed above, but before
+        // projects are pushed back down into the branches below.
+        builder.addRuleInstance(RemoveEmptyRule.unionFilterSargInstance);
+
         // Push the projects back down
         applyPushDownProjectRules(builder);
 
@@ -371,6 +417,17 @@ public class LucidDbSessionPersonality
         // to joins.
         builder.addRuleInstance(new MergeProjectRule(true));
 
+        // Answer aggregates from materialized aggregate tables.  This has to
+        // happen while the aggregate input is still a plain projection of
+        // the row scan, before projections are pushed into the scan, and
+        // before the aggregates are decomposed by the rules below.
+        builder.addGroupBegin();
+        builder.addRuleInstance(
+            LcsMaterializedAggregateRule.instanceWithProject);
+        builder.addRuleInstance(
+            LcsMaterializedAggregateRule.instanceWithoutProject);
+        builder.addGroupEnd();
+
         // Eliminate AGG(DISTINCT x).  Because this transformation
         // may introduce new joins, it needs to be applied before
         // the rules that determine join ordering.
@@ -453,7 +510,12 @@ public class LucidDbSessionPersonality
         // can optimize lower-level joins before their ancestors.  That allows
         // ancestors to have better cost info to work with (well, eventually).
         builder.addMatchOrder(HepMatchOrder.BOTTOM_UP);
-        builder.addRuleInstance(LoptOptimizeJoinRule.instance);
+        if (exhaustiveJoinFactorLimit > 0) {
+            builder.addRuleInstance(
+                new LoptOptimizeJoinRule(exhaustiveJoinFactorLimit));
+        } else {
+            builder.addRuleInstance(LoptOptimizeJoinRule.instance);
+        }
         builder.addMatchOrder(HepMatchOrder.ARBITRARY);
 
         // Now that we've converted MultiJoinRels back to JoinRels, reduce
@@ -518,6 +580,19 @@ public class LucidDbSessionPersonality
         // result.
         builder.addRuleInstance(RemoveSemiJoinRule.instance);
 
+        // Defer reading columns of row scans beneath selective joins until
+        // after the joins.  The join chain below the deferred fetch is a
+        // common subexpression, so do this before buffering those, and
+        // before projections are pushed into the narrowed row scans below.
+        if (lateMaterialization && fennelEnabled) {
+            builder.addRuleInstance(
+                LcsLateMaterializationRule.instanceThreeJoins);
+            builder.addRuleInstance(
+                LcsLateMaterializationRule.instanceTwoJoins);
+            builder.addRuleInstance(
+                LcsLateMaterializationRule.instanceOneJoin);
+        }
+
         // Remove common relational subexpressions.  Do this after the rules
         // that determine the optimal join ordering because as part of
         // determining join ordering, we also remove unnecessary joins.
@@ -561,6 +636,13 @@ public class LucidDbSessionPersonality
         // Use hash join wherever possible.
         builder.addRuleInstance(LhxJoinRule.instance);
 
+        // Prune column-store probe inputs of hash joins with the range of the
+        // build side keys.  This adds row scan inputs, so it has to be done
+        // before the deletion index scans are added below.
+        if (dynamicJoinFilters) {
+            builder.addRuleInstance(LcsDynamicFilterRule.instance);
+        }
+
         // Use hash join to implement set op: Intersect.
         builder.addRuleInstance(LhxIntersectRule.instance);
 
@@ -592,6 +674,7 @@ public class LucidDbSessionPersonality
         if (enableIndexOnlyScans) {
             builder.addRuleInstance(LcsIndexAggRule.instanceRowScan);
             builder.addRuleInstance(LcsIndexAggRule.instanceNormalizer);
+            builder.addRuleInstance(LcsIndexAggRule.instanceFixedPrefix);
         }
 
         // Do this after index-only rules, since index-only aggregation
@@ -813,6 +896,17 @@ public class LucidDbSessionPersonality
         variables.setDefault(
             LAST_ROWS_REJECTED,
             LAST_ROWS_REJECTED_DEFAULT);
+        variables.setDefault(
+            EXHAUSTIVE_JOIN_FACTOR_LIMIT,
+            EXHAUSTIVE_JOIN_FACTOR_LIMIT_DEFAULT);
+        variables.setDefault(LOCK_WAIT_TIMEOUT, LOCK_WAIT_TIMEOUT_DEFAULT);
+        variables.setDefault(
+            DYNAMIC_JOIN_FILTERS,
+            DYNAMIC_JOIN_FILTERS_DEFAULT);
+        variables.setDefault(
+            LATE_MATERIALIZATION,
+            LATE_MATERIALIZATION_DEFAULT);
+        variables.setDefault(SHARED_SCANS, SHARED_SCANS_DEFAULT);
         variables.set(
             REDUCE_NON_CORRELATED_SUBQUERIES,
             REDUCE_NON_CORRELATED_SUBQUERIES_LUCIDDB_DFLT);
@@ -833,6 +927,17 @@ public class LucidDbSessionPersonality
         return clone;
     }
 
+    // override FarragoDefaultSessionPersonality
+    public List<String> getPlanAffectingSessionVariables()
+    {
+        List<String> names = super.getPlanAffectingSessionVariables();
+        names.add(EXHAUSTIVE_JOIN_FACTOR_LIMIT);
+        names.add(DYNAMIC_JOIN_FILTERS);
+        names.add(LATE_MATERIALIZATION);
+        names.add(SHARED_SCANS);
+        return names;
+    }
+
     // override FarragoDefaultSessionPersonality
     public FarragoSessionRuntimeContext newRuntimeContext(
         FarragoSessionRuntimeParams params)
@@ -926,6 +1031,12 @@ public class LucidDbSessionPersonality
                 // the rowcounts now before incrementing them
                 // with the result of the reentrant INSERT.
                 resetRowCounts(columnSet);
+            } else {
+                LcsMaterializedAggregate.recordModification(
+                    repos,
+                    database.getFennelDbHandle(),
+                    columnSet,
+                    tableModOp == TableModificationRel.Operation.INSERT);
             }
 
             Long [] rowCountStats = new Long[2];
@@ -1025,6 +1136,14 @@ public class LucidDbSessionPersonality
     public void resetRowCounts(FemAbstractColumnSet table)
     {
         FarragoCatalogUtil.resetRowCounts(table, database.getUserRepos());
+
+        // the table is being truncated or rebuilt, so any materialized
+        // aggregates over it need a full refresh
+        LcsMaterializedAggregate.recordModification(
+            database.getUserRepos(),
+            database.getFennelDbHandle(),
+            table,
+            false);
     }
 
     //  implement FarragoSessionPersonality
@@ -19,6 +19,7 @@
 package org.luciddb.session;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.logging.*;
 
 import net.sf.farrago.catalog.*;
@@ -55,6 +56,14 @@ class LucidDbTxnMgr
 
     private final LockManager2 lockMgr;
 
+    /**
+     * Maximum time in milliseconds that each transaction waits for a
+     * conflicting lock, taken from the {@link
+     * LucidDbSessionPersonality#LOCK_WAIT_TIMEOUT} session variable when the
+     * transaction begins. Transactions which are absent fail immediately.
+     */
+    private final Map<FarragoSessionTxnId, Long> lockWaitTimeouts;
+
     //~ Constructors -----------------------------------------------------------
 
     LucidDbTxnMgr()
@@ -64,6 +73,7 @@ class LucidDbTxnMgr
         // java.util.logging settings
         LoggerFacade loggerFacade = new Jdk14Logger(tracer);
         lockMgr = new GenericLockManager(2, loggerFacade);
+        lockWaitTimeouts = new ConcurrentHashMap<FarragoSessionTxnId, Long>();
     }
 
     //~ Methods ----------------------------------------------------------------
@@ -71,7 +81,18 @@ class LucidDbTxnMgr
     // implement FarragoSessionTxnMgr
     public FarragoSessionTxnId beginTxn(FarragoSession session)
     {
-        return super.beginTxn(session);
+        FarragoSessionTxnId txnId = super.beginTxn(session);
+        FarragoSessionVariables variables = session.getSessionVariables();
+        if (variables.containsVariable(
+                LucidDbSessionPersonality.LOCK_WAIT_TIMEOUT))
+        {
+            Long timeout =
+                variables.getLong(LucidDbSessionPersonality.LOCK_WAIT_TIMEOUT);
+            if ((timeout != null) && (timeout > 0)) {
+                lockWaitTimeouts.put(txnId, timeout);
+            }
+        }
+        return txnId;
     }
 
     // override FarragoDbNullTxnMgr
@@ -103,6 +124,7 @@ class LucidDbTxnMgr
         tracer.fine(
             "Transaction " + txnId + " releasing all table and database locks");
         lockMgr.releaseAll(txnId);
+        lockWaitTimeouts.remove(txnId);
     }
 
     private void acquireLock(
@@ -116,13 +138,31 @@ class LucidDbTxnMgr
             + ((lockLevel == 1) ? "shared" : "exclusive")
             + " lock on "
             + renderedName);
-        if (lockMgr.tryLock(txnId, resourceId, lockLevel, true)) {
+        Long timeout = lockWaitTimeouts.get(txnId);
+        if (timeout == null) {
+            if (lockMgr.tryLock(txnId, resourceId, lockLevel, true)) {
+                tracer.fine(
+                    "Transaction " + txnId + " acquired lock successfully");
+                return;
+            }
+            throw FarragoResource.instance().LockDenied.ex(
+                renderedName);
+        }
+
+        // Wait for conflicting transactions to end; the lock manager also
+        // gives up early if waiting would deadlock.
+        try {
+            lockMgr.lock(txnId, resourceId, lockLevel, true, timeout);
+        } catch (LockException ex) {
             tracer.fine(
-                "Transaction " + txnId + " acquired lock successfully");
-            return;
+                "Transaction " + txnId + " failed to acquire lock: "
+                + ex.getMessage());
+            throw FarragoResource.instance().LockDenied.ex(
+                renderedName,
+                ex);
         }
-        throw FarragoResource.instance().LockDenied.ex(
-            renderedName);
+        tracer.fine(
+            "Transaction " + txnId + " acquired lock successfully");
     }
 }
 
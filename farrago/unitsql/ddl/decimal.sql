@@ -122,4 +122,11 @@ select * from vn;
 select * from vn9;
 select * from vn95;
 
+-- Test a long IN list over decimals; it is past the IN-subquery threshold,
+-- so it becomes a single $IN, which ReduceDecimalsRule must expand
+select * from td52 where d in
+(2.69, -999.99, 0.01, 0.02, 0.03, 0.04, 0.05, 0.06, 0.07, 0.08, 0.09, 0.10,
+0.11, 0.12, 0.13, 0.14, 0.15, 0.16, 0.17, 0.18, 0.19, 0.20)
+order by n;
+
 -- End decimal.sql
@@ -59,6 +59,63 @@ options (filename 'missing');
 
 select * from flatfile_missing;
 
+--
+-- 1.4 Test tables which read several files, named by a directory
+--     and by a pattern
+--
+create foreign table flatfile_directory(
+    id int not null,
+    name varchar(50) not null,
+    extra_field char(1) not null)
+server flatfile_server
+options (filename 'daily');
+
+select count(*) from flatfile_directory;
+
+create foreign table flatfile_pattern(
+    id int not null,
+    name varchar(50) not null,
+    extra_field char(1) not null)
+server flatfile_server
+options (filename 'daily/day?');
+
+select count(*) from flatfile_pattern;
+
+-- a table over a directory sees files which arrive between two executions
+-- of the same statement
+create procedure copy_test_file(
+    in source_path varchar(256), in target_path varchar(256))
+language java
+parameter style java
+no sql
+external name 'class net.sf.farrago.test.FarragoTestUDR.copyTestFile';
+
+call copy_test_file(null, 'flatfileSet/day2.csv');
+call copy_test_file(
+    'unitsql/med/flatfiles/daily/day1.csv', 'flatfileSet/day1.csv');
+
+create server flatfile_set_server
+foreign data wrapper sys_file_wrapper
+options (
+    directory 'testgen/',
+    file_extension 'csv',
+    with_header 'yes',
+    lenient 'no');
+
+create foreign table flatfile_arriving(
+    id int not null,
+    name varchar(50) not null,
+    extra_field char(1) not null)
+server flatfile_set_server
+options (filename 'flatfileSet');
+
+select count(*) from flatfile_arriving;
+
+call copy_test_file(
+    'unitsql/med/flatfiles/daily/day2.csv', 'flatfileSet/day2.csv');
+
+select count(*) from flatfile_arriving;
+
 --
 -- 1.5 Test bad line delimiter
 --      (note that the delimiter does not occur in the file)
@@ -182,6 +239,19 @@ options (
 
 select * from flatfile_server_esc.BCP."example" order by 3;
 
+--
+-- 1.12 Test a data file compressed with gzip, which is recognized
+--      by its contents rather than its extension
+--
+create foreign table flatfile_compressed(
+    id int not null,
+    name varchar(50) not null,
+    extra_field char(1) not null)
+server flatfile_server
+options (filename 'compressed/example');
+
+select * from flatfile_compressed order by 3;
+
 
 ---------------------------------------------------------------------------
 -- Part 2. Test fixed position file parsing                              --
@@ -0,0 +1,75 @@
+-- $Id$
+-- Test bind joins against SQL/MED JDBC foreign tables
+
+create schema jdbc_bind_join;
+set schema 'jdbc_bind_join';
+
+-- bind joins are off unless the server asks for them; use a batch size
+-- smaller than the local input so that several lookups are needed
+create server hsqldb_bind_join
+foreign data wrapper sys_jdbc
+options(
+    driver_class 'org.hsqldb.jdbcDriver',
+    url 'jdbc:hsqldb:testcases/hsqldb/scott',
+    user_name 'SA',
+    table_types 'TABLE,VIEW',
+    bind_join_batch_size '2');
+
+-- 50 has no match, null never matches, and 20 appears twice
+create table local_depts(id int not null primary key, deptno int);
+insert into local_depts values
+(1, 10), (2, 20), (3, 20), (4, 50), (5, null), (6, 30), (7, 40);
+
+create table local_keys(
+    id int not null primary key, deptno int, dname varchar(20));
+insert into local_keys values
+(1, 10, 'ACCOUNTING'), (2, 20, 'SALES'), (3, 30, 'SALES'),
+(4, 40, 'OPERATIONS');
+
+create table local_hires(id int not null primary key, hired date);
+insert into local_hires values
+(1, date '1980-12-17'), (2, date '1981-02-20'), (3, date '1999-01-01');
+
+!set outputformat csv
+
+select l.id, d.dname
+from local_depts l inner join hsqldb_bind_join.sales.dept d
+on l.deptno = d.deptno
+order by l.id;
+
+select l.id, coalesce(d.dname, '-') as dname
+from local_depts l left outer join hsqldb_bind_join.sales.dept d
+on l.deptno = d.deptno
+order by l.id;
+
+-- composite key: both columns must match in the same remote row
+select k.id, d.loc
+from local_keys k inner join hsqldb_bind_join.sales.dept d
+on k.deptno = d.deptno and k.dname = d.dname
+order by k.id;
+
+-- date keys are matched by value, not by the drivers' millisecond forms
+select h.id, e.ename
+from local_hires h inner join hsqldb_bind_join.sales.emp e
+on h.hired = e.hiredate
+order by h.id;
+
+-- the default server has no batch size, so the same join stays local
+select l.id, d.dname
+from local_depts l inner join hsqldb_demo.sales.dept d
+on l.deptno = d.deptno
+order by l.id;
+
+explain plan excluding attributes for
+select l.id, d.dname
+from local_depts l inner join hsqldb_bind_join.sales.dept d
+on l.deptno = d.deptno
+order by l.id;
+
+explain plan excluding attributes for
+select l.id, coalesce(d.dname, '-') as dname
+from local_depts l left outer join hsqldb_bind_join.sales.dept d
+on l.deptno = d.deptno
+order by l.id;
+
+-- End jdbcBindJoin.sql
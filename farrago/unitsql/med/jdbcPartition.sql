@@ -0,0 +1,73 @@
+-- $Id$
+-- Test partitioned scans of SQL/MED JDBC foreign tables
+
+create schema jdbc_partition;
+set schema 'jdbc_partition';
+
+-- keep aggregation and sorting local, so that the remote query is a plain
+-- scan which can be split into partitions
+create server hsqldb_partitioned
+foreign data wrapper sys_jdbc
+options(
+    driver_class 'org.hsqldb.jdbcDriver',
+    url 'jdbc:hsqldb:testcases/hsqldb/scott',
+    user_name 'SA',
+    table_types 'TABLE,VIEW',
+    disabled_pushdown_rel_pattern 'AggregateRel|SortRel');
+
+-- same, but without a connection pool, so partitioning must not happen
+create server hsqldb_unpooled
+foreign data wrapper sys_jdbc
+options(
+    driver_class 'org.hsqldb.jdbcDriver',
+    url 'jdbc:hsqldb:testcases/hsqldb/scott',
+    user_name 'SA',
+    table_types 'TABLE,VIEW',
+    disabled_pushdown_rel_pattern 'AggregateRel|SortRel',
+    disable_connection_pool 'TRUE');
+
+create foreign table emp_by_empno
+server hsqldb_partitioned
+options(
+    schema_name 'SALES', table_name 'EMP',
+    partition_column 'EMPNO', partition_count '3');
+
+-- MGR is null for one row, which must land in the first partition
+create foreign table emp_by_mgr
+server hsqldb_partitioned
+options(
+    schema_name 'SALES', table_name 'EMP',
+    partition_column 'MGR', partition_count '4');
+
+-- more partitions than distinct keys
+create foreign table emp_many_partitions
+server hsqldb_partitioned
+options(
+    schema_name 'SALES', table_name 'EMP',
+    partition_column 'DEPTNO', partition_count '100');
+
+create foreign table emp_unpooled
+server hsqldb_unpooled
+options(
+    schema_name 'SALES', table_name 'EMP',
+    partition_column 'EMPNO', partition_count '3');
+
+!set outputformat csv
+
+-- every row must be returned exactly once
+select count(*) as n, sum(empno) as s from emp_by_empno;
+select count(*) as n, sum(empno) as s from emp_by_mgr;
+select count(*) as n, sum(empno) as s from emp_many_partitions;
+select count(*) as n, sum(empno) as s from emp_unpooled;
+
+-- nulls in the partition column
+select count(*) as n, count(mgr) as m, sum(mgr) as s from emp_by_mgr;
+
+-- the filter is pushed down and applied within each partition
+select count(*) as n, sum(empno) as s from emp_by_empno where deptno = 20;
+select count(*) as n, sum(empno) as s from emp_unpooled where deptno = 20;
+
+select ename from emp_by_empno order by ename;
+select ename from emp_unpooled order by ename;
+
+-- End jdbcPartition.sql
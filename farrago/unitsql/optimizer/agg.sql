@@ -89,6 +89,10 @@ select deptno, gender, min(age), max(age) from emps
 
 select sum(age) from emps group by deptno;
 
+-- Test approximate distinct count; for so few values the estimate is exact
+select deptno, approx_count_distinct(gender) from emps
+    group by deptno order by 1;
+
 -- Test where input stream is empty
 select deptno, count(*) from emps where deptno < 0 group by deptno;
 
@@ -239,6 +243,10 @@ select deptno, gender, min(age), max(age) from emps
 
 select sum(age) from emps group by deptno order by 1;
 
+-- Test approximate distinct count; for so few values the estimate is exact
+select deptno, approx_count_distinct(gender) from emps
+    group by deptno order by 1;
+
 -- Test where input stream is empty
 select deptno, count(*) from emps where deptno < 0 group by deptno
 order by 1;
@@ -692,4 +700,34 @@ order by deptno;
 
 drop function java_lang_integer_to_hex_string;
 
+-- ROLLUP, CUBE and GROUPING SETS; subtotals are rolled up from the finest
+-- aggregate, and COUNT rolls up as SUM
+select deptno, gender, count(*) as c, sum(age) as s, min(age) as mn,
+    max(age) as mx
+from emps
+group by rollup(deptno, gender)
+order by deptno, gender, c;
+
+select gender, count(*) as c, count(age) as ca
+from emps
+group by cube(gender)
+order by gender, c;
+
+select deptno, count(*) as c
+from emps
+group by grouping sets ((deptno), (deptno, gender), ())
+order by deptno, c;
+
+-- the empty grouping set yields one grand-total row even over empty input;
+-- COUNT is zero there, while SUM, MIN and MAX are null
+select deptno, count(*) as c, sum(age) as s, min(age) as mn, max(age) as mx
+from emps
+where empno > 100000
+group by rollup(deptno);
+
+select deptno
+from emps
+where empno > 100000
+group by rollup(deptno);
+
 -- End agg.sql
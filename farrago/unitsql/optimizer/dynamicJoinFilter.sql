@@ -0,0 +1,54 @@
+-- $Id$
+-- Test pruning of column-store hash join probes with the range of the build
+-- side join keys
+
+create schema dynfilt;
+set schema 'dynfilt';
+set path 'dynfilt';
+
+alter system set "calcVirtualMachine" = 'CALCVM_FENNEL';
+alter session implementation set jar sys_boot.sys_boot.luciddb_plugin;
+
+create table fact(k integer, v integer);
+create table dim(k integer, name varchar(10));
+insert into fact values
+(1, 10), (2, 20), (3, 30), (4, 40), (5, 50), (6, 60), (7, 70), (8, 80),
+(null, 90);
+insert into dim values (3, 'three'), (4, 'four'), (6, 'six'), (null, 'none');
+
+-- set fake stats so that the dimension is the build side
+call sys_boot.mgmt.stat_set_row_count('LOCALDB', 'DYNFILT', 'FACT', 1000);
+call sys_boot.mgmt.stat_set_row_count('LOCALDB', 'DYNFILT', 'DIM', 10);
+
+!set outputformat csv
+
+-- off by default
+explain plan for
+select * from fact f, dim d where f.k = d.k order by f.v;
+
+alter session set "dynamicJoinFilters" = true;
+
+-- the probe side scan gets a residual filter on K, bounded by the MIN and
+-- MAX of the build side keys
+explain plan for
+select * from fact f, dim d where f.k = d.k order by f.v;
+
+select * from fact f, dim d where f.k = d.k order by f.v;
+
+-- an empty build side gives null bounds, which no probe row passes
+select * from fact f, dim d where f.k = d.k and d.name = 'nobody'
+order by f.v;
+
+-- unmatched probe rows are part of the result of a left outer join, so its
+-- probe side must not be pruned
+explain plan for
+select * from fact f left outer join dim d on f.k = d.k order by f.v;
+
+select * from fact f left outer join dim d on f.k = d.k order by f.v;
+
+alter session set "dynamicJoinFilters" = false;
+
+-- Clean up
+!set outputformat table
+drop schema dynfilt cascade;
+
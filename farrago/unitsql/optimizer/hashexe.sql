@@ -126,7 +126,7 @@ select * from lhxemps, lhxdepts
 where lhxemps.deptno = lhxdepts.deptnoA
 order by empno, ename;
 
--- test hash join implementation for big IN
+-- big IN list on a column becomes a single $IN, pushed as a residual filter
 explain plan for 
 select ename from lhxemps
 where empno in 
@@ -138,6 +138,18 @@ where empno in
 (110, 110, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1)
 order by ename;
 
+-- big IN list over an expression is evaluated by the Java calculator
+explain plan for 
+select ename from lhxemps
+where empno + 0 in 
+(110, 110, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1)
+order by ename;
+
+select ename from lhxemps
+where empno + 0 in 
+(110, 110, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1)
+order by ename;
+
 -- this query uses hash join after pushing down the RHS expression
 explain plan for 
 select * from lhxemps, lhxdepts
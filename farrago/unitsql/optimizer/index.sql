@@ -47,6 +47,11 @@ order by name;
 
 select name from depts where deptno in (20,30) order by name;
 
+-- long IN list becomes a single $IN, which still searches the index by points
+select name from depts where deptno in
+(20, 30, 40, 50, 60, 70, 80, 90, 100, 110, 120, 130, 140, 150, 160, 170, 180, 190, 200, 210, 220, 230)
+order by name;
+
 -- scaling
 select name from depts where deptno=20.00;
 
@@ -206,6 +211,11 @@ select name from depts where deptno < 20 or deptno between 30 and 40;
 explain plan for
 select name from depts where deptno in (20,30) order by name;
 
+explain plan for
+select name from depts where deptno in
+(20, 30, 40, 50, 60, 70, 80, 90, 100, 110, 120, 130, 140, 150, 160, 170, 180, 190, 200, 210, 220, 230)
+order by name;
+
 explain plan for
 select name from depts where deptno=20.00;
 
@@ -698,6 +708,10 @@ select b from multikey where a = 1;
 explain plan for 
 select b from multikey where a = 1 group by b;
 
+-- group by keys following a prefix fixed by the search
+explain plan for 
+select b, count(*) from multikey where a = 1 and b > 1 group by b;
+
 -- widening of an index search 
 create index multikey_a on multikey(a);
 
@@ -453,3 +453,26 @@ explain plan for
         from big b2 inner join big b1 on b1.a = b2.a
         left outer join small s1 on b1.b = s1.a
         left outer join small s2 on b1.b = s2.a;
+
+--------------------------------------------------------------------
+-- Exhaustive join enumeration.  These joins are small enough for the
+-- dynamic programming search in LoptOptimizeJoinRule, which must keep the
+-- orderings chosen above:  A and B joined before C, and the row scan of all
+-- of BIG's columns kept out of the innermost join, while still respecting
+-- the outer join dependencies.
+--------------------------------------------------------------------
+alter session set "exhaustiveJoinFactorLimit" = 4;
+
+explain plan for
+select * from A, B, C
+where A.a = B.a and
+A.b + B.b = C.b and
+A.c = C.c;
+
+explain plan for
+    select b2.*, b1.a, s1.b, s2.b
+        from big b2 inner join big b1 on b1.a = b2.a
+        left outer join small s1 on b1.b = s1.a
+        left outer join small s2 on b1.b = s2.a;
+
+alter session set "exhaustiveJoinFactorLimit" = 0;
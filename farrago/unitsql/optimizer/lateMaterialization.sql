@@ -0,0 +1,99 @@
+-- $Id$
+-- Test late materialization of column-store payload columns past selective
+-- joins
+
+create schema latemat;
+set schema 'latemat';
+set path 'latemat';
+
+alter system set "calcVirtualMachine" = 'CALCVM_FENNEL';
+alter session implementation set jar sys_boot.sys_boot.luciddb_plugin;
+
+create table fact(
+    id integer, k1 integer, k2 integer, k3 integer, payload varchar(20));
+create table d1(k1 integer, name1 varchar(10));
+create table d2(k2 integer, name2 varchar(10));
+create table d3(k3 integer, name3 varchar(10));
+insert into fact values
+(1, 1, 1, 1, 'p1'), (2, 2, 2, 2, 'p2'), (3, 3, 3, 3, 'p3'),
+(4, 4, 1, 2, 'p4'), (5, 5, 2, 3, 'p5'), (6, 3, 3, 1, 'p6'),
+(7, 9, 9, 9, 'p7'), (8, null, 1, 1, 'p8');
+-- D1 has two rows with key 3, so facts 3 and 6 each match twice
+insert into d1 values (1, 'a'), (3, 'c'), (3, 'cc'), (4, 'd');
+insert into d2 values (1, 'x'), (3, 'z');
+insert into d3 values (1, 'u'), (2, 'v'), (3, 'w');
+
+-- fake stats so that the joins keep only a small fraction of the facts
+call sys_boot.mgmt.stat_set_row_count('LOCALDB', 'LATEMAT', 'FACT', 100000);
+call sys_boot.mgmt.stat_set_row_count('LOCALDB', 'LATEMAT', 'D1', 10);
+call sys_boot.mgmt.stat_set_row_count('LOCALDB', 'LATEMAT', 'D2', 10);
+call sys_boot.mgmt.stat_set_row_count('LOCALDB', 'LATEMAT', 'D3', 10);
+call sys_boot.mgmt.stat_set_column_histogram(
+    'LOCALDB', 'LATEMAT', 'FACT', 'K1', 1000, 100, 1000, 0, '0123456789');
+call sys_boot.mgmt.stat_set_column_histogram(
+    'LOCALDB', 'LATEMAT', 'FACT', 'K2', 1000, 100, 1000, 0, '0123456789');
+call sys_boot.mgmt.stat_set_column_histogram(
+    'LOCALDB', 'LATEMAT', 'FACT', 'K3', 1000, 100, 1000, 0, '0123456789');
+call sys_boot.mgmt.stat_set_column_histogram(
+    'LOCALDB', 'LATEMAT', 'D1', 'K1', 10, 100, 10, 0, '0123456789');
+call sys_boot.mgmt.stat_set_column_histogram(
+    'LOCALDB', 'LATEMAT', 'D2', 'K2', 10, 100, 10, 0, '0123456789');
+call sys_boot.mgmt.stat_set_column_histogram(
+    'LOCALDB', 'LATEMAT', 'D3', 'K3', 10, 100, 10, 0, '0123456789');
+
+!set outputformat csv
+
+-- off by default: the fact scan reads the payload columns of every row
+explain plan excluding attributes for
+select f.id, f.payload, d1.name1 from fact f, d1
+where f.k1 = d1.k1 order by f.id, d1.name1;
+
+alter session set "lateMaterialization" = true;
+
+-- one join: the fact scan only reads K1 and the rids; ID and PAYLOAD are
+-- fetched by a second scan, driven by the sorted and deduplicated rids
+-- which survive the join, and joined back on the rid
+explain plan excluding attributes for
+select f.id, f.payload, d1.name1 from fact f, d1
+where f.k1 = d1.k1 order by f.id, d1.name1;
+
+-- facts 3 and 6 match two rows of D1, but are fetched once and still
+-- appear twice
+select f.id, f.payload, d1.name1 from fact f, d1
+where f.k1 = d1.k1 order by f.id, d1.name1;
+
+-- two joins
+explain plan excluding attributes for
+select f.id, f.payload, d1.name1, d2.name2 from fact f, d1, d2
+where f.k1 = d1.k1 and f.k2 = d2.k2 order by f.id, d1.name1;
+
+select f.id, f.payload, d1.name1, d2.name2 from fact f, d1, d2
+where f.k1 = d1.k1 and f.k2 = d2.k2 order by f.id, d1.name1;
+
+-- three joins
+explain plan excluding attributes for
+select f.id, f.payload, d1.name1, d2.name2, d3.name3
+from fact f, d1, d2, d3
+where f.k1 = d1.k1 and f.k2 = d2.k2 and f.k3 = d3.k3
+order by f.id, d1.name1;
+
+select f.id, f.payload, d1.name1, d2.name2, d3.name3
+from fact f, d1, d2, d3
+where f.k1 = d1.k1 and f.k2 = d2.k2 and f.k3 = d3.k3
+order by f.id, d1.name1;
+
+-- deleted rows are skipped by both scans of the fact table
+delete from fact where id in (3, 7);
+select f.id, f.payload, d1.name1 from fact f, d1
+where f.k1 = d1.k1 order by f.id, d1.name1;
+select f.id, f.payload, d1.name1, d2.name2, d3.name3
+from fact f, d1, d2, d3
+where f.k1 = d1.k1 and f.k2 = d2.k2 and f.k3 = d3.k3
+order by f.id, d1.name1;
+
+alter session set "lateMaterialization" = false;
+
+-- Clean up
+!set outputformat table
+drop schema latemat cascade;
+
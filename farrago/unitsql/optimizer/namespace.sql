@@ -173,6 +173,27 @@ select count(*)
 from hsqldb_demo.sales.bitflip
 where b1;
 
+-- duplicate elimination is pushed down as SELECT DISTINCT
+select distinct deptno
+from hsqldb_demo.sales.emp
+order by deptno;
+
+-- ORDER BY on a NOT NULL key can be pushed down to remote server
+select b2
+from hsqldb_demo.sales.bitflip
+order by b2;
+select b2
+from hsqldb_demo.sales.bitflip
+order by b2 desc;
+
+-- a long IN list is pushed down as a standard IN list
+select ename
+from hsqldb_demo.sales.emp
+where empno in
+(7369, 7499, 7521, 1, 2, 3, 4, 5, 6, 7, 8,
+9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19)
+order by ename;
+
 -- now explain plans for above queries
 !set outputformat csv
 
@@ -332,6 +353,35 @@ select count(*)
 from hsqldb_demo.sales.bitflip
 where b1;
 
+explain plan for
+select distinct deptno
+from hsqldb_demo.sales.emp;
+
+explain plan for
+select b2
+from hsqldb_demo.sales.bitflip
+order by b2;
+
+explain plan for
+select b2
+from hsqldb_demo.sales.bitflip
+order by b2 desc;
+
+-- a nullable key stays local, since HSQLDB does not sort nulls low
+explain plan for
+select b1
+from hsqldb_demo.sales.bitflip
+order by b1;
+
+-- a long IN list is pushed down as a standard IN list
+explain plan for
+select ename
+from hsqldb_demo.sales.emp
+where empno in
+(7369, 7499, 7521, 1, 2, 3, 4, 5, 6, 7, 8,
+9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19)
+order by ename;
+
 -- join on pseudocolumn (FRG-69)
 
 explain plan for
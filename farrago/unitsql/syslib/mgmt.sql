@@ -4,6 +4,14 @@ select count(url) from sys_boot.mgmt.sessions_view;
 
 select sql_stmt from sys_boot.mgmt.statements_view;
 
+-- planner statistics are reported only for statements planned by Volcano
+select count(*) from sys_boot.mgmt.statements_view
+where planning_stats is null and sql_stmt like '%planning_stats%';
+alter session implementation add jar sys_boot.sys_boot.volcano_plugin;
+select count(*) from sys_boot.mgmt.statements_view
+where planning_stats is not null and sql_stmt like '%planning_stats%';
+alter session implementation set default;
+
 select count(mof_id) from sys_boot.mgmt.objects_in_use_view;
 
 select sys_boot.mgmt.sleep(1500) from (values(0));
@@ -162,6 +162,40 @@ mathPow(
     }
 }
 
+void
+mathHllEstimate(
+    RegisterRef<long long>* result,
+    RegisterRef<char*>* sketch)
+{
+    assert(StandardTypeDescriptor::isBinaryArray(sketch->type()));
+
+    if (sketch->isNull()) {
+        result->toNull();
+        return;
+    }
+
+    // Same computation as net.sf.farrago.type.runtime.HllSketch.estimate:
+    // the harmonic mean of the registers, or linear counting of the empty
+    // registers when the estimate is small.
+    uint8_t const *pRegisters =
+        reinterpret_cast<uint8_t const *>(sketch->pointer());
+    uint m = sketch->stringLength();
+    double sum = 0;
+    uint zeroCount = 0;
+    for (uint i = 0; i < m; ++i) {
+        if (pRegisters[i] == 0) {
+            ++zeroCount;
+        }
+        sum += 1.0 / (1ULL << pRegisters[i]);
+    }
+    double alpha = 0.7213 / (1 + 1.079 / m);
+    double estimate = alpha * m * m / sum;
+    if ((estimate <= 2.5 * m) && (zeroCount > 0)) {
+        estimate = m * log(double(m) / zeroCount);
+    }
+    result->value((long long) floor(estimate + 0.5));
+}
+
 void
 ExtMathRegister(ExtendedInstructionTable* eit)
 {
@@ -236,6 +270,15 @@ ExtMathRegister(ExtendedInstructionTable* eit)
         (ExtendedInstruction3<double, double, double>*) NULL,
         &mathPow);
 
+    vector<StandardTypeDescriptorOrdinal> params_1I_1B;
+    params_1I_1B.push_back(STANDARD_TYPE_INT_64);
+    params_1I_1B.push_back(STANDARD_TYPE_BINARY);
+
+    eit->add(
+        "hllEstimate", params_1I_1B,
+        (ExtendedInstruction2<long long, char*>*) NULL,
+        &mathHllEstimate);
+
 }
 
 
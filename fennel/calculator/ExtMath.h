@@ -64,6 +64,13 @@ mathPow(
     RegisterRef<double>* x,
     RegisterRef<double>* y);
 
+//! mathHllEstimate. Estimates the number of distinct values summarized by a
+//! HyperLogLog sketch, as accumulated by AGG_FUNC_HLL_SKETCH.
+void
+mathHllEstimate(
+    RegisterRef<long long>* result,
+    RegisterRef<char*>* sketch);
+
 
 class ExtendedInstructionTable;
 
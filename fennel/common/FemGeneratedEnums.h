@@ -19,13 +19,15 @@
 
 enum AggFunction {
     AGG_FUNC_COUNT,
+    AGG_FUNC_HLL_MERGE,
+    AGG_FUNC_HLL_SKETCH,
     AGG_FUNC_MAX,
     AGG_FUNC_MIN,
     AGG_FUNC_SINGLE_VALUE,
     AGG_FUNC_SUM
 };
 
-static std::string AggFunction_names[] = {"AGG_FUNC_COUNT","AGG_FUNC_MAX","AGG_FUNC_MIN","AGG_FUNC_SINGLE_VALUE","AGG_FUNC_SUM",""};
+static std::string AggFunction_names[] = {"AGG_FUNC_COUNT","AGG_FUNC_HLL_MERGE","AGG_FUNC_HLL_SKETCH","AGG_FUNC_MAX","AGG_FUNC_MIN","AGG_FUNC_SINGLE_VALUE","AGG_FUNC_SUM",""};
 
 enum BarrierReturnMode {
     BARRIER_RET_ALL_INPUTS,
@@ -70,6 +70,10 @@ AggComputer *AggComputer::newAggComputer(
     case AGG_FUNC_SINGLE_VALUE:
         assert(pAttrDesc);
         return new ExtremeAggComputer(aggFunction, *pAttrDesc);
+    case AGG_FUNC_HLL_SKETCH:
+    case AGG_FUNC_HLL_MERGE:
+        assert(pAttrDesc);
+        return new HllAggComputer(aggFunction);
     }
     permAssert(false);
 }
@@ -342,6 +346,120 @@ void ExtremeAggComputer::updateAccumulator(
     }
 }
 
+HllAggComputer::HllAggComputer(AggFunction aggFunction)
+{
+    merge = (aggFunction == AGG_FUNC_HLL_MERGE);
+}
+
+inline PBuffer HllAggComputer::interpretDatum(TupleDatum &datum)
+{
+    assert(datum.pData);
+    return const_cast<PBuffer>(datum.pData);
+}
+
+inline void HllAggComputer::clearAccumulatorImpl(TupleDatum &accumulatorDatum)
+{
+    accumulatorDatum.cbData = HLL_SKETCH_BYTES;
+    memset(interpretDatum(accumulatorDatum), 0, HLL_SKETCH_BYTES);
+}
+
+inline void HllAggComputer::addInput(
+    PBuffer pRegisters,
+    TupleDatum const &inputDatum)
+{
+    if (!inputDatum.pData) {
+        // nulls are not counted, as for COUNT(DISTINCT x)
+        return;
+    }
+    if (merge) {
+        assert(inputDatum.cbData == HLL_SKETCH_BYTES);
+        for (uint i = 0; i < HLL_SKETCH_BYTES; ++i) {
+            if (inputDatum.pData[i] > pRegisters[i]) {
+                pRegisters[i] = inputDatum.pData[i];
+            }
+        }
+        return;
+    }
+
+    // 64-bit FNV-1a, followed by the MurmurHash3 finalizer so that the high
+    // bits (which select the register) are well mixed even for short inputs
+    uint64_t hash = 14695981039346656037ULL;
+    for (uint i = 0; i < inputDatum.cbData; ++i) {
+        hash ^= inputDatum.pData[i];
+        hash *= 1099511628211ULL;
+    }
+    hash ^= hash >> 33;
+    hash *= 0xff51afd7ed558ccdULL;
+    hash ^= hash >> 33;
+    hash *= 0xc4ceb9fe1a85ec53ULL;
+    hash ^= hash >> 33;
+
+    // The high bits select a register, which records the greatest number of
+    // leading zeros (plus one) seen among the remaining bits.
+    uint iRegister = hash >> (64 - HLL_PRECISION);
+    uint64_t remainder = hash << HLL_PRECISION;
+    uint8_t rank = 1;
+    while ((rank <= 64 - HLL_PRECISION) && !(remainder >> 63)) {
+        remainder <<= 1;
+        ++rank;
+    }
+    if (rank > pRegisters[iRegister]) {
+        pRegisters[iRegister] = rank;
+    }
+}
+
+void HllAggComputer::clearAccumulator(TupleDatum &accumulatorDatum)
+{
+    clearAccumulatorImpl(accumulatorDatum);
+}
+
+void HllAggComputer::updateAccumulator(
+    TupleDatum &accumulatorDatum,
+    TupleData const &inputTuple)
+{
+    assert(iInputAttr != -1);
+    addInput(interpretDatum(accumulatorDatum), inputTuple[iInputAttr]);
+}
+
+void HllAggComputer::computeOutput(
+    TupleDatum &outputDatum,
+    TupleDatum const &accumulatorDatum)
+{
+    // Set output to alias accumulator value directly.  An empty input yields
+    // an empty sketch, whose estimate is zero.
+    outputDatum = accumulatorDatum;
+}
+
+void HllAggComputer::initAccumulator(
+    TupleDatum &accumulatorDatumDest,
+    TupleData const &inputTuple)
+{
+    assert(iInputAttr != -1);
+    clearAccumulatorImpl(accumulatorDatumDest);
+    addInput(interpretDatum(accumulatorDatumDest), inputTuple[iInputAttr]);
+}
+
+void HllAggComputer::initAccumulator(
+    TupleDatum &accumulatorDatumSrc,
+    TupleDatum &accumulatorDatumDest)
+{
+    accumulatorDatumDest.memCopyFrom(accumulatorDatumSrc);
+}
+
+void HllAggComputer::updateAccumulator(
+    TupleDatum &accumulatorDatumSrc,
+    TupleDatum &accumulatorDatumDest,
+    TupleData const &inputTuple)
+{
+    assert(iInputAttr != -1);
+    addInput(interpretDatum(accumulatorDatumSrc), inputTuple[iInputAttr]);
+    /*
+     * The sketch is updated in place, so as for count there is no need to
+     * use memCopyFrom.
+     */
+    accumulatorDatumDest.copyFrom(accumulatorDatumSrc);
+}
+
 FENNEL_END_CPPFILE("$Id$");
 
 // End AggComputer.cpp
@@ -25,6 +25,18 @@
 
 FENNEL_BEGIN_NAMESPACE
 
+/**
+ * Number of hash bits used to select a HyperLogLog register.
+ */
+static const uint HLL_PRECISION = 10;
+
+/**
+ * Number of bytes in the HyperLogLog sketch accumulated by AGG_FUNC_HLL_SKETCH
+ * and AGG_FUNC_HLL_MERGE, one per register.  This must agree with the length
+ * of the BINARY type which Farrago declares for those functions.
+ */
+static const uint HLL_SKETCH_BYTES = 1 << HLL_PRECISION;
+
 /**
  * CountAggComputer is an abstract base for computing COUNT().
  */
@@ -279,6 +291,65 @@ public:
     }
 };
 
+/**
+ * HllAggComputer accumulates a HyperLogLog sketch from which the number of
+ * distinct values can be estimated in fixed memory.  For AGG_FUNC_HLL_SKETCH
+ * the input is any value, and null values are ignored; for AGG_FUNC_HLL_MERGE
+ * the input is a sketch, which is merged by taking the maximum of each
+ * register.  Because merging is exact, partial sketches computed over
+ * partitions of the input combine to the sketch of the whole input.
+ */
+class FENNEL_EXEC_EXPORT HllAggComputer
+    : public AggComputer
+{
+    /**
+     * True if the inputs are sketches to be merged.
+     */
+    bool merge;
+
+    inline PBuffer interpretDatum(TupleDatum &datum);
+
+    inline void clearAccumulatorImpl(TupleDatum &accumulatorDatum);
+
+    /**
+     * Adds an input value (or sketch) to a sketch.
+     *
+     * @param pRegisters registers of sketch to be updated
+     *
+     * @param inputDatum input value
+     */
+    inline void addInput(PBuffer pRegisters, TupleDatum const &inputDatum);
+
+public:
+    explicit HllAggComputer(AggFunction aggFunction);
+
+    // implement AggComputer
+    virtual void clearAccumulator(
+        TupleDatum &accumulatorDatum);
+
+    // implement AggComputer
+    virtual void updateAccumulator(
+        TupleDatum &accumulatorDatum,
+        TupleData const &inputTuple);
+
+    // implement AggComputer
+    virtual void computeOutput(
+        TupleDatum &outputDatum,
+        TupleDatum const &accumulatorDatum);
+
+    virtual void initAccumulator(
+        TupleDatum &accumulatorDatumDest,
+        TupleData const &inputTuple);
+
+    virtual void initAccumulator(
+        TupleDatum &accumulatorDatumSrc,
+        TupleDatum &accumulatorDatumDest);
+
+    virtual void updateAccumulator(
+        TupleDatum &accumulatorDatumSrc,
+        TupleDatum &accumulatorDatumDest,
+        TupleData const &inputTuple);
+};
 
 FENNEL_END_NAMESPACE
 
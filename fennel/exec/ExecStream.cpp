@@ -21,6 +21,7 @@
 #include "fennel/exec/ExecStream.h"
 #include "fennel/exec/ExecStreamGraph.h"
 #include "fennel/exec/ExecStreamScheduler.h"
+#include "fennel/exec/ExecStreamGovernor.h"
 #include "fennel/cache/CacheAccessor.h"
 #include "fennel/txn/LogicalTxn.h"
 
@@ -147,6 +148,19 @@ void ExecStream::open(bool restart)
 #if 0
         assert(isOpen);
 #endif
+        if (!isOpen) {
+            // reopened after an early close, so this stream has to be
+            // closed again, and may get back the resources it gave up
+            isOpen = true;
+            needsClose = true;
+            if (pGraph) {
+                SharedExecStreamGovernor pGov =
+                    pGraph->getResourceGovernor();
+                if (pGov) {
+                    pGov->requestStreamResources(*pGraph, *this);
+                }
+            }
+        }
     } else {
         // NOTE: this assertion is bad because in case of multiple
         // inheritance, open can be called twice.  So we rely on the
@@ -151,6 +151,11 @@ public:
      */
     inline ExecStreamId getStreamId() const;
 
+    /**
+     * @return resource quantities currently allocated to this stream
+     */
+    inline ExecStreamResourceQuantity const &getResourceAllocation() const;
+
     /**
      * Initializes the buffer accessors for inputs to this stream.  This
      * method is only ever called once, before prepare.
@@ -306,6 +311,12 @@ inline ExecStreamGraph &ExecStream::getGraph() const
     return *pGraph;
 }
 
+inline ExecStreamResourceQuantity const &ExecStream::getResourceAllocation()
+    const
+{
+    return resourceAllocation;
+}
+
 FENNEL_END_NAMESPACE
 
 #endif
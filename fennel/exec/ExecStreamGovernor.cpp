@@ -38,11 +38,14 @@ ExecStreamGovernor::ExecStreamGovernor(
         knobSettingsInit.cacheReservePercentage;
     knobSettings.expectedConcurrentStatements =
         knobSettingsInit.expectedConcurrentStatements;
+    knobSettings.grantWaitMillis = knobSettingsInit.grantWaitMillis;
 
     resourcesAvailable.nCachePages =
         resourcesAvailableInit.nCachePages
         * (100 - knobSettings.cacheReservePercentage) / 100;
     resourcesAssigned.nCachePages = 0;
+    nGrantWaits = 0;
+    nPagesReturnedEarly = 0;
 }
 
 inline ostream& operator<< (ostream& os, const ExecStreamGovernor& gov)
@@ -99,18 +102,28 @@ void ExecStreamGovernor::writeStats(StatsTarget &target)
     target.writeCounter(
         "CacheReservePercentage",
         knobSettings.cacheReservePercentage);
+    target.writeCounter(
+        "CachePageGrantWaitMillis",
+        knobSettings.grantWaitMillis);
     target.writeCounter(
         "CachePagesGoverned",
         resourcesAvailable.nCachePages);
     target.writeCounter(
         "CachePagesReserved",
         resourcesAssigned.nCachePages);
+    target.writeCounter(
+        "CachePageGrantWaitsSinceInit",
+        nGrantWaits);
+    target.writeCounter(
+        "CachePagesReturnedEarlySinceInit",
+        nPagesReturnedEarly);
 }
 
 inline ostream& operator<< (ostream& os, const ExecStreamResourceKnobs& k)
 {
     os << " expectedConcurrentStatements=" << k.expectedConcurrentStatements;
     os << " cacheReservePercentage=" << k.cacheReservePercentage;
+    os << " grantWaitMillis=" << k.grantWaitMillis;
     return os;
 }
 
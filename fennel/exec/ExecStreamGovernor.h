@@ -36,7 +36,8 @@ FENNEL_BEGIN_NAMESPACE
  */
 enum ExecStreamResourceKnobType {
     EXEC_KNOB_EXPECTED_CONCURRENT_STATEMENTS,
-    EXEC_KNOB_CACHE_RESERVE_PERCENTAGE
+    EXEC_KNOB_CACHE_RESERVE_PERCENTAGE,
+    EXEC_KNOB_GRANT_WAIT_MILLIS
 };
 
 /**
@@ -54,6 +55,19 @@ struct FENNEL_EXEC_EXPORT ExecStreamResourceKnobs
      * Percentage of cache pages to keep in reserve
      */
     uint cacheReservePercentage;
+
+    /**
+     * Maximum time in milliseconds a request waits for other graphs to
+     * return resources before giving up on its minimum requirements
+     */
+    uint grantWaitMillis;
+
+    explicit ExecStreamResourceKnobs()
+    {
+        expectedConcurrentStatements = 0;
+        cacheReservePercentage = 0;
+        grantWaitMillis = 10000;
+    }
 };
 
 /**
@@ -117,6 +131,24 @@ protected:
      */
     StrictMutex mutex;
 
+    /**
+     * Signalled whenever resources are returned to the available pool, so
+     * that requests which could not be granted their minimum can retry
+     */
+    LocalCondition resourcesReturned;
+
+    /**
+     * Number of resource requests that have had to wait for other graphs
+     * to return resources
+     */
+    uint nGrantWaits;
+
+    /**
+     * Number of cache pages returned by streams that closed before their
+     * graph did
+     */
+    uint nPagesReturnedEarly;
+
     /**
      * Initializes the resource governor object, including initializing
      * current resource availability.
@@ -206,6 +238,31 @@ public:
      */
     virtual void returnResources(ExecStreamGraph &graph) = 0;
 
+    /**
+     * Returns to the available resource pool the resources assigned to a
+     * single stream that has been closed before the rest of its graph, e.g.
+     * a producer whose consumer has buffered all of its input.  Since a
+     * consumer may still restart the stream, the stream keeps its minimum
+     * requirements, and only what it was assigned above that is returned.
+     *
+     * @param graph the exec stream graph containing the stream
+     * @param stream the stream that is returning its resources
+     */
+    virtual void returnStreamResources(
+        ExecStreamGraph &graph, ExecStream &stream) = 0;
+
+    /**
+     * Reassigns to a stream that is being restarted the resources it gave
+     * up through returnStreamResources, as far as the resources currently
+     * available allow.  This never waits, since the stream still has its
+     * minimum requirements.
+     *
+     * @param graph the exec stream graph containing the stream
+     * @param stream the stream that is being restarted
+     */
+    virtual void requestStreamResources(
+        ExecStreamGraph &graph, ExecStream &stream) = 0;
+
     // implement StatsSource
     void writeStats(StatsTarget &target);
 };
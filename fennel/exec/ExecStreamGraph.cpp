@@ -757,7 +757,16 @@ void ExecStreamGraphImpl::closeProducers(ExecStreamId streamId)
             continue;
         }
         closeProducers(streamId);
+        if (pStream->isClosed()) {
+            continue;
+        }
         pStream->close();
+        // let other statements have the cache pages the stream no longer
+        // needs without waiting for this graph to close; if the stream is
+        // restarted, it asks for them again
+        if (pResourceGovernor) {
+            pResourceGovernor->returnStreamResources(*this, *pStream);
+        }
     }
 }
 
@@ -63,6 +63,7 @@ void MockResourceExecStream::getResourceRequirements(
 void MockResourceExecStream::setResourceAllocation(
     ExecStreamResourceQuantity &quantity)
 {
+    SingleOutputExecStream::setResourceAllocation(quantity);
     numToAllocate = quantity.nCachePages;
 }
 
@@ -52,7 +52,7 @@ resource requirements
 <h3>Resource Knobs</h3>
 
 Resource knob settings are stored in an ExecStreamResourceKnobs structure.
-Currently, two knobs are supported:
+Currently, three knobs are supported:
 
 <ul>
 
@@ -65,6 +65,11 @@ running concurrently at any given time.
 of the global data cache that the resource governor cannot use when assigning
 cache pages to individual stream graphs.
 
+<li>ExecStreamResourceKnobs::grantWaitMillis - This bounds how long a request
+that cannot be granted its minimum waits for other stream graphs to return
+cache pages before it fails.
+It defaults to 10 seconds.
+
 </ul>
 
 When the resource governor is initialized, it is provided with default
@@ -180,10 +185,22 @@ allocations are determined.
 method will be called to return each stream's assigned resources so the
 resource governor can assign them to new stream graphs.
 
+<li>ExecStreamGovernor::returnStreamResources - When a stream is closed
+early by ExecStreamGraphImpl::closeProducers, this method will be called to
+return the resources assigned to that stream above its minimum before the
+rest of its graph closes.
+The stream keeps its minimum because a consumer may still restart it, e.g.
+the inner input of a cartesian join.
+
+<li>ExecStreamGovernor::requestStreamResources - When a stream that was
+closed early is restarted, this method will be called to give back what it
+returned, as far as the resources currently available allow.
+
 </ul>
 
-Both ExecStreamGovernor::requestResources and
-ExecStreamGovernor::returnResources are polymorphic.
+ExecStreamGovernor::requestResources, ExecStreamGovernor::returnResources,
+ExecStreamGovernor::returnStreamResources and
+ExecStreamGovernor::requestStreamResources are polymorphic.
 Therefore, different implementations of resource governors can be built,
 supporting different allocation policies.
 
@@ -198,13 +215,17 @@ It has the following characteristics:
 
 <li>It only manages and allocates cache data pages.
 
-<li>Requests fail when insufficient resources are available for even a minimum
-allocation.
+<li>When insufficient resources are available for even a minimum
+allocation, a request waits for up to
+ExecStreamResourceKnobs::grantWaitMillis for other graphs to
+return resources, and then fails.
+Requests fail immediately if no other graph is holding resources.
 
-<li>The allocation policy is fixed and based purely on the resource knob
-settings and resource availability.
+<li>The allocation policy is based on the resource knob settings, resource
+availability and the number of graphs currently holding resources.
 
-<li>Once resources are assigned, they are not taken away.
+<li>Once resources are assigned, they are not taken away, but streams that
+are closed early give back whatever exceeds their minimum.
 
 <li>It assumes that all streams are concurrently active and therefore cannot
 share resources.
@@ -220,9 +241,13 @@ ExecStreamResourceKnobs::expectedConcurrentStatements to yield
 ExecStreamGovernor::perGraphAllocation.
 This computed value serves as a reference amount in determining how many
 cache pages to assign to each graph.
-If during the course of execution, fewer pages than
-ExecStreamGovernor::perGraphAllocation are available, then the total remaining
-number of cache pages becomes the reference amount for allocation.
+When fewer graphs are active than expected, the reference amount is raised to
+the pages currently available divided by two more than the number of active
+graphs, so that a lightly loaded system does not leave memory idle while still
+keeping some back for statements that start later.
+If during the course of execution, fewer pages than the reference amount are
+available, then the total remaining number of cache pages becomes the
+reference amount for allocation.
 
 <p>
 
@@ -239,8 +264,9 @@ These numbers are used by the SimpleExecStreamGovernor as follows:
 <ol>
 
 <li>If the total minimum cache page requirements specified by each execution
-stream is greater than the total number of pages currently available, then an
-exception is raised.
+stream is greater than the total number of pages currently available, then the
+request waits for other graphs to return pages.
+If that does not free enough pages in time, an exception is raised.
 The memory currently available excludes the cache pages in reserve and any
 pages already assigned to other stream graphs.
 
@@ -61,6 +61,14 @@ bool SimpleExecStreamGovernor::setResourceKnob(
             << " cache pages.");
         break;
 
+    case EXEC_KNOB_GRANT_WAIT_MILLIS:
+        knobSettings.grantWaitMillis = knob.grantWaitMillis;
+        FENNEL_TRACE(
+            TRACE_FINE,
+            "Grant wait set to " << knobSettings.grantWaitMillis
+            << " milliseconds.");
+        break;
+
     case EXEC_KNOB_CACHE_RESERVE_PERCENTAGE:
         // make sure we have enough unassigned pages to set aside the new
         // reserve amount
@@ -77,6 +85,7 @@ bool SimpleExecStreamGovernor::setResourceKnob(
         resourcesAvailable.nCachePages =
             totalPagesAvailable - numReserve - resourcesAssigned.nCachePages;
         perGraphAllocation = computePerGraphAllocation();
+        resourcesReturned.notify_all();
         FENNEL_TRACE(
             TRACE_FINE,
             "Cache reserve percentage set to "
@@ -108,6 +117,7 @@ bool SimpleExecStreamGovernor::setResourceAvailability(
         resourcesAvailable.nCachePages =
             (pagesAvailable - resourcesAssigned.nCachePages);
         perGraphAllocation = computePerGraphAllocation();
+        resourcesReturned.notify_all();
         FENNEL_TRACE(
             TRACE_FINE,
             resourcesAvailable.nCachePages
@@ -138,14 +148,6 @@ void SimpleExecStreamGovernor::requestResources(ExecStreamGraph &graph)
     resourceReqts.reset(new ExecStreamResourceRequirements[nStreams]);
     sqrtDiffOptMin.reset(new double[nStreams]);
 
-    // scale down the number of pages that can be allocated based on how
-    // much still remains
-    uint allocationAmount =
-        std::min(resourcesAvailable.nCachePages, perGraphAllocation);
-    FENNEL_TRACE(
-        TRACE_FINE,
-        allocationAmount << " cache pages available for stream graph");
-
     // Total the minimum and optimum resource requirements and determine
     // if we have any estimate/unbounded optimum settings
     uint totalMin = 0;
@@ -178,23 +180,62 @@ void SimpleExecStreamGovernor::requestResources(ExecStreamGraph &graph)
             allAccurate = false;
             break;
         case EXEC_RESOURCE_UNBOUNDED:
-            // in the unbounded case, since we're trying to use as much
-            // memory as available, set the difference to how much is
-            // available; this way, we set it to something large relative
-            // to availability, but still set it to a finite value to
-            // allow some allocation to go towards those streams that
-            // have estimated optimums
-            sqrtDiffOptMin[i] = sqrt(double(allocationAmount));
+            // filled in below, once the allocation amount is known
+            sqrtDiffOptMin[i] = 0;
             allAccurate = false;
-            // in the unbounded case, we don't have an optimum setting, so
-            // set it to assume the full allocation amount plus the min
-            reqt.optReqt = reqt.minReqt + allocationAmount;
+            reqt.optReqt = reqt.minReqt;
             break;
         }
         totalOpt += reqt.optReqt;
         totalSqrtDiffs += sqrtDiffOptMin[i];
     }
 
+    // if the minimum can't be met right now but other graphs are holding
+    // resources, wait a bounded amount of time for them to return some
+    // rather than failing the statement outright
+    if (totalMin > resourcesAvailable.nCachePages && !resourceMap.empty()) {
+        nGrantWaits++;
+        FENNEL_TRACE(
+            TRACE_FINE,
+            "Waiting for " << totalMin << " cache pages; "
+            << resourcesAvailable.nCachePages << " currently available");
+        boost::xtime grantExpiration;
+        convertTimeout(knobSettings.grantWaitMillis, grantExpiration);
+        while (totalMin > resourcesAvailable.nCachePages
+            && !resourceMap.empty())
+        {
+            if (!resourcesReturned.timed_wait(mutexGuard, grantExpiration)) {
+                break;
+            }
+        }
+    }
+
+    // scale the number of pages that can be allocated based on how much
+    // still remains and how many other graphs are competing for it
+    uint allocationAmount = computeAllocationAmount();
+    FENNEL_TRACE(
+        TRACE_FINE,
+        allocationAmount << " cache pages available for stream graph");
+
+    for (uint i = 0; i < nStreams; i++) {
+        ExecStreamResourceRequirements &reqt = resourceReqts[i];
+        if (reqt.optType != EXEC_RESOURCE_UNBOUNDED) {
+            continue;
+        }
+        // in the unbounded case, since we're trying to use as much
+        // memory as available, set the difference to how much is
+        // available; this way, we set it to something large relative
+        // to availability, but still set it to a finite value to
+        // allow some allocation to go towards those streams that
+        // have estimated optimums
+        sqrtDiffOptMin[i] = sqrt(double(allocationAmount));
+        totalSqrtDiffs += sqrtDiffOptMin[i];
+        // in the unbounded case, we don't have an optimum setting, so
+        // set it to assume the full allocation amount plus the min
+        reqt.optReqt = reqt.minReqt + allocationAmount;
+        totalOpt += allocationAmount;
+    }
+
     // not enough pages even to assign the minimum requirements
     if (totalMin > allocationAmount
         && totalMin > resourcesAvailable.nCachePages)
@@ -354,6 +395,10 @@ void SimpleExecStreamGovernor::returnResources(ExecStreamGraph &graph)
         // no allocation may have been done
         return;
     }
+    std::vector<SharedExecStream> sortedStreams = graph.getSortedStreams();
+    for (uint i = 0; i < sortedStreams.size(); i++) {
+        streamReturnMap.erase(sortedStreams[i].get());
+    }
     SharedExecStreamResourceQuantity pQuantity = iter->second;
     resourcesAssigned.nCachePages -= pQuantity->nCachePages;
     resourcesAvailable.nCachePages += pQuantity->nCachePages;
@@ -364,6 +409,82 @@ void SimpleExecStreamGovernor::returnResources(ExecStreamGraph &graph)
         << " cache pages now available for assignment");
 
     resourceMap.erase(&graph);
+    resourcesReturned.notify_all();
+}
+
+void SimpleExecStreamGovernor::returnStreamResources(
+    ExecStreamGraph &graph, ExecStream &stream)
+{
+    StrictMutexGuard mutexGuard(mutex);
+
+    ExecStreamGraphResourceMap::const_iterator iter = resourceMap.find(&graph);
+    if (iter == resourceMap.end()) {
+        return;
+    }
+
+    // a consumer may restart the stream, e.g. the inner input of a cartesian
+    // join, so the stream keeps its minimum, which it can always run with
+    ExecStreamResourceQuantity minQuantity, optQuantity;
+    ExecStreamResourceSettingType optType;
+    stream.getResourceRequirements(minQuantity, optQuantity, optType);
+    ExecStreamResourceQuantity quantity = stream.getResourceAllocation();
+    if (quantity.nCachePages <= minQuantity.nCachePages) {
+        return;
+    }
+    SharedExecStreamResourceQuantity pQuantity = iter->second;
+    uint nPages =
+        std::min(
+            quantity.nCachePages - minQuantity.nCachePages,
+            pQuantity->nCachePages);
+    if (nPages == 0) {
+        return;
+    }
+    quantity.nCachePages -= nPages;
+    stream.setResourceAllocation(quantity);
+    streamReturnMap[&stream] += nPages;
+    pQuantity->nCachePages -= nPages;
+    resourcesAssigned.nCachePages -= nPages;
+    resourcesAvailable.nCachePages += nPages;
+    nPagesReturnedEarly += nPages;
+    FENNEL_TRACE(
+        TRACE_FINE,
+        "Stream " << stream.getName() << " returned " << nPages
+        << " cache pages early. " << resourcesAvailable.nCachePages
+        << " cache pages now available for assignment");
+
+    resourcesReturned.notify_all();
+}
+
+void SimpleExecStreamGovernor::requestStreamResources(
+    ExecStreamGraph &graph, ExecStream &stream)
+{
+    StrictMutexGuard mutexGuard(mutex);
+
+    ExecStreamGraphResourceMap::const_iterator iter = resourceMap.find(&graph);
+    ExecStreamReturnMap::iterator returnIter = streamReturnMap.find(&stream);
+    if (iter == resourceMap.end() || returnIter == streamReturnMap.end()) {
+        return;
+    }
+
+    // the pages may have been granted to other graphs in the meantime, in
+    // which case the stream makes do with what it kept
+    uint nPages =
+        std::min(returnIter->second, resourcesAvailable.nCachePages);
+    streamReturnMap.erase(returnIter);
+    if (nPages == 0) {
+        return;
+    }
+    ExecStreamResourceQuantity quantity = stream.getResourceAllocation();
+    quantity.nCachePages += nPages;
+    stream.setResourceAllocation(quantity);
+    iter->second->nCachePages += nPages;
+    resourcesAssigned.nCachePages += nPages;
+    resourcesAvailable.nCachePages -= nPages;
+    FENNEL_TRACE(
+        TRACE_FINE,
+        "Stream " << stream.getName() << " reassigned " << nPages
+        << " cache pages on restart. " << resourcesAvailable.nCachePages
+        << " cache pages remaining for assignment");
 }
 
 FENNEL_END_CPPFILE("$Id$");
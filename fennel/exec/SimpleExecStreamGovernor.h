@@ -36,6 +36,14 @@ FENNEL_BEGIN_NAMESPACE
 class FENNEL_EXEC_EXPORT SimpleExecStreamGovernor
     : public ExecStreamGovernor
 {
+    typedef std::map<ExecStream *, uint> ExecStreamReturnMap;
+
+    /**
+     * Cache pages returned by each stream that has closed before its graph,
+     * so that they can be reassigned if the stream is restarted
+     */
+    ExecStreamReturnMap streamReturnMap;
+
     /**
      * Portion of resources that can be allocated to an exec stream graph
      */
@@ -46,6 +54,14 @@ class FENNEL_EXEC_EXPORT SimpleExecStreamGovernor
      */
     inline uint computePerGraphAllocation();
 
+    /**
+     * Computes the number of cache pages to offer a new graph, based on
+     * current load.  When fewer graphs are active than expected, a graph
+     * may receive more than its per graph allocation, but always leaves
+     * some of what remains for statements that start after it.
+     */
+    inline uint computeAllocationAmount();
+
     /**
      * Assigns each stream either its minimum or optimum resource requirements
      *
@@ -112,6 +128,10 @@ public:
         ExecStreamResourceType resourceType);
     virtual void requestResources(ExecStreamGraph &graph);
     virtual void returnResources(ExecStreamGraph &graph);
+    virtual void returnStreamResources(
+        ExecStreamGraph &graph, ExecStream &stream);
+    virtual void requestStreamResources(
+        ExecStreamGraph &graph, ExecStream &stream);
 };
 
 inline uint SimpleExecStreamGovernor::computePerGraphAllocation()
@@ -120,6 +140,14 @@ inline uint SimpleExecStreamGovernor::computePerGraphAllocation()
         / knobSettings.expectedConcurrentStatements;
 }
 
+inline uint SimpleExecStreamGovernor::computeAllocationAmount()
+{
+    uint loadShare = resourcesAvailable.nCachePages / (resourceMap.size() + 2);
+    return std::min(
+        resourcesAvailable.nCachePages,
+        std::max(perGraphAllocation, loadShare));
+}
+
 FENNEL_END_NAMESPACE
 
 #endif
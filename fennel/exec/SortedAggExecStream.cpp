@@ -19,6 +19,7 @@
 
 #include "fennel/common/CommonPreamble.h"
 #include "fennel/exec/SortedAggExecStream.h"
+#include "fennel/exec/AggComputerImpl.h"
 #include "fennel/exec/ExecStreamBufAccessor.h"
 #include "fennel/tuple/StandardTypeDescriptor.h"
 
@@ -44,6 +45,12 @@ void SortedAggExecStream::prepare(SortedAggExecStreamParams const &params)
     TupleAttributeDescriptor countDesc(
         stdTypeFactory.newDataType(STANDARD_TYPE_INT_64));
 
+    // Attribute descriptor for HyperLogLog sketch output
+    TupleAttributeDescriptor sketchDesc(
+        stdTypeFactory.newDataType(STANDARD_TYPE_BINARY),
+        false,
+        HLL_SKETCH_BYTES);
+
     groupByKeyCount = params.groupByKeyCount;
 
     for (int i = 0; i < groupByKeyCount; i ++) {
@@ -63,6 +70,10 @@ void SortedAggExecStream::prepare(SortedAggExecStreamParams const &params)
         case AGG_FUNC_COUNT:
             prevTupleDesc.push_back(countDesc);
             break;
+        case AGG_FUNC_HLL_SKETCH:
+        case AGG_FUNC_HLL_MERGE:
+            prevTupleDesc.push_back(sketchDesc);
+            break;
         case AGG_FUNC_SUM:
         case AGG_FUNC_MIN:
         case AGG_FUNC_MAX:
@@ -191,6 +191,7 @@ void ExecStreamFactory::readLcsRowScanStreamParams(
     params.samplingClumps =
         LcsRowScanExecStreamParams::defaultSystemSamplingClumps;
     params.samplingRowCount = streamDef.getSamplingRowCount();
+    params.isSharedScan = streamDef.isSharedScan();
 
     CmdInterpreter::readTupleProjection(
         params.residualFilterCols,
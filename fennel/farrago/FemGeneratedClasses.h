@@ -1071,6 +1071,8 @@ bool isSamplingRepeatable();
 static jmethodID meth_isSamplingRepeatable;
 int64_t getSamplingRowCount();
 static jmethodID meth_getSamplingRowCount;
+bool isSharedScan();
+static jmethodID meth_isSharedScan;
 };
 
 class FENNEL_FARRAGO_EXPORT ProxyLbmGeneratorStreamDef
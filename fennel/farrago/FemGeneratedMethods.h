@@ -178,6 +178,7 @@ jmethodID ProxyLcsRowScanStreamDef::meth_getSamplingRate = 0;
 jmethodID ProxyLcsRowScanStreamDef::meth_getSamplingRepeatableSeed = 0;
 jmethodID ProxyLcsRowScanStreamDef::meth_isSamplingRepeatable = 0;
 jmethodID ProxyLcsRowScanStreamDef::meth_getSamplingRowCount = 0;
+jmethodID ProxyLcsRowScanStreamDef::meth_isSharedScan = 0;
 jmethodID ProxyLhxAggStreamDef::meth_getCndGroupByKeys = 0;
 jmethodID ProxyLhxAggStreamDef::meth_getNumRows = 0;
 jmethodID ProxyLhxJoinStreamDef::meth_getCndBuildKeys = 0;
@@ -641,6 +642,7 @@ ProxyLcsRowScanStreamDef::meth_getSamplingRate = pEnv->GetMethodID(jClass,"getSa
 ProxyLcsRowScanStreamDef::meth_getSamplingRepeatableSeed = pEnv->GetMethodID(jClass,"getSamplingRepeatableSeed","()I");
 ProxyLcsRowScanStreamDef::meth_isSamplingRepeatable = pEnv->GetMethodID(jClass,"isSamplingRepeatable","()Z");
 ProxyLcsRowScanStreamDef::meth_getSamplingRowCount = pEnv->GetMethodID(jClass,"getSamplingRowCount","()J");
+ProxyLcsRowScanStreamDef::meth_isSharedScan = pEnv->GetMethodID(jClass,"isSharedScan","()Z");
 
 jClass = pEnv->FindClass("net/sf/farrago/fem/fennel/FemLhxAggStreamDef");
 visitTbl.addMethod(jClass,JniProxyVisitTable<FemVisitor>::SharedVisitorMethod(new JniProxyVisitTable<FemVisitor>::VisitorMethodImpl<ProxyLhxAggStreamDef>));
@@ -1830,6 +1832,11 @@ int64_t ProxyLcsRowScanStreamDef::getSamplingRowCount()
 return pEnv->CallLongMethod(jObject,meth_getSamplingRowCount);
 }
 
+bool ProxyLcsRowScanStreamDef::isSharedScan()
+{
+return pEnv->CallBooleanMethod(jObject,meth_isSharedScan);
+}
+
 int64_t ProxyLhxAggStreamDef::getCndGroupByKeys()
 {
 return pEnv->CallLongMethod(jObject,meth_getCndGroupByKeys);
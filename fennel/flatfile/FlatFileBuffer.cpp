@@ -20,11 +20,39 @@
 #include "fennel/common/CommonPreamble.h"
 #include "fennel/common/FennelResource.h"
 #include "fennel/common/FennelExcn.h"
+#include "fennel/common/FileSystem.h"
 #include "fennel/device/RandomAccessFileDevice.h"
 #include "fennel/flatfile/FlatFileBuffer.h"
 
+#include <sstream>
+
+#ifndef __MSVC__
+#include <sys/wait.h>
+#endif
+
 FENNEL_BEGIN_CPPFILE("$Id$");
 
+// leading bytes of a gzip file, and of an lz4 frame
+static const unsigned char GZIP_MAGIC[] = { 0x1f, 0x8b };
+static const unsigned char LZ4_MAGIC[] = { 0x04, 0x22, 0x4d, 0x18 };
+
+/**
+ * Locates a program in the standard directories, falling back to the
+ * search path. The same convention is used by SegPageBackupRestoreDevice.
+ */
+static std::string findProgram(const std::string &programName)
+{
+    std::string program = "/bin/" + programName;
+    if (FileSystem::doesFileExist(program.c_str())) {
+        return program;
+    }
+    program = "/usr/bin/" + programName;
+    if (FileSystem::doesFileExist(program.c_str())) {
+        return program;
+    }
+    return "";
+}
+
 FlatFileBuffer::FlatFileBuffer(const std::string &path)
 {
     this->path = path;
@@ -33,6 +61,9 @@ FlatFileBuffer::FlatFileBuffer(const std::string &path)
     contentSize = 0;
     pCurrent = NULL;
     pFile = NULL;
+    isPipe = false;
+    warningExitStatus = 0;
+    eof = false;
 }
 
 FlatFileBuffer::~FlatFileBuffer()
@@ -42,13 +73,87 @@ FlatFileBuffer::~FlatFileBuffer()
 void FlatFileBuffer::closeImpl()
 {
     if (pFile) {
-        fclose(pFile);
+        if (isPipe) {
+#ifndef __MSVC__
+            // the decompressor may still be writing if we stopped early,
+            // so its exit status is of no interest
+            pclose(pFile);
+#endif
+        } else {
+            fclose(pFile);
+        }
         pFile = NULL;
     }
+    isPipe = false;
     contentSize = 0;
     pCurrent = NULL;
 }
 
+std::string FlatFileBuffer::getDecompressionProgram()
+{
+    FILE *pHeader = fopen(path.c_str(), "r");
+    if (!pHeader) {
+        throw FennelExcn(
+            FennelResource::instance().readDataFailed(path));
+    }
+    warningExitStatus = 0;
+    unsigned char magic[sizeof(LZ4_MAGIC)];
+    size_t magicSize = fread(magic, 1, sizeof(magic), pHeader);
+    fclose(pHeader);
+
+    if (magicSize >= sizeof(GZIP_MAGIC)
+        && memcmp(magic, GZIP_MAGIC, sizeof(GZIP_MAGIC)) == 0)
+    {
+        // prefer pigz, which decompresses with separate threads for
+        // reading, writing and checking
+        std::string program = findProgram("pigz");
+        if (program.length() == 0) {
+            program = findProgram("gzip");
+        }
+
+        // both exit with status 2 after a warning, such as for trailing
+        // garbage, once everything has been decompressed
+        warningExitStatus = 2;
+        return (program.length() == 0) ? "gzip" : program;
+    }
+    if (magicSize >= sizeof(LZ4_MAGIC)
+        && memcmp(magic, LZ4_MAGIC, sizeof(LZ4_MAGIC)) == 0)
+    {
+        std::string program = findProgram("lz4");
+        return (program.length() == 0) ? "lz4" : program;
+    }
+    return "";
+}
+
+void FlatFileBuffer::closePipe()
+{
+#ifndef __MSVC__
+    int status = pclose(pFile);
+    pFile = NULL;
+    isPipe = false;
+    if (status == -1 || !WIFEXITED(status)) {
+        FENNEL_TRACE(
+            TRACE_SEVERE,
+            "decompression of " << path << " did not exit normally");
+        throw FennelExcn(
+            FennelResource::instance().readDataFailed(path));
+    }
+    int exitStatus = WEXITSTATUS(status);
+    if (exitStatus != 0 && exitStatus == warningExitStatus) {
+        FENNEL_TRACE(
+            TRACE_WARNING,
+            "decompression of " << path << " completed with warnings");
+    } else if (exitStatus != 0) {
+        FENNEL_TRACE(
+            TRACE_SEVERE,
+            "decompression of " << path << " failed with status "
+            << exitStatus);
+        throw FennelExcn(
+            FennelResource::instance().readDataFailed(path));
+    }
+#endif
+}
+
 void FlatFileBuffer::setStorage(char *pBuffer, uint size)
 {
     this->pBuffer = pBuffer;
@@ -65,7 +170,30 @@ void FlatFileBuffer::open()
     // NOTE jvs 17-Oct-2008:  we use fopen here instead of ifstream
     // in case we want to support popen("gunzip") in the future.
 
-    pFile = fopen(path.c_str(), "r");
+    std::string program = getDecompressionProgram();
+    if (program.length() == 0) {
+        pFile = fopen(path.c_str(), "r");
+    } else {
+#ifdef __MSVC__
+        throw FennelExcn(
+            FennelResource::instance().unsupportedOperation("popen"));
+#else
+        // quote the path for the shell
+        std::ostringstream cmd;
+        cmd << program << " -dc '";
+        for (uint i = 0; i < path.length(); i++) {
+            if (path[i] == '\'') {
+                cmd << "'\\''";
+            } else {
+                cmd << path[i];
+            }
+        }
+        cmd << "'";
+        FENNEL_TRACE(TRACE_FINE, "reading " << path << " via " << cmd.str());
+        pFile = popen(cmd.str().c_str(), "r");
+        isPipe = true;
+#endif
+    }
     if (!pFile) {
         throw FennelExcn(
             FennelResource::instance().readDataFailed(path));
@@ -76,6 +204,7 @@ void FlatFileBuffer::open()
     filePosition = 0;
     contentSize = 0;
     pCurrent = NULL;
+    eof = false;
 }
 
 uint FlatFileBuffer::read()
@@ -93,6 +222,11 @@ uint FlatFileBuffer::read()
     char *target = pBuffer + residual;
     uint targetSize = free;
 
+    if (eof) {
+        contentSize = residual;
+        return 0;
+    }
+
     size_t actualSize = fread(target, 1, targetSize, pFile);
     if (ferror(pFile)) {
         // FIXME jvs 19-Oct-2008:  the error message here is confusingly
@@ -102,6 +236,14 @@ uint FlatFileBuffer::read()
     }
     filePosition += actualSize;
     contentSize = residual + actualSize;
+    if (feof(pFile)) {
+        eof = true;
+        if (isPipe) {
+            // a truncated or corrupt file only shows up in the
+            // decompressor's exit status
+            closePipe();
+        }
+    }
     return actualSize;
 }
 
@@ -130,8 +272,7 @@ bool FlatFileBuffer::isFull()
 
 bool FlatFileBuffer::isComplete()
 {
-    assert(pFile);
-    return feof(pFile);
+    return eof;
 }
 
 bool FlatFileBuffer::isDone()
@@ -58,6 +58,13 @@ typedef boost::shared_ptr<FlatFileBuffer> SharedFlatFileBuffer;
  *
  * <p>
  *
+ * A file compressed with gzip or lz4 is recognized by its leading magic
+ * bytes, and is read through a pipe from the corresponding decompression
+ * program, so that it need not be decompressed to disk first. The
+ * decompressor runs as a separate process, concurrently with parsing.
+ *
+ * <p>
+ *
  * FIXME: This class should use a special character pointer. It may be
  * updated to handle unicode. It may be refined to prefetch pages for
  * better performance.
@@ -73,6 +80,22 @@ class FENNEL_FLATFILE_EXPORT FlatFileBuffer
     FILE *pFile;
     FileSize filePosition;
 
+    /**
+     * Whether pFile is a pipe from a decompression program
+     */
+    bool isPipe;
+
+    /**
+     * Exit status with which the decompression program reports a warning
+     * rather than an error, or 0 if it has none
+     */
+    int warningExitStatus;
+
+    /**
+     * Whether all data has been read from pFile
+     */
+    bool eof;
+
     char *pBuffer;
     uint bufferSize, contentSize;
     char *pCurrent;
@@ -80,6 +103,21 @@ class FENNEL_FLATFILE_EXPORT FlatFileBuffer
     // implement ClosableObject
     void closeImpl();
 
+    /**
+     * Examines the leading bytes of the file to determine whether it is
+     * compressed.
+     *
+     * @return name of the program which decompresses the file, or an empty
+     * string if the file is not compressed
+     */
+    std::string getDecompressionProgram();
+
+    /**
+     * Closes a pipe from a decompression program, and checks that the
+     * program succeeded
+     */
+    void closePipe();
+
 public:
     /**
      * Constructs a buffer
@@ -19,6 +19,7 @@
 
 #include "fennel/common/CommonPreamble.h"
 #include "fennel/hashexe/LhxAggExecStream.h"
+#include "fennel/exec/AggComputerImpl.h"
 #include "fennel/segment/Segment.h"
 #include "fennel/exec/ExecStreamBufAccessor.h"
 #include "fennel/tuple/StandardTypeDescriptor.h"
@@ -519,6 +520,10 @@ void LhxAggExecStream::setAggComputers(
         case AGG_FUNC_COUNT:
             partialAggFunction = AGG_FUNC_SUM;
             break;
+        case AGG_FUNC_HLL_SKETCH:
+        case AGG_FUNC_HLL_MERGE:
+            partialAggFunction = AGG_FUNC_HLL_MERGE;
+            break;
         case AGG_FUNC_SUM:
         case AGG_FUNC_MIN:
         case AGG_FUNC_MAX:
@@ -622,6 +627,12 @@ void LhxAggExecStream::setHashInfo(
     TupleAttributeDescriptor countDesc(
         stdTypeFactory.newDataType(STANDARD_TYPE_INT_64));
 
+    // Attribute descriptor for HyperLogLog sketch output
+    TupleAttributeDescriptor sketchDesc(
+        stdTypeFactory.newDataType(STANDARD_TYPE_BINARY),
+        false,
+        HLL_SKETCH_BYTES);
+
     // REVIEW jvs 25-Aug-2006: It's possible to get rid of this nullability
     // type transformation (but it requires matching changes at the Farrago
     // level).  The reason is that LhxAggExecStream is only used for GROUP BY.
@@ -649,6 +660,10 @@ void LhxAggExecStream::setHashInfo(
         case AGG_FUNC_COUNT:
             keyDesc.push_back(countDesc);
             break;
+        case AGG_FUNC_HLL_SKETCH:
+        case AGG_FUNC_HLL_MERGE:
+            keyDesc.push_back(sketchDesc);
+            break;
         case AGG_FUNC_SUM:
         case AGG_FUNC_MIN:
         case AGG_FUNC_MAX:
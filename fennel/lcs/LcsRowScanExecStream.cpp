@@ -21,6 +21,7 @@
 #include "fennel/tuple/StandardTypeDescriptor.h"
 #include "fennel/lcs/LcsRowScanExecStream.h"
 #include "fennel/exec/ExecStreamBufAccessor.h"
+#include "fennel/exec/ExecStreamGraphImpl.h"
 #include "fennel/common/SearchEndpoint.h"
 #include <math.h>
 
@@ -28,6 +29,11 @@ FENNEL_BEGIN_CPPFILE("$Id$");
 
 int32_t LcsRowScanExecStreamParams::defaultSystemSamplingClumps = 10;
 
+LcsRowScanExecStreamParams::LcsRowScanExecStreamParams()
+{
+    isSharedScan = false;
+}
+
 LcsRowScanExecStream::LcsRowScanExecStream()
 :
     LcsRowScanBaseExecStream(),
@@ -35,6 +41,8 @@ LcsRowScanExecStream::LcsRowScanExecStream()
 {
     ridRuns.resize(4000);
     isCountAgg = false;
+    isSharedScan = false;
+    sharedScanAttached = false;
 }
 
 void LcsRowScanExecStream::prepareResidualFilters(
@@ -192,6 +200,19 @@ void LcsRowScanExecStream::prepare(LcsRowScanExecStreamParams const &params)
             isSamplingRepeatable = false;
         }
     }
+
+    // Only unsampled full scans can start in the middle of the table, and
+    // only clusters with a real owner can be identified across scans
+    isSharedScan =
+        params.isSharedScan && isFullScan && samplingMode == SAMPLING_OFF;
+    clusterOwnerIds.clear();
+    for (uint i = 0; isSharedScan && i < nClusters; i++) {
+        PageOwnerId ownerId = params.lcsClusterScanDefs[i].pageOwnerId;
+        if (ownerId == ANON_PAGE_OWNER_ID) {
+            isSharedScan = false;
+        }
+        clusterOwnerIds.push_back(ownerId);
+    }
 }
 
 void LcsRowScanExecStream::setCountAgg()
@@ -211,8 +232,17 @@ void LcsRowScanExecStream::open(bool restart)
     ridRuns.clear();
     ridRunIter.reset();
 
+    // A shared scan joins the other scans of its clusters on the initial
+    // open; restarts always read from the beginning of the table
+    scanStartRid = LcsRid(0);
+    scanWrapped = false;
+    if (isSharedScan && !sharedScanAttached) {
+        scanStartRid = LcsSharedScanRegistry::attach(clusterOwnerIds);
+        sharedScanAttached = true;
+    }
+
     if (isFullScan) {
-        inputRid = LcsRid(0);
+        inputRid = scanStartRid;
         readDeletedRid = true;
         deletedRidEos = false;
     }
@@ -423,6 +453,9 @@ ExecStreamResult LcsRowScanExecStream::execute(ExecStreamQuantum const &quantum)
                 LcsClusterReader::getFetchRids(ridRunIter, nextRid, true);
             if (rid == LcsRid(MAXU)) {
                 assert(ridRunIter.done());
+                if (wrapAround()) {
+                    continue;
+                }
                 pOutAccessor->markEOS();
                 return EXECRC_EOS;
             }
@@ -465,6 +498,11 @@ ExecStreamResult LcsRowScanExecStream::execute(ExecStreamQuantum const &quantum)
                     assert(rid >= pScan->getRangeStartRid()
                            && rid < pScan->getRangeEndRid());
 
+                    // Let new scans of these clusters know where we are
+                    if (sharedScanAttached && iClu == 0) {
+                        LcsSharedScanRegistry::update(clusterOwnerIds, rid);
+                    }
+
                     // Tell all column scans that the batch has changed.
                     syncColumns(pScan);
                 } else {
@@ -510,8 +548,13 @@ ExecStreamResult LcsRowScanExecStream::execute(ExecStreamQuantum const &quantum)
         producePending = false;
 
         if (isFullScan) {
-            // if tuple not found, reached end of table
+            // if tuple not found, reached end of table; a shared scan that
+            // started in the middle of the table still has to read the rows
+            // preceding its starting point
             if (!tupleFound) {
+                if (wrapAround()) {
+                    continue;
+                }
                 pOutAccessor->markEOS();
                 return EXECRC_EOS;
             }
@@ -560,7 +603,12 @@ ExecStreamResult LcsRowScanExecStream::fillRidRunBuffer()
                     readDeletedRid = false;
                 }
             }
-            // skip over deleted rids
+            // skip over deleted rids, including those preceding the
+            // starting point of a shared scan
+            if (!deletedRidEos && deletedRid < inputRid) {
+                readDeletedRid = true;
+                continue;
+            }
             if (!deletedRidEos && inputRid == deletedRid) {
                 inputRid++;
                 readDeletedRid = true;
@@ -572,6 +620,19 @@ ExecStreamResult LcsRowScanExecStream::fillRidRunBuffer()
                     nRows = opaqueToInt(deletedRid - inputRid);
                 }
             }
+
+            // once a shared scan has wrapped around, it stops at the rid
+            // it originally started at
+            if (scanWrapped) {
+                if (inputRid >= scanStartRid) {
+                    ridRunsBuilt = true;
+                    break;
+                }
+                RecordNum nRowsLeft = opaqueToInt(scanStartRid - inputRid);
+                if (nRows > nRowsLeft) {
+                    nRows = nRowsLeft;
+                }
+            }
         }
 
         if (samplingMode != SAMPLING_OFF) {
@@ -676,8 +737,42 @@ ExecStreamResult LcsRowScanExecStream::fillRidRunBuffer()
     return EXECRC_YIELD;
 }
 
+bool LcsRowScanExecStream::wrapAround()
+{
+    if (!isSharedScan || scanWrapped || scanStartRid == LcsRid(0)) {
+        return false;
+    }
+    scanWrapped = true;
+
+    // Reset the rid runs and cluster readers to the start of the table, and
+    // reread the deleted rids from the beginning
+    ridRunsBuilt = false;
+    currRidRun.startRid = LcsRid(MAXU);
+    currRidRun.nRids = 0;
+    ridRuns.clear();
+    ridRunIter.reset();
+    inputRid = LcsRid(0);
+    nextRid = LcsRid(0);
+    readDeletedRid = true;
+    deletedRidEos = false;
+    for (uint i = 0; i < nClusters; i++) {
+        pClusters[i]->close();
+        pClusters[i]->open();
+    }
+
+    // restart the deleted rid input, as ConfluenceExecStream::open does
+    inAccessors[0]->clear();
+    pGraph->getStreamInput(getStreamId(), 0)->open(true);
+    ridReader.init(inAccessors[0], ridTupleData);
+    return true;
+}
+
 void LcsRowScanExecStream::closeImpl()
 {
+    if (sharedScanAttached) {
+        LcsSharedScanRegistry::detach(clusterOwnerIds);
+        sharedScanAttached = false;
+    }
     LcsRowScanBaseExecStream::closeImpl();
 
     for (uint i = 0; i < nFilters; i++) {
@@ -26,6 +26,7 @@
 #include "fennel/lcs/LcsRowScanBaseExecStream.h"
 #include "fennel/lbm/LbmRidReader.h"
 #include "fennel/lcs/LcsResidualColumnFilters.h"
+#include "fennel/lcs/LcsSharedScanRegistry.h"
 #include "fennel/common/BernoulliRng.h"
 #include "fennel/common/FemEnums.h"
 
@@ -98,6 +99,16 @@ struct FENNEL_LCS_EXPORT LcsRowScanExecStreamParams
      * specific to sampling.
      */
     int64_t samplingRowCount;
+
+    /**
+     * If true, and this is an unsampled full scan, the scan may start at the
+     * position of another full scan currently reading the same clusters,
+     * and wrap around to read the rows before that position at the end.
+     * Rows are then not returned in rid order.
+     */
+    bool isSharedScan;
+
+    explicit LcsRowScanExecStreamParams();
 };
 
 /**
@@ -186,6 +197,34 @@ class FENNEL_LCS_EXPORT LcsRowScanExecStream
      */
     bool isFullScan;
 
+    /**
+     * true if this full scan is registered with the LcsSharedScanRegistry
+     * and may start in the middle of the table
+     */
+    bool isSharedScan;
+
+    /**
+     * true if the scan is currently attached to the LcsSharedScanRegistry
+     */
+    bool sharedScanAttached;
+
+    /**
+     * Page owner ids of the clusters read, used to identify them in the
+     * LcsSharedScanRegistry
+     */
+    std::vector<PageOwnerId> clusterOwnerIds;
+
+    /**
+     * Rid at which a shared scan started reading
+     */
+    LcsRid scanStartRid;
+
+    /**
+     * true once a shared scan has reached the end of the table and wrapped
+     * around to read the rids preceding scanStartRid
+     */
+    bool scanWrapped;
+
     /**
      * true if only returning row count
      */
@@ -333,6 +372,15 @@ class FENNEL_LCS_EXPORT LcsRowScanExecStream
      */
     ExecStreamResult fillRidRunBuffer();
 
+    /**
+     * Repositions a shared scan that did not start at the beginning of the
+     * table back to the first rid, once it has read through the end of the
+     * table.
+     *
+     * @return true if the scan was repositioned; false if the scan is done
+     */
+    bool wrapAround();
+
 protected:
     /**
      * Turn on count aggregation mode.
@@ -0,0 +1,85 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+
+#include "fennel/common/CommonPreamble.h"
+#include "fennel/lcs/LcsSharedScanRegistry.h"
+
+FENNEL_BEGIN_CPPFILE("$Id$");
+
+StrictMutex LcsSharedScanRegistry::mutex;
+
+LcsSharedScanRegistry::PositionMap LcsSharedScanRegistry::positions;
+
+LcsRid LcsSharedScanRegistry::attach(
+    std::vector<PageOwnerId> const &clusterIds)
+{
+    StrictMutexGuard mutexGuard(mutex);
+
+    // start at the position of the first cluster that some other scan is
+    // already reading
+    LcsRid startRid = LcsRid(0);
+    bool found = false;
+    for (uint i = 0; i < clusterIds.size(); i++) {
+        PositionMap::iterator iter = positions.find(clusterIds[i]);
+        if (iter == positions.end()) {
+            ScanPosition newPosition;
+            newPosition.nScans = 1;
+            newPosition.rid = LcsRid(0);
+            positions[clusterIds[i]] = newPosition;
+        } else {
+            if (!found) {
+                startRid = iter->second.rid;
+                found = true;
+            }
+            iter->second.nScans++;
+        }
+    }
+    return startRid;
+}
+
+void LcsSharedScanRegistry::update(
+    std::vector<PageOwnerId> const &clusterIds,
+    LcsRid rid)
+{
+    StrictMutexGuard mutexGuard(mutex);
+
+    for (uint i = 0; i < clusterIds.size(); i++) {
+        PositionMap::iterator iter = positions.find(clusterIds[i]);
+        assert(iter != positions.end());
+        iter->second.rid = rid;
+    }
+}
+
+void LcsSharedScanRegistry::detach(
+    std::vector<PageOwnerId> const &clusterIds)
+{
+    StrictMutexGuard mutexGuard(mutex);
+
+    for (uint i = 0; i < clusterIds.size(); i++) {
+        PositionMap::iterator iter = positions.find(clusterIds[i]);
+        assert(iter != positions.end());
+        if (--iter->second.nScans == 0) {
+            positions.erase(iter);
+        }
+    }
+}
+
+FENNEL_END_CPPFILE("$Id$");
+
+// End LcsSharedScanRegistry.cpp
@@ -0,0 +1,93 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+
+#ifndef Fennel_LcsSharedScanRegistry_Included
+#define Fennel_LcsSharedScanRegistry_Included
+
+#include "fennel/lcs/LcsClusterNode.h"
+#include "fennel/synch/SynchObj.h"
+#include <map>
+#include <vector>
+
+FENNEL_BEGIN_NAMESPACE
+
+/**
+ * LcsSharedScanRegistry keeps track of where the full table scans currently
+ * running over each column store cluster are positioned.
+ *
+ * <p>A full scan that is allowed to share starts reading at the position of
+ * a scan that is already running over one of its clusters, so that both
+ * scans request the same pages while they are cached.  Once the new scan
+ * reaches the end of the table, it wraps around and reads the rows it
+ * skipped.  Clusters are identified by the page owner id of their btrees,
+ * which is the same for every snapshot of the table.
+ */
+class FENNEL_LCS_EXPORT LcsSharedScanRegistry
+{
+    /**
+     * Number of scans attached to a cluster, and the rid most recently
+     * read by one of them
+     */
+    struct ScanPosition
+    {
+        uint nScans;
+        LcsRid rid;
+    };
+
+    typedef std::map<PageOwnerId, ScanPosition> PositionMap;
+
+    static StrictMutex mutex;
+
+    static PositionMap positions;
+
+public:
+    /**
+     * Registers a new scan of a set of clusters.
+     *
+     * @param clusterIds page owner ids of the clusters read by the scan
+     *
+     * @return rid at which the scan should start; 0 if no other scan is
+     * currently reading any of the clusters
+     */
+    static LcsRid attach(std::vector<PageOwnerId> const &clusterIds);
+
+    /**
+     * Records the current position of a scan.
+     *
+     * @param clusterIds page owner ids of the clusters read by the scan
+     *
+     * @param rid rid the scan has just positioned to
+     */
+    static void update(
+        std::vector<PageOwnerId> const &clusterIds,
+        LcsRid rid);
+
+    /**
+     * Unregisters a scan previously registered with attach.
+     *
+     * @param clusterIds page owner ids of the clusters read by the scan
+     */
+    static void detach(std::vector<PageOwnerId> const &clusterIds);
+};
+
+FENNEL_END_NAMESPACE
+
+#endif
+
+// End LcsSharedScanRegistry.h
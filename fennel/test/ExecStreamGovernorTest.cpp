@@ -23,12 +23,14 @@
 #include "fennel/exec/ExecStreamScheduler.h"
 #include "fennel/exec/ExecStream.h"
 #include "fennel/exec/ExecStreamGraph.h"
+#include "fennel/exec/ExecStreamGraphEmbryo.h"
 #include "fennel/exec/ExecStreamBufAccessor.h"
 #include "fennel/exec/ExecStreamGovernor.h"
 #include "fennel/exec/MockResourceExecStream.h"
 #include "fennel/exec/BarrierExecStream.h"
 #include "fennel/exec/ExecStreamEmbryo.h"
 #include "fennel/tuple/StandardTypeDescriptor.h"
+#include "fennel/synch/Thread.h"
 
 #include <boost/test/test_tools.hpp>
 
@@ -39,6 +41,23 @@ using namespace fennel;
  */
 class ExecStreamGovernorTest : public ExecStreamUnitTestBase
 {
+    /**
+     * Scheduler for the holder graph; the test's own scheduler only handles
+     * a single graph at a time
+     */
+    SharedExecStreamScheduler pHolderScheduler;
+
+    /**
+     * Stream graph that holds on to cache pages on behalf of another
+     * statement while the graph under test makes its request
+     */
+    SharedExecStreamGraph pHolderGraph;
+
+    /**
+     * Embryo for the holder graph
+     */
+    SharedExecStreamGraphEmbryo pHolderGraphEmbryo;
+
     /**
      * Creates a confluence stream consisting of nProducer producers that
      * feed into a barrier stream.  Each producer takes as input min and opt
@@ -62,6 +81,40 @@ class ExecStreamGovernorTest : public ExecStreamUnitTestBase
         std::vector<ExecStreamResourceQuantity> expected,
         bool exception = false);
 
+    /**
+     * Prepares the holder graph, consisting of a single producer, and has
+     * the resource governor assign it cache pages.  The graph is never
+     * executed, so it keeps its pages until releaseHolderGraph is called.
+     *
+     * @param nCachePages min and opt resource requirements of the producer
+     */
+    void prepareHolderGraph(uint nCachePages);
+
+    /**
+     * Executes a graph with two producers that each have a min of 5 and an
+     * opt of 45 cache pages, leaving it open after its barrier has closed
+     * the producers early.
+     */
+    void executeEarlyCloseGraph();
+
+    /**
+     * @param name name of a stream in the test graph
+     *
+     * @return number of cache pages currently allocated to the stream
+     */
+    uint getStreamCachePages(std::string name);
+
+    /**
+     * Sets the amount of time a request waits for other graphs to return
+     * resources.
+     *
+     * @param millis wait time in milliseconds
+     */
+    void setGrantWait(uint millis);
+
+    // override ExecStreamUnitTestBase
+    virtual void tearDownExecStreamTest();
+
 public:
     explicit ExecStreamGovernorTest()
     {
@@ -76,6 +129,14 @@ public:
         FENNEL_UNIT_TEST_CASE(
             ExecStreamGovernorTest, testMinGreaterAvailable);
         FENNEL_UNIT_TEST_CASE(ExecStreamGovernorTest, testReturnResources);
+        FENNEL_UNIT_TEST_CASE(
+            ExecStreamGovernorTest, testLightLoadAllocation);
+        FENNEL_UNIT_TEST_CASE(ExecStreamGovernorTest, testGrantAfterWait);
+        FENNEL_UNIT_TEST_CASE(ExecStreamGovernorTest, testGrantWaitTimeout);
+        FENNEL_UNIT_TEST_CASE(
+            ExecStreamGovernorTest, testReturnStreamResources);
+        FENNEL_UNIT_TEST_CASE(
+            ExecStreamGovernorTest, testRestartStreamResources);
     }
 
     void testOptLessAccurate();
@@ -86,10 +147,46 @@ public:
     void testMinEqualAllocation();
     void testMinGreaterAvailable();
     void testReturnResources();
+    void testLightLoadAllocation();
+    void testGrantAfterWait();
+    void testGrantWaitTimeout();
+    void testReturnStreamResources();
+    void testRestartStreamResources();
+
+    /**
+     * Returns the cache pages assigned to the holder graph.
+     */
+    void releaseHolderGraph();
+
+    /**
+     * Returns the cache pages assigned to the holder graph after a short
+     * delay.
+     */
+    void releaseHolderGraphLater();
 
     virtual void testCaseSetUp();
 };
 
+/**
+ * Thread that releases the holder graph of an ExecStreamGovernorTest while
+ * the main thread is waiting on a resource request
+ */
+class HolderReleaseThread : public Thread
+{
+    ExecStreamGovernorTest &test;
+
+public:
+    explicit HolderReleaseThread(ExecStreamGovernorTest &testInit)
+        : test(testInit)
+    {
+    }
+
+    virtual void run()
+    {
+        test.releaseHolderGraphLater();
+    }
+};
+
 void ExecStreamGovernorTest::testCaseSetUp()
 {
     ExecStreamUnitTestBase::testCaseSetUp();
@@ -496,6 +593,280 @@ void ExecStreamGovernorTest::testReturnResources()
     testGovernor(nProducers, minReqts, optReqts, optTypes, expected);
 }
 
+/**
+ * 2 streams; total optimum of streams > perGraphAllocation, but since no
+ * other stream graphs are active, the graph may use up to half of what is
+ * available, which is enough to assign the optimum amount
+ */
+void ExecStreamGovernorTest::testLightLoadAllocation()
+{
+    // perGraphAllocation drops to 23, but half of the 95 available is 47
+    ExecStreamResourceKnobs knob;
+    knob.expectedConcurrentStatements = 4;
+    pResourceGovernor->setResourceKnob(
+        knob, EXEC_KNOB_EXPECTED_CONCURRENT_STATEMENTS);
+
+    uint nProducers = 2;
+    std::vector<ExecStreamResourceQuantity> minReqts;
+    std::vector<ExecStreamResourceQuantity> optReqts;
+    std::vector<ExecStreamResourceQuantity> expected;
+    std::vector<ExecStreamResourceSettingType> optTypes;
+
+    ExecStreamResourceQuantity quantity;
+    ExecStreamResourceSettingType optType;
+
+    // producer 1 - min=10, opt=20, optType=EXEC_RESOURCE_ACCURATE, expected=20
+    quantity.nCachePages = 10;
+    minReqts.push_back(quantity);
+    quantity.nCachePages = 20;
+    optReqts.push_back(quantity);
+    expected.push_back(quantity);
+    optType = EXEC_RESOURCE_ACCURATE;
+    optTypes.push_back(optType);
+
+    // producer 2 - min=10, opt=25, optType=EXEC_RESOURCE_ACCURATE, expected=25
+    quantity.nCachePages = 10;
+    minReqts.push_back(quantity);
+    quantity.nCachePages = 25;
+    optReqts.push_back(quantity);
+    expected.push_back(quantity);
+    optType = EXEC_RESOURCE_ACCURATE;
+    optTypes.push_back(optType);
+
+    testGovernor(nProducers, minReqts, optReqts, optTypes, expected);
+}
+
+/**
+ * Another graph holds 60 of the 95 pages, so the total min of 40 can't be
+ * met right away.  The other graph returns its pages while the request is
+ * waiting, after which the request gets its optimum.
+ */
+void ExecStreamGovernorTest::testGrantAfterWait()
+{
+    prepareHolderGraph(60);
+
+    uint nProducers = 2;
+    std::vector<ExecStreamResourceQuantity> minReqts;
+    std::vector<ExecStreamResourceQuantity> optReqts;
+    std::vector<ExecStreamResourceQuantity> expected;
+    std::vector<ExecStreamResourceSettingType> optTypes;
+
+    ExecStreamResourceQuantity quantity;
+    ExecStreamResourceSettingType optType;
+
+    // producer 1 - min=20, opt=20, optType=EXEC_RESOURCE_ACCURATE, expected=20
+    quantity.nCachePages = 20;
+    minReqts.push_back(quantity);
+    optReqts.push_back(quantity);
+    expected.push_back(quantity);
+    optType = EXEC_RESOURCE_ACCURATE;
+    optTypes.push_back(optType);
+
+    // producer 2 - min=20, opt=20, optType=EXEC_RESOURCE_ACCURATE, expected=20
+    quantity.nCachePages = 20;
+    minReqts.push_back(quantity);
+    optReqts.push_back(quantity);
+    expected.push_back(quantity);
+    optType = EXEC_RESOURCE_ACCURATE;
+    optTypes.push_back(optType);
+
+    HolderReleaseThread releaseThread(*this);
+    releaseThread.start();
+    testGovernor(nProducers, minReqts, optReqts, optTypes, expected);
+    releaseThread.join();
+}
+
+/**
+ * Same as testGrantAfterWait, except that the other graph never returns its
+ * pages, so once the wait times out, an exception should be returned
+ */
+void ExecStreamGovernorTest::testGrantWaitTimeout()
+{
+    setGrantWait(100);
+    prepareHolderGraph(60);
+
+    uint nProducers = 2;
+    std::vector<ExecStreamResourceQuantity> minReqts;
+    std::vector<ExecStreamResourceQuantity> optReqts;
+    std::vector<ExecStreamResourceQuantity> expected;
+    std::vector<ExecStreamResourceSettingType> optTypes;
+
+    ExecStreamResourceQuantity quantity;
+    ExecStreamResourceSettingType optType;
+
+    // producer 1 - min=20, opt=20, optType=EXEC_RESOURCE_ACCURATE, expected=20
+    quantity.nCachePages = 20;
+    minReqts.push_back(quantity);
+    optReqts.push_back(quantity);
+    expected.push_back(quantity);
+    optType = EXEC_RESOURCE_ACCURATE;
+    optTypes.push_back(optType);
+
+    // producer 2 - min=20, opt=20, optType=EXEC_RESOURCE_ACCURATE, expected=20
+    quantity.nCachePages = 20;
+    minReqts.push_back(quantity);
+    optReqts.push_back(quantity);
+    expected.push_back(quantity);
+    optType = EXEC_RESOURCE_ACCURATE;
+    optTypes.push_back(optType);
+
+    testGovernor(nProducers, minReqts, optReqts, optTypes, expected, true);
+}
+
+/**
+ * Executes a graph whose two producers each have a min of 5 and an opt of 45,
+ * but leaves it open.  The barrier closes its producers once it has read
+ * their output, so the 40 pages each has above its min go back to the
+ * resource governor early, and a second graph asking for 80 pages can be
+ * granted them without waiting for the first graph to close.  The producers
+ * keep their min, in case they are restarted.
+ */
+void ExecStreamGovernorTest::testReturnStreamResources()
+{
+    // fail fast if the pages don't come back
+    setGrantWait(100);
+
+    executeEarlyCloseGraph();
+
+    // the first graph is still open, so this only succeeds if its producers
+    // have already returned their pages
+    try {
+        prepareHolderGraph(80);
+    } catch (FennelExcn &) {
+        BOOST_FAIL("Stream resources not returned early");
+    }
+
+    BOOST_CHECK_EQUAL(5, getStreamCachePages("MockResourceExecStream#0"));
+    BOOST_CHECK_EQUAL(5, getStreamCachePages("MockResourceExecStream#1"));
+}
+
+/**
+ * Same as testReturnStreamResources, except that the producers are then
+ * restarted.  The first gets back the 5 pages still available, and the
+ * second, with none left, runs with its min.
+ */
+void ExecStreamGovernorTest::testRestartStreamResources()
+{
+    setGrantWait(100);
+
+    executeEarlyCloseGraph();
+    prepareHolderGraph(80);
+
+    pGraph->findStream("MockResourceExecStream#0")->open(true);
+    BOOST_CHECK_EQUAL(10, getStreamCachePages("MockResourceExecStream#0"));
+    pGraph->findStream("MockResourceExecStream#1")->open(true);
+    BOOST_CHECK_EQUAL(5, getStreamCachePages("MockResourceExecStream#1"));
+}
+
+void ExecStreamGovernorTest::executeEarlyCloseGraph()
+{
+    uint nProducers = 2;
+    std::vector<ExecStreamResourceQuantity> minReqts;
+    std::vector<ExecStreamResourceQuantity> optReqts;
+    std::vector<ExecStreamResourceQuantity> expected;
+    std::vector<ExecStreamResourceSettingType> optTypes;
+
+    ExecStreamResourceQuantity quantity;
+    ExecStreamResourceSettingType optType;
+
+    // producer 1 - min=5, opt=45, optType=EXEC_RESOURCE_ACCURATE, expected=45
+    quantity.nCachePages = 5;
+    minReqts.push_back(quantity);
+    quantity.nCachePages = 45;
+    optReqts.push_back(quantity);
+    expected.push_back(quantity);
+    optType = EXEC_RESOURCE_ACCURATE;
+    optTypes.push_back(optType);
+
+    // producer 2 - min=5, opt=45, optType=EXEC_RESOURCE_ACCURATE, expected=45
+    quantity.nCachePages = 5;
+    minReqts.push_back(quantity);
+    quantity.nCachePages = 45;
+    optReqts.push_back(quantity);
+    expected.push_back(quantity);
+    optType = EXEC_RESOURCE_ACCURATE;
+    optTypes.push_back(optType);
+
+    testGovernor(nProducers, minReqts, optReqts, optTypes, expected);
+}
+
+uint ExecStreamGovernorTest::getStreamCachePages(std::string name)
+{
+    return pGraph->findStream(name)->getResourceAllocation().nCachePages;
+}
+
+void ExecStreamGovernorTest::prepareHolderGraph(uint nCachePages)
+{
+    StandardTypeDescriptorFactory stdTypeFactory;
+    TupleAttributeDescriptor int8AttrDesc(
+        stdTypeFactory.newDataType(STANDARD_TYPE_INT_8));
+
+    MockResourceExecStreamParams holderParams;
+    holderParams.minReqt.nCachePages = nCachePages;
+    holderParams.optReqt.nCachePages = nCachePages;
+    holderParams.optTypeInput = EXEC_RESOURCE_ACCURATE;
+    holderParams.expected.nCachePages = nCachePages;
+    holderParams.scratchAccessor =
+        pSegmentFactory->newScratchSegment(pCache, nCachePages);
+    holderParams.pCacheAccessor = pCache;
+    holderParams.outputTupleDesc.push_back(int8AttrDesc);
+
+    ExecStreamEmbryo holderStreamEmbryo;
+    holderStreamEmbryo.init(new MockResourceExecStream(), holderParams);
+    holderStreamEmbryo.getStream()->setName("HolderExecStream");
+
+    pHolderScheduler.reset(newScheduler());
+    pHolderGraph = newStreamGraph();
+    pHolderGraphEmbryo.reset(
+        new ExecStreamGraphEmbryo(
+            pHolderGraph, pHolderScheduler, pCache, pSegmentFactory));
+    pHolderGraphEmbryo->saveStreamEmbryo(holderStreamEmbryo);
+
+    SharedExecStream pAdaptedStream =
+        pHolderGraphEmbryo->addAdapterFor(
+            holderStreamEmbryo.getStream()->getName(),
+            0,
+            BUFPROV_PRODUCER);
+    pHolderGraph->addOutputDataflow(pAdaptedStream->getStreamId());
+
+    pHolderGraphEmbryo->prepareGraph(shared_from_this(), "");
+
+    pResourceGovernor->requestResources(*pHolderGraph);
+}
+
+void ExecStreamGovernorTest::releaseHolderGraph()
+{
+    if (pHolderGraph) {
+        pResourceGovernor->returnResources(*pHolderGraph);
+    }
+}
+
+void ExecStreamGovernorTest::releaseHolderGraphLater()
+{
+    snooze(1);
+    releaseHolderGraph();
+}
+
+void ExecStreamGovernorTest::setGrantWait(uint millis)
+{
+    ExecStreamResourceKnobs knob;
+    knob.grantWaitMillis = millis;
+    pResourceGovernor->setResourceKnob(knob, EXEC_KNOB_GRANT_WAIT_MILLIS);
+}
+
+void ExecStreamGovernorTest::tearDownExecStreamTest()
+{
+    releaseHolderGraph();
+    if (pHolderGraph) {
+        // prepared but never opened, so it still has to be closed
+        pHolderGraph->close();
+    }
+    pHolderGraph.reset();
+    pHolderGraphEmbryo.reset();
+    pHolderScheduler.reset();
+    ExecStreamUnitTestBase::tearDownExecStreamTest();
+}
+
 void ExecStreamGovernorTest::testGovernor(
     uint nProducers,
     std::vector<ExecStreamResourceQuantity> const &minReqts,
@@ -38,6 +38,9 @@
 #include "fennel/flatfile/FlatFileBuffer.h"
 #include "fennel/flatfile/FlatFileParser.h"
 #include "fennel/flatfile/FlatFileExecStream.h"
+#include "fennel/common/FileSystem.h"
+
+#include <sstream>
 
 using namespace fennel;
 
@@ -82,6 +85,10 @@ class FlatFileExecStreamTest : public ExecStreamUnitTestBase
         FlatFileBuffer &buffer,
         const char *string);
 
+    void checkCompressedRead(
+        const char *programName,
+        const char *trailer);
+
     void checkTrim(
         FlatFileParser &parser,
         const char *string,
@@ -108,11 +115,13 @@ public:
     explicit FlatFileExecStreamTest()
     {
         FENNEL_UNIT_TEST_CASE(FlatFileExecStreamTest, testBuffer);
+        FENNEL_UNIT_TEST_CASE(FlatFileExecStreamTest, testCompressedBuffer);
         FENNEL_UNIT_TEST_CASE(FlatFileExecStreamTest, testParser);
         FENNEL_UNIT_TEST_CASE(FlatFileExecStreamTest, testStream);
     }
 
     void testBuffer();
+    void testCompressedBuffer();
     void testParser();
     void testStream();
 };
@@ -138,6 +147,53 @@ void FlatFileExecStreamTest::testBuffer()
     BOOST_CHECK(pFileBuffer->isComplete());
 }
 
+void FlatFileExecStreamTest::testCompressedBuffer()
+{
+    checkCompressedRead("gzip", "");
+
+    // gzip warns about trailing garbage, with exit status 2, but still
+    // decompresses everything before it
+    checkCompressedRead("gzip", "garbage");
+
+    checkCompressedRead("lz4", "");
+}
+
+void FlatFileExecStreamTest::checkCompressedRead(
+    const char *programName,
+    const char *trailer)
+{
+    std::string program = std::string("/bin/") + programName;
+    if (!FileSystem::doesFileExist(program.c_str())) {
+        program = std::string("/usr/bin/") + programName;
+        if (!FileSystem::doesFileExist(program.c_str())) {
+            // not installed, so there is nothing to test
+            return;
+        }
+    }
+    std::string path = std::string("flatfile/buffer.") + programName;
+    std::ostringstream cmd;
+    cmd << program << " -c < flatfile/buffer > " << path;
+    BOOST_REQUIRE_EQUAL(system(cmd.str().c_str()), 0);
+    if (strlen(trailer) > 0) {
+        FILE *pFile = fopen(path.c_str(), "a");
+        BOOST_REQUIRE(pFile != NULL);
+        fputs(trailer, pFile);
+        fclose(pFile);
+    }
+
+    FixedBuffer fixedBuffer[32];
+    SharedFlatFileBuffer pFileBuffer;
+    pFileBuffer.reset(new FlatFileBuffer(path), ClosableObjectDestructor());
+    pFileBuffer->open();
+    pFileBuffer->setStorage((char *) fixedBuffer, (uint)32);
+
+    checkRead(*pFileBuffer, "12345671234567654\n");
+    BOOST_CHECK(pFileBuffer->isComplete());
+
+    pFileBuffer->close();
+    FileSystem::remove(path.c_str());
+}
+
 void FlatFileExecStreamTest::testParser()
 {
     FlatFileParser parser(',', '\n', '"', '"');
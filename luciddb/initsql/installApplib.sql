@@ -1186,6 +1186,56 @@ parameter style java
 reads sql data
 external name 'applib.applibJar:org.eigenbase.applib.util.CreateTbFromSelectStmtUdp.execute';
 
+create or replace procedure applib.refresh_snapshot(
+in sourceTable varchar(1024),
+in schemaName varchar(128),
+in tableName varchar(128),
+in watermarkColumn varchar(128),
+in keyColumns varchar(65535),
+in maxStalenessSeconds int)
+language java
+parameter style java
+modifies sql data
+external name 'applib.applibJar:org.eigenbase.applib.util.RefreshSnapshotUdp.execute';
+
+create or replace procedure applib.create_materialized_aggregate(
+in schemaName varchar(128),
+in tableName varchar(128),
+in query varchar(65535))
+language java
+parameter style java
+modifies sql data
+external name 'applib.applibJar:org.eigenbase.applib.util.MaterializedAggregateUdp.create';
+
+create or replace procedure applib.refresh_materialized_aggregate(
+in schemaName varchar(128),
+in tableName varchar(128))
+language java
+parameter style java
+modifies sql data
+external name 'applib.applibJar:org.eigenbase.applib.util.MaterializedAggregateUdp.refresh';
+
+create or replace procedure applib.attach_range_partition(
+in schemaName varchar(128),
+in viewName varchar(128),
+in tableName varchar(128),
+in columnName varchar(128),
+in lowerBound varchar(65535),
+in upperBound varchar(65535))
+language java
+parameter style java
+modifies sql data
+external name 'applib.applibJar:org.eigenbase.applib.util.RangePartitionUdp.attach';
+
+create or replace procedure applib.detach_range_partition(
+in schemaName varchar(128),
+in viewName varchar(128),
+in tableName varchar(128))
+language java
+parameter style java
+modifies sql data
+external name 'applib.applibJar:org.eigenbase.applib.util.RangePartitionUdp.detach';
+
 create or replace procedure applib.execute_script(
     engine_name varchar(255), 
     script varchar(65535))
@@ -0,0 +1,69 @@
+-- test the materialized aggregate UDPs and the rewrite which uses them
+
+create schema matagg;
+set schema 'matagg';
+
+create table sales(region varchar(10), product varchar(10), qty int);
+insert into sales values
+('east', 'a', 1), ('east', 'b', 2), ('west', 'a', 3), ('west', 'a', 4),
+('north', 'b', null);
+
+call applib.create_materialized_aggregate(null, 'SALES_AGG',
+'select region, product, count(*) as cnt, sum(qty) as total, min(qty) as lo, max(qty) as hi from sales group by region, product');
+select * from sales_agg order by region, product;
+
+!set outputformat csv
+
+-- same grouping keys: the stored rows are read directly
+explain plan for
+select region, product, sum(qty) as total from sales group by region, product;
+select region, product, sum(qty) as total from sales group by region, product
+order by region, product;
+
+-- fewer grouping keys: the stored rows are rolled up, with counts summed
+explain plan for
+select region, sum(qty) as total from sales group by region;
+select region, count(*), sum(qty), min(qty), max(qty) from sales
+group by region order by region;
+select count(*), count(qty) from sales;
+
+-- not covered: QTY is neither a grouping key nor stored
+select qty, count(*) from sales group by qty order by qty;
+
+-- after an append the base table is read until the next refresh
+insert into sales values ('east', 'a', 10), ('south', 'c', 5);
+explain plan for
+select region, product, sum(qty) as total from sales group by region, product;
+select region, product, sum(qty) as total from sales group by region, product
+order by region, product;
+
+-- an incremental refresh merges in the new rows
+call applib.refresh_materialized_aggregate(null, 'SALES_AGG');
+explain plan for
+select region, product, sum(qty) as total from sales group by region, product;
+select * from sales_agg order by region, product;
+select region, product, sum(qty) as total from sales group by region, product
+order by region, product;
+
+-- after a delete the base table is read, and the next refresh recomputes
+delete from sales where region = 'west';
+select region, sum(qty) as total from sales group by region order by region;
+call applib.refresh_materialized_aggregate(null, 'SALES_AGG');
+select * from sales_agg order by region, product;
+
+-- a session with a label set reads the base table as of the label, which
+-- a fresh materialization need not match
+create label l;
+alter session set "label" = 'L';
+explain plan for
+select region, product, sum(qty) as total from sales group by region, product;
+select region, product, sum(qty) as total from sales group by region, product
+order by region, product;
+alter session set "label" = null;
+drop label l;
+
+-- a table which is not a materialized aggregate cannot be refreshed
+call applib.refresh_materialized_aggregate(null, 'SALES');
+
+-- do cleanup
+drop schema matagg cascade;
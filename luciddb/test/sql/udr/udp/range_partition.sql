@@ -0,0 +1,82 @@
+-- test the range partition UDPs and the pruning of the views they define
+
+create schema rp;
+set schema 'rp';
+
+create table p1(k int, v varchar(10));
+create table p2(k int, v varchar(10));
+create table p3(k int, v varchar(10));
+create table p4(k int, v varchar(10));
+insert into p1 values (1, 'a'), (99, 'b'), (150, 'stray');
+insert into p2 values (100, 'c'), (199, 'd'), (null, 'stray');
+insert into p3 values (200, 'e'), (1000, 'f'), (-5, 'stray');
+insert into p4 values (120, 'g');
+
+-- bounds are plain values, converted to the type of the column
+call applib.attach_range_partition(null, 'V', 'P1', 'K', null, '100');
+call applib.attach_range_partition(null, 'V', 'P2', 'K', '100', '200');
+call applib.attach_range_partition(null, 'V', 'P3', 'K', '200', null);
+
+-- rows outside a partition's range, and null keys, are not visible
+select * from v order by k;
+
+!set outputformat csv
+
+-- without a predicate on the partitioning column every partition is read
+explain plan for select * from v;
+
+-- predicates on the partitioning column prune the other partitions
+explain plan for select * from v where k = 100;
+select * from v where k = 100;
+explain plan for select * from v where k >= 150 and k < 250;
+select * from v where k >= 150 and k < 250 order by k;
+explain plan for select * from v where k < 0;
+select * from v where k < 0;
+
+-- ranges must not overlap
+call applib.attach_range_partition(null, 'V', 'P4', 'K', '150', '180');
+
+-- all partitions must use the same column
+call applib.attach_range_partition(null, 'V', 'P4', 'V', 'a', 'b');
+call applib.attach_range_partition(null, 'V', 'P4', 'X', '150', '180');
+
+-- bounds must be values of the column's type, lower below upper
+call applib.attach_range_partition(null, 'V', 'P4', 'K', 'abc', null);
+call applib.attach_range_partition(null, 'V', 'P4', 'K', '300', '300');
+
+-- detaching a partition frees its range for another one
+call applib.detach_range_partition(null, 'V', 'P2');
+call applib.attach_range_partition(null, 'V', 'P4', 'K', '100', '150');
+select * from v order by k;
+explain plan for select * from v where k = 120;
+select * from v where k = 120;
+
+-- datetime bounds are written as datetime literals, and quotes in
+-- character bounds are escaped
+create table d1(d date, n int);
+create table d2(d date, n int);
+insert into d1 values (date '2009-06-01', 1), (date '2010-02-01', 2);
+insert into d2 values (date '2010-03-01', 3), (date '2008-12-31', 4);
+call applib.attach_range_partition(
+null, 'DV', 'D1', 'D', '2009-01-01', '2010-01-01');
+call applib.attach_range_partition(null, 'DV', 'D2', 'D', '2010-01-01', null);
+select * from dv order by d;
+select * from dv where d < date '2010-01-01';
+create table d3(d int, n int);
+call applib.attach_range_partition(null, 'DV', 'D3', 'D', '1', '2');
+
+create table c1(name varchar(20));
+create table c2(name varchar(20));
+insert into c1 values ('Jones'), ('Smith');
+insert into c2 values ('Jones'), ('Smith');
+call applib.attach_range_partition(null, 'CV', 'C1', 'NAME', null, 'O''Brien');
+call applib.attach_range_partition(null, 'CV', 'C2', 'NAME', 'O''Brien', null);
+select * from cv order by name;
+
+-- the view is dropped with its last partition
+call applib.detach_range_partition(null, 'V', 'P1');
+call applib.detach_range_partition(null, 'V', 'P3');
+call applib.detach_range_partition(null, 'V', 'P4');
+select * from v;
+select count(*) from p1;
+
@@ -0,0 +1,54 @@
+-- test the refresh_snapshot UDP
+
+create schema snap;
+set schema 'snap';
+
+-- full refresh: each call replaces the snapshot contents
+create table src_full(id int, name varchar(10), updated int);
+insert into src_full values (1, 'a', 10), (2, 'b', 20);
+call applib.refresh_snapshot('SNAP.SRC_FULL', 'SNAP', 'FULL_SNAP', null, null, null);
+select * from full_snap order by id;
+delete from src_full where id = 1;
+insert into src_full values (3, 'c', 30);
+call applib.refresh_snapshot('SNAP.SRC_FULL', 'SNAP', 'FULL_SNAP', null, null, null);
+select * from full_snap order by id;
+-- the staging table used by the refresh is gone again
+select table_name from sys_root.dba_tables
+where schema_name = 'SNAP' and table_name like 'FULL_SNAP%';
+
+-- append on a watermark; row 3 arrives after the first refresh but shares
+-- its watermark with row 2, so it must still be picked up, and row 2 must
+-- not be duplicated, nor must row 5 with its null; the column name is not
+-- case sensitive
+create table src_app(id int, name varchar(10), updated int);
+insert into src_app values (1, 'a', 10), (2, 'b', 20), (5, null, 20);
+call applib.refresh_snapshot('SNAP.SRC_APP', 'SNAP', 'APP_SNAP', 'updated', null, null);
+insert into src_app values (3, 'c', 20), (4, 'd', 30);
+call applib.refresh_snapshot('SNAP.SRC_APP', 'SNAP', 'APP_SNAP', 'updated', null, null);
+select * from app_snap order by id;
+
+-- merge on keys: row 2 is updated in place and row 3 is added at the old
+-- watermark; key names are not case sensitive either
+create table src_mrg(id int, name varchar(10), updated int);
+insert into src_mrg values (1, 'a', 10), (2, 'b', 20);
+call applib.refresh_snapshot('SNAP.SRC_MRG', 'SNAP', 'MRG_SNAP', 'updated', 'id', null);
+update src_mrg set name = 'B', updated = 30 where id = 2;
+insert into src_mrg values (3, 'c', 20);
+call applib.refresh_snapshot('SNAP.SRC_MRG', 'SNAP', 'MRG_SNAP', 'updated', 'id', null);
+select * from mrg_snap order by id;
+
+-- a recent enough snapshot is not refreshed
+insert into src_mrg values (4, 'd', 40);
+call applib.refresh_snapshot('SNAP.SRC_MRG', 'SNAP', 'MRG_SNAP', 'updated', 'id', 3600);
+select count(*) from mrg_snap;
+call applib.refresh_snapshot('SNAP.SRC_MRG', 'SNAP', 'MRG_SNAP', 'updated', 'id', null);
+select count(*) from mrg_snap;
+
+-- invalid key columns
+call applib.refresh_snapshot('SNAP.SRC_MRG', 'SNAP', 'MRG_SNAP', 'updated', 'no_such_col', null);
+call applib.refresh_snapshot('SNAP.SRC_MRG', 'SNAP', 'MRG_SNAP', 'updated', '"id"', null);
+call applib.refresh_snapshot('SNAP.SRC_MRG', 'SNAP', 'MRG_SNAP', 'updated', ' , ', null);
+
+-- do cleanup
+call applib.delete_var('APPLIB.SNAPSHOTS', null);
+drop schema snap cascade;
@@ -0,0 +1,155 @@
+/*
+// Licensed to DynamoBI Corporation (DynamoBI) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  DynamoBI licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+
+//   http://www.apache.org/licenses/LICENSE-2.0
+
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+*/
+package com.lucidera.luciddb.test;
+
+import java.sql.*;
+
+import net.sf.farrago.test.*;
+import net.sf.farrago.util.*;
+
+import org.eigenbase.util.property.*;
+
+
+/**
+ * LucidDB JDBC test for prepared statements whose plans read a materialized
+ * aggregate. Unlike a SQL script, it executes the same prepared statement
+ * more than once.
+ *
+ * @version $Id$
+ */
+public class LucidDbMaterializedAggregateTest
+    extends FarragoTestCase
+{
+    //~ Static fields/initializers ---------------------------------------------
+
+    private static final String QUERY =
+        "select region, sum(qty) from matagg_jdbc.sales"
+        + " group by region order by region";
+
+    //~ Constructors -----------------------------------------------------------
+
+    public LucidDbMaterializedAggregateTest(String testname)
+        throws Exception
+    {
+        super(testname);
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    public void setUp()
+        throws Exception
+    {
+        // Use the LucidDB session factory and data files, as
+        // LucidDbJdbcLabelTest does, so that the rewrite rule is used.
+        FarragoProperties farragoPropInstance = FarragoProperties.instance();
+        StringProperty sessionFactory =
+            farragoPropInstance.defaultSessionFactoryLibraryName;
+        System.setProperty(
+            sessionFactory.getPath(),
+            "class:org.luciddb.session.LucidDbSessionFactory");
+        String homeDirString = farragoPropInstance.homeDir.get(true);
+        String catalogDir = homeDirString + "/../luciddb/catalog";
+        farragoPropInstance.catalogDir.set(catalogDir);
+
+        if (connection != null) {
+            connection.close();
+        }
+
+        connection = newConnection();
+        repos = getSession().getRepos();
+        saveParameters();
+
+        LucidDbJdbcLabelTest.runCleanup();
+        super.setUp();
+    }
+
+    public void tearDown()
+        throws Exception
+    {
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
+    }
+
+    /**
+     * Tests that a prepared statement which reads a materialized aggregate
+     * sees a modification of the base table when it is executed again.
+     */
+    public void testReexecuteAfterBaseTableChange()
+        throws Exception
+    {
+        Statement ddl = connection.createStatement();
+        ddl.executeUpdate("create schema matagg_jdbc");
+        ddl.executeUpdate(
+            "create table matagg_jdbc.sales("
+            + "region varchar(10), product varchar(10), qty int)");
+        ddl.executeUpdate(
+            "insert into matagg_jdbc.sales values"
+            + " ('east', 'a', 1), ('east', 'b', 2), ('west', 'a', 3)");
+        ddl.executeUpdate(
+            "call applib.create_materialized_aggregate('MATAGG_JDBC',"
+            + " 'SALES_AGG', 'select region, product, count(*) as cnt,"
+            + " sum(qty) as total from matagg_jdbc.sales"
+            + " group by region, product')");
+
+        PreparedStatement query = connection.prepareStatement(QUERY);
+        try {
+            checkTotals(query, 3, 3);
+
+            // the rewritten plan must not keep reading the materialization,
+            // which no longer covers the new row
+            ddl.executeUpdate(
+                "insert into matagg_jdbc.sales values ('east', 'a', 10)");
+            checkTotals(query, 13, 3);
+
+            // nor miss the materialization's new contents after a refresh
+            ddl.executeUpdate(
+                "call applib.refresh_materialized_aggregate('MATAGG_JDBC',"
+                + " 'SALES_AGG')");
+            checkTotals(query, 13, 3);
+        } finally {
+            query.close();
+            ddl.executeUpdate("drop schema matagg_jdbc cascade");
+            ddl.close();
+        }
+    }
+
+    private void checkTotals(
+        PreparedStatement query,
+        int eastTotal,
+        int westTotal)
+        throws SQLException
+    {
+        ResultSet rs = query.executeQuery();
+        try {
+            assertTrue(rs.next());
+            assertEquals("east", rs.getString(1));
+            assertEquals(eastTotal, rs.getInt(2));
+            assertTrue(rs.next());
+            assertEquals("west", rs.getString(1));
+            assertEquals(westTotal, rs.getInt(2));
+            assertFalse(rs.next());
+        } finally {
+            rs.close();
+        }
+    }
+}
+
+// End LucidDbMaterializedAggregateTest.java